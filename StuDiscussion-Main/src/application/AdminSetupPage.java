@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 
 import databasePart1.DatabaseHelper;
+import databasePart1.UserRoleIndex;
 
 /**
  * The SetupAdmin class handles the setup process for creating an administrator account.
@@ -60,8 +61,8 @@ public class AdminSetupPage {
             String email = emailField.getText();
             //String userRole = roleDropdown.getText();
 
-            String userNameError = UserNameRecognizer.checkForValidUserName(userName);
-            String passwordError = PasswordEvaluator.evaluatePassword(password);
+            String userNameError = UserNameDFA.messageOf(UserNameDFA.check(userName));
+            String passwordError = PasswordCheck.evaluate(password).getMessage();
 
             boolean hasErrors = false;
 
@@ -113,6 +114,7 @@ public class AdminSetupPage {
 
                 // Register user in the database
                 databaseHelper.register(user, roles); // Pass both user and roles
+                UserRoleIndex.of(databaseHelper).onUserRegistered(user);
                 System.out.println("Administrator setup completed.");
                 
                 // Navigate to the Welcome Login Page
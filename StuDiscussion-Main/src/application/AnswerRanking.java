@@ -0,0 +1,407 @@
+package application;
+
+import databasePart1.ConnectionPool;
+import databasePart1.DatabaseHelper;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Ranks the answers to a question for one student, using the student's trusted-reviewer weights.
+ * <p>
+ * An answer's score is the sum of:
+ * </p>
+ * <ul>
+ *   <li>{@link #SOLUTION_BONUS} if it is the accepted solution,</li>
+ *   <li>{@link #AUTHOR_TRUST_FACTOR} times the student's weight for its author,</li>
+ *   <li>for each review, the student's weight for the reviewer plus {@link #REVIEW_BASE},</li>
+ *   <li>{@link #RECENCY_BONUS}, halved every {@link #RECENCY_HALF_LIFE_DAYS} days of age.</li>
+ * </ul>
+ * <p>
+ * The per-question answer data (authors, reviewers, solution flag, dates) is loaded once and
+ * shared by all students. The sorted ranking is cached per (student, question) and kept up to
+ * date incrementally when a review is added, a solution is marked or a trust weight changes,
+ * so the review page gets pre-sorted answers. Rankings are rebuilt after
+ * {@link #MAX_RANKING_AGE_MILLIS} so the recency part does not drift.
+ * </p>
+ */
+public class AnswerRanking {
+
+    public static final double SOLUTION_BONUS = 10.0;
+    public static final double AUTHOR_TRUST_FACTOR = 2.0;
+    public static final double REVIEW_BASE = 0.25;
+    public static final double RECENCY_BONUS = 1.0;
+    public static final double RECENCY_HALF_LIFE_DAYS = 7.0;
+    public static final long MAX_RANKING_AGE_MILLIS = 10 * 60 * 1000;
+
+    private static final int MAX_QUESTIONS = 256;
+    private static final int MAX_RANKINGS = 1024;
+    private static final double MILLIS_PER_DAY = 24 * 60 * 60 * 1000.0;
+
+    private static final Map<DatabaseHelper, AnswerRanking> instances = new WeakHashMap<>();
+
+    // What scoring needs to know about one answer, independent of the student
+    static class AnswerFeatures {
+        final Answer answer;
+        final int authorId;
+        final long createdMillis;
+        final Map<Integer, Integer> reviewsByReviewer = new HashMap<>();   // reviewer id -> number of reviews
+
+        AnswerFeatures(Answer answer, long createdMillis) {
+            this.answer = answer;
+            this.authorId = answer.getUser() != null ? answer.getUser().getId() : -1;
+            this.createdMillis = createdMillis;
+        }
+    }
+
+    // The answers to one question in database order
+    static class QuestionFeatures {
+        final Map<Integer, AnswerFeatures> answers = new LinkedHashMap<>();
+
+        void add(AnswerFeatures answer) {
+            answers.put(answer.answer.getId(), answer);
+        }
+    }
+
+    // One student's ranking of one question
+    private static class Ranking {
+        final int questionId;
+        final long builtAt;
+        final Map<Integer, Double> scores = new HashMap<>();
+        final List<Answer> order = new ArrayList<>();
+
+        Ranking(int questionId, long builtAt) {
+            this.questionId = questionId;
+            this.builtAt = builtAt;
+        }
+
+        void sort() {
+            order.sort((a1, a2) -> {
+                int byScore = Double.compare(scores.get(a2.getId()), scores.get(a1.getId()));
+                return byScore != 0 ? byScore : Integer.compare(a2.getId(), a1.getId());
+            });
+        }
+    }
+
+    // Counts the changes to each key while loads of it run, so a load that raced a change is not cached
+    private static class LoadVersions {
+        private final Map<Integer, long[]> byKey = new HashMap<>();   // key -> { loads running, version }
+
+        long start(int key) {
+            long[] entry = byKey.computeIfAbsent(key, k -> new long[2]);
+            entry[0]++;
+            return entry[1];
+        }
+
+        void changed(int key) {
+            long[] entry = byKey.get(key);
+            if (entry != null) {
+                entry[1]++;
+            }
+        }
+
+        void changedAll() {
+            for (long[] entry : byKey.values()) {
+                entry[1]++;
+            }
+        }
+
+        // Returns whether the key is unchanged since the load started
+        boolean finish(int key, long startVersion) {
+            long[] entry = byKey.get(key);
+            boolean unchanged = entry[1] == startVersion;
+            if (--entry[0] == 0) {
+                byKey.remove(key);
+            }
+            return unchanged;
+        }
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final Map<Integer, QuestionFeatures> questions = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, Map<Integer, Integer>> weightsByStudent = new HashMap<>();   // reviewer id -> weight
+    private final Map<Long, Ranking> rankings = new LinkedHashMap<>(16, 0.75f, true);
+    private final LoadVersions questionLoads = new LoadVersions();
+    private final LoadVersions weightLoads = new LoadVersions();
+
+    public AnswerRanking(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /** Returns the shared ranking engine for a DatabaseHelper. */
+    public static AnswerRanking of(DatabaseHelper databaseHelper) {
+        synchronized (instances) {
+            return instances.computeIfAbsent(databaseHelper, AnswerRanking::new);
+        }
+    }
+
+    /**
+     * Returns the answers to a question, best first for the given student.
+     *
+     * @return a new list; the Answer objects are shared with the cache
+     */
+    public List<Answer> getRankedAnswers(int studentId, int questionId) throws SQLException {
+        long key = key(studentId, questionId);
+        synchronized (this) {
+            Ranking ranking = rankings.get(key);
+            if (ranking != null && System.currentTimeMillis() - ranking.builtAt <= MAX_RANKING_AGE_MILLIS) {
+                return new ArrayList<>(ranking.order);
+            }
+        }
+
+        // Load what is missing outside the lock so other lookups are not blocked on the database
+        QuestionFeatures features;
+        Map<Integer, Integer> weights;
+        boolean loadingQuestion;
+        boolean loadingWeights;
+        long questionVersion = 0;
+        long weightVersion = 0;
+        synchronized (this) {
+            features = questions.get(questionId);
+            weights = weightsByStudent.get(studentId);
+            loadingQuestion = features == null;
+            loadingWeights = weights == null;
+            if (loadingQuestion) {
+                questionVersion = questionLoads.start(questionId);
+            }
+            if (loadingWeights) {
+                weightVersion = weightLoads.start(studentId);
+            }
+        }
+        try {
+            if (loadingQuestion) {
+                features = loadQuestion(questionId);
+            }
+            if (loadingWeights) {
+                weights = loadWeights(studentId);
+            }
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                if (loadingQuestion) {
+                    questionLoads.finish(questionId, questionVersion);
+                }
+                if (loadingWeights) {
+                    weightLoads.finish(studentId, weightVersion);
+                }
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            // Only install what no invalidation or incremental update raced with
+            if (loadingQuestion && questionLoads.finish(questionId, questionVersion)) {
+                questions.putIfAbsent(questionId, features);
+            }
+            if (loadingWeights && weightLoads.finish(studentId, weightVersion)) {
+                weightsByStudent.putIfAbsent(studentId, weights);
+            }
+            QuestionFeatures cachedFeatures = questions.get(questionId);
+            Map<Integer, Integer> cachedWeights = weightsByStudent.get(studentId);
+            if (cachedFeatures == null || cachedWeights == null) {
+                // Changed while loading: rank what was read this time and cache nothing
+                return new ArrayList<>(build(features, weights, questionId).order);
+            }
+            Ranking ranking = build(cachedFeatures, cachedWeights, questionId);
+            rankings.put(key, ranking);
+            trim(questions, MAX_QUESTIONS);
+            trim(rankings, MAX_RANKINGS);
+            return new ArrayList<>(ranking.order);
+        }
+    }
+
+    /** Adds a review to the cached data and re-ranks the affected rankings. */
+    public synchronized void onReviewAdded(int questionId, int answerId, int reviewerId) {
+        QuestionFeatures features = questions.get(questionId);
+        AnswerFeatures answer = features != null ? features.answers.get(answerId) : null;
+        if (answer == null) {
+            invalidateQuestion(questionId);
+            return;
+        }
+        answer.reviewsByReviewer.merge(reviewerId, 1, Integer::sum);
+        forEachRanking(questionId, (studentId, ranking) -> {
+            double weight = weightsByStudent.getOrDefault(studentId, Collections.emptyMap()).getOrDefault(reviewerId, 0);
+            ranking.scores.merge(answerId, weight + REVIEW_BASE, Double::sum);
+        });
+    }
+
+    /** Moves the solution bonus to a newly accepted answer. */
+    public synchronized void onSolutionMarked(int questionId, int answerId) {
+        QuestionFeatures features = questions.get(questionId);
+        if (features == null || !features.answers.containsKey(answerId)) {
+            invalidateQuestion(questionId);
+            return;
+        }
+        forEachRanking(questionId, (studentId, ranking) -> {
+            for (AnswerFeatures answer : features.answers.values()) {
+                if (answer.answer.isSolution() && answer.answer.getId() != answerId) {
+                    ranking.scores.merge(answer.answer.getId(), -SOLUTION_BONUS, Double::sum);
+                }
+            }
+            if (!features.answers.get(answerId).answer.isSolution()) {
+                ranking.scores.merge(answerId, SOLUTION_BONUS, Double::sum);
+            }
+        });
+        for (AnswerFeatures answer : features.answers.values()) {
+            answer.answer.setSolution(answer.answer.getId() == answerId);
+        }
+    }
+
+    /**
+     * Applies a changed trust weight (0 when the reviewer is no longer trusted) to the
+     * student's cached rankings.
+     */
+    public synchronized void onTrustWeightChanged(int studentId, int reviewerId, int newWeight) {
+        weightLoads.changed(studentId);
+        Map<Integer, Integer> weights = weightsByStudent.get(studentId);
+        if (weights == null) {
+            return;     // nothing cached for this student
+        }
+        int oldWeight = weights.getOrDefault(reviewerId, 0);
+        if (newWeight == 0) {
+            weights.remove(reviewerId);
+        } else {
+            weights.put(reviewerId, newWeight);
+        }
+        int delta = newWeight - oldWeight;
+        if (delta == 0) {
+            return;
+        }
+        for (Map.Entry<Long, Ranking> entry : rankings.entrySet()) {
+            if (studentOf(entry.getKey()) != studentId) {
+                continue;
+            }
+            Ranking ranking = entry.getValue();
+            QuestionFeatures features = questions.get(ranking.questionId);
+            if (features == null) {
+                continue;
+            }
+            for (AnswerFeatures answer : features.answers.values()) {
+                int uses = answer.reviewsByReviewer.getOrDefault(reviewerId, 0);
+                double change = delta * (uses + (answer.authorId == reviewerId ? AUTHOR_TRUST_FACTOR : 0));
+                if (change != 0) {
+                    ranking.scores.merge(answer.answer.getId(), change, Double::sum);
+                }
+            }
+            ranking.sort();
+        }
+    }
+
+    /** Drops everything cached for a question, e.g. after an answer was added, edited or deleted. */
+    public synchronized void invalidateQuestion(int questionId) {
+        questionLoads.changed(questionId);
+        questions.remove(questionId);
+        rankings.values().removeIf(ranking -> ranking.questionId == questionId);
+    }
+
+    public synchronized void clear() {
+        questionLoads.changedAll();
+        weightLoads.changedAll();
+        questions.clear();
+        weightsByStudent.clear();
+        rankings.clear();
+    }
+
+    /** Scores one answer for a student. */
+    static double score(boolean solution, int authorId, Map<Integer, Integer> reviewsByReviewer,
+                        long ageMillis, Map<Integer, Integer> weights) {
+        double score = solution ? SOLUTION_BONUS : 0;
+        score += AUTHOR_TRUST_FACTOR * weights.getOrDefault(authorId, 0);
+        for (Map.Entry<Integer, Integer> review : reviewsByReviewer.entrySet()) {
+            score += review.getValue() * (weights.getOrDefault(review.getKey(), 0) + REVIEW_BASE);
+        }
+        double ageDays = Math.max(0, ageMillis) / MILLIS_PER_DAY;
+        score += RECENCY_BONUS * Math.pow(0.5, ageDays / RECENCY_HALF_LIFE_DAYS);
+        return score;
+    }
+
+    private Ranking build(QuestionFeatures features, Map<Integer, Integer> weights, int questionId) {
+        long now = System.currentTimeMillis();
+        Ranking ranking = new Ranking(questionId, now);
+        for (AnswerFeatures answer : features.answers.values()) {
+            ranking.scores.put(answer.answer.getId(), score(answer.answer.isSolution(), answer.authorId,
+                    answer.reviewsByReviewer, now - answer.createdMillis, weights));
+            ranking.order.add(answer.answer);
+        }
+        ranking.sort();
+        return ranking;
+    }
+
+    // Runs an update on every cached ranking of a question, then re-sorts it
+    private void forEachRanking(int questionId, BiConsumer<Integer, Ranking> update) {
+        for (Map.Entry<Long, Ranking> entry : rankings.entrySet()) {
+            Ranking ranking = entry.getValue();
+            if (ranking.questionId == questionId) {
+                update.accept(studentOf(entry.getKey()), ranking);
+                ranking.sort();
+            }
+        }
+    }
+
+    // One query for the answers and one for their reviewers
+    QuestionFeatures loadQuestion(int questionId) throws SQLException {
+        QuestionFeatures features = new QuestionFeatures();
+        AnswerRowMapper mapper = new AnswerRowMapper(databaseHelper);
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            try (PreparedStatement pstmt = connection.prepareStatement("SELECT " + AnswerRowMapper.COLUMNS
+                    + ", a.date_created AS a_date_created" + AnswerRowMapper.FROM + " WHERE a.question_id = ?")) {
+                pstmt.setInt(1, questionId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Answer answer = mapper.map(rs);
+                        Timestamp created = rs.getTimestamp("a_date_created");
+                        features.add(new AnswerFeatures(answer, created != null ? created.getTime() : 0));
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "SELECT r.answer_id, r.reviewer_id FROM Reviews r JOIN Answers a ON a.id = r.answer_id "
+                            + "WHERE a.question_id = ?")) {
+                pstmt.setInt(1, questionId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        AnswerFeatures answer = features.answers.get(rs.getInt("answer_id"));
+                        if (answer != null) {
+                            answer.reviewsByReviewer.merge(rs.getInt("reviewer_id"), 1, Integer::sum);
+                        }
+                    }
+                }
+            }
+        }
+        return features;
+    }
+
+    Map<Integer, Integer> loadWeights(int studentId) throws SQLException {
+        Map<Integer, Integer> weights = new HashMap<>();
+        for (Map.Entry<User, Integer> entry : databaseHelper.getTrustedReviewersForStudent(studentId).entrySet()) {
+            weights.put(entry.getKey().getId(), entry.getValue());
+        }
+        return weights;
+    }
+
+    private static long key(int studentId, int questionId) {
+        return ((long) studentId << 32) | (questionId & 0xFFFFFFFFL);
+    }
+
+    private static int studentOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static <K, V> void trim(Map<K, V> accessOrdered, int maxSize) {
+        Iterator<K> eldest = accessOrdered.keySet().iterator();
+        while (accessOrdered.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+}
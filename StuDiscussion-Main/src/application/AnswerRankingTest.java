@@ -0,0 +1,141 @@
+package application;
+
+import org.junit.jupiter.api.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AnswerRankingTest {
+
+    private static final int STUDENT_ID = 1;
+    private static final int QUESTION_ID = 10;
+    private static final int TRUSTED_REVIEWER_ID = 2;
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    /** Serves a fixed question from memory and counts how often it is loaded. */
+    private static class FixtureRanking extends AnswerRanking {
+        final Map<Integer, Integer> weights = new HashMap<>();
+        int questionLoads = 0;
+        Runnable duringWeightLoad = () -> { };
+
+        FixtureRanking() {
+            super(null);
+            weights.put(TRUSTED_REVIEWER_ID, 5);
+        }
+
+        @Override
+        QuestionFeatures loadQuestion(int questionId) {
+            questionLoads++;
+            long now = System.currentTimeMillis();
+            User student = new User(STUDENT_ID, "student", "Password!123", "s@example.com", List.of("Student"));
+            Question question = new Question(questionId, "What is a deadlock?", student, "threads");
+            QuestionFeatures features = new QuestionFeatures();
+            // Answer 100 is the newest, answer 101 was written by the trusted reviewer,
+            // answer 102 has two reviews from untrusted reviewers
+            features.add(new AnswerFeatures(new Answer(100, "Newest", user(3), question), now));
+            features.add(new AnswerFeatures(new Answer(101, "Trusted author", user(TRUSTED_REVIEWER_ID), question), now - 30 * DAY));
+            AnswerFeatures reviewed = new AnswerFeatures(new Answer(102, "Reviewed", user(4), question), now - 30 * DAY);
+            reviewed.reviewsByReviewer.put(5, 1);
+            reviewed.reviewsByReviewer.put(6, 1);
+            features.add(reviewed);
+            return features;
+        }
+
+        @Override
+        Map<Integer, Integer> loadWeights(int studentId) {
+            Map<Integer, Integer> loaded = new HashMap<>(weights);
+            duringWeightLoad.run();
+            return loaded;
+        }
+
+        private static User user(int id) {
+            return new User(id, "user" + id, "Password!123", "u" + id + "@example.com", List.of("Student"));
+        }
+    }
+
+    @Test
+    public void testTrustedAuthorRanksFirst() throws Exception {
+        FixtureRanking ranking = new FixtureRanking();
+
+        assertEquals(List.of(101, 100, 102), ids(ranking.getRankedAnswers(STUDENT_ID, QUESTION_ID)));
+    }
+
+    @Test
+    public void testRankingIsCached() throws Exception {
+        FixtureRanking ranking = new FixtureRanking();
+        ranking.getRankedAnswers(STUDENT_ID, QUESTION_ID);
+        ranking.getRankedAnswers(STUDENT_ID, QUESTION_ID);
+        ranking.getRankedAnswers(STUDENT_ID + 1, QUESTION_ID);
+
+        assertEquals(1, ranking.questionLoads, "Answer data is shared between students and loaded once");
+    }
+
+    @Test
+    public void testSolutionMovesToTop() throws Exception {
+        FixtureRanking ranking = new FixtureRanking();
+        ranking.getRankedAnswers(STUDENT_ID, QUESTION_ID);
+
+        ranking.onSolutionMarked(QUESTION_ID, 102);
+        List<Answer> answers = ranking.getRankedAnswers(STUDENT_ID, QUESTION_ID);
+        assertEquals(102, answers.get(0).getId());
+        assertTrue(answers.get(0).isSolution());
+
+        ranking.onSolutionMarked(QUESTION_ID, 100);
+        assertEquals(List.of(100, 101, 102), ids(ranking.getRankedAnswers(STUDENT_ID, QUESTION_ID)));
+    }
+
+    @Test
+    public void testIncrementalUpdates() throws Exception {
+        FixtureRanking ranking = new FixtureRanking();
+        ranking.getRankedAnswers(STUDENT_ID, QUESTION_ID);
+
+        // The trusted reviewer reviews answer 102 twice, then the student drops their trust
+        ranking.onReviewAdded(QUESTION_ID, 102, TRUSTED_REVIEWER_ID);
+        ranking.onReviewAdded(QUESTION_ID, 102, TRUSTED_REVIEWER_ID);
+        assertEquals(List.of(102, 101, 100), ids(ranking.getRankedAnswers(STUDENT_ID, QUESTION_ID)));
+
+        // 102 keeps its two review bases and its recency over 100, 101 loses its author bonus
+        ranking.onTrustWeightChanged(STUDENT_ID, TRUSTED_REVIEWER_ID, 0);
+        assertEquals(List.of(102, 100, 101), ids(ranking.getRankedAnswers(STUDENT_ID, QUESTION_ID)));
+    }
+
+    @Test
+    public void testChangesDuringALoadAreNotLost() throws Exception {
+        FixtureRanking ranking = new FixtureRanking();
+
+        // The student drops their trust after the weights were read but before they are cached
+        ranking.duringWeightLoad = () -> {
+            ranking.weights.remove(TRUSTED_REVIEWER_ID);
+            ranking.onTrustWeightChanged(STUDENT_ID, TRUSTED_REVIEWER_ID, 0);
+            ranking.invalidateQuestion(QUESTION_ID);
+        };
+        assertEquals(List.of(101, 100, 102), ids(ranking.getRankedAnswers(STUDENT_ID, QUESTION_ID)));
+
+        ranking.duringWeightLoad = () -> { };
+        assertEquals(List.of(100, 102, 101), ids(ranking.getRankedAnswers(STUDENT_ID, QUESTION_ID)));
+        assertEquals(2, ranking.questionLoads, "The raced question data was not cached");
+    }
+
+    @Test
+    public void testScoreWeightsReviewsAndDecaysWithAge() {
+        Map<Integer, Integer> weights = Map.of(7, 3);
+
+        double fresh = AnswerRanking.score(false, 1, Map.of(), 0, weights);
+        double weekOld = AnswerRanking.score(false, 1, Map.of(), 7 * DAY, weights);
+        assertEquals(AnswerRanking.RECENCY_BONUS, fresh, 1e-9);
+        assertEquals(AnswerRanking.RECENCY_BONUS / 2, weekOld, 1e-9);
+
+        double trustedReview = AnswerRanking.score(false, 1, Map.of(7, 1), 0, weights);
+        double untrustedReview = AnswerRanking.score(false, 1, Map.of(8, 1), 0, weights);
+        assertEquals(3.0, trustedReview - untrustedReview, 1e-9);
+    }
+
+    private static List<Integer> ids(List<Answer> answers) {
+        return answers.stream().map(Answer::getId).collect(Collectors.toList());
+    }
+}
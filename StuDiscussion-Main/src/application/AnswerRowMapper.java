@@ -0,0 +1,69 @@
+package application;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.UserCache;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds Answer objects (with their Question and User) from rows of an
+ * Answers JOIN Questions query.
+ * <p>
+ * One mapper is used per query: answers that share an author or a question
+ * get the same User / Question instance, and each distinct author is only
+ * looked up once.
+ * </p>
+ */
+public class AnswerRowMapper {
+
+    /** The column list a query must project for {@link #map(ResultSet)} to work. */
+    public static final String COLUMNS =
+            "a.id AS a_id, a.content AS a_content, a.user_id AS a_user_id, a.is_solution AS a_is_solution, "
+            + "q.id AS q_id, q.content AS q_content, q.user_id AS q_user_id, q.tags AS q_tags, "
+            + "q.is_resolved AS q_is_resolved";
+
+    /** The FROM clause matching {@link #COLUMNS}. */
+    public static final String FROM = " FROM Answers a JOIN Questions q ON q.id = a.question_id";
+
+    private final DatabaseHelper databaseHelper;
+    private final Map<Integer, User> users = new HashMap<>();
+    private final Map<Integer, Question> questions = new HashMap<>();
+    private int userLookups = 0;
+
+    public AnswerRowMapper(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    // Map the current row of the result set to an Answer
+    public Answer map(ResultSet rs) throws SQLException {
+        Question question = questions.get(rs.getInt("q_id"));
+        if (question == null) {
+            question = new Question(rs.getInt("q_id"), rs.getString("q_content"),
+                    userFor(rs.getInt("q_user_id")), rs.getString("q_tags"));
+            question.setResolved(rs.getBoolean("q_is_resolved"));
+            questions.put(question.getId(), question);
+        }
+
+        Answer answer = new Answer(rs.getInt("a_id"), rs.getString("a_content"),
+                userFor(rs.getInt("a_user_id")), question);
+        answer.setSolution(rs.getBoolean("a_is_solution"));
+        return answer;
+    }
+
+    /** @return how many user lookups this mapper has issued (one per distinct user) */
+    public int getUserLookups() {
+        return userLookups;
+    }
+
+    private User userFor(int userId) throws SQLException {
+        if (users.containsKey(userId)) {
+            return users.get(userId);
+        }
+        userLookups++;
+        User user = UserCache.of(databaseHelper).getUserById(userId);
+        users.put(userId, user);
+        return user;
+    }
+}
@@ -0,0 +1,575 @@
+package application;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import databasePart1.DatabaseHelper;
+import databasePart1.ReviewerReputation;
+import databasePart1.SchemaMigrator;
+import databasePart1.UserCache;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A JSON API over the {@link DiscussionService}, served by the JDK's embedded HttpServer.
+ * <p>
+ * Every exchange runs on its own virtual thread, so a request blocked on the database
+ * does not hold a platform thread. Queries made by the service run on pooled connections
+ * in parallel; the DatabaseHelper methods it calls share the helper's single connection
+ * and run one at a time.
+ * <p>
+ * The acting user is named by the {@value #USER_HEADER} header and is not authenticated: the server
+ * binds to the loopback address by default and is meant for local clients and load tests,
+ * not for exposure on a network. Requests whose Host header does not name the loopback
+ * address are refused, so a web page cannot reach the server through a rebound DNS name.
+ * Admin actions, changing roles and issuing one-time passwords, are left to the
+ * application's pages, since a header anyone can set must not grant them. Request bodies
+ * are JSON objects.
+ * </p>
+ * <pre>
+ * GET    /api/questions?unresolved=&amp;tag=&amp;after=&amp;limit=    POST /api/questions {content, tags}
+ * GET    /api/questions/search?q=&amp;limit=
+ * GET    /api/questions/{id}          PUT /api/questions/{id} {content}     DELETE /api/questions/{id}
+ * POST   /api/questions/{id}/resolve
+ * GET    /api/questions/{id}/answers  POST /api/questions/{id}/answers {content}
+ * PUT    /api/answers/{id} {content}  DELETE /api/answers/{id}              POST /api/answers/{id}/solution
+ * GET    /api/answers/{id}/reviews    POST /api/reviews/{id}/feedback {content}
+ * GET    /api/students/{id}/trusted-reviewers
+ * PUT    /api/students/{id}/trusted-reviewers/{reviewerId} {weight}
+ * DELETE /api/students/{id}/trusted-reviewers/{reviewerId}
+ * GET    /api/students/{id}/review-updates                 POST /api/review-updates/{id}/viewed
+ * GET    /api/reviewers/{id}/feedback GET /api/reviewers/{id}/reputation   POST /api/reviewer-requests
+ * GET    /api/users/{name}/roles
+ * </pre>
+ * <p>
+ * Answers are ranked by the acting student's trusted reviewers when a user is given.
+ * Errors are returned as {"error": message} with status 400 for invalid input, 401 without
+ * a known user, 403 without permission or for a Host other than loopback, 404 for unknown
+ * routes or ids and 500 for database failures.
+ * </p>
+ *
+ * Usage: ApiServer [port] [host]
+ */
+public class ApiServer {
+
+    public static final int DEFAULT_PORT = 8360;
+    public static final String USER_HEADER = "X-User";
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private static final Set<String> LOOPBACK_HOSTS = Set.of("localhost", "127.0.0.1", "[::1]");
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Request request) throws SQLException, IOException;
+    }
+
+    private static final class Route {
+        final String method;
+        final String[] segments;
+        final int status;
+        final Handler handler;
+
+        Route(String method, String pattern, int status, Handler handler) {
+            this.method = method;
+            this.segments = pattern.substring(1).split("/");
+            this.status = status;
+            this.handler = handler;
+        }
+
+        // Returns the values of the {placeholders}, or null if the path does not match
+        List<String> match(String[] path) {
+            if (path.length != segments.length) {
+                return null;
+            }
+            List<String> params = new ArrayList<>();
+            for (int i = 0; i < segments.length; i++) {
+                if (segments[i].startsWith("{")) {
+                    params.add(path[i]);
+                } else if (!segments[i].equals(path[i])) {
+                    return null;
+                }
+            }
+            return params;
+        }
+    }
+
+    // Thrown by handlers to answer with a status other than the route's
+    private static final class HttpError extends RuntimeException {
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final class Request {
+        final HttpExchange exchange;
+        final List<String> params;
+        final Map<String, String> query;
+        Map<String, Object> body;
+
+        Request(HttpExchange exchange, List<String> params) {
+            this.exchange = exchange;
+            this.params = params;
+            this.query = parseQuery(exchange.getRequestURI().getRawQuery());
+        }
+
+        String param(int index) {
+            return params.get(index);
+        }
+
+        int intParam(int index) {
+            return parseId(params.get(index));
+        }
+
+        String query(String name, String defaultValue) {
+            String value = query.get(name);
+            return value != null && !value.isEmpty() ? value : defaultValue;
+        }
+
+        Map<String, Object> body() throws IOException {
+            if (body == null) {
+                body = Json.parseObject(readBody(exchange));
+            }
+            return body;
+        }
+
+        String text(String name) throws IOException {
+            Object value = body().get(name);
+            return value != null ? value.toString() : null;
+        }
+
+        int intValue(String name) throws IOException {
+            Object value = body().get(name);
+            if (!(value instanceof Long) || (Long) value != ((Long) value).intValue()) {
+                throw new IllegalArgumentException("'" + name + "' must be an integer");
+            }
+            return ((Long) value).intValue();
+        }
+
+        /** @return the acting user, or null if the request names none */
+        User userOrNull() throws SQLException {
+            String userName = exchange.getRequestHeaders().getFirst(USER_HEADER);
+            if (userName == null || userName.isEmpty()) {
+                return null;
+            }
+            User user = UserCache.of(databaseHelper).getUserByUserName(userName);
+            if (user == null) {
+                throw new HttpError(401, "Unknown user " + userName);
+            }
+            return user;
+        }
+
+        User user() throws SQLException {
+            User user = userOrNull();
+            if (user == null) {
+                throw new HttpError(401, "The " + USER_HEADER + " header is required");
+            }
+            return user;
+        }
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final DiscussionService service;
+    private final List<Route> routes = new ArrayList<>();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param databaseHelper a connected database
+     * @param address        where to listen; port 0 picks a free port
+     */
+    public ApiServer(DatabaseHelper databaseHelper, InetSocketAddress address) throws IOException {
+        this.databaseHelper = databaseHelper;
+        this.service = DiscussionService.of(databaseHelper);
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/api/", this::dispatch);
+        addRoutes();
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** Stops accepting requests and waits up to the given number of seconds for running ones. */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void addRoutes() {
+        // Questions; /search is listed before /{id} so it is not taken for an id
+        get("/api/questions", r -> {
+            String after = r.query("after", null);
+            QuestionPage page = service.listQuestions(Boolean.parseBoolean(r.query("unresolved", "false")),
+                    r.query("tag", null), after != null ? QuestionPage.Cursor.parse(after) : null, pageSize(r));
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("questions", toJson(page.getQuestions()));
+            result.put("next", page.getNextCursor());
+            return result;
+        });
+        get("/api/questions/search", r -> toJson(service.searchQuestions(r.query("q", ""), pageSize(r))));
+        route("POST", "/api/questions", 201, r -> {
+            service.addQuestion(r.user(), r.text("content"), r.text("tags"));
+            return null;
+        });
+        get("/api/questions/{id}", r -> {
+            Question question = service.getQuestion(r.intParam(0));
+            if (question == null) {
+                throw new HttpError(404, "No question " + r.param(0));
+            }
+            return toJson(question);
+        });
+        route("PUT", "/api/questions/{id}", 204, r -> {
+            service.updateQuestion(r.user(), r.intParam(0), r.text("content"));
+            return null;
+        });
+        route("DELETE", "/api/questions/{id}", 204, r -> {
+            service.deleteQuestion(r.user(), r.intParam(0));
+            return null;
+        });
+        route("POST", "/api/questions/{id}/resolve", 204, r -> {
+            service.markQuestionResolved(r.user(), r.intParam(0));
+            return null;
+        });
+
+        // Answers
+        get("/api/questions/{id}/answers", r -> {
+            User user = r.userOrNull();
+            return toJson(user != null ? service.getRankedAnswers(user.getId(), r.intParam(0))
+                    : service.getAnswers(r.intParam(0)));
+        });
+        route("POST", "/api/questions/{id}/answers", 201, r -> {
+            service.addAnswer(r.user(), r.intParam(0), r.text("content"));
+            return null;
+        });
+        route("PUT", "/api/answers/{id}", 204, r -> {
+            service.updateAnswer(r.user(), r.intParam(0), r.text("content"));
+            return null;
+        });
+        route("DELETE", "/api/answers/{id}", 204, r -> {
+            service.deleteAnswer(r.user(), r.intParam(0));
+            return null;
+        });
+        route("POST", "/api/answers/{id}/solution", 204, r -> {
+            service.markAnswerAsSolution(r.user(), r.intParam(0));
+            return null;
+        });
+
+        // Reviews and review updates
+        get("/api/answers/{id}/reviews", r -> toJson(service.getReviews(r.intParam(0))));
+        get("/api/students/{id}/review-updates", r -> {
+            int studentId = requireSelf(r, r.intParam(0)).getId();
+            return toJson(service.getUnviewedReviewUpdates(studentId));
+        });
+        route("POST", "/api/review-updates/{id}/viewed", 204, r -> {
+            service.markReviewUpdateViewed(r.user(), r.intParam(0));
+            return null;
+        });
+
+        // Trusted reviewers
+        get("/api/students/{id}/trusted-reviewers", r -> {
+            int studentId = requireSelf(r, r.intParam(0)).getId();
+            List<Object> reviewers = new ArrayList<>();
+            for (Map.Entry<User, Integer> entry : service.getTrustedReviewers(studentId).entrySet()) {
+                Map<String, Object> reviewer = toJson(entry.getKey());
+                reviewer.put("weight", entry.getValue());
+                reviewers.add(reviewer);
+            }
+            return reviewers;
+        });
+        route("PUT", "/api/students/{id}/trusted-reviewers/{reviewerId}", 204, r -> {
+            service.setTrustedReviewer(requireSelf(r, r.intParam(0)), r.intParam(1), r.intValue("weight"));
+            return null;
+        });
+        route("DELETE", "/api/students/{id}/trusted-reviewers/{reviewerId}", 204, r -> {
+            if (!service.removeTrustedReviewer(requireSelf(r, r.intParam(0)), r.intParam(1))) {
+                throw new HttpError(404, "Reviewer " + r.param(1) + " is not trusted");
+            }
+            return null;
+        });
+
+        // Feedback
+        route("POST", "/api/reviews/{id}/feedback", 201, r -> {
+            service.addFeedback(r.user(), r.intParam(0), r.text("content"));
+            return null;
+        });
+        get("/api/reviewers/{id}/feedback", r -> {
+            requireSelf(r, r.intParam(0));
+            List<Object> feedback = new ArrayList<>();
+            for (Feedback f : service.getFeedbackForReviewer(r.intParam(0))) {
+                Map<String, Object> json = new LinkedHashMap<>();
+                json.put("id", f.getId());
+                json.put("student", f.getStudent() != null ? f.getStudent().getUserName() : null);
+                json.put("answerId", f.getAnswerId());
+                json.put("content", f.getContent());
+                feedback.add(json);
+            }
+            return feedback;
+        });
+        get("/api/reviewers/{id}/reputation", r -> {
+            ReviewerReputation.Reputation reputation = service.getReputation(r.intParam(0));
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("trustedBy", reputation.getTrustedByCount());
+            json.put("averageWeight", reputation.getAverageWeight());
+            json.put("feedback", reputation.getFeedbackCount());
+            json.put("recentFeedback", reputation.getRecentFeedbackCount());
+            json.put("windowFeedback", reputation.getWindowFeedbackCount());
+            return json;
+        });
+
+        // Roles
+        get("/api/users/{name}/roles", r -> service.getRoles(r.param(0)));
+        route("POST", "/api/reviewer-requests", 201, r -> {
+            if (!service.requestReviewerRole(r.user())) {
+                throw new HttpError(409, "Already a reviewer or already requested");
+            }
+            return null;
+        });
+    }
+
+    private void get(String pattern, Handler handler) {
+        route("GET", pattern, 200, handler);
+    }
+
+    private void route(String method, String pattern, int status, Handler handler) {
+        routes.add(new Route(method, pattern, status, handler));
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!isLoopbackHost(exchange.getRequestHeaders().getFirst("Host"))) {
+                sendError(exchange, 403, "Host must name the loopback address");
+                return;
+            }
+            String[] path = exchange.getRequestURI().getPath().substring(1).split("/");
+            for (int i = 0; i < path.length; i++) {
+                path[i] = URLDecoder.decode(path[i], StandardCharsets.UTF_8);
+            }
+            boolean pathMatched = false;
+            for (Route route : routes) {
+                List<String> params = route.match(path);
+                if (params == null) {
+                    continue;
+                }
+                pathMatched = true;
+                if (route.method.equals(exchange.getRequestMethod())) {
+                    handle(exchange, route, params);
+                    return;
+                }
+            }
+            sendError(exchange, pathMatched ? 405 : 404, pathMatched ? "Method not allowed" : "Not found");
+        }
+    }
+
+    private void handle(HttpExchange exchange, Route route, List<String> params) throws IOException {
+        Object result;
+        try {
+            result = route.handler.handle(new Request(exchange, params));
+        } catch (HttpError e) {
+            sendError(exchange, e.status, e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        } catch (SecurityException e) {
+            sendError(exchange, 403, e.getMessage());
+            return;
+        } catch (SQLException | RuntimeException e) {
+            e.printStackTrace();
+            sendError(exchange, 500, "Internal error");
+            return;
+        }
+        if (result == null) {
+            exchange.sendResponseHeaders(route.status, -1);
+        } else {
+            send(exchange, route.status, result);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", message);
+        send(exchange, status, error);
+    }
+
+    private static void send(HttpExchange exchange, int status, Object value) throws IOException {
+        byte[] bytes = Json.write(value).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new HttpError(413, "Request body is larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static int parseId(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "Not an id: " + value);
+        }
+    }
+
+    private static int pageSize(Request request) {
+        int size;
+        try {
+            size = Integer.parseInt(request.query("limit", String.valueOf(DEFAULT_PAGE_SIZE)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'limit' must be an integer");
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("'limit' must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return size;
+    }
+
+    /** @return true if a Host header names the loopback address, with or without a port */
+    static boolean isLoopbackHost(String host) {
+        if (host == null) {
+            return false;
+        }
+        int portStart = host.lastIndexOf(':');
+        if (portStart > host.lastIndexOf(']')) {
+            host = host.substring(0, portStart);
+        }
+        return LOOPBACK_HOSTS.contains(host.toLowerCase(Locale.ROOT));
+    }
+
+    // Students and reviewers only see and change their own lists
+    private static User requireSelf(Request request, int userId) throws SQLException {
+        User user = request.user();
+        if (user.getId() != userId) {
+            throw new SecurityException(user.getUserName() + " cannot act for user " + userId);
+        }
+        return user;
+    }
+
+    // ****************************
+    // ** JSON views of the model **
+    // ****************************
+
+    static Map<String, Object> toJson(User user) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", user.getId());
+        json.put("userName", user.getUserName());
+        return json;
+    }
+
+    static Map<String, Object> toJson(Question question) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", question.getId());
+        json.put("content", question.getContent());
+        json.put("author", question.getUser() != null ? question.getUser().getUserName() : null);
+        json.put("tags", question.getTags());
+        json.put("resolved", question.isResolved());
+        return json;
+    }
+
+    static Map<String, Object> toJson(Answer answer) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", answer.getId());
+        json.put("content", answer.getContent());
+        json.put("author", answer.getUser() != null ? answer.getUser().getUserName() : null);
+        json.put("questionId", answer.getQuestion() != null ? answer.getQuestion().getId() : null);
+        json.put("solution", answer.isSolution());
+        return json;
+    }
+
+    static Map<String, Object> toJson(Review review) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", review.getId());
+        json.put("content", review.getContent());
+        json.put("reviewer", review.getReviewer() != null ? toJson(review.getReviewer()) : null);
+        json.put("answerId", review.getAnswer() != null ? review.getAnswer().getId() : null);
+        return json;
+    }
+
+    static Map<String, Object> toJson(ReviewUpdate update) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", update.getId());
+        json.put("reviewId", update.getReviewId());
+        json.put("reviewer", update.getReviewerName());
+        json.put("reviewText", update.getReviewText());
+        return json;
+    }
+
+    private static List<Object> toJson(List<?> items) {
+        List<Object> json = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (item instanceof Question) {
+                json.add(toJson((Question) item));
+            } else if (item instanceof Answer) {
+                json.add(toJson((Answer) item));
+            } else if (item instanceof Review) {
+                json.add(toJson((Review) item));
+            } else if (item instanceof ReviewUpdate) {
+                json.add(toJson((ReviewUpdate) item));
+            } else {
+                json.add(item);
+            }
+        }
+        return json;
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        String host = args.length > 1 ? args[1] : "127.0.0.1";
+
+        DatabaseHelper databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+        SchemaMigrator.migrate(databaseHelper);
+
+        ApiServer server = new ApiServer(databaseHelper, new InetSocketAddress(host, port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            databaseHelper.closeConnection();
+        }));
+        server.start();
+        System.out.println("API listening on http://" + host + ":" + server.getPort() + "/api/");
+    }
+}
@@ -0,0 +1,149 @@
+package application;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.SchemaMigrator;
+import org.junit.jupiter.api.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ApiServerTest {
+
+    private DatabaseHelper databaseHelper;
+    private ApiServer server;
+    private HttpClient client;
+    private String author;
+    private String other;
+
+    @BeforeAll
+    public void setup() throws SQLException, IOException {
+        databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+        SchemaMigrator.migrate(databaseHelper);
+        author = register("apiAuthor");
+        other = register("apiOther");
+
+        server = new ApiServer(databaseHelper, new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterAll
+    public void teardown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testUnknownRoutesAndMethods() throws Exception {
+        assertEquals(404, send("GET", "/api/nothing-here", null, null).statusCode());
+        assertEquals(404, send("GET", "/api/questions/not-a-number", null, null).statusCode());
+        assertEquals(405, send("DELETE", "/api/questions", null, null).statusCode());
+    }
+
+    @Test
+    public void testWritesNeedAKnownUser() throws Exception {
+        String body = "{\"content\": \"Anonymous question\", \"tags\": \"General\"}";
+        assertEquals(401, send("POST", "/api/questions", null, body).statusCode());
+        assertEquals(401, send("POST", "/api/questions", "apiNobody", body).statusCode());
+    }
+
+    @Test
+    public void testInvalidInputIsABadRequest() throws Exception {
+        assertEquals(400, send("GET", "/api/questions?limit=0", null, null).statusCode());
+        assertEquals(400, send("POST", "/api/questions", author, "{\"content\": \"No tag\"}").statusCode());
+        assertEquals(400, send("POST", "/api/questions", author, "not json").statusCode());
+    }
+
+    @Test
+    public void testQuestionRoundTrip() throws Exception {
+        HttpResponse<String> created = send("POST", "/api/questions", author,
+                "{\"content\": \"Routed question\", \"tags\": \"General\"}");
+        assertEquals(201, created.statusCode());
+        int questionId = latestQuestionOf(author);
+
+        HttpResponse<String> fetched = send("GET", "/api/questions/" + questionId, null, null);
+        assertEquals(200, fetched.statusCode());
+        Map<String, Object> question = Json.parseObject(fetched.body());
+        assertEquals("Routed question", question.get("content"));
+        assertEquals(author, question.get("author"));
+
+        String edit = "{\"content\": \"Edited through the API\"}";
+        assertEquals(403, send("PUT", "/api/questions/" + questionId, other, edit).statusCode());
+        assertEquals(204, send("PUT", "/api/questions/" + questionId, author, edit).statusCode());
+        assertTrue(send("GET", "/api/questions/" + questionId, null, null).body().contains("Edited through the API"));
+
+        assertEquals(404, send("GET", "/api/questions/" + (questionId + 1_000_000), null, null).statusCode());
+    }
+
+    @Test
+    public void testAdminRoutesAreNotServed() throws Exception {
+        assertEquals(404, send("PUT", "/api/users/" + other + "/roles/reviewer", author, null).statusCode());
+        assertEquals(404, send("POST", "/api/users/" + other + "/one-time-password", author, null).statusCode());
+    }
+
+    @Test
+    public void testOnlyOwnReviewUpdatesCanBeMarkedViewed() throws Exception {
+        assertEquals(400, send("POST", "/api/review-updates/1000000/viewed", author, null).statusCode());
+        assertEquals(400, send("POST", "/api/review-updates/-1000000/viewed", author, null).statusCode());
+    }
+
+    @Test
+    public void testHostMustBeLoopback() throws Exception {
+        assertTrue(ApiServer.isLoopbackHost("127.0.0.1:8360"));
+        assertTrue(ApiServer.isLoopbackHost("LOCALHOST"));
+        assertTrue(ApiServer.isLoopbackHost("[::1]:8360"));
+        assertFalse(ApiServer.isLoopbackHost("attacker.example:8360"));
+        assertFalse(ApiServer.isLoopbackHost(null));
+
+        // HttpClient does not let the Host header be set, so the request is written by hand
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            socket.getOutputStream().write(("GET /api/questions HTTP/1.1\r\nHost: attacker.example\r\n"
+                    + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            assertTrue(reader.readLine().contains(" 403 "));
+        }
+    }
+
+    private HttpResponse<String> send(String method, String path, String user, String body)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .method(method, body != null ? HttpRequest.BodyPublishers.ofString(body) : HttpRequest.BodyPublishers.noBody());
+        if (user != null) {
+            request.header(ApiServer.USER_HEADER, user);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String register(String name) throws SQLException {
+        databaseHelper.increment_num_users();
+        int id = databaseHelper.get_num_users();
+        User user = new User(id, name + id, "Password!123", name + id + "@example.com", Arrays.asList("Student"));
+        databaseHelper.register(user, user.getRoles());
+        return user.getUserName();
+    }
+
+    private int latestQuestionOf(String userName) throws SQLException {
+        try (PreparedStatement stmt = databaseHelper.connection.prepareStatement(
+                "SELECT MAX(id) FROM Questions WHERE user_id = ?")) {
+            stmt.setInt(1, databaseHelper.getUserByUserName(userName).getId());
+            ResultSet rs = stmt.executeQuery();
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+}
@@ -1,13 +1,13 @@
 package application;
 
 import databasePart1.DatabaseHelper;
+import databasePart1.UserRoleIndex;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.sql.SQLException;
-import java.util.ArrayList;
+import java.util.List;
 
 public class AssignRolesPage {
     private final DatabaseHelper databaseHelper;
@@ -25,8 +25,8 @@ public class AssignRolesPage {
 
         // Dropdown to select user
         ComboBox<String> userDropdown = new ComboBox<>();
-        ArrayList<String> users = databaseHelper.getAllUsernames();
-        userDropdown.getItems().addAll(users);
+        userDropdown.setPromptText("Loading users...");
+        userDropdown.setDisable(true);
 
         // Dropdown to select role
         ComboBox<String> roleDropdown = new ComboBox<>();
@@ -40,6 +40,41 @@ public class AssignRolesPage {
         
         Label resultLabel = new Label();
 
+        // Users come from the shared type-ahead index, a page at a time, narrowed by the search prefix
+        TextField searchField = new TextField();
+        searchField.setPromptText("Search users...");
+        Button moreUsersButton = new Button("More users");
+        moreUsersButton.setVisible(false);
+
+        AsyncDatabase async = AsyncDatabase.of(databaseHelper);
+        Autocomplete autocomplete = Autocomplete.of(databaseHelper);
+        int[] shownLimit = { UserRoleIndex.DEFAULT_PAGE_SIZE };
+        Runnable showUsers = () -> {
+            List<String> users = autocomplete.getUserNames().complete(searchField.getText().trim(), shownLimit[0]);
+            userDropdown.getItems().setAll(users);
+            moreUsersButton.setVisible(users.size() == shownLimit[0]);
+        };
+        AsyncDatabase.onFxThread(async.run(autocomplete::ensureLoaded),
+                done -> {
+                    showUsers.run();
+                    userDropdown.setPromptText(null);
+                    userDropdown.setDisable(false);
+                },
+                error -> {
+                    userDropdown.setPromptText("Error loading users");
+                    error.printStackTrace();
+                });
+        searchField.textProperty().addListener((obs, oldText, newText) -> {
+            shownLimit[0] = UserRoleIndex.DEFAULT_PAGE_SIZE;
+            if (autocomplete.isLoaded()) {
+                showUsers.run();
+            }
+        });
+        moreUsersButton.setOnAction(e -> {
+            shownLimit[0] += UserRoleIndex.DEFAULT_PAGE_SIZE;
+            showUsers.run();
+        });
+
         // Assign Role Action
         assignRoleButton.setOnAction(e -> {
             String selectedUser = userDropdown.getValue();
@@ -50,21 +85,20 @@ public class AssignRolesPage {
                 return;
             }
 
-            try {
-                // Retrieve existing roles
-                ArrayList<String> roles = databaseHelper.getUserRoles(selectedUser);
-
-                // Add the new role if not already assigned
-                if (!roles.contains(selectedRole)) {
-                    databaseHelper.addUserRole(selectedUser, selectedRole); // Use SQL method
-                    resultLabel.setText("Role assigned successfully!");
-                } else {
-                    resultLabel.setText("User already has this role.");
-                }
-            } catch (SQLException ex) {
-                resultLabel.setText("Error assigning role.");
-                ex.printStackTrace();
-            }
+            resultLabel.setText("Assigning role...");
+            assignRoleButton.setDisable(true);
+            // Adds the role unless the user already has it
+            AsyncDatabase.onFxThread(async.submit(() -> DiscussionService.of(databaseHelper)
+                            .addRole(user, selectedUser, Role.fromName(selectedRole))),
+                    assigned -> {
+                        assignRoleButton.setDisable(false);
+                        resultLabel.setText(assigned ? "Role assigned successfully!" : "User already has this role.");
+                    },
+                    error -> {
+                        assignRoleButton.setDisable(false);
+                        resultLabel.setText("Error assigning role.");
+                        error.printStackTrace();
+                    });
         });
 
      // Remove Role Action
@@ -77,18 +111,23 @@ public class AssignRolesPage {
                 return;
             }
 
-            try {
-                // Call the SQL method to remove the role
-                databaseHelper.removeUserRole(selectedUser, selectedRole);
-                resultLabel.setText("Role removed successfully!");
-            } catch (SQLException ex) {
-                resultLabel.setText(ex.getMessage()); // Show SQL error message
-                ex.printStackTrace();
-            }
+            resultLabel.setText("Removing role...");
+            removeRoleButton.setDisable(true);
+            AsyncDatabase.onFxThread(async.run(() -> DiscussionService.of(databaseHelper)
+                            .removeRole(user, selectedUser, Role.fromName(selectedRole))),
+                    done -> {
+                        removeRoleButton.setDisable(false);
+                        resultLabel.setText("Role removed successfully!");
+                    },
+                    error -> {
+                        removeRoleButton.setDisable(false);
+                        resultLabel.setText(error.getMessage()); // Show SQL error message
+                        error.printStackTrace();
+                    });
         });
         Button backButton = new Button("Back");
         backButton.setOnAction(e -> new AdminHomePage(databaseHelper).show(primaryStage, user));
-        layout.getChildren().addAll(titleLabel, userDropdown, roleDropdown, assignRoleButton, removeRoleButton, resultLabel, backButton);
+        layout.getChildren().addAll(titleLabel, searchField, userDropdown, moreUsersButton, roleDropdown, assignRoleButton, removeRoleButton, resultLabel, backButton);
         Scene assignRoleScene = new Scene(layout, 800, 400);
         primaryStage.setScene(assignRoleScene);
         primaryStage.setTitle("Manage User Roles");
@@ -0,0 +1,224 @@
+package application;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.UserCache;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+
+/**
+ * Asynchronous facade over DatabaseHelper so that JDBC calls never run on the
+ * JavaFX Application Thread.
+ * <p>
+ * Every call runs on its own virtual thread and returns a CompletableFuture. Pages
+ * normally use {@link #load(String, DatabaseCall, Consumer, Consumer)}, which delivers
+ * the result on the FX thread and drops the result of the previous request made with the
+ * same key, so a slow, superseded query can never overwrite a newer result. Dropping a
+ * request does not stop it: a JDBC call that is already running finishes on its virtual
+ * thread, because cancelling a CompletableFuture never interrupts the task behind it.
+ * </p>
+ */
+public class AsyncDatabase {
+
+    /** A unit of database work that may throw SQLException. */
+    @FunctionalInterface
+    public interface DatabaseCall<T> {
+        T call() throws SQLException;
+    }
+
+    /** A database write with no result. */
+    @FunctionalInterface
+    public interface DatabaseUpdate {
+        void run() throws SQLException;
+    }
+
+    private static final Map<DatabaseHelper, AsyncDatabase> instances = new WeakHashMap<>();
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final DatabaseHelper databaseHelper;
+    private final Map<String, CompletableFuture<?>> latestByKey = new ConcurrentHashMap<>();
+
+    public AsyncDatabase(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /** Returns the shared facade for a DatabaseHelper. */
+    public static AsyncDatabase of(DatabaseHelper databaseHelper) {
+        synchronized (instances) {
+            return instances.computeIfAbsent(databaseHelper, AsyncDatabase::new);
+        }
+    }
+
+    /**
+     * Runs a database call on a virtual thread.
+     *
+     * @param call the work to run
+     * @return a future completed with the result, or exceptionally with the SQLException
+     */
+    public <T> CompletableFuture<T> submit(DatabaseCall<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    public CompletableFuture<Void> run(DatabaseUpdate update) {
+        return submit(() -> {
+            update.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a database call and hands the result to the FX thread. A newer call with the
+     * same key supersedes this one and its result is dropped; the call itself still runs
+     * to completion.
+     *
+     * @param key       identifies what is being loaded, e.g. "trustedReviewers:" + userId
+     * @param call      the work to run
+     * @param onSuccess receives the result on the FX thread
+     * @param onError   receives the failure on the FX thread
+     * @return the future for the call
+     */
+    public <T> CompletableFuture<T> load(String key, DatabaseCall<T> call, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        return deliver(key, submit(call), onSuccess, onError);
+    }
+
+    /**
+     * Hands the outcome of a future that may be shared, such as a SessionSnapshot list, to
+     * the FX thread under a key. A newer load with the same key drops this result; only the
+     * delivery is cancelled, never the shared future.
+     *
+     * @param key       identifies what is being loaded, e.g. "myQuestions:" + userId
+     * @param pending   the pending database call
+     * @param onSuccess receives the result on the FX thread
+     * @param onError   receives the failure on the FX thread
+     * @return the delivery stage for this load
+     */
+    public <T> CompletableFuture<T> load(String key, CompletableFuture<T> pending, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        return deliver(key, pending.thenApply(result -> result), onSuccess, onError);
+    }
+
+    private <T> CompletableFuture<T> deliver(String key, CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        CompletableFuture<?> previous = latestByKey.put(key, future);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+
+        future.whenComplete((result, error) -> {
+            // Only the latest request for a key may touch the page
+            if (!latestByKey.remove(key, future)) {
+                return;
+            }
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof CancellationException) {
+                return;
+            }
+            Platform.runLater(() -> {
+                if (cause != null) {
+                    onError.accept(cause);
+                } else {
+                    onSuccess.accept(result);
+                }
+            });
+        });
+        return future;
+    }
+
+    /**
+     * Hands the outcome of a future to the FX thread.
+     *
+     * @param future    the pending database call
+     * @param onSuccess receives the result on the FX thread
+     * @param onError   receives the failure on the FX thread
+     */
+    public static <T> void onFxThread(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                onError.accept(error instanceof CompletionException ? error.getCause() : error);
+            } else {
+                onSuccess.accept(result);
+            }
+        }));
+    }
+
+    /** Drops the result of the pending request for a key, if any; a running call still finishes. */
+    public void cancel(String key) {
+        CompletableFuture<?> pending = latestByKey.remove(key);
+        if (pending != null) {
+            pending.cancel(true);
+        }
+    }
+
+    // Typed wrappers for the DatabaseHelper operations used by the pages
+
+    public CompletableFuture<Map<User, Integer>> getTrustedReviewersForStudent(int studentId) {
+        return submit(() -> databaseHelper.getTrustedReviewersForStudent(studentId));
+    }
+
+    public CompletableFuture<List<User>> getAllUserObjects() {
+        return submit(() -> databaseHelper.getAllUserObjects());
+    }
+
+    public CompletableFuture<Void> addTrustedReviewer(int studentId, int reviewerId, int weight) {
+        return run(() -> databaseHelper.addTrustedReviewer(studentId, reviewerId, weight));
+    }
+
+    public CompletableFuture<Void> updateReviewerWeight(int studentId, int reviewerId, int weight) {
+        return run(() -> databaseHelper.updateReviewerWeight(studentId, reviewerId, weight));
+    }
+
+    public CompletableFuture<Void> removeTrustedReviewer(int studentId, int reviewerId) {
+        return run(() -> databaseHelper.removeTrustedReviewer(studentId, reviewerId));
+    }
+
+    public CompletableFuture<List<ReviewUpdate>> getUnviewedReviewUpdates(int studentId) {
+        return submit(() -> databaseHelper.getUnviewedReviewUpdates(studentId));
+    }
+
+    public CompletableFuture<Void> markReviewUpdateAsViewed(int updateId) {
+        return run(() -> databaseHelper.markReviewUpdateAsViewed(updateId));
+    }
+
+    public CompletableFuture<List<String>> getAllUsernames() {
+        return submit(() -> new ArrayList<>(databaseHelper.getAllUsernames()));
+    }
+
+    public CompletableFuture<List<String>> getUserRoles(String userName) {
+        return submit(() -> new ArrayList<>(databaseHelper.getUserRoles(userName)));
+    }
+
+    public CompletableFuture<Void> addUserRole(String userName, String role) {
+        return run(() -> UserCache.of(databaseHelper).addUserRole(userName, role));
+    }
+
+    public CompletableFuture<Void> removeUserRole(String userName, String role) {
+        return run(() -> UserCache.of(databaseHelper).removeUserRole(userName, role));
+    }
+
+    public CompletableFuture<List<Question>> getQuestionsByUser(int userId) {
+        return submit(() -> databaseHelper.getQuestionsByUser(userId));
+    }
+
+    public CompletableFuture<List<Answer>> getAnswersByUser(int userId) {
+        return submit(() -> databaseHelper.getAnswersByUser(userId));
+    }
+
+    public CompletableFuture<List<Answer>> getAnswersByQuestionId(int questionId) {
+        return submit(() -> databaseHelper.getAnswersByQuestionId(questionId));
+    }
+}
@@ -0,0 +1,106 @@
+package application;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.UserRoleIndex;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The shared type-ahead indexes of one database: user names, reviewer names and tags.
+ * <p>
+ * Each is a {@link PrefixIndex}, filled once by {@link #ensureLoaded()} and then kept up to
+ * date by {@link UserRoleIndex} (registration, role changes and deletions) and by
+ * {@link TagIndex} (tag counts). Updates that arrive before the first load are skipped,
+ * since the load reads the current state anyway. The update hooks take no lock of their
+ * own (each PrefixIndex is thread-safe), so callers may hold their own locks. Tags are
+ * weighted by their number of questions, so the most used tags are suggested first;
+ * names are suggested alphabetically.
+ * </p>
+ */
+public class Autocomplete {
+
+    private static final Map<DatabaseHelper, Autocomplete> instances = new WeakHashMap<>();
+
+    private final DatabaseHelper databaseHelper;
+    private final PrefixIndex userNames = new PrefixIndex();
+    private final PrefixIndex reviewerNames = new PrefixIndex();
+    private final PrefixIndex tags = new PrefixIndex();
+    private volatile boolean loaded = false;
+
+    public Autocomplete(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /** Returns the shared indexes for a DatabaseHelper. */
+    public static Autocomplete of(DatabaseHelper databaseHelper) {
+        synchronized (instances) {
+            return instances.computeIfAbsent(databaseHelper, Autocomplete::new);
+        }
+    }
+
+    /** Fills the indexes unless they already are; call off the FX thread. */
+    public synchronized void ensureLoaded() throws SQLException {
+        if (loaded) {
+            return;
+        }
+        UserRoleIndex users = UserRoleIndex.of(databaseHelper);
+        for (String name : users.getAllUserNames(null)) {
+            userNames.put(name, 0);
+        }
+        for (String name : users.getAllUserNames(Role.REVIEWER.getDisplayName())) {
+            reviewerNames.put(name, 0);
+        }
+        for (Map.Entry<String, Integer> tag : TagIndex.of(databaseHelper).countByTag(null).entrySet()) {
+            tags.put(tag.getKey(), tag.getValue());
+        }
+        loaded = true;
+    }
+
+    public boolean isLoaded() { return loaded; }
+
+    public PrefixIndex getUserNames() { return userNames; }
+    public PrefixIndex getReviewerNames() { return reviewerNames; }
+    public PrefixIndex getTags() { return tags; }
+
+    public void onUserRegistered(User user) {
+        if (!loaded) {
+            return;
+        }
+        userNames.put(user.getUserName(), 0);
+        for (String role : user.getRoles()) {
+            onRoleChanged(user.getUserName(), role, true);
+        }
+    }
+
+    public void onRoleChanged(String userName, String role, boolean added) {
+        if (!loaded || Role.fromName(role) != Role.REVIEWER) {
+            return;
+        }
+        if (added) {
+            reviewerNames.put(userName, 0);
+        } else {
+            reviewerNames.remove(userName);
+        }
+    }
+
+    public void onUserDeleted(String userName) {
+        if (!loaded) {
+            return;
+        }
+        userNames.remove(userName);
+        reviewerNames.remove(userName);
+    }
+
+    /** Sets a tag's weight to its current number of questions, removing it at zero. */
+    public void onTagCountChanged(String tag, int questions) {
+        if (!loaded) {
+            return;
+        }
+        if (questions > 0) {
+            tags.put(tag, questions);
+        } else {
+            tags.remove(tag);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package application;
 
 import databasePart1.DatabaseHelper;
+import databasePart1.OneTimePasswords;
+import databasePart1.UserCache;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
@@ -39,12 +41,19 @@ public class ChangePasswordPage {
 
         Label resultLabel = new Label();
 
+        // Whether the OTP came from the one-time password store, which consumes it on save
+        boolean[] issuedByStore = { false };
+
         verifyOTPButton.setOnAction(e -> {
             String enteredOTP = otpField.getText();
 
             try {
-                String storedOTP = databaseHelper.getOneTimePassword(userName); // Get OTP from DB
-                if (enteredOTP.equals(storedOTP)) {
+                OneTimePasswords otps = OneTimePasswords.of(databaseHelper);
+                issuedByStore[0] = otps.isIssued(userName);
+                // OTPs handed out before the store existed are still read from the database
+                boolean verified = issuedByStore[0] ? otps.verify(userName, enteredOTP)
+                        : enteredOTP.equals(databaseHelper.getOneTimePassword(userName));
+                if (verified) {
                     otpResultLabel.setText("OTP Verified! Enter your new password.");
                     newPasswordField.setVisible(true);
                     savePasswordButton.setVisible(true);
@@ -68,7 +77,11 @@ public class ChangePasswordPage {
             }
 
             try {
-                databaseHelper.updateUserPassword(userName, newPassword);
+                if (issuedByStore[0] && !OneTimePasswords.of(databaseHelper).consume(userName, otpField.getText())) {
+                    resultLabel.setText("The OTP has expired. Please request a new one.");
+                    return;
+                }
+                UserCache.of(databaseHelper).updateUserPassword(userName, newPassword);
                 resultLabel.setText("Password updated! Please log in again.");
                 new UserLoginPage(databaseHelper).show(primaryStage);
             } catch (SQLException ex) {
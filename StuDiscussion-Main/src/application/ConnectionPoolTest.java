@@ -0,0 +1,87 @@
+package application;
+
+import databasePart1.ConnectionPool;
+import databasePart1.DatabaseHelper;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ConnectionPoolTest {
+
+    private ConnectionPool pool;
+
+    @BeforeAll
+    public void setupPool() throws SQLException {
+        pool = new ConnectionPool("jdbc:h2:mem:poolTest;DB_CLOSE_DELAY=-1", "sa", "", 1, 2, 500, 30_000);
+    }
+
+    @AfterAll
+    public void closePool() {
+        pool.close();
+    }
+
+    @Test
+    public void testClosedConnectionIsReused() throws SQLException {
+        Connection first = pool.getConnection();
+        String physical = first.toString();
+        first.close();
+
+        assertTrue(first.isClosed());
+        assertEquals(0, pool.getActiveCount());
+
+        try (Connection second = pool.getConnection()) {
+            assertEquals(physical, second.toString());
+            assertTrue(second.isValid(1));
+        }
+    }
+
+    @Test
+    public void testPoolDoesNotGrowPastMaxSize() throws SQLException {
+        try (Connection a = pool.getConnection(); Connection b = pool.getConnection()) {
+            assertEquals(2, pool.getActiveCount());
+            assertThrows(SQLException.class, () -> pool.getConnection());
+        }
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test
+    public void testReturnedConnectionCannotBeUsed() throws SQLException {
+        Connection connection = pool.getConnection();
+        connection.close();
+        assertThrows(SQLException.class, () -> connection.createStatement());
+    }
+
+    @Test
+    public void testHelperQueriesDoNotUseItsSharedConnection() throws SQLException {
+        DatabaseHelper databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+        try {
+            try (Connection first = ConnectionPool.borrow(databaseHelper);
+                 Connection second = ConnectionPool.borrow(databaseHelper)) {
+                // Two leases held at once, each its own session apart from the helper's
+                int shared = sessionId(databaseHelper.getConnection());
+                assertNotEquals(shared, sessionId(first));
+                assertNotEquals(shared, sessionId(second));
+                assertNotEquals(sessionId(first), sessionId(second));
+            }
+            assertFalse(databaseHelper.getConnection().isClosed());
+        } finally {
+            ConnectionPool.close(databaseHelper);
+            databaseHelper.closeConnection();
+        }
+    }
+
+    private static int sessionId(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT SESSION_ID()")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
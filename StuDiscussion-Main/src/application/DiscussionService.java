@@ -0,0 +1,435 @@
+package application;
+
+import databasePart1.ConnectionPool;
+import databasePart1.DatabaseHelper;
+import databasePart1.OneTimePasswords;
+import databasePart1.ReviewFanout;
+import databasePart1.ReviewerReputation;
+import databasePart1.UserCache;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The discussion operations of the application, independent of any user interface.
+ * <p>
+ * Each write goes to the DatabaseHelper and then updates the in-memory structures that
+ * depend on it (search and tag indexes, answer rankings, reviewer reputation, user and
+ * session caches, and the prefetched snapshots of the users it affects), so the JavaFX
+ * pages and the {@link ApiServer} behave the same way. Methods that act on behalf of a
+ * user take that user first and check that they may do it: only the author edits or
+ * deletes a question or answer, only the question's author picks the solution, and only
+ * admins change roles or issue one-time passwords.
+ * </p>
+ * <p>
+ * Methods block on the database. Their own queries run on pooled connections
+ * ({@link ConnectionPool#borrow(DatabaseHelper)}), so calls made from several threads, as
+ * the ApiServer makes them, run in parallel; the DatabaseHelper methods they call still
+ * share its single connection and wait for each other there. A permission or existence
+ * check is a separate statement from the write it guards. Invalid input and unknown ids are
+ * reported with IllegalArgumentException, missing permission with SecurityException.
+ * </p>
+ */
+public class DiscussionService {
+
+    private static final Map<DatabaseHelper, DiscussionService> instances = new WeakHashMap<>();
+
+    private final DatabaseHelper databaseHelper;
+
+    public DiscussionService(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /** Returns the shared service for a DatabaseHelper. */
+    public static DiscussionService of(DatabaseHelper databaseHelper) {
+        synchronized (instances) {
+            return instances.computeIfAbsent(databaseHelper, DiscussionService::new);
+        }
+    }
+
+    // ****************************
+    // ** Questions **
+    // ****************************
+
+    /**
+     * Lists questions newest first, a page at a time.
+     *
+     * @param tag   tag to filter on, or null/empty for all questions
+     * @param after cursor returned with the previous page, or null for the first page
+     */
+    public QuestionPage listQuestions(boolean onlyUnresolved, String tag, QuestionPage.Cursor after, int pageSize)
+            throws SQLException {
+        return new SortQuestions(databaseHelper).getSortedQuestionsPage(onlyUnresolved, tag, after, pageSize);
+    }
+
+    /** @return the question, or null if there is none with this id */
+    public Question getQuestion(int questionId) throws SQLException {
+        return databaseHelper.getQuestionById(questionId);
+    }
+
+    /**
+     * @return questions whose text or answers match the query, best match first; an empty
+     *         query matches nothing
+     */
+    public List<Question> searchQuestions(String query, int limit) throws SQLException {
+        return searchQuestions(query, limit, null);
+    }
+
+    /**
+     * Searches questions with one status. Only the ranked questions are loaded, and only
+     * questions with the status compete for the limit.
+     *
+     * @param resolved true for resolved questions only, false for unresolved only, null for both
+     * @return matching questions, best match first; an empty query matches nothing
+     */
+    public List<Question> searchQuestions(String query, int limit, Boolean resolved) throws SQLException {
+        List<Integer> ids;
+        if (resolved == null) {
+            ids = SearchIndex.of(databaseHelper).search(query, limit);
+        } else {
+            BitSet withStatus = TagIndex.upToDate(databaseHelper).filter(null, null, null, resolved);
+            ids = SearchIndex.of(databaseHelper).search(query, limit, withStatus::get);
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        BitSet idSet = new BitSet();
+        Map<Integer, Integer> rank = new HashMap<>();
+        for (int id : ids) {
+            idSet.set(id);
+            rank.putIfAbsent(id, rank.size());
+        }
+        List<Question> questions = new SortQuestions(databaseHelper).getQuestionsByIds(idSet);
+        questions.sort(Comparator.comparingInt(q -> rank.get(q.getId())));
+        return questions;
+    }
+
+    public void addQuestion(User author, String content, String tags) throws SQLException {
+        content = requireText(content, "Question");
+        if (tags == null || tags.trim().isEmpty()) {
+            throw new IllegalArgumentException("A question needs a tag");
+        }
+        databaseHelper.addQuestion(new Question(0, content, author, tags.trim()));
+        invalidateQuestionsOf(author.getId());
+        SearchIndex.of(databaseHelper).refresh();
+        TagIndex.of(databaseHelper).refresh();
+    }
+
+    public void updateQuestion(User author, int questionId, String content) throws SQLException {
+        content = requireText(content, "Question");
+        requireOwner(author, questionOwner(questionId), "question " + questionId);
+        databaseHelper.updateQuestion(questionId, content);
+        invalidateQuestionsOf(author.getId());
+        SearchIndex.of(databaseHelper).updateQuestion(questionId, content);
+    }
+
+    public void markQuestionResolved(User author, int questionId) throws SQLException {
+        requireOwner(author, questionOwner(questionId), "question " + questionId);
+        databaseHelper.markQuestionResolved(questionId);
+        invalidateQuestionsOf(author.getId());
+        TagIndex.of(databaseHelper).markResolved(questionId);
+    }
+
+    public void deleteQuestion(User author, int questionId) throws SQLException {
+        requireOwner(author, questionOwner(questionId), "question " + questionId);
+        databaseHelper.deleteQuestion(questionId);
+        invalidateQuestionsOf(author.getId());
+        SearchIndex.of(databaseHelper).removeQuestion(questionId);
+        TagIndex.of(databaseHelper).removeQuestion(questionId);
+    }
+
+    // ****************************
+    // ** Answers **
+    // ****************************
+
+    public List<Answer> getAnswers(int questionId) throws SQLException {
+        return databaseHelper.getAnswersByQuestionId(questionId);
+    }
+
+    /** @return the answers ordered by the student's trusted-reviewer weights */
+    public List<Answer> getRankedAnswers(int studentId, int questionId) throws SQLException {
+        return AnswerRanking.of(databaseHelper).getRankedAnswers(studentId, questionId);
+    }
+
+    public void addAnswer(User author, int questionId, String content) throws SQLException {
+        content = requireText(content, "Answer");
+        Question question = databaseHelper.getQuestionById(questionId);
+        if (question == null) {
+            throw new IllegalArgumentException("No question " + questionId);
+        }
+        databaseHelper.addAnswer(new Answer(0, content, author, question));
+        invalidateAnswersOf(author.getId());
+        if (question.getUser() != null) {
+            invalidateQuestionsOf(question.getUser().getId());
+        }
+        AnswerRanking.of(databaseHelper).invalidateQuestion(questionId);
+        SearchIndex.of(databaseHelper).refresh();
+    }
+
+    public void updateAnswer(User author, int answerId, String content) throws SQLException {
+        content = requireText(content, "Answer");
+        int[] answer = answerOwnerAndQuestion(answerId);
+        requireOwner(author, answer[0], "answer " + answerId);
+        databaseHelper.updateAnswer(answerId, content);
+        invalidateAnswersOf(author.getId());
+        AnswerRanking.of(databaseHelper).invalidateQuestion(answer[1]);
+        SearchIndex.of(databaseHelper).updateAnswer(answerId, content);
+    }
+
+    public void deleteAnswer(User author, int answerId) throws SQLException {
+        int[] answer = answerOwnerAndQuestion(answerId);
+        requireOwner(author, answer[0], "answer " + answerId);
+        databaseHelper.deleteAnswer(answerId, author.getId());
+        invalidateAnswersOf(author.getId());
+        AnswerRanking.of(databaseHelper).invalidateQuestion(answer[1]);
+        SearchIndex.of(databaseHelper).removeAnswer(answerId);
+    }
+
+    /** Marks an answer as the solution to its question; only the question's author may. */
+    public void markAnswerAsSolution(User questionAuthor, int answerId) throws SQLException {
+        int questionId = answerOwnerAndQuestion(answerId)[1];
+        requireOwner(questionAuthor, questionOwner(questionId), "question " + questionId);
+        databaseHelper.markAnswerAsSolution(answerId);
+        invalidateQuestionsOf(questionAuthor.getId());
+        AnswerRanking.of(databaseHelper).onSolutionMarked(questionId, answerId);
+    }
+
+    // ****************************
+    // ** Reviews **
+    // ****************************
+
+    public List<Review> getReviews(int answerId) throws SQLException {
+        return databaseHelper.getReviewsByAnswerId(answerId);
+    }
+
+    /** @return the student's unviewed review updates, without those marked viewed but not yet written */
+    public List<ReviewUpdate> getUnviewedReviewUpdates(int studentId) throws SQLException {
+        ReviewUpdateBus bus = ReviewUpdateBus.of(databaseHelper);
+        List<ReviewUpdate> updates = new ArrayList<>();
+        for (ReviewUpdate update : ReviewFanout.of(databaseHelper).getUnviewedReviewUpdates(studentId)) {
+            if (!bus.isMarkedViewed(studentId, update.getId())) {
+                updates.add(update);
+            }
+        }
+        return updates;
+    }
+
+    /**
+     * Marks one of the student's review updates viewed; the write is batched by the
+     * {@link ReviewUpdateBus}.
+     */
+    public void markReviewUpdateViewed(User student, int updateId) throws SQLException {
+        if (!ReviewFanout.of(databaseHelper).isUpdateFor(student.getId(), updateId)) {
+            throw new IllegalArgumentException("No review update " + updateId + " for " + student.getUserName());
+        }
+        ReviewUpdateBus.of(databaseHelper).markViewed(student.getId(), updateId);
+    }
+
+    // ****************************
+    // ** Trusted reviewers **
+    // ****************************
+
+    public Map<User, Integer> getTrustedReviewers(int studentId) throws SQLException {
+        return databaseHelper.getTrustedReviewersForStudent(studentId);
+    }
+
+    /** Trusts a reviewer with the given weight, or changes the weight if already trusted. */
+    public void setTrustedReviewer(User student, int reviewerId, int weight) throws SQLException {
+        if (reviewerId == student.getId()) {
+            throw new IllegalArgumentException("Students cannot trust themselves");
+        }
+        Integer oldWeight = trustWeight(student.getId(), reviewerId);
+        if (oldWeight == null) {
+            if (UserCache.of(databaseHelper).getUserById(reviewerId) == null) {
+                throw new IllegalArgumentException("No user " + reviewerId);
+            }
+            databaseHelper.addTrustedReviewer(student.getId(), reviewerId, weight);
+        } else {
+            databaseHelper.updateReviewerWeight(student.getId(), reviewerId, weight);
+        }
+        onTrustWeightChanged(student, reviewerId, oldWeight != null ? oldWeight : 0, weight);
+    }
+
+    /** @return false if the reviewer was not trusted */
+    public boolean removeTrustedReviewer(User student, int reviewerId) throws SQLException {
+        Integer oldWeight = trustWeight(student.getId(), reviewerId);
+        if (oldWeight == null) {
+            return false;
+        }
+        databaseHelper.removeTrustedReviewer(student.getId(), reviewerId);
+        onTrustWeightChanged(student, reviewerId, oldWeight, 0);
+        return true;
+    }
+
+    private Integer trustWeight(int studentId, int reviewerId) throws SQLException {
+        for (Map.Entry<User, Integer> entry : databaseHelper.getTrustedReviewersForStudent(studentId).entrySet()) {
+            if (entry.getKey().getId() == reviewerId) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private void onTrustWeightChanged(User student, int reviewerId, int oldWeight, int newWeight) {
+        SessionSnapshot snapshot = SessionSnapshot.peek(databaseHelper, student.getId());
+        if (snapshot != null) {
+            snapshot.invalidateTrustedReviewers();
+        }
+        AnswerRanking.of(databaseHelper).onTrustWeightChanged(student.getId(), reviewerId, newWeight);
+        ReviewerReputation.of(databaseHelper).onTrustWeightChanged(reviewerId, oldWeight, newWeight);
+    }
+
+    // ****************************
+    // ** Feedback **
+    // ****************************
+
+    /** Sends private feedback on a review to its reviewer. */
+    public void addFeedback(User student, int reviewId, String content) throws SQLException {
+        content = requireText(content, "Feedback");
+        int reviewerId;
+        int answerId;
+        try (Connection connection = ConnectionPool.borrow(databaseHelper);
+             PreparedStatement pstmt = connection.prepareStatement(
+                     "SELECT reviewer_id, answer_id FROM Reviews WHERE id = ?")) {
+            pstmt.setInt(1, reviewId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("No review " + reviewId);
+                }
+                reviewerId = rs.getInt("reviewer_id");
+                answerId = rs.getInt("answer_id");
+            }
+        }
+        databaseHelper.addFeedback(student.getId(), reviewerId, answerId, reviewId, content);
+        ReviewerReputation.of(databaseHelper).onFeedbackAdded(reviewerId);
+    }
+
+    public List<Feedback> getFeedbackForReviewer(int reviewerId) throws SQLException {
+        return databaseHelper.getFeedbackForReviewer(reviewerId);
+    }
+
+    public ReviewerReputation.Reputation getReputation(int reviewerId) throws SQLException {
+        return ReviewerReputation.of(databaseHelper).getReputation(reviewerId);
+    }
+
+    // ****************************
+    // ** Roles **
+    // ****************************
+
+    public List<String> getRoles(String userName) throws SQLException {
+        return new ArrayList<>(databaseHelper.getUserRoles(userName));
+    }
+
+    /** @return false if the user already had the role */
+    public boolean addRole(User admin, String userName, Role role) throws SQLException {
+        requireAdmin(admin);
+        if (databaseHelper.getUserRoles(userName).contains(role.getDisplayName())) {
+            return false;
+        }
+        UserCache.of(databaseHelper).addUserRole(userName, role.getDisplayName());
+        SessionContext.invalidate(databaseHelper, userName);
+        return true;
+    }
+
+    public void removeRole(User admin, String userName, Role role) throws SQLException {
+        requireAdmin(admin);
+        UserCache.of(databaseHelper).removeUserRole(userName, role.getDisplayName());
+        SessionContext.invalidate(databaseHelper, userName);
+    }
+
+    /**
+     * Issues a one-time password for a user who cannot log in, replacing any outstanding one.
+     * The admin passes it on; the user redeems it on the change password page.
+     */
+    public String issueOneTimePassword(User admin, String userName) throws SQLException {
+        requireAdmin(admin);
+        if (UserCache.of(databaseHelper).getUserByUserName(userName) == null) {
+            throw new IllegalArgumentException("No user " + userName);
+        }
+        return OneTimePasswords.of(databaseHelper).issue(userName);
+    }
+
+    /** @return false if the student already is a reviewer or already asked to become one */
+    public boolean requestReviewerRole(User student) throws SQLException {
+        SessionContext session = SessionContext.of(databaseHelper, student);
+        if (session.hasRole(Role.REVIEWER) || session.hasRequestedReviewer()) {
+            return false;
+        }
+        databaseHelper.requestToBeReviewer(student);
+        session.setReviewerRequested();
+        return true;
+    }
+
+    private void requireAdmin(User user) throws SQLException {
+        if (!SessionContext.of(databaseHelper, user).hasRole(Role.ADMIN)) {
+            throw new SecurityException(user.getUserName() + " is not an admin");
+        }
+    }
+
+    // ****************************
+    // ** Helpers **
+    // ****************************
+
+    private static String requireText(String text, String what) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException(what + " cannot be empty");
+        }
+        return text.trim();
+    }
+
+    private static void requireOwner(User user, int ownerId, String what) {
+        if (user.getId() != ownerId) {
+            throw new SecurityException(user.getUserName() + " is not the author of " + what);
+        }
+    }
+
+    private int questionOwner(int questionId) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow(databaseHelper);
+             PreparedStatement pstmt = connection.prepareStatement("SELECT user_id FROM Questions WHERE id = ?")) {
+            pstmt.setInt(1, questionId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("No question " + questionId);
+                }
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    // Returns { author id, question id }
+    private int[] answerOwnerAndQuestion(int answerId) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow(databaseHelper);
+             PreparedStatement pstmt = connection.prepareStatement(
+                     "SELECT user_id, question_id FROM Answers WHERE id = ?")) {
+            pstmt.setInt(1, answerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("No answer " + answerId);
+                }
+                return new int[] { rs.getInt(1), rs.getInt(2) };
+            }
+        }
+    }
+
+    private void invalidateQuestionsOf(int userId) {
+        SessionSnapshot snapshot = SessionSnapshot.peek(databaseHelper, userId);
+        if (snapshot != null) {
+            snapshot.invalidateQuestions();
+        }
+    }
+
+    private void invalidateAnswersOf(int userId) {
+        SessionSnapshot snapshot = SessionSnapshot.peek(databaseHelper, userId);
+        if (snapshot != null) {
+            snapshot.invalidateAnswers();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package application;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.SchemaMigrator;
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class DiscussionServiceTest {
+
+    private DatabaseHelper databaseHelper;
+    private DiscussionService service;
+    private User author;
+    private User other;
+    private User reviewer;
+    private User admin;
+
+    @BeforeAll
+    public void setup() throws SQLException {
+        databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+        SchemaMigrator.migrate(databaseHelper);
+        service = DiscussionService.of(databaseHelper);
+
+        author = register("serviceAuthor", "Student");
+        other = register("serviceOther", "Student");
+        reviewer = register("serviceReviewer", "Reviewer");
+        admin = register("serviceAdmin", "admin");
+    }
+
+    @Test
+    public void testOnlyTheAuthorEditsAQuestion() throws SQLException {
+        int questionId = addQuestion(author, "Who may edit this question?");
+
+        assertThrows(SecurityException.class, () -> service.updateQuestion(other, questionId, "Edited by someone else"));
+        assertThrows(SecurityException.class, () -> service.deleteQuestion(other, questionId));
+        assertEquals("Who may edit this question?", service.getQuestion(questionId).getContent());
+
+        service.updateQuestion(author, questionId, "Edited by the author");
+        assertEquals("Edited by the author", service.getQuestion(questionId).getContent());
+    }
+
+    @Test
+    public void testOnlyTheQuestionAuthorPicksTheSolution() throws SQLException {
+        int questionId = addQuestion(author, "Which answer solves this?");
+        service.addAnswer(other, questionId, "This one");
+        int answerId = service.getAnswers(questionId).get(0).getId();
+
+        assertThrows(SecurityException.class, () -> service.markAnswerAsSolution(other, answerId));
+        assertFalse(service.getAnswers(questionId).get(0).isSolution());
+
+        service.markAnswerAsSolution(author, answerId);
+        assertTrue(service.getAnswers(questionId).get(0).isSolution());
+    }
+
+    @Test
+    public void testInvalidInputIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.addQuestion(author, "  ", "General"));
+        assertThrows(IllegalArgumentException.class, () -> service.addQuestion(author, "No tag", ""));
+        assertThrows(IllegalArgumentException.class, () -> service.addAnswer(author, -1, "No such question"));
+        assertThrows(IllegalArgumentException.class, () -> service.setTrustedReviewer(author, author.getId(), 3));
+    }
+
+    @Test
+    public void testOnlyAdminsChangeRoles() throws SQLException {
+        User student = register("serviceRoles", "Student");
+        assertFalse(SessionContext.of(databaseHelper, student).hasRole(Role.REVIEWER));
+
+        assertThrows(SecurityException.class, () -> service.addRole(other, student.getUserName(), Role.REVIEWER));
+        assertThrows(SecurityException.class, () -> service.issueOneTimePassword(other, student.getUserName()));
+        assertFalse(service.getRoles(student.getUserName()).contains("Reviewer"));
+
+        assertTrue(service.addRole(admin, student.getUserName(), Role.REVIEWER));
+        assertTrue(service.getRoles(student.getUserName()).contains("Reviewer"));
+        assertTrue(SessionContext.of(databaseHelper, student).hasRole(Role.REVIEWER), "The cached session is reloaded");
+        assertFalse(service.addRole(admin, student.getUserName(), Role.REVIEWER));
+    }
+
+    @Test
+    public void testNewAnswerInvalidatesTheRanking() throws SQLException {
+        int questionId = addQuestion(author, "Is the ranking refreshed?");
+        service.addAnswer(other, questionId, "First answer");
+        assertEquals(1, service.getRankedAnswers(author.getId(), questionId).size());
+
+        service.addAnswer(reviewer, questionId, "Second answer");
+        assertEquals(2, service.getRankedAnswers(author.getId(), questionId).size());
+    }
+
+    @Test
+    public void testTrustChangeReordersTheRanking() throws SQLException {
+        int questionId = addQuestion(author, "Whose answer comes first?");
+        service.addAnswer(other, questionId, "Answer by the other student");
+        service.addAnswer(reviewer, questionId, "Answer by the reviewer");
+        service.getRankedAnswers(author.getId(), questionId);   // cache the ranking
+
+        service.setTrustedReviewer(author, reviewer.getId(), 5);
+        assertEquals("Answer by the reviewer", service.getRankedAnswers(author.getId(), questionId).get(0).getContent());
+
+        assertTrue(service.removeTrustedReviewer(author, reviewer.getId()));
+        service.setTrustedReviewer(author, other.getId(), 5);
+        assertEquals("Answer by the other student",
+                service.getRankedAnswers(author.getId(), questionId).get(0).getContent());
+
+        assertTrue(service.removeTrustedReviewer(author, other.getId()));
+        assertFalse(service.removeTrustedReviewer(author, other.getId()));
+    }
+
+    private User register(String name, String role) throws SQLException {
+        databaseHelper.increment_num_users();
+        int id = databaseHelper.get_num_users();
+        // The id keeps the name unique when the tests run again on the same database
+        User user = new User(id, name + id, "Password!123", name + id + "@example.com", Arrays.asList(role));
+        databaseHelper.register(user, user.getRoles());
+        return databaseHelper.getUserByUserName(user.getUserName());
+    }
+
+    private int addQuestion(User user, String content) throws SQLException {
+        service.addQuestion(user, content, "General");
+        try (PreparedStatement stmt = databaseHelper.connection.prepareStatement(
+                "SELECT MAX(id) FROM Questions WHERE user_id = ?")) {
+            stmt.setInt(1, user.getId());
+            ResultSet rs = stmt.executeQuery();
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+}
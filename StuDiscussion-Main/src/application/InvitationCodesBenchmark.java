@@ -0,0 +1,93 @@
+package application;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import databasePart1.InvitationCodes;
+
+/*******
+ * <p> Title: InvitationCodesBenchmark Class. </p>
+ *
+ * <p> Description: Issues a roster of invitation codes one INSERT at a time and then in one
+ * batch, and checks as many random guesses against the database one SELECT at a time and
+ * then through the Bloom filter. Reports the time of each and how many guesses still reached
+ * the database. Runs against its own in-memory database. </p>
+ *
+ * Usage: InvitationCodesBenchmark [codes]
+ */
+public class InvitationCodesBenchmark {
+    private static final String ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
+
+    public static void main(String[] args) throws SQLException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        try (Connection connection = ScratchDatabase.open("invitationBenchmark")) {
+            Random random = new Random(21);
+
+            // Baseline: one round trip per code, as generateInvitationCode does
+            long start = System.nanoTime();
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "INSERT INTO Invitations (code, role, expires_at) VALUES (?, 'Student', ?)")) {
+                Timestamp expiresAt = new Timestamp(System.currentTimeMillis() + Duration.ofDays(7).toMillis());
+                for (int i = 0; i < count; i++) {
+                    pstmt.setString(1, randomCode(random));
+                    pstmt.setTimestamp(2, expiresAt);
+                    pstmt.executeUpdate();
+                }
+            }
+            report("Issue one at a time", count, start);
+
+            InvitationCodes invitations = new InvitationCodes(null);
+            start = System.nanoTime();
+            List<String> codes = invitations.issue(connection, count, Role.STUDENT, Duration.ofDays(7));
+            report("Issue as one batch ", codes.size(), start);
+
+            // Baseline: every guess is a query
+            start = System.nanoTime();
+            int found = 0;
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "SELECT 1 FROM Invitations WHERE code = ? AND used_at IS NULL AND expires_at > CURRENT_TIMESTAMP")) {
+                for (int i = 0; i < count; i++) {
+                    pstmt.setString(1, randomCode(random));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) found++;
+                    }
+                }
+            }
+            report("Guesses by query   ", count, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                if (invitations.redeem(connection, randomCode(random)) != null) found++;
+            }
+            report("Guesses by filter  ", count, start);
+            System.out.printf("%d guesses matched; %d rejected by the filter, %d reached the database%n",
+                    found, invitations.getFilterRejections(), invitations.getDatabaseLookups());
+
+            start = System.nanoTime();
+            for (String code : codes) {
+                invitations.redeem(connection, code);
+            }
+            report("Redeem issued codes", codes.size(), start);
+        }
+    }
+
+    private static void report(String label, int operations, long start) {
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
+        System.out.printf("%s: %d in %.0f ms (%.2f us each)%n", label, operations, millis, millis * 1000 / operations);
+    }
+
+    private static String randomCode(Random random) {
+        char[] code = new char[InvitationCodes.CODE_LENGTH];
+        for (int i = 0; i < code.length; i++) {
+            code[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        return new String(code);
+    }
+}
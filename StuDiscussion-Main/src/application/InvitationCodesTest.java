@@ -0,0 +1,130 @@
+package application;
+
+import databasePart1.BloomFilter;
+import databasePart1.ConnectionPool;
+import databasePart1.DatabaseHelper;
+import databasePart1.InvitationCodes;
+import databasePart1.SchemaMigrator;
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class InvitationCodesTest {
+
+    private Connection connection;
+
+    @BeforeAll
+    public void setupDatabase() throws SQLException {
+        connection = ScratchDatabase.open("invitationCodesTest");
+    }
+
+    @AfterAll
+    public void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void testIssuesDistinctCodesInOneBatch() throws SQLException {
+        InvitationCodes invitations = new InvitationCodes(null);
+        List<String> codes = invitations.issue(connection, 2_000, Role.STUDENT, Duration.ofDays(7));
+
+        assertEquals(2_000, codes.size());
+        assertEquals(2_000, new HashSet<>(codes).size());
+        assertTrue(codes.stream().allMatch(InvitationCodes::isWellFormed));
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT COUNT(*) FROM Invitations WHERE role = 'Student' AND used_at IS NULL AND code IN (?, ?)")) {
+            pstmt.setString(1, codes.get(0));
+            pstmt.setString(2, codes.get(1999));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                assertEquals(2, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    public void testCodeIsRedeemedOnce() throws SQLException {
+        InvitationCodes invitations = new InvitationCodes(null);
+        String code = invitations.issue(connection, 1, Role.REVIEWER, Duration.ofDays(1)).get(0);
+
+        assertEquals(Role.REVIEWER, invitations.redeem(connection, " " + code.toLowerCase() + " "),
+                "Codes are typed by hand");
+        long lookups = invitations.getDatabaseLookups();
+        assertNull(invitations.redeem(connection, code));
+        assertNull(invitations.redeem(connection, code));
+        assertEquals(lookups + 1, invitations.getDatabaseLookups(), "A used code is remembered after one query");
+        assertEquals(1, invitations.getHotSetRejections());
+    }
+
+    @Test
+    public void testValidateAcceptsIssuedAndLegacyCodes() throws SQLException {
+        DatabaseHelper databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+        try {
+            SchemaMigrator.migrate(databaseHelper);
+            InvitationCodes invitations = new InvitationCodes(databaseHelper);
+            String issued = invitations.issue(1, Role.STUDENT, Duration.ofDays(1)).get(0);
+            String legacy = databaseHelper.generateInvitationCode();
+
+            assertTrue(invitations.validate(issued));
+            assertTrue(invitations.validate(legacy), "Codes from before issue() still register");
+            assertFalse(invitations.validate(issued));
+            assertFalse(invitations.validate(legacy));
+        } finally {
+            ConnectionPool.close(databaseHelper);
+            databaseHelper.closeConnection();
+        }
+    }
+
+    @Test
+    public void testExpiredCodesAreRejected() throws SQLException {
+        InvitationCodes invitations = new InvitationCodes(null);
+        String code = invitations.issue(connection, 1, Role.STUDENT, Duration.ZERO).get(0);
+
+        assertNull(invitations.redeem(connection, code));
+    }
+
+    @Test
+    public void testGuessesNeverReachTheDatabase() throws SQLException {
+        InvitationCodes invitations = new InvitationCodes(null);
+        invitations.issue(connection, 100, Role.STUDENT, Duration.ofDays(7));
+
+        assertNull(invitations.redeem(connection, "not a code"));
+        assertNull(invitations.redeem(connection, null));
+        for (int i = 0; i < 1_000; i++) {
+            assertNull(invitations.redeem(connection, String.format("ZZZZZ%05d", i).replace('0', 'A').replace('1', 'B')));
+        }
+        // At a 0.1% false positive rate a handful of guesses may pass the filter, never more
+        assertTrue(invitations.getDatabaseLookups() <= 10, "Lookups: " + invitations.getDatabaseLookups());
+    }
+
+    @Test
+    public void testBloomFilterHasNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        Set<String> added = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            String value = "code-" + i;
+            filter.add(value);
+            added.add(value);
+        }
+        for (String value : added) {
+            assertTrue(filter.mightContain(value));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "False positive rate near 1%: " + falsePositives);
+        assertTrue(filter.isFull());
+    }
+}
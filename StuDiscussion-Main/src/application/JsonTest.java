@@ -0,0 +1,55 @@
+package application;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonTest {
+
+    @Test
+    public void testWritesNestedValues() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("id", 7);
+        value.put("content", "Why \"this\"?\nBecause\\");
+        value.put("tags", Arrays.asList("Exams", null, true, 2.5));
+        value.put("next", null);
+
+        assertEquals("{\"id\":7,\"content\":\"Why \\\"this\\\"?\\nBecause\\\\\","
+                + "\"tags\":[\"Exams\",null,true,2.5],\"next\":null}", Json.write(value));
+        assertEquals("\"\\u0001\"", Json.write("\u0001"));
+        assertEquals("null", Json.write(Double.NaN));
+    }
+
+    @Test
+    public void testParsesWhatItWrites() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("content", "tab\there, quote \" and unicode \u00e9");
+        value.put("weight", 3L);
+        value.put("score", -1.25e3);
+        value.put("list", Arrays.asList(1L, Arrays.asList(), new LinkedHashMap<>()));
+        value.put("ok", false);
+
+        assertEquals(value, Json.parse(Json.write(value)));
+    }
+
+    @Test
+    public void testParsesEscapesAndWhitespace() {
+        Map<String, Object> object = Json.parseObject(" { \"a\" : \"\\u0041\\/\\t\" ,\n \"b\" : [ ] } ");
+        assertEquals("A/\t", object.get("a"));
+        assertEquals(List.of(), object.get("b"));
+        assertTrue(Json.parseObject("").isEmpty(), "An empty body is an empty object");
+    }
+
+    @Test
+    public void testRejectsInvalidJson() {
+        for (String text : new String[] { "{", "{\"a\" 1}", "[1,]", "\"open", "{\"a\":1} x", "tru", "[1] [2]", "\"\\q\"" }) {
+            assertThrows(IllegalArgumentException.class, () -> Json.parse(text), text);
+        }
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("[1]"));
+    }
+}
@@ -0,0 +1,301 @@
+package application;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.SchemaMigrator;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*******
+ * <p> Title: LoadDriver Class. </p>
+ *
+ * <p> Description: Closed-loop load test of the DiscussionService. Seeds the database
+ * with the WorkloadGenerator, then runs a number of simulated users, each on its own
+ * virtual thread, that issue a weighted mix of reads and writes back to back: every user
+ * sends its next request as soon as the previous one returns. Each user is one of the
+ * generated students or reviewers, and the questions they read and answer follow a
+ * Zipf skew like the data. After a warm-up, reports the throughput and
+ * the p50/p90/p99/max latency of each operation and of the whole mix. </p>
+ *
+ * Usage: LoadDriver [students] [users] [seconds] [seed]
+ */
+public class LoadDriver {
+
+    /** The operations of the mix, with their default share of the requests. */
+    public enum Operation {
+        LIST_QUESTIONS(25),
+        SEARCH(10),
+        READ_ANSWERS(25),
+        READ_REVIEWS(10),
+        READ_REVIEW_UPDATES(10),
+        MARK_UPDATE_VIEWED(5),
+        ASK_QUESTION(4),
+        ADD_ANSWER(6),
+        SET_TRUST(3),
+        ADD_FEEDBACK(2);
+
+        private final int defaultWeight;
+
+        Operation(int defaultWeight) {
+            this.defaultWeight = defaultWeight;
+        }
+
+        public int getDefaultWeight() { return defaultWeight; }
+    }
+
+    /** Latencies of one operation, in nanoseconds, in the order they were recorded. */
+    static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+        private int errors;
+        private String firstError;
+
+        void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+            errors += other.errors;
+            if (firstError == null) {
+                firstError = other.firstError;
+            }
+        }
+
+        int size() { return size; }
+        int errors() { return errors; }
+
+        /** @return the latencies sorted, for {@link #percentile(long[], double)} */
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    private final DiscussionService service;
+    private final WorkloadGenerator.Dataset dataset;
+    private final Map<Operation, Integer> weights;
+    private final int totalWeight;
+    private final WorkloadGenerator.Zipf questionRank;
+
+    /**
+     * @param weights the share of each operation; operations left out are not run
+     */
+    public LoadDriver(DiscussionService service, WorkloadGenerator.Dataset dataset, Map<Operation, Integer> weights) {
+        if (dataset.getQuestionCount() == 0 || dataset.getAnswerCount() == 0 || dataset.getReviewCount() == 0) {
+            throw new IllegalArgumentException("The dataset needs questions, answers and reviews: " + dataset);
+        }
+        this.service = service;
+        this.dataset = dataset;
+        this.weights = new EnumMap<>(weights);
+        this.totalWeight = this.weights.values().stream().mapToInt(Integer::intValue).sum();
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("The mix has no operations");
+        }
+        this.questionRank = new WorkloadGenerator.Zipf(dataset.getQuestionCount(), 0.9);
+    }
+
+    /** @return the default mix: mostly reads, as in the week before an exam */
+    public static Map<Operation, Integer> defaultMix() {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            mix.put(operation, operation.getDefaultWeight());
+        }
+        return mix;
+    }
+
+    /**
+     * Runs the mix and returns the latencies recorded after the warm-up.
+     *
+     * @param users         simulated users, each issuing one request at a time
+     * @param warmupMillis  how long to run before recording
+     * @param measureMillis how long to record
+     * @param seed          the seed of the users' choices
+     */
+    public Map<Operation, Samples> run(int users, long warmupMillis, long measureMillis, long seed)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        long recordFrom = start + TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+        long stopAt = recordFrom + TimeUnit.MILLISECONDS.toNanos(measureMillis);
+        List<Map<Operation, Samples>> perUser = new ArrayList<>();
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        for (int u = 0; u < users; u++) {
+            Map<Operation, Samples> samples = new EnumMap<>(Operation.class);
+            perUser.add(samples);
+            Random random = new Random(seed + u);
+            executor.execute(() -> runUser(random, samples, recordFrom, stopAt));
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        Map<Operation, Samples> merged = new EnumMap<>(Operation.class);
+        for (Map<Operation, Samples> samples : perUser) {
+            samples.forEach((operation, s) -> merged.computeIfAbsent(operation, o -> new Samples()).addAll(s));
+        }
+        return merged;
+    }
+
+    private void runUser(Random random, Map<Operation, Samples> samples, long recordFrom, long stopAt) {
+        User user = pickUser(random);
+        long now;
+        while ((now = System.nanoTime()) < stopAt) {
+            Operation operation = pickOperation(random);
+            Exception failure = null;
+            try {
+                execute(operation, user, random);
+            } catch (SQLException | RuntimeException e) {
+                failure = e;
+            }
+            long end = System.nanoTime();
+            if (now >= recordFrom) {
+                Samples s = samples.computeIfAbsent(operation, o -> new Samples());
+                if (failure == null) {
+                    s.add(end - now);
+                } else if (s.errors++ == 0) {
+                    s.firstError = failure.toString();
+                }
+            }
+        }
+    }
+
+    private void execute(Operation operation, User user, Random random) throws SQLException {
+        int questionId = dataset.getFirstQuestionId() + questionRank.sample(random);
+        switch (operation) {
+            case LIST_QUESTIONS:
+                service.listQuestions(random.nextBoolean(), random.nextInt(4) == 0
+                        ? WorkloadGenerator.TAGS[random.nextInt(WorkloadGenerator.TAGS.length)] : null, null, 20);
+                break;
+            case SEARCH:
+                service.searchQuestions(WorkloadGenerator.WORDS[random.nextInt(20)] + " "
+                        + WorkloadGenerator.WORDS[random.nextInt(WorkloadGenerator.WORDS.length)], 20);
+                break;
+            case READ_ANSWERS:
+                service.getRankedAnswers(user.getId(), questionId);
+                break;
+            case READ_REVIEWS:
+                service.getReviews(dataset.getFirstAnswerId() + random.nextInt(dataset.getAnswerCount()));
+                break;
+            case READ_REVIEW_UPDATES:
+                service.getUnviewedReviewUpdates(user.getId());
+                break;
+            case MARK_UPDATE_VIEWED:
+                List<ReviewUpdate> updates = service.getUnviewedReviewUpdates(user.getId());
+                if (!updates.isEmpty()) {
+                    service.markReviewUpdateViewed(user, updates.get(random.nextInt(updates.size())).getId());
+                }
+                break;
+            case ASK_QUESTION:
+                service.addQuestion(user, "Load test question about " + random.nextInt(1_000) + " loops",
+                        WorkloadGenerator.TAGS[random.nextInt(WorkloadGenerator.TAGS.length)]);
+                break;
+            case ADD_ANSWER:
+                service.addAnswer(user, questionId, "Load test answer " + random.nextInt(1_000));
+                break;
+            case SET_TRUST:
+                List<User> reviewers = dataset.getReviewers();
+                User reviewer = reviewers.get(random.nextInt(reviewers.size()));
+                if (reviewer.getId() != user.getId()) {
+                    service.setTrustedReviewer(user, reviewer.getId(), 1 + random.nextInt(5));
+                }
+                break;
+            case ADD_FEEDBACK:
+                service.addFeedback(user, dataset.getFirstReviewId() + random.nextInt(dataset.getReviewCount()),
+                        "Load test feedback");
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    private User pickUser(Random random) {
+        int students = dataset.getStudents().size();
+        int index = random.nextInt(students + dataset.getReviewers().size());
+        return index < students ? dataset.getStudents().get(index) : dataset.getReviewers().get(index - students);
+    }
+
+    private Operation pickOperation(Random random) {
+        int value = random.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            value -= entry.getValue();
+            if (value < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Weights changed while running");
+    }
+
+    /** @return the latency at a percentile (0-100) of sorted latencies, nearest rank */
+    static long percentile(long[] sorted, double percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    /** Prints one line per operation and a total line. */
+    public static void report(Map<Operation, Samples> results, long measureMillis) {
+        System.out.printf("%-20s %10s %8s %8s %8s %8s %8s %7s%n",
+                "operation", "ops/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "count", "errors");
+        Samples total = new Samples();
+        for (Map.Entry<Operation, Samples> entry : results.entrySet()) {
+            printLine(entry.getKey().name(), entry.getValue(), measureMillis);
+            total.addAll(entry.getValue());
+        }
+        printLine("TOTAL", total, measureMillis);
+        for (Map.Entry<Operation, Samples> entry : results.entrySet()) {
+            if (entry.getValue().firstError != null) {
+                System.out.println("First " + entry.getKey() + " error: " + entry.getValue().firstError);
+            }
+        }
+    }
+
+    private static void printLine(String label, Samples samples, long measureMillis) {
+        long[] sorted = samples.sorted();
+        System.out.printf("%-20s %10.1f %8.3f %8.3f %8.3f %8.3f %8d %7d%n", label,
+                samples.size() * 1000.0 / measureMillis,
+                percentile(sorted, 50) / 1e6, percentile(sorted, 90) / 1e6,
+                percentile(sorted, 99) / 1e6, percentile(sorted, 100) / 1e6,
+                samples.size(), samples.errors());
+    }
+
+    public static void main(String[] args) throws SQLException, InterruptedException {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+
+        DatabaseHelper databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+        SchemaMigrator.migrate(databaseHelper);
+
+        System.out.println("______________________________________");
+        System.out.println("\nSeeding " + students + " students with seed " + seed);
+        long start = System.nanoTime();
+        WorkloadGenerator.Dataset dataset = new WorkloadGenerator(seed, WorkloadGenerator.Scale.forStudents(students),
+                System.currentTimeMillis()).generate(databaseHelper);
+        System.out.printf("Generated %s in %.1f s%n", dataset, (System.nanoTime() - start) / 1e9);
+
+        System.out.println("\nRunning " + users + " closed-loop users for " + seconds + " s after a "
+                + Math.max(5, seconds / 5) + " s warm-up");
+        long measureMillis = seconds * 1000L;
+        LoadDriver driver = new LoadDriver(DiscussionService.of(databaseHelper), dataset, defaultMix());
+        report(driver.run(users, Math.max(5, seconds / 5) * 1000L, measureMillis, seed), measureMillis);
+
+        databaseHelper.closeConnection();
+    }
+}
@@ -0,0 +1,196 @@
+package application;
+
+import databasePart1.ConnectionPool;
+import databasePart1.DatabaseHelper;
+import databasePart1.OneTimePasswords;
+import databasePart1.SchemaMigrator;
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class OneTimePasswordsTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private Connection connection;
+
+    @BeforeAll
+    public void setupDatabase() throws SQLException {
+        connection = ScratchDatabase.open("oneTimePasswordsTest");
+    }
+
+    @AfterAll
+    public void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @BeforeEach
+    public void resetClock() {
+        now.set(1_700_000_000_000L);
+    }
+
+    @Test
+    public void testVerifyThenConsumeOnce() throws SQLException {
+        OneTimePasswords store = newStore(Duration.ofMinutes(15), 100);
+        String code = store.issue("alice");
+
+        assertTrue(store.verify("alice", code));
+        assertTrue(store.verify("alice", " " + code + " "), "Verifying does not use the password up");
+        assertFalse(store.verify("bob", code));
+        assertTrue(store.consume("alice", code));
+        assertFalse(store.consume("alice", code));
+        assertFalse(store.isIssued("alice"));
+    }
+
+    @Test
+    public void testExpiresOnTheWheel() throws SQLException {
+        OneTimePasswords store = newStore(Duration.ofMinutes(15), 100);
+        String code = store.issue("alice");
+
+        now.addAndGet(Duration.ofMinutes(15).toMillis() - 1);
+        store.expire();
+        assertTrue(store.verify("alice", code));
+
+        now.addAndGet(1_001);
+        assertFalse(store.verify("alice", code), "Expired passwords fail before the tick removes them");
+        store.expire();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testLongTimeToLiveWaitsFullTurns() throws SQLException {
+        // 40 minutes is several turns of the 512 second wheel
+        OneTimePasswords store = newStore(Duration.ofMinutes(40), 100);
+        String code = store.issue("alice");
+
+        for (int minute = 1; minute < 40; minute++) {
+            now.addAndGet(60_000);
+            store.expire();
+            assertEquals(1, store.size(), "minute " + minute);
+        }
+        assertTrue(store.verify("alice", code));
+        now.addAndGet(60_000);
+        store.expire();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testExpiresOnTimeAfterAnIdleSpell() throws SQLException {
+        OneTimePasswords store = newStore(Duration.ofMinutes(15), 100);
+        now.addAndGet(Duration.ofDays(30).toMillis());
+        String code = store.issue("alice");
+
+        now.addAndGet(Duration.ofMinutes(15).toMillis() - 1);
+        store.expire();
+        assertTrue(store.verify("alice", code));
+        now.addAndGet(1_001);
+        store.expire();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testReissueReplacesAndWrongGuessesBurnThePassword() throws SQLException {
+        OneTimePasswords store = newStore(Duration.ofMinutes(15), 100);
+        String first = store.issue("alice");
+        String second = store.issue("alice");
+        assertEquals(1, store.size());
+        if (!first.equals(second)) {
+            assertFalse(store.verify("alice", first));
+        }
+
+        for (int i = 0; i < OneTimePasswords.MAX_ATTEMPTS; i++) {
+            store.verify("alice", "not the code");
+        }
+        assertFalse(store.verify("alice", second));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testCapacityIsBounded() throws SQLException {
+        OneTimePasswords store = newStore(Duration.ofMinutes(15), 2);
+        store.issue("alice");
+        store.issue("bob");
+
+        assertThrows(IllegalStateException.class, () -> store.issue("carol"));
+        store.issue("alice");
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void testPersistsLazilyAndReloads() throws SQLException {
+        OneTimePasswords store = newStore(Duration.ofMinutes(15), 100);
+        String alice = store.issue("persist_alice");
+        String bob = store.issue("persist_bob");
+        assertEquals(0, countRows(), "Nothing is written until the flush");
+
+        store.flush(connection);
+        assertEquals(2, countRows());
+
+        store.consume("persist_bob", bob);
+        store.flush(connection);
+        assertEquals(1, countRows(), "Consumed passwords leave no row");
+
+        OneTimePasswords restarted = newStore(Duration.ofMinutes(15), 100);
+        restarted.load(connection);
+        assertTrue(restarted.verify("persist_alice", alice));
+        assertFalse(restarted.verify("persist_bob", bob));
+
+        now.addAndGet(Duration.ofMinutes(16).toMillis());
+        newStore(Duration.ofMinutes(15), 100).load(connection);
+        assertEquals(0, countRows(), "Expired rows are deleted at startup");
+    }
+
+    @Test
+    public void testFailedFlushIsRetried() throws SQLException {
+        OneTimePasswords store = newStore(Duration.ofMinutes(15), 100);
+        String code = store.issue("persist_carol");
+
+        Connection closed = DriverManager.getConnection("jdbc:h2:mem:oneTimePasswordsTest;DB_CLOSE_DELAY=-1", "sa", "");
+        closed.close();
+        assertThrows(SQLException.class, () -> store.flush(closed));
+
+        store.flush(connection);
+        assertEquals(1, countRows(), "The failed batch is written by the next flush");
+        store.consume("persist_carol", code);
+        store.flush(connection);
+        assertEquals(0, countRows());
+    }
+
+    @Test
+    public void testConsumedPasswordIsDeletedAtOnce() throws SQLException {
+        DatabaseHelper databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+        try {
+            SchemaMigrator.migrate(databaseHelper);
+            OneTimePasswords store = new OneTimePasswords(databaseHelper, Duration.ofMinutes(15), 100, now::get);
+            String code = store.issue("persist_dave");
+            store.flush();
+
+            assertTrue(store.consume("persist_dave", code));
+            // A restart before the next tick must not bring the password back
+            OneTimePasswords restarted = new OneTimePasswords(databaseHelper, Duration.ofMinutes(15), 100, now::get);
+            assertFalse(restarted.consume("persist_dave", code));
+            store.stop();
+            restarted.stop();
+        } finally {
+            ConnectionPool.close(databaseHelper);
+            databaseHelper.closeConnection();
+        }
+    }
+
+    private OneTimePasswords newStore(Duration timeToLive, int capacity) {
+        return new OneTimePasswords(null, timeToLive, capacity, now::get);
+    }
+
+    private int countRows() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM OneTimePasswords WHERE user_name LIKE 'persist_%'")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package application;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+
+public final class PasswordCheck {
+	/**
+	 * <p> Title: Single-pass Password Assessor. </p>
+	 *
+	 * <p> Description: The same rules as PasswordEvaluator, checked in one pass over the input
+	 * with a table lookup per character. Nothing is kept between calls: each evaluation returns
+	 * an immutable Result holding a bitmask of the rules the password satisfies, so any number
+	 * of threads may evaluate passwords at once. A password that passes every rule gets the
+	 * shared VALID result, so the success path allocates nothing. The messages are the ones
+	 * PasswordEvaluator returns.</p>
+	 *
+	 */
+
+	/**********************************************************************************************
+	 *
+	 * Rule bits, in the order PasswordEvaluator reports missing rules.
+	 *
+	 */
+
+	public static final int UPPER_CASE = 1;				// At least one A-Z
+	public static final int LOWER_CASE = 1 << 1;		// At least one a-z
+	public static final int NUMERIC_DIGIT = 1 << 2;		// At least one 0-9
+	public static final int SPECIAL_CHARACTER = 1 << 3;	// At least one of SPECIAL_CHARACTERS
+	public static final int LONG_ENOUGH = 1 << 4;		// At least MIN_LENGTH characters
+	public static final int VALID_CHARACTERS = 1 << 5;	// No character outside the four classes above
+	public static final int ALL_RULES = (1 << 6) - 1;
+
+	public static final int MIN_LENGTH = 8;
+	public static final String SPECIAL_CHARACTERS = "~'!@#$%^&*()_-+{}[]:,.?/";
+
+	private static final String[] MISSING = {
+		"Missing an upper case; ",
+		"Missing a lower case; ",
+		"Missing a numeric digits; ",
+		"Missing an special character; ",
+		"Not long enough; "
+	};
+	private static final String INVALID_CHARACTERS = "Invalid characters were used; ";
+	private static final String EMPTY_MESSAGE = "*** Error *** The password is empty!";
+
+	// The rule bit each ASCII character satisfies; zero marks an invalid character
+	private static final byte[] RULE_OF = new byte[128];
+
+	static {
+		for (char c = 'A'; c <= 'Z'; c++) RULE_OF[c] = UPPER_CASE;
+		for (char c = 'a'; c <= 'z'; c++) RULE_OF[c] = LOWER_CASE;
+		for (char c = '0'; c <= '9'; c++) RULE_OF[c] = NUMERIC_DIGIT;
+		for (char c : SPECIAL_CHARACTERS.toCharArray()) RULE_OF[c] = SPECIAL_CHARACTER;
+	}
+
+	public static final Result VALID = new Result(ALL_RULES, -1);
+	public static final Result EMPTY = new Result(0, 0);
+
+	private PasswordCheck() {
+	}
+
+	/**********
+	 * The outcome of one evaluation.
+	 */
+	public static final class Result {
+		private final int rules;
+		private final int errorIndex;
+
+		private Result(int rules, int errorIndex) {
+			this.rules = rules;
+			this.errorIndex = errorIndex;
+		}
+
+		public boolean isValid() { return rules == ALL_RULES; }
+
+		/** @return the bitmask of satisfied rules */
+		public int getRules() { return rules; }
+
+		public boolean satisfies(int rule) { return (rules & rule) == rule; }
+
+		/** @return where PasswordEvaluator puts passwordIndexofError: the length, 0 when empty, -1 when valid */
+		public int getErrorIndex() { return errorIndex; }
+
+		/** @return the message PasswordEvaluator.evaluatePassword returns for the same input */
+		public String getMessage() {
+			if (this == EMPTY) return EMPTY_MESSAGE;
+			if (isValid()) return "";
+			StringBuilder message = new StringBuilder();
+			for (int i = 0; i < MISSING.length; i++) {
+				if ((rules & (1 << i)) == 0) message.append(MISSING[i]);
+			}
+			if ((rules & VALID_CHARACTERS) == 0) message.append(INVALID_CHARACTERS);
+			return message.toString();
+		}
+
+		@Override
+		public String toString() {
+			return isValid() ? "Password is valid" : getMessage();
+		}
+	}
+
+	/**********
+	 * Checks every rule in one pass over the password.
+	 *
+	 * @param input		The password
+	 * @return			VALID, EMPTY, or a Result with the rules the password satisfies
+	 */
+	public static Result evaluate(String input) {
+		int length = input.length();
+		if (length == 0) return EMPTY;
+
+		int rules = 0;
+		boolean invalid = false;
+		for (int ndx = 0; ndx < length; ndx++) {
+			char c = input.charAt(ndx);
+			int rule = c < 128 ? RULE_OF[c] : 0;
+			if (rule == 0) invalid = true;
+			rules |= rule;
+		}
+		if (length >= MIN_LENGTH) rules |= LONG_ENOUGH;
+		if (!invalid) rules |= VALID_CHARACTERS;
+
+		return rules == ALL_RULES ? VALID : new Result(rules, length);
+	}
+
+	/**********
+	 * Evaluates many passwords in parallel, for example a roster being imported.
+	 *
+	 * @param inputs	The passwords
+	 * @return			The result of evaluate() for each password, in the same order
+	 */
+	public static Result[] evaluateAll(List<String> inputs) {
+		Result[] results = new Result[inputs.size()];
+		IntStream.range(0, results.length).parallel().forEach(i -> results[i] = evaluate(inputs.get(i)));
+		return results;
+	}
+
+}
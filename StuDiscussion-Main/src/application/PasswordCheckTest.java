@@ -0,0 +1,128 @@
+package application;
+
+import org.junit.jupiter.api.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PasswordCheckTest {
+
+    // One character of each class, plus an invalid space and a non-ASCII letter
+    private static final String ALPHABET = "Aa1! é";
+
+    private PrintStream console;
+
+    // PasswordEvaluator traces every step to the console
+    @BeforeAll
+    public void silenceTrace() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @AfterAll
+    public void restoreConsole() {
+        System.setOut(console);
+    }
+
+    @Test
+    public void testMatchesEvaluatorOnAllShortInputs() {
+        List<String> inputs = new ArrayList<>();
+        for (int length = 1; length <= 6; length++) {
+            addAll(inputs, new StringBuilder(), length);
+        }
+        for (String input : inputs) {
+            assertSameAsEvaluator(input);
+        }
+    }
+
+    @Test
+    public void testMatchesEvaluatorOnRandomInputs() {
+        Random random = new Random(19);
+        String characters = "abcXYZ0189" + PasswordCheck.SPECIAL_CHARACTERS + " \t\"<>=|\\";
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder input = new StringBuilder();
+            int length = 1 + random.nextInt(16);
+            for (int j = 0; j < length; j++) {
+                input.append(characters.charAt(random.nextInt(characters.length())));
+            }
+            assertSameAsEvaluator(input.toString());
+        }
+    }
+
+    @Test
+    public void testEmptyAndValidResultsAreShared() {
+        assertSame(PasswordCheck.EMPTY, PasswordCheck.evaluate(""));
+        assertEquals(PasswordEvaluator.evaluatePassword(""), PasswordCheck.evaluate("").getMessage());
+
+        PasswordCheck.Result valid = PasswordCheck.evaluate("Password!123");
+        assertSame(PasswordCheck.VALID, valid);
+        assertEquals("", valid.getMessage());
+        assertEquals(-1, valid.getErrorIndex());
+    }
+
+    @Test
+    public void testRulesBitmask() {
+        PasswordCheck.Result result = PasswordCheck.evaluate("short1!");
+        assertFalse(result.isValid());
+        assertTrue(result.satisfies(PasswordCheck.LOWER_CASE | PasswordCheck.NUMERIC_DIGIT
+                | PasswordCheck.SPECIAL_CHARACTER | PasswordCheck.VALID_CHARACTERS));
+        assertFalse(result.satisfies(PasswordCheck.UPPER_CASE));
+        assertFalse(result.satisfies(PasswordCheck.LONG_ENOUGH));
+        assertEquals(7, result.getErrorIndex());
+    }
+
+    @Test
+    public void testBatchMatchesSingleEvaluations() {
+        List<String> inputs = new ArrayList<>();
+        Random random = new Random(23);
+        for (int i = 0; i < 10_000; i++) {
+            StringBuilder input = new StringBuilder();
+            int length = random.nextInt(14);
+            for (int j = 0; j < length; j++) {
+                input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            inputs.add(input.toString());
+        }
+
+        PasswordCheck.Result[] results = PasswordCheck.evaluateAll(inputs);
+        for (int i = 0; i < inputs.size(); i++) {
+            PasswordCheck.Result expected = PasswordCheck.evaluate(inputs.get(i));
+            assertEquals(expected.getRules(), results[i].getRules());
+            assertEquals(expected.getErrorIndex(), results[i].getErrorIndex());
+        }
+    }
+
+    private static void assertSameAsEvaluator(String input) {
+        String expected = PasswordEvaluator.evaluatePassword(input);
+        PasswordCheck.Result result = PasswordCheck.evaluate(input);
+
+        assertEquals(expected, result.getMessage(), "message for '" + input + "'");
+        assertEquals(PasswordEvaluator.foundUpperCase, result.satisfies(PasswordCheck.UPPER_CASE));
+        assertEquals(PasswordEvaluator.foundLowerCase, result.satisfies(PasswordCheck.LOWER_CASE));
+        assertEquals(PasswordEvaluator.foundNumericDigit, result.satisfies(PasswordCheck.NUMERIC_DIGIT));
+        assertEquals(PasswordEvaluator.foundSpecialChar, result.satisfies(PasswordCheck.SPECIAL_CHARACTER));
+        assertEquals(PasswordEvaluator.foundLongEnough, result.satisfies(PasswordCheck.LONG_ENOUGH));
+        assertEquals(PasswordEvaluator.foundOtherChar, !result.satisfies(PasswordCheck.VALID_CHARACTERS));
+        if (!expected.isEmpty()) {
+            assertEquals(PasswordEvaluator.passwordIndexofError, result.getErrorIndex(), "index for '" + input + "'");
+        }
+    }
+
+    private static void addAll(List<String> inputs, StringBuilder prefix, int length) {
+        if (prefix.length() == length) {
+            inputs.add(prefix.toString());
+            return;
+        }
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            prefix.append(ALPHABET.charAt(i));
+            addAll(inputs, prefix, length);
+            prefix.setLength(prefix.length() - 1);
+        }
+    }
+}
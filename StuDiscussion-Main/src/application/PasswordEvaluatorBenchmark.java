@@ -0,0 +1,75 @@
+package application;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*******
+ * <p> Title: PasswordEvaluatorBenchmark Class. </p>
+ *
+ * <p> Description: Compares PasswordEvaluator with the single-pass PasswordCheck on the same
+ * mix of passwords, one at a time and as a parallel batch the size of a roster import. The
+ * evaluator's trace output is discarded while it is timed, so the numbers show the checks
+ * and not the console. </p>
+ *
+ * Usage: PasswordEvaluatorBenchmark [passwords] [rounds]
+ */
+public class PasswordEvaluatorBenchmark {
+    private static final String CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789"
+            + PasswordCheck.SPECIAL_CHARACTERS + " ";
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        List<String> passwords = generatePasswords(count, new Random(19));
+
+        PrintStream console = System.out;
+        for (int round = 1; round <= rounds; round++) {
+            // The first rounds double as warm-up; compare the later ones
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            long start = System.nanoTime();
+            int valid = 0;
+            for (String password : passwords) {
+                if (PasswordEvaluator.evaluatePassword(password).isEmpty()) valid++;
+            }
+            double evaluatorNanos = (double) (System.nanoTime() - start) / count;
+            System.setOut(console);
+
+            start = System.nanoTime();
+            int checkValid = 0;
+            for (String password : passwords) {
+                if (PasswordCheck.evaluate(password).isValid()) checkValid++;
+            }
+            double checkNanos = (double) (System.nanoTime() - start) / count;
+
+            start = System.nanoTime();
+            PasswordCheck.Result[] results = PasswordCheck.evaluateAll(passwords);
+            double batchNanos = (double) (System.nanoTime() - start) / count;
+            sink = results[0];
+
+            System.out.printf("Round %d: evaluator %.1f ns/password (%d valid); single pass %.1f ns/password "
+                    + "(%d valid); parallel batch %.1f ns/password%n",
+                    round, evaluatorNanos, valid, checkNanos, checkValid, batchNanos);
+        }
+    }
+
+    // Lengths 4..19, mostly letters, so some passwords pass and the rest miss one or more rules
+    private static List<String> generatePasswords(int count, Random random) {
+        List<String> passwords = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder password = new StringBuilder();
+            int length = 4 + random.nextInt(16);
+            for (int j = 0; j < length; j++) {
+                password.append(random.nextInt(3) == 0
+                        ? CHARACTERS.charAt(random.nextInt(CHARACTERS.length()))
+                        : (char) ('a' + random.nextInt(26)));
+            }
+            passwords.add(password.toString());
+        }
+        return passwords;
+    }
+}
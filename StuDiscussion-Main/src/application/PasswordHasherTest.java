@@ -0,0 +1,95 @@
+package application;
+
+import databasePart1.PasswordHasher;
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PasswordHasherTest {
+
+    private PasswordHasher hasher;
+
+    @BeforeAll
+    public void setupHasher() {
+        // The cheapest cost keeps the tests fast; calibration is tested separately
+        hasher = new PasswordHasher(new PasswordHasher.Cost(PasswordHasher.MIN_LOG_N, 8, 1), 2, 16);
+    }
+
+    @AfterAll
+    public void stopHasher() {
+        hasher.shutdown();
+    }
+
+    @Test
+    public void testRfc7914Vectors() {
+        assertEquals("77d6576238657b203b19ca42c18a0497f16b4844e3074ae8dfdffa3fede21442"
+                        + "fcd0069ded0948f8326a753a0fc81f17e8d3e0fb2e0d3628cf35e20c38d18906",
+                hex(PasswordHasher.scrypt(new byte[0], new byte[0], 16, 1, 1, 64)));
+        assertEquals("fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b373162"
+                        + "2eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640",
+                hex(PasswordHasher.scrypt(bytes("password"), bytes("NaCl"), 1024, 8, 16, 64)));
+    }
+
+    @Test
+    public void testHashVerifiesOnlyTheSamePassword() {
+        String stored = hasher.hash("Password!123");
+
+        assertTrue(PasswordHasher.isHashed(stored));
+        assertFalse(stored.contains("Password!123"));
+        assertTrue(hasher.verify("Password!123", stored));
+        assertFalse(hasher.verify("Password!124", stored));
+        assertNotEquals(stored, hasher.hash("Password!123"), "Every hash has its own salt");
+        assertFalse(hasher.needsRehash(stored));
+    }
+
+    @Test
+    public void testLegacyAndOutdatedPasswordsNeedRehash() {
+        assertTrue(hasher.verify("Password!123", "Password!123"), "Raw passwords still log in");
+        assertFalse(hasher.verify("Password!123", "Password!456"));
+        assertTrue(hasher.needsRehash("Password!123"));
+
+        PasswordHasher stronger = new PasswordHasher(new PasswordHasher.Cost(PasswordHasher.MIN_LOG_N + 1, 8, 1), 1, 4);
+        try {
+            String old = hasher.hash("Password!123");
+            assertTrue(stronger.verify("Password!123", old), "Hashes carry their own cost");
+            assertTrue(stronger.needsRehash(old));
+            assertFalse(hasher.needsRehash(stronger.hash("Password!123")), "Stronger hashes are kept");
+        } finally {
+            stronger.shutdown();
+        }
+    }
+
+    @Test
+    public void testMalformedHashesDoNotVerify() {
+        assertFalse(hasher.verify("Password!123", "$scrypt$ln=10,r=8$AAAA$AAAA"));
+        assertFalse(hasher.verify("Password!123", "$scrypt$ln=10,r=8,p=1$%%%$AAAA"));
+        assertTrue(hasher.needsRehash("$scrypt$ln=x$AAAA$AAAA"));
+        assertTrue(hasher.needsRehash("$scrypt$"));
+    }
+
+    @Test
+    public void testCalibrationStaysInBounds() {
+        PasswordHasher.Cost tiny = PasswordHasher.calibrate(0);
+        assertEquals(PasswordHasher.MIN_LOG_N, tiny.getLogN(), "The cost never drops below the floor");
+        assertEquals(1, tiny.getP());
+
+        PasswordHasher.Cost cost = PasswordHasher.calibrate(50);
+        assertTrue(cost.getLogN() >= PasswordHasher.MIN_LOG_N && cost.getLogN() <= PasswordHasher.MAX_LOG_N);
+        assertTrue(cost.getP() >= 1 && cost.getP() <= PasswordHasher.MAX_P);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import databasePart1.PasswordHasher;
+
+/*******
+ * <p> Title: PasswordHashingBenchmark Class. </p>
+ *
+ * <p> Description: Calibrates PasswordHasher to a login budget, then measures the latency of
+ * one login on an idle system and the throughput and latency percentiles when a burst of
+ * logins (the start of an exam) arrives at once and queues on the bounded hashing pool. </p>
+ *
+ * Usage: PasswordHashingBenchmark [budgetMillis] [burstSize]
+ */
+public class PasswordHashingBenchmark {
+
+    public static void main(String[] args) {
+        long budgetMillis = args.length > 0 ? Long.parseLong(args[0]) : PasswordHasher.DEFAULT_BUDGET_MILLIS;
+        int burst = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+        long start = System.nanoTime();
+        PasswordHasher hasher = PasswordHasher.configure(budgetMillis);
+        PasswordHasher.Cost cost = hasher.getCost();
+        System.out.printf("Calibrated to %s (%d KB per hash) in %.0f ms for a %d ms budget%n",
+                cost, cost.getMemoryBytes() / 1024, (System.nanoTime() - start) / 1_000_000.0, budgetMillis);
+
+        String stored = hasher.hash("Password!123");
+
+        // Idle system: one login at a time
+        double[] idle = new double[10];
+        for (int i = 0; i < idle.length; i++) {
+            long begin = System.nanoTime();
+            hasher.verify("Password!123", stored);
+            idle[i] = (System.nanoTime() - begin) / 1_000_000.0;
+        }
+        Arrays.sort(idle);
+        System.out.printf("Idle login: median %.1f ms, max %.1f ms%n", idle[idle.length / 2], idle[idle.length - 1]);
+
+        // Login storm: every request arrives at once
+        List<CompletableFuture<Double>> logins = new ArrayList<>();
+        start = System.nanoTime();
+        for (int i = 0; i < burst; i++) {
+            long submitted = System.nanoTime();
+            logins.add(hasher.verifyAsync("Password!123", stored)
+                    .thenApply(ok -> (System.nanoTime() - submitted) / 1_000_000.0));
+        }
+        double[] latencies = logins.stream().mapToDouble(CompletableFuture::join).sorted().toArray();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        System.out.printf("Burst of %d logins: %.1f logins/s; latency p50 %.0f ms, p90 %.0f ms, p99 %.0f ms%n",
+                burst, burst / seconds, percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99));
+        hasher.shutdown();
+    }
+
+    private static double percentile(double[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
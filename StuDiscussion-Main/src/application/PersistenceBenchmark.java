@@ -0,0 +1,208 @@
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import databasePart1.ConnectionPool;
+import databasePart1.DatabaseHelper;
+import databasePart1.ReviewFanout;
+import databasePart1.SchemaMigrator;
+import databasePart1.SharedConnection;
+
+/*******
+ * <p> Title: PersistenceBenchmark Class. </p>
+ *
+ * <p> Description: Measures the persistence hot paths (the question list, the answers of a
+ * question, a student's trusted reviewers, the reviews of an answer, a student's unviewed
+ * review updates, and adding an answer and marking a solution) as the database grows. The
+ * WorkloadGenerator seeds a scratch H2 database up to each size in turn, counted in
+ * answer rows, and every path is then called repeatedly on skewed ids. Reports ops/s,
+ * bytes allocated per call and p50/p99 latency. Allocation is counted on the calling
+ * thread, which includes the work H2 does for the query. </p>
+ *
+ * <p> The DatabaseHelper opens its database under the user's home directory, so the
+ * benchmark points user.home at a new temporary directory before connecting and refuses to
+ * run if the database is anywhere else; the application's own database is never touched.
+ * The writes run in a transaction that is rolled back, so they are timed without the
+ * commit and every size reads only the generated rows. </p>
+ *
+ * Usage: PersistenceBenchmark [rows,rows,...] [iterations] [seed]
+ */
+public class PersistenceBenchmark {
+    private static DatabaseHelper databaseHelper;
+    private static final int[] DEFAULT_SIZES = { 1_000, 100_000, 1_000_000 };
+    private static final long TIME_LIMIT_NANOS = 10_000_000_000L;
+
+    /** One call of a hot path, with ids drawn from the random. */
+    private interface Call {
+        void run(Random random) throws SQLException;
+    }
+
+    private static final List<WorkloadGenerator.Dataset> datasets = new ArrayList<>();
+    private static WorkloadGenerator.Zipf questionRank;
+    private static int firstQuestionId;
+    private static int firstAnswerId;
+    private static int answerCount;
+
+    public static void main(String[] args) throws SQLException, IOException {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray()
+                : DEFAULT_SIZES;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+        // H2 resolves ~ from user.home when it first loads, so this must come before connecting
+        Path scratch = Files.createTempDirectory("persistence-benchmark").toRealPath();
+        System.setProperty("user.home", scratch.toString());
+        databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+        try {
+            requireScratchDatabase(scratch);
+            runSizes(sizes, iterations, seed);
+        } finally {
+            ConnectionPool.close(databaseHelper);
+            databaseHelper.closeConnection();
+            deleteRecursively(scratch);
+        }
+    }
+
+    private static void runSizes(int[] sizes, int iterations, long seed) throws SQLException {
+        SchemaMigrator.migrate(databaseHelper);
+        SortQuestions sortQuestions = new SortQuestions(databaseHelper);
+        SortAnswers sortAnswers = new SortAnswers(databaseHelper);
+        ReviewFanout fanout = ReviewFanout.of(databaseHelper);
+
+        int seeded = 0;
+        for (int size : sizes) {
+            System.out.println("______________________________________");
+            // Scale.forStudents gives six answers per student
+            int students = (size - seeded) / 6;
+            if (students > 0) {
+                long start = System.nanoTime();
+                WorkloadGenerator.Dataset dataset = new WorkloadGenerator(seed + datasets.size(),
+                        WorkloadGenerator.Scale.forStudents(students), System.currentTimeMillis()).generate(databaseHelper);
+                datasets.add(dataset);
+                seeded += dataset.getAnswerCount();
+                System.out.printf("%nSeeded %s in %.1f s%n", dataset, (System.nanoTime() - start) / 1e9);
+            }
+            if (datasets.isEmpty()) {
+                System.out.println("\nNothing to run at " + size + " rows");
+                continue;
+            }
+            updateIdRanges();
+
+            System.out.println("\nDatabase with " + seeded + " generated answer rows");
+            System.out.printf("%-28s %10s %12s %9s %9s %7s%n", "operation", "ops/s", "bytes/op", "p50 ms", "p99 ms", "calls");
+            Random random = new Random(seed);
+            run("getSortedQuestions", iterations, random,
+                    r -> sortQuestions.getSortedQuestions("date", false, null));
+            run("getSortedAnswers", iterations, random,
+                    r -> sortAnswers.getSortedAnswers(pickQuestion(r), "date", pickStudent(r).getId()));
+            run("getTrustedReviewersForStudent", iterations, random,
+                    r -> databaseHelper.getTrustedReviewersForStudent(pickStudent(r).getId()));
+            run("getReviewsByAnswerId", iterations, random,
+                    r -> databaseHelper.getReviewsByAnswerId(firstAnswerId + r.nextInt(answerCount)));
+            run("getUnviewedReviewUpdates", iterations, random,
+                    r -> fanout.getUnviewedReviewUpdates(pickStudent(r).getId()));
+
+            // DatabaseHelper writes on its own connection, so the transaction is opened there through
+            // a lease; the writes are rolled back when it closes, so the reads see the same rows at every size
+            try (Connection connection = SharedConnection.borrow(databaseHelper)) {
+                connection.setAutoCommit(false);
+                List<Question> questions = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    Question question = databaseHelper.getQuestionById(pickQuestion(random));
+                    if (question != null) {
+                        questions.add(question);
+                    }
+                }
+                if (!questions.isEmpty()) {
+                    run("addAnswer", iterations, random, r -> databaseHelper.addAnswer(new Answer(0,
+                            "Benchmark answer " + r.nextInt(1_000), pickStudent(r), questions.get(r.nextInt(questions.size())))));
+                }
+                run("markAnswerAsSolution", iterations, random,
+                        r -> databaseHelper.markAnswerAsSolution(firstAnswerId + r.nextInt(answerCount)));
+                connection.rollback();
+            }
+        }
+    }
+
+    // Refuses to seed anything but an in-memory database or one inside the scratch directory
+    private static void requireScratchDatabase(Path scratch) throws SQLException {
+        try (Connection connection = SharedConnection.borrow(databaseHelper);
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT DATABASE_PATH()")) {
+            String path = rs.next() ? rs.getString(1) : null;
+            if (path != null && !new File(path).getAbsoluteFile().toPath().startsWith(scratch.toAbsolutePath())) {
+                throw new IllegalStateException("Refusing to seed " + path + "; expected a database under " + scratch);
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    // Generated ids are contiguous across datasets because the generator continues after the last id
+    private static void updateIdRanges() {
+        WorkloadGenerator.Dataset first = datasets.get(0);
+        WorkloadGenerator.Dataset last = datasets.get(datasets.size() - 1);
+        firstQuestionId = first.getFirstQuestionId();
+        firstAnswerId = first.getFirstAnswerId();
+        answerCount = Math.max(1, last.getFirstAnswerId() + last.getAnswerCount() - firstAnswerId);
+        int questionCount = Math.max(1, last.getFirstQuestionId() + last.getQuestionCount() - firstQuestionId);
+        questionRank = new WorkloadGenerator.Zipf(questionCount, 0.9);
+    }
+
+    private static int pickQuestion(Random random) {
+        return firstQuestionId + questionRank.sample(random);
+    }
+
+    private static User pickStudent(Random random) {
+        List<User> students = datasets.get(random.nextInt(datasets.size())).getStudents();
+        return students.get(random.nextInt(students.size()));
+    }
+
+    // Warms up, then times each call; stops early on slow paths so large sizes finish
+    private static void run(String label, int iterations, Random random, Call call) throws SQLException {
+        for (int i = 0; i < Math.max(1, iterations / 5); i++) {
+            call.run(random);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] nanos = new long[iterations];
+        int calls = 0;
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        while (calls < iterations && System.nanoTime() - start < TIME_LIMIT_NANOS) {
+            long callStart = System.nanoTime();
+            call.run(random);
+            nanos[calls++] = System.nanoTime() - callStart;
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        long[] sorted = Arrays.copyOf(nanos, calls);
+        Arrays.sort(sorted);
+        System.out.printf("%-28s %10.1f %12d %9.3f %9.3f %7d%n", label, calls * 1e9 / elapsed, allocated / calls,
+                LoadDriver.percentile(sorted, 50) / 1e6, LoadDriver.percentile(sorted, 99) / 1e6, calls);
+    }
+}
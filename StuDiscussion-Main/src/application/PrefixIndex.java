@@ -0,0 +1,257 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A compact radix trie of names for type-ahead controls.
+ * <p>
+ * Names are matched case-insensitively by prefix. Each name has a weight (for example the
+ * number of questions with a tag), and every node remembers the best weight below it, so
+ * {@link #complete(String, int)} walks best-first and touches only about k paths instead
+ * of the whole subtree. Readers share a read lock; updates take the write lock.
+ * </p>
+ */
+public class PrefixIndex {
+
+    private static final class Node {
+        String label;                                           // edge label from the parent, lower case
+        final TreeMap<Character, Node> children = new TreeMap<>();
+        final TreeMap<String, Integer> names = new TreeMap<>();  // names whose key ends here, with weights
+        int best = Integer.MIN_VALUE;                           // best weight in this subtree
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        void updateBest() {
+            int max = Integer.MIN_VALUE;
+            for (int weight : names.values()) {
+                max = Math.max(max, weight);
+            }
+            for (Node child : children.values()) {
+                max = Math.max(max, child.best);
+            }
+            best = max;
+        }
+    }
+
+    // A node or a name waiting in the best-first queue; text orders ties alphabetically
+    private static final class Candidate {
+        final Node node;
+        final String name;
+        final int weight;
+        final String text;
+
+        Candidate(Node node, String name, int weight, String text) {
+            this.node = node;
+            this.name = name;
+            this.weight = weight;
+            this.text = text;
+        }
+    }
+
+    private static final Comparator<Candidate> BEST_FIRST =
+            Comparator.<Candidate>comparingInt(c -> -c.weight).thenComparing(c -> c.text);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node("");
+    private int size = 0;
+
+    /** Adds a name, or changes its weight if it is already present. */
+    public void put(String name, int weight) {
+        String key = keyOf(name);
+        lock.writeLock().lock();
+        try {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            int i = 0;
+            while (i < key.length()) {
+                Node child = node.children.get(key.charAt(i));
+                if (child == null) {
+                    child = new Node(key.substring(i));
+                    node.children.put(key.charAt(i), child);
+                    i = key.length();
+                } else {
+                    int common = commonPrefixLength(child.label, key, i);
+                    if (common < child.label.length()) {
+                        // Split the edge: the shared part becomes a new node above the old child
+                        Node middle = new Node(child.label.substring(0, common));
+                        child.label = child.label.substring(common);
+                        middle.children.put(child.label.charAt(0), child);
+                        middle.best = child.best;
+                        node.children.put(key.charAt(i), middle);
+                        child = middle;
+                    }
+                    i += common;
+                }
+                node = child;
+                path.add(node);
+            }
+            if (node.names.put(name, weight) == null) {
+                size++;
+            }
+            updatePath(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Removes a name; does nothing if it is not present. */
+    public void remove(String name) {
+        String key = keyOf(name);
+        lock.writeLock().lock();
+        try {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            int i = 0;
+            while (i < key.length()) {
+                Node child = node.children.get(key.charAt(i));
+                if (child == null || !key.startsWith(child.label, i)) {
+                    return;
+                }
+                i += child.label.length();
+                node = child;
+                path.add(node);
+            }
+            if (node.names.remove(name) == null) {
+                return;
+            }
+            size--;
+
+            // Drop empty nodes and merge nodes left with a single child, bottom up
+            for (int depth = path.size() - 1; depth > 0; depth--) {
+                Node current = path.get(depth);
+                Node parent = path.get(depth - 1);
+                if (current.names.isEmpty() && current.children.isEmpty()) {
+                    parent.children.remove(current.label.charAt(0));
+                } else if (current.names.isEmpty() && current.children.size() == 1) {
+                    Node only = current.children.firstEntry().getValue();
+                    only.label = current.label + only.label;
+                    parent.children.put(only.label.charAt(0), only);
+                    path.set(depth, only);
+                }
+            }
+            updatePath(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to k names starting with a prefix, highest weight first, then alphabetically.
+     *
+     * @param prefix the typed text; empty matches every name
+     * @param k      the maximum number of names to return
+     */
+    public List<String> complete(String prefix, int k) {
+        String key = keyOf(prefix);
+        List<String> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            // Find the subtree holding every key that starts with the prefix
+            Node node = root;
+            StringBuilder text = new StringBuilder();
+            int i = 0;
+            while (i < key.length()) {
+                Node child = node.children.get(key.charAt(i));
+                if (child == null) {
+                    return result;
+                }
+                int common = commonPrefixLength(child.label, key, i);
+                if (i + common < key.length() && common < child.label.length()) {
+                    return result;      // the prefix leaves the trie in the middle of this edge
+                }
+                i += common;
+                text.append(child.label);
+                node = child;
+            }
+
+            PriorityQueue<Candidate> queue = new PriorityQueue<>(BEST_FIRST);
+            queue.add(new Candidate(node, null, node.best, text.toString()));
+            while (!queue.isEmpty() && result.size() < k) {
+                Candidate next = queue.poll();
+                if (next.node == null) {
+                    result.add(next.name);
+                    continue;
+                }
+                for (Map.Entry<String, Integer> name : next.node.names.entrySet()) {
+                    queue.add(new Candidate(null, name.getKey(), name.getValue(), next.text + "\u0000" + name.getKey()));
+                }
+                for (Node child : next.node.children.values()) {
+                    queue.add(new Candidate(child, null, child.best, next.text + child.label));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(String name) {
+        String key = keyOf(name);
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                Node child = node.children.get(key.charAt(i));
+                if (child == null || !key.startsWith(child.label, i)) {
+                    return false;
+                }
+                i += child.label.length();
+                node = child;
+            }
+            return node.names.containsKey(name);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root.children.clear();
+            root.names.clear();
+            root.best = Integer.MIN_VALUE;
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void updatePath(List<Node> path) {
+        for (int depth = path.size() - 1; depth >= 0; depth--) {
+            path.get(depth).updateBest();
+        }
+    }
+
+    private static String keyOf(String name) {
+        return name == null ? "" : name.toLowerCase();
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int length = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < length && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+}
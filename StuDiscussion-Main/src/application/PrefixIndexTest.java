@@ -0,0 +1,98 @@
+package application;
+
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PrefixIndexTest {
+
+    @Test
+    public void testCompletesByPrefixIgnoringCase() {
+        PrefixIndex index = new PrefixIndex();
+        for (String name : Arrays.asList("alice", "Alex", "albert", "bob", "al")) {
+            index.put(name, 0);
+        }
+
+        assertEquals(Arrays.asList("al", "albert", "Alex", "alice"), index.complete("AL", 10));
+        assertEquals(Arrays.asList("al", "albert"), index.complete("al", 2));
+        assertEquals(Collections.singletonList("bob"), index.complete("b", 10));
+        assertTrue(index.complete("alz", 10).isEmpty());
+        assertTrue(index.complete("alberto", 10).isEmpty());
+    }
+
+    @Test
+    public void testHighestWeightFirst() {
+        PrefixIndex tags = new PrefixIndex();
+        tags.put("Assignments", 3);
+        tags.put("Assembly", 12);
+        tags.put("Async", 7);
+        tags.put("Exams", 20);
+
+        assertEquals(Arrays.asList("Assembly", "Async"), tags.complete("as", 2));
+
+        tags.put("Assignments", 30);
+        assertEquals("Assignments", tags.complete("a", 1).get(0), "Weights can change in place");
+    }
+
+    @Test
+    public void testRemoveMergesNodes() {
+        PrefixIndex index = new PrefixIndex();
+        index.put("reviewer1", 0);
+        index.put("reviewer2", 0);
+        index.put("reviewed", 0);
+
+        index.remove("reviewer1");
+        index.remove("missing");
+        assertEquals(2, index.size());
+        assertFalse(index.contains("reviewer1"));
+        assertTrue(index.contains("reviewer2"));
+        assertEquals(Arrays.asList("reviewed", "reviewer2"), index.complete("review", 10));
+    }
+
+    @Test
+    public void testMatchesSortedScanOnRandomUpdates() {
+        Random random = new Random(42);
+        PrefixIndex index = new PrefixIndex();
+        Map<String, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            String name = randomName(random);
+            if (random.nextInt(3) == 0) {
+                index.remove(name);
+                expected.remove(name);
+            } else {
+                int weight = random.nextInt(4);
+                index.put(name, weight);
+                expected.put(name, weight);
+            }
+
+            if (i % 50 == 0) {
+                String prefix = randomName(random).toLowerCase();
+                int k = 1 + random.nextInt(5);
+                List<String> scan = expected.entrySet().stream()
+                        .filter(e -> e.getKey().toLowerCase().startsWith(prefix))
+                        .sorted(Comparator.<Map.Entry<String, Integer>>comparingInt(e -> -e.getValue())
+                                .thenComparing(e -> e.getKey().toLowerCase() + "\u0000" + e.getKey()))
+                        .limit(k)
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toList());
+                assertEquals(scan, index.complete(prefix, k), "prefix '" + prefix + "'");
+                assertEquals(expected.size(), index.size());
+            }
+        }
+    }
+
+    // Short names over a small alphabet, so prefixes collide and edges split and merge often
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int length = random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            name.append("abcAB".charAt(random.nextInt(5)));
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package application;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * One page of questions returned by SortQuestions, plus the cursor needed
+ * to fetch the page after it.
+ */
+public class QuestionPage {
+    private final List<Question> questions;
+    private final Cursor nextCursor;
+
+    public QuestionPage(List<Question> questions, Cursor nextCursor) {
+        this.questions = questions;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Question> getQuestions() { return questions; }
+
+    // The cursor for the next page, or null if this is the last page
+    public Cursor getNextCursor() { return nextCursor; }
+    public boolean hasNext() { return nextCursor != null; }
+
+    /**
+     * Position of the last question on a page, ordered by (date_created, id) descending.
+     */
+    public static class Cursor {
+        private final Timestamp dateCreated;
+        private final int id;
+
+        public Cursor(Timestamp dateCreated, int id) {
+            this.dateCreated = dateCreated;
+            this.id = id;
+        }
+
+        public Timestamp getDateCreated() { return dateCreated; }
+        public int getId() { return id; }
+
+        @Override
+        public String toString() {
+            return dateCreated.getTime() + ":" + id;
+        }
+
+        // Parse a cursor produced by toString()
+        public static Cursor parse(String value) {
+            int separator = value.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + value);
+            }
+            return new Cursor(new Timestamp(Long.parseLong(value.substring(0, separator))),
+                    Integer.parseInt(value.substring(separator + 1)));
+        }
+    }
+}
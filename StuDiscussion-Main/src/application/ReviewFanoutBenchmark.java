@@ -0,0 +1,113 @@
+package application;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import databasePart1.ReviewFanout;
+
+/*******
+ * <p> Title: ReviewFanoutBenchmark Class. </p>
+ *
+ * <p> Description: Compares fan-out on write (one batched ReviewUpdates row per follower)
+ * with fan-out on read (one ReviewerUpdateLog row merged at read time) for reviewers with
+ * different numbers of followers. Reports the cost of publishing one review edit and of
+ * loading one student's unviewed updates. Runs against its own in-memory database. </p>
+ *
+ * Usage: ReviewFanoutBenchmark [iterations]
+ */
+public class ReviewFanoutBenchmark {
+    private static final int REVIEWER_ID = 1;
+    private static final int[] FOLLOWER_COUNTS = { 50, 500, 5000 };
+
+    public static void main(String[] args) throws SQLException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        try (Connection connection = ScratchDatabase.open("fanoutBenchmark")) {
+            int reviewId = insertReview(connection);
+
+            for (int followers : FOLLOWER_COUNTS) {
+                System.out.println("______________________________________");
+                System.out.println("\nReviewer with " + followers + " followers");
+                seedFollowers(connection, followers);
+
+                // Threshold above the follower count forces fan-out on write, zero forces read
+                run(connection, "Fan-out on write", new ReviewFanout(null, Integer.MAX_VALUE), reviewId, iterations);
+                run(connection, "Fan-out on read ", new ReviewFanout(null, 0), reviewId, iterations);
+            }
+        }
+    }
+
+    private static void run(Connection connection, String label, ReviewFanout fanout, int reviewId, int iterations)
+            throws SQLException {
+        clearUpdates(connection);
+
+        // Warm up so the first timed run does not pay class loading and statement parsing
+        fanout.publishReviewUpdate(connection, REVIEWER_ID, reviewId);
+        fanout.getUnviewedReviewUpdates(connection, 2);
+        clearUpdates(connection);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            fanout.publishReviewUpdate(connection, REVIEWER_ID, reviewId);
+        }
+        double publishMillis = (System.nanoTime() - start) / 1_000_000.0 / iterations;
+        long rows = countRows(connection, "ReviewUpdates") + countRows(connection, "ReviewerUpdateLog");
+
+        start = System.nanoTime();
+        int updates = 0;
+        for (int i = 0; i < iterations; i++) {
+            updates = fanout.getUnviewedReviewUpdates(connection, 2).size();
+        }
+        double readMillis = (System.nanoTime() - start) / 1_000_000.0 / iterations;
+
+        System.out.printf("%s: publish %.3f ms, %d rows written; read %.3f ms for %d updates%n",
+                label, publishMillis, rows, readMillis, updates);
+    }
+
+    private static int insertReview(Connection connection) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO Reviews (reviewer_id, answer_id, content) VALUES (?, 1, 'Benchmark review')",
+                Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, REVIEWER_ID);
+            pstmt.executeUpdate();
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    // Students 2..followers+1 all trust the reviewer
+    private static void seedFollowers(Connection connection, int followers) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM trustedreviewers");
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO trustedreviewers (student_id, reviewer_id, weight) VALUES (?, ?, 1)")) {
+            for (int i = 0; i < followers; i++) {
+                pstmt.setInt(1, i + 2);
+                pstmt.setInt(2, REVIEWER_ID);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private static void clearUpdates(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM ReviewUpdates");
+            stmt.execute("DELETE FROM ReviewerUpdateLog");
+        }
+    }
+
+    private static long countRows(Connection connection, String table) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package application;
+
+import databasePart1.ReviewFanout;
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ReviewFanoutTest {
+
+    private static final int REVIEWER_ID = 1;
+
+    private Connection connection;
+    private int reviewId;
+
+    @BeforeAll
+    public void setupDatabase() throws SQLException {
+        connection = ScratchDatabase.open("fanoutTest");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO Reviews (reviewer_id, answer_id, content) VALUES (1, 1, 'Edited review')");
+            // Students 2, 3 and 4 trust the reviewer
+            stmt.execute("INSERT INTO trustedreviewers (student_id, reviewer_id, weight) VALUES (2, 1, 1), (3, 1, 1), (4, 1, 1)");
+        }
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM Reviews")) {
+            rs.next();
+            reviewId = rs.getInt(1);
+        }
+    }
+
+    @BeforeEach
+    public void clearUpdates() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM ReviewUpdates");
+            stmt.execute("DELETE FROM ReviewerUpdateLog");
+        }
+    }
+
+    @AfterAll
+    public void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void testFewFollowersFanOutOnWrite() throws SQLException {
+        ReviewFanout fanout = new ReviewFanout(null, 3);
+
+        assertEquals(ReviewFanout.Mode.WRITE, fanout.publishReviewUpdate(connection, REVIEWER_ID, reviewId));
+        assertEquals(3, countRows("ReviewUpdates"));
+        assertEquals(0, countRows("ReviewerUpdateLog"));
+        assertEquals(1, fanout.getUnviewedReviewUpdates(connection, 2).size());
+    }
+
+    @Test
+    public void testManyFollowersFanOutOnRead() throws SQLException {
+        ReviewFanout fanout = new ReviewFanout(null, 2);
+
+        assertEquals(ReviewFanout.Mode.READ, fanout.publishReviewUpdate(connection, REVIEWER_ID, reviewId));
+        assertEquals(0, countRows("ReviewUpdates"));
+        assertEquals(1, countRows("ReviewerUpdateLog"));
+
+        List<ReviewUpdate> updates = fanout.getUnviewedReviewUpdates(connection, 3);
+        assertEquals(1, updates.size());
+        assertTrue(ReviewFanout.isLogEntry(updates.get(0).getId()));
+        assertEquals("Edited review", updates.get(0).getReviewText());
+        assertTrue(fanout.getUnviewedReviewUpdates(connection, 5).isEmpty(), "Student 5 does not trust the reviewer");
+    }
+
+    @Test
+    public void testMarkViewedCoversBothModes() throws SQLException {
+        new ReviewFanout(null, 3).publishReviewUpdate(connection, REVIEWER_ID, reviewId);
+        new ReviewFanout(null, 0).publishReviewUpdate(connection, REVIEWER_ID, reviewId);
+        ReviewFanout fanout = new ReviewFanout(null, 3);
+
+        List<Integer> ids = fanout.getUnviewedReviewUpdates(connection, 2).stream()
+                .map(ReviewUpdate::getId).collect(Collectors.toList());
+        assertEquals(2, ids.size());
+
+        ReviewFanout.markViewed(connection, 2, ids);
+        assertTrue(fanout.getUnviewedReviewUpdates(connection, 2).isEmpty());
+        assertEquals(2, fanout.getUnviewedReviewUpdates(connection, 3).size(), "Other students are unaffected");
+    }
+
+    @Test
+    public void testUpdatesBelongToTheirStudent() throws SQLException {
+        new ReviewFanout(null, 3).publishReviewUpdate(connection, REVIEWER_ID, reviewId);
+        new ReviewFanout(null, 0).publishReviewUpdate(connection, REVIEWER_ID, reviewId);
+        ReviewFanout fanout = new ReviewFanout(null, 3);
+        List<Integer> ids = fanout.getUnviewedReviewUpdates(connection, 2).stream()
+                .map(ReviewUpdate::getId).collect(Collectors.toList());
+
+        for (int id : ids) {
+            assertTrue(fanout.isUpdateFor(connection, 2, id));
+            assertFalse(fanout.isUpdateFor(connection, 5, id), "Student 5 does not trust the reviewer");
+        }
+        ReviewFanout.markViewed(connection, 5, ids);
+        assertEquals(2, fanout.getUnviewedReviewUpdates(connection, 2).size(), "Another student's row is left unviewed");
+    }
+
+    @Test
+    public void testLogEntriesFromBeforeTheTrustAreNotShown() throws SQLException {
+        ReviewFanout fanout = new ReviewFanout(null, 0);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO ReviewerUpdateLog (reviewer_id, review_id, created_at) "
+                    + "VALUES (1, " + reviewId + ", TIMESTAMP '2020-01-01 00:00:00')");
+            stmt.execute("INSERT INTO trustedreviewers (student_id, reviewer_id, weight) VALUES (6, 1, 1)");
+            // Edges from before trust was timestamped have no created_at and see the whole log
+            stmt.execute("UPDATE trustedreviewers SET created_at = NULL WHERE student_id = 2");
+        }
+        try {
+            assertTrue(fanout.getUnviewedReviewUpdates(connection, 6).isEmpty(), "Student 6 started trusting later");
+            assertEquals(1, fanout.getUnviewedReviewUpdates(connection, 2).size());
+
+            fanout.publishReviewUpdate(connection, REVIEWER_ID, reviewId);
+            assertEquals(1, fanout.getUnviewedReviewUpdates(connection, 6).size());
+        } finally {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("DELETE FROM trustedreviewers WHERE student_id = 6");
+                stmt.execute("UPDATE trustedreviewers SET created_at = CURRENT_TIMESTAMP WHERE student_id = 2");
+            }
+        }
+    }
+
+        private long countRows(String table) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
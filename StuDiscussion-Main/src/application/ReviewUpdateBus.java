@@ -0,0 +1,350 @@
+package application;
+
+import databasePart1.ConnectionPool;
+import databasePart1.DatabaseHelper;
+import databasePart1.ReviewFanout;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-process event bus for review updates.
+ * <p>
+ * Rows inserted into ReviewUpdates are published by the ReviewUpdateTrigger and pushed to
+ * the listeners subscribed for that student, so pages no longer poll
+ * getUnviewedReviewUpdates. The bus also keeps an unread counter per student, seeded once
+ * from a loaded list and then maintained from events, and coalesces mark-as-viewed clicks
+ * into one batched UPDATE every {@link #FLUSH_DELAY_MILLIS}. Clicks are kept per (student,
+ * update), since a fanned-out-on-read log entry has the same id for every follower.
+ * </p>
+ * <p>
+ * The trigger fires before the inserting transaction commits, so its events are held
+ * until {@link #confirmPublished()} finds their rows committed; events of rolled-back
+ * inserts are dropped. Listeners run on the bus's flusher thread, so they must be quick;
+ * pages hand the event to the FX thread with Platform.runLater.
+ * </p>
+ */
+public class ReviewUpdateBus {
+
+    public static final long FLUSH_DELAY_MILLIS = 500;
+    // An event whose row is still not visible after this many checks was rolled back
+    private static final int MAX_CONFIRM_ATTEMPTS = 10;
+
+    private static final Map<DatabaseHelper, ReviewUpdateBus> buses = new WeakHashMap<>();
+    // Buses by database name, which is all the trigger knows about
+    private static final Map<String, ReviewUpdateBus> busesByDatabase = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "review-update-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** A row inserted into ReviewUpdates. */
+    public static class Event {
+        private final int id;
+        private final int studentId;
+        private final int reviewerId;
+        private final int reviewId;
+
+        public Event(int id, int studentId, int reviewerId, int reviewId) {
+            this.id = id;
+            this.studentId = studentId;
+            this.reviewerId = reviewerId;
+            this.reviewId = reviewId;
+        }
+
+        public int getId() { return id; }
+        public int getStudentId() { return studentId; }
+        public int getReviewerId() { return reviewerId; }
+        public int getReviewId() { return reviewId; }
+    }
+
+    // A listener for one student's updates
+    private static class Subscription {
+        final int studentId;
+        final Consumer<Event> listener;
+
+        Subscription(int studentId, Consumer<Event> listener) {
+            this.studentId = studentId;
+            this.listener = listener;
+        }
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> unreadCounts = new ConcurrentHashMap<>();
+    private final Set<Long> viewedKeys = ConcurrentHashMap.newKeySet();     // (student id, update id) keys
+    private final Set<Long> pendingViewed = new LinkedHashSet<>();          // the same keys, guarded by itself
+    private boolean flushScheduled = false;                                // guarded by pendingViewed
+    private final Map<Event, Integer> unconfirmed = new LinkedHashMap<>();  // event -> checks so far, guarded by itself
+    private boolean confirmScheduled = false;                              // guarded by unconfirmed
+
+    public ReviewUpdateBus(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /**
+     * Returns the shared bus for a DatabaseHelper, creating it on first use.
+     *
+     * @param databaseHelper the database whose review updates are published
+     * @return the bus for that database
+     */
+    public static ReviewUpdateBus of(DatabaseHelper databaseHelper) {
+        synchronized (buses) {
+            ReviewUpdateBus bus = buses.get(databaseHelper);
+            if (bus == null) {
+                bus = new ReviewUpdateBus(databaseHelper);
+                try {
+                    // Only reads the name, so the shared connection is neither borrowed nor closed
+                    busesByDatabase.put(databaseHelper.getConnection().getCatalog(), bus);
+                } catch (SQLException e) {
+                    // Still usable for counters and batched writes, but nothing is pushed
+                    System.err.println("Review update events unavailable: " + e.getMessage());
+                }
+                buses.put(databaseHelper, bus);
+            }
+            return bus;
+        }
+    }
+
+    /** Called by the ReviewUpdateTrigger for each inserted row, before the insert commits. */
+    public static void publish(String database, Event event) {
+        ReviewUpdateBus bus = busesByDatabase.get(database);
+        if (bus != null) {
+            bus.publishUncommitted(event);
+        }
+    }
+
+    /** Holds an event until its row is committed; see {@link #confirmPublished()}. */
+    public void publishUncommitted(Event event) {
+        if (databaseHelper == null) {
+            publish(event);
+            return;
+        }
+        synchronized (unconfirmed) {
+            unconfirmed.put(event, 0);
+            if (!confirmScheduled) {
+                confirmScheduled = true;
+                flusher.execute(this::confirmQuietly);
+            }
+        }
+    }
+
+    /**
+     * Delivers the held events whose ReviewUpdates rows are committed. A row whose insert
+     * has not committed yet is not visible to the check and gets another one after
+     * {@link #FLUSH_DELAY_MILLIS}, up to {@value #MAX_CONFIRM_ATTEMPTS} checks. Checks run one at a time, so when this returns every event held before the call has
+     * been delivered, dropped or queued for another check.
+     */
+    public synchronized void confirmPublished() throws SQLException {
+        Map<Event, Integer> events;
+        synchronized (unconfirmed) {
+            events = new LinkedHashMap<>(unconfirmed);
+            unconfirmed.clear();
+            confirmScheduled = false;
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> committed = new HashSet<>();
+        List<Integer> ids = new ArrayList<>();
+        for (Event event : events.keySet()) {
+            ids.add(event.getId());
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        try (Connection connection = ConnectionPool.borrow(databaseHelper);
+             PreparedStatement pstmt = connection.prepareStatement(
+                     "SELECT id FROM ReviewUpdates WHERE id IN (" + placeholders + ")")) {
+            for (int i = 0; i < ids.size(); i++) {
+                pstmt.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    committed.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            synchronized (unconfirmed) {
+                events.forEach(unconfirmed::putIfAbsent);
+                scheduleConfirm();
+            }
+            throw e;
+        }
+
+        for (Map.Entry<Event, Integer> entry : events.entrySet()) {
+            Event event = entry.getKey();
+            if (committed.contains(event.getId())) {
+                publish(event);
+            } else if (entry.getValue() + 1 < MAX_CONFIRM_ATTEMPTS) {
+                synchronized (unconfirmed) {
+                    unconfirmed.putIfAbsent(event, entry.getValue() + 1);
+                    scheduleConfirm();
+                }
+            }
+        }
+    }
+
+    // Caller holds the unconfirmed lock
+    private void scheduleConfirm() {
+        if (!confirmScheduled) {
+            confirmScheduled = true;
+            flusher.schedule(this::confirmQuietly, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void confirmQuietly() {
+        try {
+            confirmPublished();
+        } catch (SQLException e) {
+            System.err.println("Error confirming review updates: " + e.getMessage());
+        }
+    }
+
+    /** Delivers an event whose row is already committed to the student's listeners. */
+    public void publish(Event event) {
+        unreadCounts.computeIfPresent(event.getStudentId(), (id, count) -> count + 1);
+        for (Subscription subscription : subscriptions.values()) {
+            if (subscription.studentId == event.getStudentId()) {
+                try {
+                    subscription.listener.accept(event);
+                } catch (RuntimeException e) {
+                    // A failing listener must not fail the insert that fired the trigger
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Subscribes to a student's new review updates. A later subscription with the same
+     * key replaces this one, so a page that is shown again does not add a second listener.
+     *
+     * @param key       identifies the subscriber, e.g. "reviewUpdatesPage:" + studentId
+     * @param studentId the student whose updates to receive
+     * @param listener  called for each new update
+     */
+    public void subscribe(String key, int studentId, Consumer<Event> listener) {
+        subscriptions.put(key, new Subscription(studentId, listener));
+    }
+
+    public void unsubscribe(String key) {
+        subscriptions.remove(key);
+    }
+
+    /** @return the students that currently have a subscriber */
+    public Set<Integer> getSubscribedStudentIds() {
+        Set<Integer> studentIds = new HashSet<>();
+        for (Subscription subscription : subscriptions.values()) {
+            studentIds.add(subscription.studentId);
+        }
+        return studentIds;
+    }
+
+    /** Sets a student's unread count from a loaded list, unless it is already known. */
+    public void seedUnreadCount(int studentId, int count) {
+        unreadCounts.putIfAbsent(studentId, count);
+    }
+
+    /** @return the student's unread count, or -1 if it has not been seeded */
+    public int getUnreadCount(int studentId) {
+        return unreadCounts.getOrDefault(studentId, -1);
+    }
+
+    /**
+     * Marks an update as viewed. The counter changes immediately; the database write is
+     * batched with other clicks and done by {@link #flush()}.
+     */
+    public void markViewed(int studentId, int updateId) {
+        long key = key(studentId, updateId);
+        if (!viewedKeys.add(key)) {
+            return;
+        }
+        unreadCounts.computeIfPresent(studentId, (id, count) -> Math.max(0, count - 1));
+        synchronized (pendingViewed) {
+            pendingViewed.add(key);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                flusher.schedule(this::flushQuietly, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /** @return true if the student marked the update viewed through this bus and it is not yet written */
+    public boolean isMarkedViewed(int studentId, int updateId) {
+        return viewedKeys.contains(key(studentId, updateId));
+    }
+
+    /**
+     * Writes all pending mark-as-viewed clicks. Ids that fail to write are queued again;
+     * written ones are forgotten, since the database now reports them viewed.
+     */
+    public void flush() throws SQLException {
+        Set<Long> pending;
+        synchronized (pendingViewed) {
+            pending = new LinkedHashSet<>(pendingViewed);
+            pendingViewed.clear();
+            flushScheduled = false;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // One batch per student; fanned-out-on-read entries are recorded per student
+        Map<Integer, List<Integer>> idsByStudent = new LinkedHashMap<>();
+        for (long key : pending) {
+            idsByStudent.computeIfAbsent(studentOf(key), id -> new ArrayList<>()).add(updateOf(key));
+        }
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            for (Map.Entry<Integer, List<Integer>> entry : idsByStudent.entrySet()) {
+                ReviewFanout.markViewed(connection, entry.getKey(), entry.getValue());
+            }
+            viewedKeys.removeAll(pending);
+        } catch (SQLException e) {
+            synchronized (pendingViewed) {
+                pendingViewed.addAll(pending);
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    flusher.schedule(this::flushQuietly, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            System.err.println("Error marking review updates viewed: " + e.getMessage());
+        }
+    }
+
+    private static long key(int studentId, int updateId) {
+        return ((long) studentId << 32) | (updateId & 0xFFFFFFFFL);
+    }
+
+    private static int studentOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int updateOf(long key) {
+        return (int) key;
+    }
+}
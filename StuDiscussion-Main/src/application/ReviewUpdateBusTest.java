@@ -0,0 +1,173 @@
+package application;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.SchemaMigrator;
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ReviewUpdateBusTest {
+
+    private DatabaseHelper databaseHelper;
+    private ReviewUpdateBus bus;
+    private int studentId;
+    private int reviewerId;
+    private int reviewId;
+
+    @BeforeAll
+    public void setup() throws SQLException {
+        databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+        SchemaMigrator.migrate(databaseHelper);     // installs the ReviewUpdates trigger
+        bus = ReviewUpdateBus.of(databaseHelper);
+
+        studentId = databaseHelper.getUserByUserName("user1").getId();
+        reviewerId = databaseHelper.getUserByUserName("user2").getId();
+    }
+
+    @BeforeEach
+    public void resetState() throws SQLException {
+        databaseHelper.connection.createStatement().execute("DELETE FROM ReviewUpdates");
+        databaseHelper.connection.createStatement().execute("DELETE FROM Reviews");
+        try (PreparedStatement stmt = databaseHelper.connection.prepareStatement(
+                "INSERT INTO Reviews (reviewer_id, answer_id, content) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, reviewerId);
+            stmt.setInt(2, 1);
+            stmt.setString(3, "Review for the event bus");
+            stmt.executeUpdate();
+
+            ResultSet rs = stmt.getGeneratedKeys();
+            assertTrue(rs.next());
+            reviewId = rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void testInsertIsPushedToSubscriber() throws SQLException {
+        List<ReviewUpdateBus.Event> received = new ArrayList<>();
+        bus.subscribe("test", studentId, received::add);
+        bus.seedUnreadCount(studentId, 0);
+        int before = bus.getUnreadCount(studentId);
+
+        int updateId = insertUpdate();
+        bus.confirmPublished();
+
+        assertEquals(1, received.size());
+        assertEquals(updateId, received.get(0).getId());
+        assertEquals(reviewId, received.get(0).getReviewId());
+        assertEquals(before + 1, bus.getUnreadCount(studentId));
+        bus.unsubscribe("test");
+    }
+
+    @Test
+    public void testOtherStudentsUpdatesAreNotPushed() throws SQLException {
+        List<ReviewUpdateBus.Event> received = new ArrayList<>();
+        bus.subscribe("test", reviewerId, received::add);
+
+        insertUpdate();
+        bus.confirmPublished();
+
+        assertTrue(received.isEmpty());
+        bus.unsubscribe("test");
+    }
+
+    @Test
+    public void testRolledBackInsertIsNotPushed() throws SQLException {
+        List<ReviewUpdateBus.Event> received = new ArrayList<>();
+        bus.subscribe("test", studentId, received::add);
+        bus.seedUnreadCount(studentId, 0);
+        int before = bus.getUnreadCount(studentId);
+
+        databaseHelper.connection.setAutoCommit(false);
+        try {
+            insertUpdate();
+            databaseHelper.connection.rollback();
+        } finally {
+            databaseHelper.connection.setAutoCommit(true);
+        }
+        bus.confirmPublished();
+
+        assertTrue(received.isEmpty());
+        assertEquals(before, bus.getUnreadCount(studentId));
+        bus.unsubscribe("test");
+    }
+
+    @Test
+    public void testMarkViewedIsBatched() throws SQLException {
+        int first = insertUpdate();
+        int second = insertUpdate();
+
+        bus.markViewed(studentId, first);
+        bus.markViewed(studentId, second);
+        assertTrue(bus.isMarkedViewed(studentId, first));
+        assertEquals(2, countUnviewed(), "Writes wait for the flush");
+
+        bus.flush();
+        assertEquals(0, countUnviewed());
+        assertFalse(bus.isMarkedViewed(studentId, first), "Flushed ids are left to the database");
+    }
+
+    @Test
+    public void testStudentsMarkTheSameLogEntrySeparately() throws SQLException {
+        int logId;
+        try (PreparedStatement stmt = databaseHelper.connection.prepareStatement(
+                "INSERT INTO ReviewerUpdateLog (reviewer_id, review_id) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, reviewerId);
+            stmt.setInt(2, reviewId);
+            stmt.executeUpdate();
+            ResultSet rs = stmt.getGeneratedKeys();
+            assertTrue(rs.next());
+            logId = rs.getInt(1);
+        }
+        // A fanned-out-on-read entry has the same update id for every follower
+        int updateId = -logId;
+        int otherStudentId = reviewerId;
+
+        bus.markViewed(studentId, updateId);
+        assertFalse(bus.isMarkedViewed(otherStudentId, updateId), "Other followers still see the entry");
+        bus.markViewed(otherStudentId, updateId);
+        assertTrue(bus.isMarkedViewed(studentId, updateId));
+        assertTrue(bus.isMarkedViewed(otherStudentId, updateId));
+
+        bus.flush();
+        try (PreparedStatement stmt = databaseHelper.connection.prepareStatement(
+                "SELECT COUNT(*) FROM ReviewerUpdateLogViews WHERE log_id = ? AND student_id IN (?, ?)")) {
+            stmt.setInt(1, logId);
+            stmt.setInt(2, studentId);
+            stmt.setInt(3, otherStudentId);
+            ResultSet rs = stmt.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1), "Both clicks are written");
+        }
+    }
+
+    private int insertUpdate() throws SQLException {
+        try (PreparedStatement stmt = databaseHelper.connection.prepareStatement(
+                "INSERT INTO ReviewUpdates (student_id, reviewer_id, review_id, viewed, timestamp) " +
+                "VALUES (?, ?, ?, FALSE, CURRENT_TIMESTAMP)", Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, studentId);
+            stmt.setInt(2, reviewerId);
+            stmt.setInt(3, reviewId);
+            stmt.executeUpdate();
+
+            ResultSet rs = stmt.getGeneratedKeys();
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+
+    private int countUnviewed() throws SQLException {
+        try (PreparedStatement stmt = databaseHelper.connection.prepareStatement(
+                "SELECT COUNT(*) FROM ReviewUpdates WHERE student_id = ? AND viewed = FALSE")) {
+            stmt.setInt(1, studentId);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package application;
+
+import databasePart1.ReviewerReputation;
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ReviewerReputationTest {
+
+    private static final int REVIEWER_ID = 1;
+
+    private Connection connection;
+
+    @BeforeAll
+    public void setupDatabase() throws SQLException {
+        connection = ScratchDatabase.open("reputationTest");
+    }
+
+    @BeforeEach
+    public void resetState() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DELETE FROM ReviewFeedback");
+            stmt.execute("DELETE FROM trustedreviewers");
+            // One old piece of feedback and two from this week; students 2 and 3 trust the reviewer
+            stmt.execute("INSERT INTO ReviewFeedback (reviewer_id, student_id, answer_id, review_id, content, created_at) "
+                    + "VALUES (1, 2, 1, 1, 'Old', DATEADD('DAY', -40, CURRENT_TIMESTAMP))");
+            stmt.execute("INSERT INTO ReviewFeedback (reviewer_id, student_id, answer_id, review_id, content) "
+                    + "VALUES (1, 2, 1, 1, 'Good'), (1, 3, 1, 1, 'Clear')");
+            stmt.execute("INSERT INTO trustedreviewers (student_id, reviewer_id, weight) VALUES (2, 1, 4), (3, 1, 2)");
+        }
+    }
+
+    @AfterAll
+    public void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void testLoadAggregates() throws SQLException {
+        ReviewerReputation.Reputation reputation = loaded().getReputation(REVIEWER_ID);
+
+        assertEquals(3, reputation.getFeedbackCount());
+        assertEquals(2, reputation.getRecentFeedbackCount());
+        assertEquals(2, reputation.getWindowFeedbackCount());
+        assertEquals(2, reputation.getTrustedByCount());
+        assertEquals(3.0, reputation.getAverageWeight(), 1e-9);
+    }
+
+    @Test
+    public void testUnknownReviewerIsEmpty() throws SQLException {
+        ReviewerReputation.Reputation reputation = loaded().getReputation(99);
+
+        assertEquals(0, reputation.getFeedbackCount());
+        assertEquals(0, reputation.getTrustedByCount());
+        assertEquals(0.0, reputation.getAverageWeight());
+    }
+
+    @Test
+    public void testIncrementalUpdatesMatchReload() throws SQLException {
+        ReviewerReputation reputation = loaded();
+
+        // Student 4 adds feedback and trusts the reviewer, student 2 changes weight, student 3 removes
+        execute("INSERT INTO ReviewFeedback (reviewer_id, student_id, answer_id, review_id, content) VALUES (1, 4, 1, 1, 'Thanks')");
+        reputation.onFeedbackAdded(REVIEWER_ID);
+        execute("INSERT INTO trustedreviewers (student_id, reviewer_id, weight) VALUES (4, 1, 5)");
+        reputation.onTrustWeightChanged(REVIEWER_ID, 0, 5);
+        execute("UPDATE trustedreviewers SET weight = 1 WHERE student_id = 2");
+        reputation.onTrustWeightChanged(REVIEWER_ID, 4, 1);
+        execute("DELETE FROM trustedreviewers WHERE student_id = 3");
+        reputation.onTrustWeightChanged(REVIEWER_ID, 2, 0);
+
+        ReviewerReputation.Reputation incremental = reputation.getReputation(REVIEWER_ID);
+        ReviewerReputation.Reputation reloaded = loaded().getReputation(REVIEWER_ID);
+        assertEquals(reloaded.getFeedbackCount(), incremental.getFeedbackCount());
+        assertEquals(reloaded.getRecentFeedbackCount(), incremental.getRecentFeedbackCount());
+        assertEquals(reloaded.getTrustedByCount(), incremental.getTrustedByCount());
+        assertEquals(reloaded.getAverageWeight(), incremental.getAverageWeight(), 1e-9);
+        assertEquals(3.0, incremental.getAverageWeight(), 1e-9);
+    }
+
+    private ReviewerReputation loaded() throws SQLException {
+        ReviewerReputation reputation = new ReviewerReputation(null);
+        reputation.load(connection);
+        return reputation;
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package application;
+
+/**
+ * The roles a user can hold. Role names are stored as strings in the database
+ * ("Student", "Reviewer", ...); {@link #fromName(String)} maps them back, ignoring case.
+ */
+public enum Role {
+    ADMIN("Admin"),
+    STUDENT("Student"),
+    INSTRUCTOR("Instructor"),
+    STAFF("Staff"),
+    REVIEWER("Reviewer"),
+    USER("User");
+
+    private final String displayName;
+
+    Role(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() { return displayName; }
+
+    /**
+     * @param name a role name as stored in the database
+     * @return the matching role, or null if the name is not a known role
+     */
+    public static Role fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (Role role : values()) {
+            if (role.displayName.equalsIgnoreCase(name.trim())) {
+                return role;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,75 @@
+package application;
+
+import databasePart1.SchemaMigrator;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SchemaMigratorTest {
+
+    private Connection connection;
+
+    @BeforeAll
+    public void setupDatabase() throws SQLException {
+        connection = ScratchDatabase.open("migratorTest");
+    }
+
+    @AfterAll
+    public void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void testAllMigrationsRecorded() throws SQLException {
+        List<Integer> applied = SchemaMigrator.getAppliedVersions(connection);
+
+        assertEquals(SchemaMigrator.MIGRATIONS.size(), applied.size());
+        assertEquals(SchemaMigrator.MIGRATIONS.get(SchemaMigrator.MIGRATIONS.size() - 1).getVersion(),
+                SchemaMigrator.getCurrentVersion(connection));
+    }
+
+    @Test
+    public void testSecondRunAppliesNothing() throws SQLException {
+        assertEquals(0, SchemaMigrator.migrate(connection));
+    }
+
+    @Test
+    public void testAnswersForQuestionUseIndex() throws SQLException {
+        assertTrue(plan("SELECT * FROM Answers WHERE question_id = 1 ORDER BY is_solution DESC, date_created DESC")
+                .contains("IDX_ANSWERS_QUESTION"));
+    }
+
+    @Test
+    public void testQuestionListUsesIndex() throws SQLException {
+        assertTrue(plan("SELECT * FROM Questions WHERE is_resolved = FALSE ORDER BY date_created DESC, id DESC")
+                .contains("IDX_QUESTIONS_"));
+    }
+
+    @Test
+    public void testReviewLookupsUseIndexes() throws SQLException {
+        assertTrue(plan("SELECT * FROM Reviews WHERE answer_id = 1").contains("IDX_REVIEWS_ANSWER"));
+        assertTrue(plan("SELECT * FROM ReviewUpdates WHERE student_id = 1 AND viewed = FALSE")
+                .contains("IDX_REVIEWUPDATES_STUDENT"));
+        assertTrue(plan("SELECT * FROM ReviewFeedback WHERE reviewer_id = 1").contains("IDX_REVIEWFEEDBACK_REVIEWER"));
+    }
+
+    @Test
+    public void testTagTablesCreated() throws SQLException {
+        assertTrue(plan("SELECT question_id FROM QuestionTags WHERE tag_id = 1").contains("IDX_QUESTIONTAGS_TAG"));
+    }
+
+    private String plan(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN " + sql)) {
+            rs.next();
+            return rs.getString(1).toUpperCase();
+        }
+    }
+}
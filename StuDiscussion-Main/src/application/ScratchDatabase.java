@@ -0,0 +1,116 @@
+package application;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.SchemaMigrator;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory H2 databases with the application schema, for the tests and benchmarks that
+ * work on a plain Connection instead of a DatabaseHelper.
+ * <p>
+ * The schema is not written out here. {@link #createTables(Connection)} copies the
+ * definitions of DatabaseHelper's own tables from the database
+ * DatabaseHelper.connectToDatabase() opens, so a column DatabaseHelper writes is a column
+ * the scratch tables have. Tables the migrations create are left to {@link SchemaMigrator},
+ * and foreign keys are left out so fixtures can insert rows with bare ids.
+ * {@link #open(String)} also applies every migration, giving the schema the application
+ * runs with.
+ * </p>
+ */
+public final class ScratchDatabase {
+
+    // A statement of H2's SCRIPT output that creates a table or adds a constraint to one
+    private static final Pattern TABLE_STATEMENT =
+            Pattern.compile("^(?:CREATE (?:MEMORY |CACHED )?TABLE|ALTER TABLE) \"?PUBLIC\"?\\.\"?(\\w+)\"?");
+    // Older H2 versions back identity columns with sequences the tables refer to
+    private static final String CREATE_SEQUENCE = "CREATE SEQUENCE ";
+    private static final Pattern MIGRATION_TABLE = Pattern.compile("CREATE TABLE IF NOT EXISTS (\\w+)");
+
+    // DatabaseHelper's table statements, read once per run
+    private static List<String> helperSchema;
+
+    private ScratchDatabase() {
+    }
+
+    /**
+     * Opens a named in-memory database, kept until the JVM exits, with the application
+     * tables and all migrations applied.
+     */
+    public static Connection open(String name) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        try {
+            createTables(connection);
+            SchemaMigrator.migrate(connection);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    /** Creates DatabaseHelper's tables, as DatabaseHelper defines them, that do not exist yet. */
+    public static void createTables(Connection connection) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        try (ResultSet rs = connection.getMetaData().getTables(null, "PUBLIC", null, new String[] { "TABLE" })) {
+            while (rs.next()) {
+                existing.add(rs.getString("TABLE_NAME"));
+            }
+        }
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : helperSchema()) {
+                Matcher table = TABLE_STATEMENT.matcher(sql);
+                if (sql.startsWith(CREATE_SEQUENCE)) {
+                    stmt.execute(sql.contains(" IF NOT EXISTS ") ? sql
+                            : "CREATE SEQUENCE IF NOT EXISTS " + sql.substring(CREATE_SEQUENCE.length()));
+                } else if (table.find() && !existing.contains(table.group(1))) {
+                    stmt.execute(sql);
+                }
+            }
+        }
+    }
+
+    private static synchronized List<String> helperSchema() throws SQLException {
+        if (helperSchema != null) {
+            return helperSchema;
+        }
+        Set<String> migrationTables = new HashSet<>();
+        migrationTables.add("SCHEMAVERSION");
+        for (SchemaMigrator.Migration migration : SchemaMigrator.MIGRATIONS) {
+            for (String sql : migration.getStatements()) {
+                Matcher table = MIGRATION_TABLE.matcher(sql);
+                if (table.find()) {
+                    migrationTables.add(table.group(1).toUpperCase());
+                }
+            }
+        }
+
+        List<String> statements = new ArrayList<>();
+        DatabaseHelper databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+        try (Statement stmt = databaseHelper.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("SCRIPT NODATA NOPASSWORDS NOSETTINGS")) {
+            while (rs.next()) {
+                String sql = rs.getString(1);
+                Matcher table = TABLE_STATEMENT.matcher(sql);
+                if (sql.startsWith(CREATE_SEQUENCE)
+                        || (table.find() && !migrationTables.contains(table.group(1)) && !sql.contains("FOREIGN KEY"))) {
+                    statements.add(sql);
+                }
+            }
+        } finally {
+            databaseHelper.closeConnection();
+        }
+        helperSchema = statements;
+        return helperSchema;
+    }
+}
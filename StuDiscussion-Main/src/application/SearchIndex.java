@@ -0,0 +1,669 @@
+package application;
+
+import databasePart1.ConnectionPool;
+import databasePart1.DatabaseHelper;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory inverted index over question and answer content, ranked with BM25.
+ * <p>
+ * Questions and answers are both indexed; a matching answer counts towards the
+ * question it belongs to, so searches return question ids. New rows are picked up
+ * incrementally by {@link #refresh()}, and edits/deletes are applied through the
+ * update and remove methods.
+ * </p>
+ * <p>
+ * Each term's postings are primitive arrays ordered by question id, so a question's
+ * documents sit next to each other and a search walks the lists together one question
+ * at a time. Searches keep only the best {@code limit} questions and skip the rarely
+ * decisive terms (MaxScore): once the results are full, a term whose best possible
+ * contribution, added to the weaker terms', cannot reach the weakest result only
+ * scores questions the stronger terms already found. A query without any words
+ * matches nothing.
+ * </p>
+ */
+public class SearchIndex {
+
+    // BM25 tuning parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Map<DatabaseHelper, SearchIndex> indexes = new WeakHashMap<>();
+
+    // A single indexed question or answer
+    private static class Document {
+        final int questionId;
+        final int length;
+        final PostingList[] lists;    // one per distinct term, used to remove the document again
+
+        Document(int questionId, int length, PostingList[] lists) {
+            this.questionId = questionId;
+            this.length = length;
+            this.lists = lists;
+        }
+    }
+
+    // One term's postings in parallel arrays, ordered by question id. Postings are appended
+    // and sorted into place afterwards, so loading many rows sorts each list once
+    private static class PostingList {
+        final String term;
+        int[] questionIds = new int[4];
+        int[] slots = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+        int sorted;     // postings before this are in question id order
+        // The most saturated term frequency one question's documents add up to. It is only
+        // raised, so it stays an upper bound when postings are removed
+        double maxQuestionWeight;
+
+        PostingList(String term) {
+            this.term = term;
+        }
+
+        void add(int questionId, int slot, int frequency) {
+            if (size == slots.length) {
+                int capacity = size * 2;
+                questionIds = Arrays.copyOf(questionIds, capacity);
+                slots = Arrays.copyOf(slots, capacity);
+                frequencies = Arrays.copyOf(frequencies, capacity);
+            }
+            questionIds[size] = questionId;
+            slots[size] = slot;
+            frequencies[size] = frequency;
+            size++;
+            if (sorted == size - 1 && (sorted == 0 || questionIds[sorted - 1] <= questionId)) {
+                sorted = size;
+                double weight = 0;
+                for (int j = size - 1; j >= 0 && questionIds[j] == questionId; j--) {
+                    weight += saturation(frequencies[j]);
+                }
+                maxQuestionWeight = Math.max(maxQuestionWeight, weight);
+            }
+        }
+
+        // Sorts the appended postings and merges them into the ordered ones
+        void sort() {
+            if (sorted == size) {
+                return;
+            }
+            int appended = size - sorted;
+            long[] order = new long[appended];
+            for (int k = 0; k < appended; k++) {
+                order[k] = ((long) questionIds[sorted + k] << 32) | k;
+            }
+            Arrays.sort(order);
+
+            int[] mergedQuestionIds = new int[slots.length];
+            int[] mergedSlots = new int[slots.length];
+            int[] mergedFrequencies = new int[slots.length];
+            int head = 0;
+            int tail = 0;
+            for (int out = 0; out < size; out++) {
+                int from;
+                if (tail == appended || (head < sorted && questionIds[head] <= (int) (order[tail] >>> 32))) {
+                    from = head++;
+                } else {
+                    from = sorted + (int) order[tail++];
+                }
+                mergedQuestionIds[out] = questionIds[from];
+                mergedSlots[out] = slots[from];
+                mergedFrequencies[out] = frequencies[from];
+            }
+            questionIds = mergedQuestionIds;
+            slots = mergedSlots;
+            frequencies = mergedFrequencies;
+            sorted = size;
+
+            double weight = 0;
+            for (int j = 0; j < size; j++) {
+                weight = (j > 0 && questionIds[j - 1] == questionIds[j] ? weight : 0) + saturation(frequencies[j]);
+                maxQuestionWeight = Math.max(maxQuestionWeight, weight);
+            }
+        }
+
+        void remove(int questionId, int slot) {
+            sort();
+            for (int i = seek(0, questionId); i < size && questionIds[i] == questionId; i++) {
+                if (slots[i] == slot) {
+                    System.arraycopy(questionIds, i + 1, questionIds, i, size - i - 1);
+                    System.arraycopy(slots, i + 1, slots, i, size - i - 1);
+                    System.arraycopy(frequencies, i + 1, frequencies, i, size - i - 1);
+                    size--;
+                    sorted--;
+                    return;
+                }
+            }
+        }
+
+        // Position of the first posting at or after from whose question id is not below questionId
+        int seek(int from, int questionId) {
+            int low = from;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (questionIds[mid] < questionId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    // A query term's place in its posting list during one search
+    private static class TermCursor {
+        final PostingList list;
+        final double idf;
+        final double maxScore;    // the most the term adds to any one question
+        int position;
+
+        TermCursor(PostingList list, double idf) {
+            this.list = list;
+            this.idf = idf;
+            this.maxScore = idf * list.maxQuestionWeight;
+        }
+
+        int questionId() {
+            return position < list.size ? list.questionIds[position] : Integer.MAX_VALUE;
+        }
+
+        // Scores the postings of one question and moves past them
+        double score(int questionId, int[] lengths, double averageLength) {
+            double sum = 0;
+            while (position < list.size && list.questionIds[position] == questionId) {
+                int tf = list.frequencies[position];
+                double norm = K1 * (1 - B + B * lengths[list.slots[position]] / averageLength);
+                sum += tf * (K1 + 1) / (tf + norm);
+                position++;
+            }
+            return idf * sum;
+        }
+    }
+
+    // The best questions seen so far, as a min-heap in primitive arrays. Equal scores go to the
+    // lower question id, so the results do not depend on which questions were skipped
+    private static class TopQuestions {
+        final int[] questionIds;
+        final double[] scores;
+        int size;
+
+        TopQuestions(int limit) {
+            questionIds = new int[limit];
+            scores = new double[limit];
+        }
+
+        // The score a question must reach to be kept; nothing to reach until the results are full
+        double threshold() {
+            return size < scores.length ? 0 : scores[0];
+        }
+
+        // Returns true if the question was kept
+        boolean offer(int questionId, double score) {
+            if (size < scores.length) {
+                questionIds[size] = questionId;
+                scores[size] = score;
+                siftUp(size++);
+                return true;
+            }
+            if (score < scores[0] || (score == scores[0] && questionId > questionIds[0])) {
+                return false;
+            }
+            questionIds[0] = questionId;
+            scores[0] = score;
+            siftDown(0);
+            return true;
+        }
+
+        // Empties the heap, best question first
+        List<Integer> toList() {
+            Integer[] result = new Integer[size];
+            while (size > 0) {
+                result[size - 1] = questionIds[0];
+                swap(0, --size);
+                siftDown(0);
+            }
+            return Arrays.asList(result);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0 && worse(i, (i - 1) / 2)) {
+                swap(i, (i - 1) / 2);
+                i = (i - 1) / 2;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                    if (worse(child, smallest)) {
+                        smallest = child;
+                    }
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private boolean worse(int a, int b) {
+            return scores[a] < scores[b] || (scores[a] == scores[b] && questionIds[a] > questionIds[b]);
+        }
+
+        private void swap(int a, int b) {
+            int id = questionIds[a];
+            questionIds[a] = questionIds[b];
+            questionIds[b] = id;
+            double score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Set<PostingList> unsorted = new HashSet<>();
+    // Documents are numbered by slot; a removed document's slot is reused
+    private final Map<Long, Integer> slotsByKey = new HashMap<>();
+    private Document[] documents = new Document[16];
+    private int[] lengths = new int[16];
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private int slotCount = 0;
+    private int documentCount = 0;
+    private final Map<Integer, Set<Integer>> answerIdsByQuestion = new HashMap<>();
+    private long totalLength = 0;
+    private int lastQuestionId = 0;     // highest row ids already loaded by refresh()
+    private int lastAnswerId = 0;
+
+    public SearchIndex(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /**
+     * Returns the shared index for a DatabaseHelper, loading it on first use.
+     *
+     * @param databaseHelper the database to index
+     * @return the index for that database
+     */
+    public static SearchIndex of(DatabaseHelper databaseHelper) throws SQLException {
+        SearchIndex index;
+        boolean created = false;
+        synchronized (indexes) {
+            index = indexes.get(databaseHelper);
+            if (index == null) {
+                index = new SearchIndex(databaseHelper);
+                indexes.put(databaseHelper, index);
+                created = true;
+            }
+        }
+        if (created) {
+            index.refresh();
+        }
+        return index;
+    }
+
+    /**
+     * Loads any questions and answers added since the last refresh.
+     */
+    public synchronized void refresh() throws SQLException {
+        if (databaseHelper == null) {
+            return;
+        }
+        int fromQuestionId;
+        int fromAnswerId;
+        lock.readLock().lock();
+        try {
+            fromQuestionId = lastQuestionId;
+            fromAnswerId = lastAnswerId;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Read the new rows first so searches are not blocked while the database is queried
+        List<Object[]> newQuestions = new ArrayList<>();
+        List<Object[]> newAnswers = new ArrayList<>();
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "SELECT id, content FROM Questions WHERE id > ? ORDER BY id")) {
+                pstmt.setInt(1, fromQuestionId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        newQuestions.add(new Object[] { rs.getInt("id"), rs.getString("content") });
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "SELECT id, question_id, content FROM Answers WHERE id > ? ORDER BY id")) {
+                pstmt.setInt(1, fromAnswerId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        newAnswers.add(new Object[] { rs.getInt("id"), rs.getInt("question_id"), rs.getString("content") });
+                    }
+                }
+            }
+        }
+
+        load(newQuestions, newAnswers);
+    }
+
+    /**
+     * Indexes many rows at once, sorting each term's postings once instead of per row.
+     *
+     * @param questions rows of { question id, content }
+     * @param answers   rows of { answer id, question id, content }
+     */
+    void load(List<Object[]> questions, List<Object[]> answers) {
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : questions) {
+                addQuestion((Integer) row[0], (String) row[1]);
+            }
+            for (Object[] row : answers) {
+                addAnswer((Integer) row[0], (Integer) row[1], (String) row[2]);
+            }
+            sortAppended();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void indexQuestion(int questionId, String content) {
+        lock.writeLock().lock();
+        try {
+            addQuestion(questionId, content);
+            sortAppended();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void indexAnswer(int answerId, int questionId, String content) {
+        lock.writeLock().lock();
+        try {
+            addAnswer(answerId, questionId, content);
+            sortAppended();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateQuestion(int questionId, String content) {
+        indexQuestion(questionId, content);
+    }
+
+    public void updateAnswer(int answerId, String content) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsByKey.get(answerKey(answerId));
+            if (slot != null) {
+                put(answerKey(answerId), documents[slot].questionId, content);
+                sortAppended();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Removes a question together with all of its answers
+    public void removeQuestion(int questionId) {
+        lock.writeLock().lock();
+        try {
+            remove(questionKey(questionId));
+            Set<Integer> answerIds = answerIdsByQuestion.remove(questionId);
+            if (answerIds != null) {
+                for (int answerId : answerIds) {
+                    remove(answerKey(answerId));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAnswer(int answerId) {
+        lock.writeLock().lock();
+        try {
+            Document removed = remove(answerKey(answerId));
+            if (removed != null) {
+                Set<Integer> answerIds = answerIdsByQuestion.get(removed.questionId);
+                if (answerIds != null) {
+                    answerIds.remove(answerId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches question and answer content.
+     *
+     * @param query the words to search for
+     * @param limit the maximum number of results
+     * @return ids of matching questions, best match first
+     */
+    public List<Integer> search(String query, int limit) {
+        return search(query, limit, id -> true);
+    }
+
+    /**
+     * Searches question and answer content among some questions only. The candidates are
+     * filtered before the top results are taken, so a limit is never used up by questions
+     * the caller would throw away.
+     *
+     * @param query      the words to search for
+     * @param limit      the maximum number of results
+     * @param candidates the question ids that may be returned
+     * @return ids of matching candidate questions, best match first
+     */
+    public List<Integer> search(String query, int limit, IntPredicate candidates) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            double averageLength = documentCount == 0 ? 0 : (double) totalLength / documentCount;
+            List<TermCursor> found = new ArrayList<>();
+            for (String term : new LinkedHashSet<>(queryTerms)) {
+                PostingList list = postings.get(term);
+                if (list != null) {
+                    double idf = Math.log(1 + (documentCount - list.size + 0.5) / (list.size + 0.5));
+                    found.add(new TermCursor(list, idf));
+                }
+            }
+            if (found.isEmpty()) {
+                return Collections.emptyList();
+            }
+            // Weakest terms first; boundBelow[i] is the most the terms before i can add together
+            found.sort((a, b) -> Double.compare(a.maxScore, b.maxScore));
+            TermCursor[] cursors = found.toArray(new TermCursor[0]);
+            double[] boundBelow = new double[cursors.length + 1];
+            for (int i = 0; i < cursors.length; i++) {
+                boundBelow[i + 1] = boundBelow[i] + cursors[i].maxScore;
+            }
+
+            double[] termScores = new double[cursors.length];
+            TopQuestions top = new TopQuestions(limit);
+            // Only questions in the lists from here on can still make the results
+            int firstEssential = 0;
+            while (true) {
+                int questionId = Integer.MAX_VALUE;
+                for (int i = firstEssential; i < cursors.length; i++) {
+                    questionId = Math.min(questionId, cursors[i].questionId());
+                }
+                if (questionId == Integer.MAX_VALUE) {
+                    break;
+                }
+                if (!candidates.test(questionId)) {
+                    for (int i = firstEssential; i < cursors.length; i++) {
+                        cursors[i].position = cursors[i].list.seek(cursors[i].position, questionId + 1);
+                    }
+                    continue;
+                }
+
+                double score = 0;
+                for (int i = firstEssential; i < cursors.length; i++) {
+                    termScores[i] = cursors[i].score(questionId, lengths, averageLength);
+                    score += termScores[i];
+                }
+                // The other terms, strongest first, while they could still lift it into the results
+                int skipped = firstEssential - 1;
+                for (; skipped >= 0 && score + boundBelow[skipped + 1] >= top.threshold(); skipped--) {
+                    TermCursor cursor = cursors[skipped];
+                    cursor.position = cursor.list.seek(cursor.position, questionId);
+                    termScores[skipped] = cursor.score(questionId, lengths, averageLength);
+                    score += termScores[skipped];
+                }
+                if (skipped >= 0) {
+                    continue;
+                }
+                // Summed in term order, so the score does not depend on which terms were essential
+                score = 0;
+                for (double termScore : termScores) {
+                    score += termScore;
+                }
+
+                if (top.offer(questionId, score)) {
+                    while (firstEssential < cursors.length && boundBelow[firstEssential + 1] < top.threshold()) {
+                        firstEssential++;
+                    }
+                }
+            }
+            return top.toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Lower-cases the text and splits it into words of letters and digits
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private void addQuestion(int questionId, String content) {
+        put(questionKey(questionId), questionId, content);
+        lastQuestionId = Math.max(lastQuestionId, questionId);
+    }
+
+    private void addAnswer(int answerId, int questionId, String content) {
+        put(answerKey(answerId), questionId, content);
+        answerIdsByQuestion.computeIfAbsent(questionId, id -> new HashSet<>()).add(answerId);
+        lastAnswerId = Math.max(lastAnswerId, answerId);
+    }
+
+    // Searches need every posting list in order; called before the write lock is released
+    private void sortAppended() {
+        for (PostingList list : unsorted) {
+            list.sort();
+        }
+        unsorted.clear();
+    }
+
+    private void put(long key, int questionId, String content) {
+        remove(key);
+        List<String> tokens = tokenize(content);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        int slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+        if (slot == documents.length) {
+            documents = Arrays.copyOf(documents, slot * 2);
+            lengths = Arrays.copyOf(lengths, slot * 2);
+        }
+        PostingList[] lists = new PostingList[frequencies.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            PostingList list = postings.computeIfAbsent(entry.getKey(), PostingList::new);
+            list.add(questionId, slot, entry.getValue());
+            if (list.sorted < list.size) {
+                unsorted.add(list);
+            }
+            lists[i++] = list;
+        }
+        documents[slot] = new Document(questionId, tokens.size(), lists);
+        lengths[slot] = tokens.size();
+        slotsByKey.put(key, slot);
+        documentCount++;
+        totalLength += tokens.size();
+    }
+
+    private Document remove(long key) {
+        Integer slot = slotsByKey.remove(key);
+        if (slot == null) {
+            return null;
+        }
+        Document document = documents[slot];
+        for (PostingList list : document.lists) {
+            list.remove(document.questionId, slot);
+            if (list.size == 0) {
+                postings.remove(list.term);
+            }
+        }
+        documents[slot] = null;
+        freeSlots.push(slot);
+        documentCount--;
+        totalLength -= document.length;
+        return document;
+    }
+
+    // The most a term frequency can add in any document; the BM25 length norm is never below K1 * (1 - B)
+    private static double saturation(int frequency) {
+        return frequency * (K1 + 1) / (frequency + K1 * (1 - B));
+    }
+
+    // Questions and answers share one key space: the low bit says which one it is
+    private static long questionKey(int questionId) {
+        return ((long) questionId << 1);
+    }
+
+    private static long answerKey(int answerId) {
+        return ((long) answerId << 1) | 1;
+    }
+}
@@ -0,0 +1,94 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/*******
+ * <p> Title: SearchIndexBenchmark Class. </p>
+ *
+ * <p> Description: Measures SearchIndex query latency on a generated forum of one million
+ * posts, a quarter questions and the rest answers. Words are drawn so that word i is about
+ * 1/(i+1) as common as the first, as in real text, and queries mix common and rare words.
+ * Each query is timed returning the top 10 questions, where terms that cannot change the
+ * results are skipped, and returning every match, where none can be. </p>
+ *
+ * Usage: SearchIndexBenchmark [posts] [queries]   (run with -Xmx2g for the default size)
+ */
+public class SearchIndexBenchmark {
+    private static final int VOCABULARY = 50_000;
+    private static final int TOP = 10;
+    private static final int BATCH = 100_000;
+
+    private static volatile int sink;
+
+    public static void main(String[] args) {
+        int posts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        Random random = new Random(6);
+
+        System.out.println("______________________________________");
+        System.out.println("\nBenchmark: search over " + posts + " posts");
+
+        long start = System.nanoTime();
+        SearchIndex index = new SearchIndex(null);
+        int questions = posts / 4;
+        // Loaded in batches as refresh() loads new rows, without holding every post's text at once
+        List<Object[]> rows = new ArrayList<>();
+        for (int id = 1; id <= questions; id++) {
+            rows.add(new Object[] { id, words(random, 8 + random.nextInt(25)) });
+            if (rows.size() == BATCH || id == questions) {
+                index.load(rows, List.of());
+                rows.clear();
+            }
+        }
+        for (int id = 1; id <= posts - questions; id++) {
+            // Answers go to random questions, so most questions have a few
+            rows.add(new Object[] { id, 1 + random.nextInt(questions), words(random, 10 + random.nextInt(60)) });
+            if (rows.size() == BATCH || id == posts - questions) {
+                index.load(List.of(), rows);
+                rows.clear();
+            }
+        }
+        System.out.printf("Indexed in %.1f s%n", (System.nanoTime() - start) / 1e9);
+
+        List<String> queries = new ArrayList<>(queryCount);
+        for (int i = 0; i < queryCount; i++) {
+            queries.add(words(random, 1 + random.nextInt(4)));
+        }
+
+        // The first round doubles as warm-up; compare the later ones
+        for (int round = 1; round <= 3; round++) {
+            long[] top = time(index, queries, TOP);
+            long[] all = time(index, queries, questions);
+            System.out.printf("Round %d: top %d p50 %.3f ms, p99 %.3f ms; every match p50 %.3f ms, p99 %.3f ms%n",
+                    round, TOP, percentile(top, 50), percentile(top, 99), percentile(all, 50), percentile(all, 99));
+        }
+    }
+
+    // Returns each query's latency in nanoseconds, sorted
+    private static long[] time(SearchIndex index, List<String> queries, int limit) {
+        long[] nanos = new long[queries.size()];
+        for (int i = 0; i < nanos.length; i++) {
+            long start = System.nanoTime();
+            sink = index.search(queries.get(i), limit).size();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static double percentile(long[] sortedNanos, int percent) {
+        int i = Math.min(sortedNanos.length - 1, sortedNanos.length * percent / 100);
+        return sortedNanos[i] / 1_000_000.0;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(" w").append((int) Math.exp(random.nextDouble() * Math.log(VOCABULARY)));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package application;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchIndexTest {
+
+    private SearchIndex index;
+
+    @BeforeEach
+    public void buildIndex() {
+        index = new SearchIndex(null);
+        index.indexQuestion(1, "How do I submit assignment 2?");
+        index.indexQuestion(2, "When is the midterm exam?");
+        index.indexQuestion(3, "Exam review session times");
+        index.indexAnswer(10, 1, "Upload the assignment on Canvas before the exam");
+    }
+
+    @Test
+    public void testMatchesAreRankedByRelevance() {
+        List<Integer> results = index.search("exam", 10);
+        assertEquals(3, results.size());
+        // Questions mentioning the term themselves rank above one matched only through an answer
+        assertEquals(1, (int) results.get(2));
+    }
+
+    @Test
+    public void testAnswerMatchesReturnTheirQuestion() {
+        assertEquals(List.of(1), index.search("Canvas", 10));
+    }
+
+    @Test
+    public void testUpdatedContentReplacesOldTerms() {
+        index.updateQuestion(2, "When is the final?");
+        assertFalse(index.search("midterm", 10).contains(2));
+        assertTrue(index.search("final", 10).contains(2));
+    }
+
+    @Test
+    public void testRemovingQuestionRemovesItsAnswers() {
+        index.removeQuestion(1);
+        assertTrue(index.search("canvas", 10).isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testCandidatesAreFilteredBeforeTheLimit() {
+        // Question 2 is the best match for "exam" but is not a candidate
+        List<Integer> results = index.search("midterm exam", 1, id -> id != 2);
+        assertEquals(1, results.size());
+        assertNotEquals(2, (int) results.get(0));
+    }
+
+    @Test
+    public void testLimitKeepsBestMatches() {
+        assertEquals(1, index.search("exam", 1).size());
+        assertTrue(index.search("", 10).isEmpty());
+    }
+
+    @Test
+    public void testSkippedTermsDoNotChangeTheTopResults() {
+        // Word i is drawn about 1/(i+1) as often, so queries mix common and rare terms
+        Random random = new Random(6);
+        SearchIndex large = new SearchIndex(null);
+        for (int id = 1; id <= 2_000; id++) {
+            large.indexQuestion(id, words(random, 5 + random.nextInt(20)));
+            if (random.nextBoolean()) {
+                large.indexAnswer(id, id, words(random, 5 + random.nextInt(40)));
+            }
+        }
+        for (int i = 0; i < 50; i++) {
+            String query = words(random, 1 + random.nextInt(4));
+            // Nothing is skipped while the results are not full
+            List<Integer> all = large.search(query, 10_000);
+            assertEquals(all.subList(0, Math.min(10, all.size())), large.search(query, 10), query);
+        }
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(" w").append((int) Math.exp(random.nextDouble() * Math.log(500)));
+        }
+        return text.toString();
+    }
+}
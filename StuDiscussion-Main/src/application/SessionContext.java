@@ -0,0 +1,102 @@
+package application;
+
+import databasePart1.DatabaseHelper;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authorization state of a logged-in user, loaded once per session.
+ * <p>
+ * Sessions are keyed by (DatabaseHelper, user name). The user's roles are held as an
+ * EnumSet, so pages can check and list roles without querying the database every time
+ * they are rebuilt. A session is dropped by {@link #invalidate(DatabaseHelper, String)}
+ * when the user's roles change or the user logs out; the next
+ * {@link #of(DatabaseHelper, User)} loads it again.
+ * </p>
+ */
+public class SessionContext {
+
+    private static final Map<DatabaseHelper, Map<String, SessionContext>> sessions = new WeakHashMap<>();
+
+    private final User user;
+    private final EnumSet<Role> roles;
+    private final List<String> roleNames;       // as stored, in database order
+    private volatile boolean reviewerRequested;
+
+    SessionContext(User user, List<String> roleNames, boolean reviewerRequested) {
+        this.user = user;
+        this.roleNames = Collections.unmodifiableList(new ArrayList<>(roleNames));
+        this.roles = EnumSet.noneOf(Role.class);
+        for (String name : roleNames) {
+            Role role = Role.fromName(name);
+            if (role != null) {
+                roles.add(role);
+            }
+        }
+        this.reviewerRequested = reviewerRequested;
+    }
+
+    /**
+     * Returns the session for a user, loading the user's roles and reviewer request
+     * on first use.
+     *
+     * @param databaseHelper the database the user belongs to
+     * @param user           the logged-in user
+     * @return the user's session
+     */
+    public static SessionContext of(DatabaseHelper databaseHelper, User user) throws SQLException {
+        Map<String, SessionContext> byUserName = sessionsFor(databaseHelper);
+        SessionContext session = byUserName.get(user.getUserName());
+        if (session != null) {
+            return session;
+        }
+        // Load outside any lock; two concurrent first loads simply produce the same data
+        session = new SessionContext(user, databaseHelper.getUserRoles(user.getUserName()),
+                databaseHelper.requestedReviewer(user));
+        SessionContext existing = byUserName.putIfAbsent(user.getUserName(), session);
+        return existing != null ? existing : session;
+    }
+
+    /** Drops a user's session, e.g. after their roles were changed or on logout. */
+    public static void invalidate(DatabaseHelper databaseHelper, String userName) {
+        sessionsFor(databaseHelper).remove(userName);
+    }
+
+    public User getUser() { return user; }
+
+    public boolean hasRole(Role role) {
+        return roles.contains(role);
+    }
+
+    /** @return the user's roles as a read-only set */
+    public Set<Role> getRoles() {
+        return Collections.unmodifiableSet(roles);
+    }
+
+    /** @return the user's role names as stored, for role dropdowns */
+    public List<String> getRoleNames() {
+        return roleNames;
+    }
+
+    public boolean hasRequestedReviewer() {
+        return reviewerRequested;
+    }
+
+    // Called after the user's request to become a reviewer was saved
+    public void setReviewerRequested() {
+        reviewerRequested = true;
+    }
+
+    private static Map<String, SessionContext> sessionsFor(DatabaseHelper databaseHelper) {
+        synchronized (sessions) {
+            return sessions.computeIfAbsent(databaseHelper, db -> new ConcurrentHashMap<>());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package application;
+
+import databasePart1.DatabaseHelper;
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SessionContextTest {
+
+    private DatabaseHelper databaseHelper;
+
+    @BeforeAll
+    public void setupDatabase() throws SQLException {
+        databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+    }
+
+    @Test
+    public void testRoleNamesAreCaseInsensitive() {
+        User user = new User(1, "alice", "Password!123", "alice@example.com", List.of());
+        SessionContext session = new SessionContext(user, Arrays.asList("student", "Reviewer", "unknown"), false);
+
+        assertEquals(EnumSet.of(Role.STUDENT, Role.REVIEWER), session.getRoles());
+        assertTrue(session.hasRole(Role.REVIEWER));
+        assertFalse(session.hasRole(Role.ADMIN));
+        assertEquals(Arrays.asList("student", "Reviewer", "unknown"), session.getRoleNames());
+    }
+
+    @Test
+    public void testSessionLoadedOnceUntilInvalidated() throws SQLException {
+        databaseHelper.increment_num_users();
+        User user = new User(databaseHelper.get_num_users(), "sessionUser", "Password!123", "session@example.com",
+                Arrays.asList("Student"));
+        databaseHelper.register(user, user.getRoles());
+
+        SessionContext first = SessionContext.of(databaseHelper, user);
+        assertSame(first, SessionContext.of(databaseHelper, user));
+        assertFalse(first.hasRole(Role.REVIEWER));
+
+        databaseHelper.addUserRole(user.getUserName(), "Reviewer");
+        SessionContext.invalidate(databaseHelper, user.getUserName());
+
+        SessionContext reloaded = SessionContext.of(databaseHelper, user);
+        assertNotSame(first, reloaded);
+        assertTrue(reloaded.hasRole(Role.REVIEWER));
+    }
+}
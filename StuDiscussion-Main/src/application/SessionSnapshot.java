@@ -0,0 +1,190 @@
+package application;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.ReviewFanout;
+import databasePart1.UserRoleIndex;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Per-user snapshot of the data behind the student home page buttons.
+ * <p>
+ * {@link #of(DatabaseHelper, User)} starts loading the user's questions, answers, trusted
+ * reviewers, reviewer candidates and unviewed review updates concurrently, each on its own
+ * virtual thread, so by the time a button is clicked its data is usually already there.
+ * Data older than {@link #MAX_AGE_MILLIS} is still returned but triggers a background
+ * reload. After a write, call the matching invalidate method: the next read then waits
+ * for fresh data instead of showing the stale copy. Pages hand these futures to
+ * AsyncDatabase.load(String, CompletableFuture, ...) under a key, so a superseded page load
+ * is dropped without cancelling the future other pages share.
+ * </p>
+ */
+public class SessionSnapshot {
+
+    public static final long MAX_AGE_MILLIS = 30_000;
+
+    private static final Map<DatabaseHelper, Map<Integer, SessionSnapshot>> snapshots = new WeakHashMap<>();
+
+    /** The user's questions together with the answers to them, sorted by date. */
+    public static class UserQuestions {
+        private final List<Question> questions;
+        private final Map<Integer, List<Answer>> answersByQuestion;
+
+        public UserQuestions(List<Question> questions, Map<Integer, List<Answer>> answersByQuestion) {
+            this.questions = questions;
+            this.answersByQuestion = answersByQuestion;
+        }
+
+        public List<Question> getQuestions() { return questions; }
+        public Map<Integer, List<Answer>> getAnswersByQuestion() { return answersByQuestion; }
+    }
+
+    // One prefetched data set, reloaded in the background once it is stale
+    private class Dataset<T> {
+        private final AsyncDatabase.DatabaseCall<T> loader;
+        private CompletableFuture<T> current;     // what readers get; guarded by this
+        private CompletableFuture<T> reloading;   // background reload in flight, if any
+        private long loadedAt;
+
+        Dataset(AsyncDatabase.DatabaseCall<T> loader) {
+            this.loader = loader;
+            synchronized (this) {
+                start();
+            }
+        }
+
+        synchronized CompletableFuture<T> get() {
+            boolean failed = current.isCompletedExceptionally();
+            boolean stale = current.isDone() && System.currentTimeMillis() - loadedAt > MAX_AGE_MILLIS;
+            if (failed) {
+                start();
+            } else if (stale && reloading == null) {
+                // Keep serving the old data until the reload finishes
+                CompletableFuture<T> reload = async.submit(loader);
+                reloading = reload;
+                reload.whenComplete((result, error) -> finishReload(reload, error));
+            }
+            return current;
+        }
+
+        synchronized void invalidate() {
+            reloading = null;
+            start();
+        }
+
+        // Called with the lock held, so markLoaded cannot run before current is set
+        private void start() {
+            CompletableFuture<T> future = async.submit(loader);
+            current = future;
+            future.thenRun(() -> markLoaded(future));
+        }
+
+        private synchronized void markLoaded(CompletableFuture<T> future) {
+            if (future == current) {
+                loadedAt = System.currentTimeMillis();
+            }
+        }
+
+        private synchronized void finishReload(CompletableFuture<T> reload, Throwable error) {
+            if (reload != reloading) {
+                return;     // superseded by an invalidation
+            }
+            reloading = null;
+            if (error == null) {
+                current = reload;
+                loadedAt = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private final AsyncDatabase async;
+    private final Dataset<UserQuestions> questions;
+    private final Dataset<List<Answer>> answers;
+    private final Dataset<Map<User, Integer>> trustedReviewers;
+    private final Dataset<List<User>> reviewerCandidates;
+    private final Dataset<List<ReviewUpdate>> reviewUpdates;
+
+    SessionSnapshot(DatabaseHelper databaseHelper, User user) {
+        this.async = AsyncDatabase.of(databaseHelper);
+        SortAnswers sortAnswers = new SortAnswers(databaseHelper);
+        int userId = user.getId();
+
+        this.questions = new Dataset<>(() -> {
+            List<Question> list = databaseHelper.getQuestionsByUser(userId);
+            return new UserQuestions(list, sortAnswers.getSortedAnswersForQuestions(
+                    list.stream().map(Question::getId).collect(Collectors.toList()), "date", userId));
+        });
+        this.answers = new Dataset<>(() -> databaseHelper.getAnswersByUser(userId));
+        this.trustedReviewers = new Dataset<>(() -> databaseHelper.getTrustedReviewersForStudent(userId));
+        // First page of reviewers the user does not trust yet; further pages are loaded on demand
+        this.reviewerCandidates = new Dataset<>(() -> UserRoleIndex.of(databaseHelper).getUsersByRole(
+                Role.REVIEWER.getDisplayName(), userId, 0, UserRoleIndex.DEFAULT_PAGE_SIZE));
+        this.reviewUpdates = new Dataset<>(() -> ReviewFanout.of(databaseHelper).getUnviewedReviewUpdates(userId));
+    }
+
+    /**
+     * Returns the snapshot for a user, starting the prefetch on first use.
+     *
+     * @param databaseHelper the database the user belongs to
+     * @param user           the logged-in user
+     * @return the user's snapshot
+     */
+    public static SessionSnapshot of(DatabaseHelper databaseHelper, User user) {
+        Map<Integer, SessionSnapshot> byUserId;
+        synchronized (snapshots) {
+            byUserId = snapshots.computeIfAbsent(databaseHelper, db -> new ConcurrentHashMap<>());
+        }
+        return byUserId.computeIfAbsent(user.getId(), id -> new SessionSnapshot(databaseHelper, user));
+    }
+
+    /**
+     * Returns a user's snapshot only if one was already started, so writes made on behalf of
+     * other users can invalidate it without starting a prefetch.
+     *
+     * @return the snapshot, or null if the user has none
+     */
+    public static SessionSnapshot peek(DatabaseHelper databaseHelper, int userId) {
+        Map<Integer, SessionSnapshot> byUserId;
+        synchronized (snapshots) {
+            byUserId = snapshots.get(databaseHelper);
+        }
+        return byUserId != null ? byUserId.get(userId) : null;
+    }
+
+    /** Drops one user's snapshot, e.g. on logout; other users' snapshots are kept. */
+    public static void clear(DatabaseHelper databaseHelper, int userId) {
+        Map<Integer, SessionSnapshot> byUserId;
+        synchronized (snapshots) {
+            byUserId = snapshots.get(databaseHelper);
+        }
+        if (byUserId != null) {
+            byUserId.remove(userId);
+        }
+    }
+
+    public CompletableFuture<UserQuestions> getQuestions() { return questions.get(); }
+    public CompletableFuture<List<Answer>> getAnswers() { return answers.get(); }
+    public CompletableFuture<Map<User, Integer>> getTrustedReviewers() { return trustedReviewers.get(); }
+    public CompletableFuture<List<User>> getReviewerCandidates() { return reviewerCandidates.get(); }
+    public CompletableFuture<List<ReviewUpdate>> getReviewUpdates() { return reviewUpdates.get(); }
+
+    // Call after the user's questions or the answers to them change
+    public void invalidateQuestions() { questions.invalidate(); }
+
+    // Answers by the user may also be answers to the user's own questions
+    public void invalidateAnswers() {
+        answers.invalidate();
+        questions.invalidate();
+    }
+
+    // The candidates are the reviewers not trusted yet, so they change with the trust list
+    public void invalidateTrustedReviewers() {
+        trustedReviewers.invalidate();
+        reviewerCandidates.invalidate();
+    }
+    public void invalidateReviewUpdates() { reviewUpdates.invalidate(); }
+}
@@ -0,0 +1,93 @@
+package application;
+
+import databasePart1.SharedConnection;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SharedConnectionTest {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Connection shared;
+
+    @BeforeAll
+    public void setupDatabase() throws SQLException {
+        shared = DriverManager.getConnection("jdbc:h2:mem:sharedConnectionTest;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement stmt = shared.createStatement()) {
+            stmt.execute("CREATE TABLE Items (id INT PRIMARY KEY)");
+        }
+    }
+
+    @AfterAll
+    public void closeDatabase() throws SQLException {
+        shared.close();
+    }
+
+    @Test
+    public void testClosingTheLeaseKeepsTheConnectionOpen() throws SQLException {
+        Connection lease = SharedConnection.lease(shared, lock);
+        try (Connection connection = lease) {
+            assertTrue(connection.isValid(1));
+        }
+
+        assertTrue(lease.isClosed());
+        assertFalse(shared.isClosed());
+        assertFalse(lock.isLocked());
+        assertThrows(SQLException.class, () -> lease.createStatement());
+    }
+
+    @Test
+    public void testUncommittedWorkIsRolledBack() throws SQLException {
+        try (Connection connection = SharedConnection.lease(shared, lock)) {
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("INSERT INTO Items VALUES (1)");
+            }
+        }
+
+        assertTrue(shared.getAutoCommit(), "Auto-commit is restored");
+        try (Statement stmt = shared.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Items")) {
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    public void testLeasesAreExclusive() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean leased = new AtomicBoolean();
+        Thread other;
+        try (Connection connection = SharedConnection.lease(shared, lock)) {
+            other = new Thread(() -> {
+                started.countDown();
+                try (Connection second = SharedConnection.lease(shared, lock)) {
+                    leased.set(true);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            other.start();
+            assertTrue(started.await(1, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertFalse(leased.get(), "A second thread waits for the lease");
+
+            try (Connection nested = SharedConnection.lease(shared, lock)) {
+                assertTrue(nested.isValid(1), "Leases nest on one thread");
+            }
+        }
+        other.join(1_000);
+        assertTrue(leased.get());
+    }
+}
@@ -1,15 +1,23 @@
 package application;
 
+import databasePart1.ConnectionPool;
 import databasePart1.DatabaseHelper;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Allows users to sort and list answers.
  */
 public class SortAnswers {
 
+    // Upper bound on bind parameters in one IN (...) list
+    private static final int MAX_IDS_PER_QUERY = 500;
+
     private final DatabaseHelper databaseHelper;
 
     public SortAnswers(DatabaseHelper databaseHelper) {
@@ -19,23 +27,65 @@ public class SortAnswers {
     // Get answers sorted by unread, solution, or date
     public List<Answer> getSortedAnswers(int questionId, String sortBy, int userId) throws SQLException {
         List<Answer> answers = new ArrayList<>();
-        String query = "SELECT id, content, user_id, question_id, is_solution FROM Answers WHERE question_id = ? ORDER BY is_solution DESC, date_created DESC";
+        // Answers and their question come back in one query; authors are resolved once each by the mapper
+        String query = "SELECT " + AnswerRowMapper.COLUMNS + AnswerRowMapper.FROM
+                + " WHERE a.question_id = ? ORDER BY a.is_solution DESC, a.date_created DESC";
+        AnswerRowMapper mapper = new AnswerRowMapper(databaseHelper);
 
-        try (PreparedStatement pstmt = databaseHelper.connection.prepareStatement(query)) {
+        try (Connection connection = ConnectionPool.borrow(databaseHelper);
+             PreparedStatement pstmt = connection.prepareStatement(query)) {
             pstmt.setInt(1, questionId);
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                User user = databaseHelper.getUserByUserName(rs.getString("username"));
-                Question question = databaseHelper.getQuestionById(rs.getInt("question_id"));
-                boolean isSolution = rs.getBoolean("is_solution"); // ✅ Ensure this fetches correctly
-                System.out.println("DEBUG: Answer ID " + rs.getInt("id") + " isSolution: " + isSolution);
 
-                Answer answer = new Answer(rs.getInt("id"), rs.getString("content"), user, question);
-                answer.setSolution(isSolution); // ✅ Save solution status
-                answers.add(answer);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    answers.add(mapper.map(rs));
+                }
             }
         }
         return answers;
     }
-}
\ No newline at end of file
+
+    /**
+     * Loads the answers for a whole page of questions at once.
+     *
+     * @param questionIds the questions to load answers for
+     * @param sortBy      the sort order (answers are returned solution first, then newest first)
+     * @param userId      the current user
+     * @return a map from question id to its sorted answers; every requested id has an entry
+     */
+    public Map<Integer, List<Answer>> getSortedAnswersForQuestions(Collection<Integer> questionIds, String sortBy, int userId) throws SQLException {
+        Map<Integer, List<Answer>> answersByQuestion = new LinkedHashMap<>();
+        for (Integer id : questionIds) {
+            answersByQuestion.put(id, new ArrayList<>());
+        }
+        if (answersByQuestion.isEmpty()) {
+            return answersByQuestion;
+        }
+
+        List<Integer> ids = new ArrayList<>(answersByQuestion.keySet());
+        AnswerRowMapper mapper = new AnswerRowMapper(databaseHelper); // shared so users/questions dedupe across the page
+
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size()));
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                String query = "SELECT " + AnswerRowMapper.COLUMNS + AnswerRowMapper.FROM
+                        + " WHERE a.question_id IN (" + placeholders + ")"
+                        + " ORDER BY a.question_id, a.is_solution DESC, a.date_created DESC";
+
+                try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Answer answer = mapper.map(rs);
+                            answersByQuestion.get(answer.getQuestion().getId()).add(answer);
+                        }
+                    }
+                }
+            }
+        }
+        return answersByQuestion;
+    }
+}
@@ -0,0 +1,93 @@
+package application;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import databasePart1.ConnectionPool;
+import databasePart1.DatabaseHelper;
+
+/*******
+ * <p> Title: SortAnswersBenchmark Class. </p>
+ *
+ * <p> Description: Compares the old per-row lookups in SortAnswers.getSortedAnswers with the
+ * joined query and AnswerRowMapper. Reports database round trips and latency for one
+ * question thread. </p>
+ *
+ * Usage: SortAnswersBenchmark [questionId] [iterations]
+ */
+public class SortAnswersBenchmark {
+    private static final DatabaseHelper databaseHelper = new DatabaseHelper();
+
+    public static void main(String[] args) throws SQLException {
+        int questionId = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        System.out.println("______________________________________");
+        System.out.println("\nBenchmark: answers for question " + questionId);
+
+        databaseHelper.connectToDatabase();
+        SortAnswers sortAnswers = new SortAnswers(databaseHelper);
+
+        // Warm up both paths so the first timed run does not pay class loading
+        int answerCount = perRowLookups(questionId);
+        sortAnswers.getSortedAnswers(questionId, "date", 0);
+
+        long start = System.nanoTime();
+        int perRowTrips = 0;
+        for (int i = 0; i < iterations; i++) {
+            perRowTrips = 1 + 2 * perRowLookups(questionId);
+        }
+        double perRowMillis = (System.nanoTime() - start) / 1_000_000.0 / iterations;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sortAnswers.getSortedAnswers(questionId, "date", 0);
+        }
+        double joinedMillis = (System.nanoTime() - start) / 1_000_000.0 / iterations;
+        int joinedTrips = 1 + joinedUserLookups(questionId);
+
+        System.out.println("Answers in thread: " + answerCount);
+        System.out.printf("Before (per-row lookups): %d round trips, %.3f ms%n", perRowTrips, perRowMillis);
+        System.out.printf("After  (joined query):    %d round trips, %.3f ms%n", joinedTrips, joinedMillis);
+    }
+
+    // The previous implementation: one query for the answers plus two lookups per row
+    private static int perRowLookups(int questionId) throws SQLException {
+        List<Answer> answers = new ArrayList<>();
+        String query = "SELECT id, content, user_id, question_id, is_solution FROM Answers WHERE question_id = ? ORDER BY is_solution DESC, date_created DESC";
+        try (Connection connection = ConnectionPool.borrow(databaseHelper);
+             PreparedStatement pstmt = connection.prepareStatement(query)) {
+            pstmt.setInt(1, questionId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    User user = databaseHelper.getUserById(rs.getInt("user_id"));
+                    Question question = databaseHelper.getQuestionById(rs.getInt("question_id"));
+                    Answer answer = new Answer(rs.getInt("id"), rs.getString("content"), user, question);
+                    answer.setSolution(rs.getBoolean("is_solution"));
+                    answers.add(answer);
+                }
+            }
+        }
+        return answers.size();
+    }
+
+    // Number of user lookups the joined path needs (one per distinct user in the thread)
+    private static int joinedUserLookups(int questionId) throws SQLException {
+        AnswerRowMapper mapper = new AnswerRowMapper(databaseHelper);
+        String query = "SELECT " + AnswerRowMapper.COLUMNS + AnswerRowMapper.FROM + " WHERE a.question_id = ?";
+        try (Connection connection = ConnectionPool.borrow(databaseHelper);
+             PreparedStatement pstmt = connection.prepareStatement(query)) {
+            pstmt.setInt(1, questionId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    mapper.map(rs);
+                }
+            }
+        }
+        return mapper.getUserLookups();
+    }
+}
@@ -1,11 +1,22 @@
 package application;
 
+import databasePart1.ConnectionPool;
 import databasePart1.DatabaseHelper;
+import databasePart1.UserCache;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SortQuestions {
+    // Matches questions carrying a tag through the normalized QuestionTags table
+    private static final String TAG_CONDITION = " AND id IN (SELECT qt.question_id FROM QuestionTags qt"
+            + " JOIN Tags t ON t.id = qt.tag_id WHERE t.name = ?)";
+    private static final int MAX_IDS_PER_QUERY = 500;
+
     private final DatabaseHelper databaseHelper;
 
     public SortQuestions(DatabaseHelper databaseHelper) {
@@ -20,7 +31,8 @@ public class SortQuestions {
             query.append(" AND is_resolved = FALSE");
         }
         if (tagFilter != null && !tagFilter.isEmpty()) {
-            query.append(" AND tags LIKE ?");
+            TagIndex.upToDate(databaseHelper);    // link questions inserted since the last refresh
+            query.append(TAG_CONDITION);
         }
         switch (sortBy) {
             case "date":
@@ -30,16 +42,16 @@ public class SortQuestions {
                 query.append(" ORDER BY id");
         }
 
-        try (Connection connection = databaseHelper.getConnection();
+        try (Connection connection = ConnectionPool.borrow(databaseHelper);
              PreparedStatement pstmt = connection.prepareStatement(query.toString())) {
 
             if (tagFilter != null && !tagFilter.isEmpty()) {
-                pstmt.setString(1, "%" + tagFilter + "%"); // Apply tag filter
+                pstmt.setString(1, tagFilter); // Apply tag filter
             }
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    User user = databaseHelper.getUserById(rs.getInt("user_id"));
+                    User user = UserCache.of(databaseHelper).getUserById(rs.getInt("user_id"));
                     String tags = rs.getString("tags");
                     boolean isResolved = rs.getBoolean("is_resolved");
 
@@ -51,4 +63,125 @@ public class SortQuestions {
         }
         return questions;
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets one page of questions, newest first, using keyset pagination on (date_created, id).
+     * The cost of a page does not depend on how far into the list it is.
+     *
+     * @param onlyUnresolved only return unresolved questions
+     * @param tagFilter      tag to filter on, or null/empty for all questions
+     * @param after          cursor returned with the previous page, or null for the first page
+     * @param pageSize       maximum number of questions on the page
+     * @return the page of questions and the cursor for the next page
+     */
+    public QuestionPage getSortedQuestionsPage(boolean onlyUnresolved, String tagFilter,
+                                               QuestionPage.Cursor after, int pageSize) throws SQLException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        StringBuilder query = new StringBuilder("SELECT * FROM Questions WHERE 1=1");
+        boolean filterByTag = tagFilter != null && !tagFilter.isEmpty();
+
+        if (onlyUnresolved) {
+            query.append(" AND is_resolved = FALSE");
+        }
+        if (filterByTag) {
+            TagIndex.upToDate(databaseHelper);    // link questions inserted since the last refresh
+            query.append(TAG_CONDITION);
+        }
+        if (after != null) {
+            query.append(" AND (date_created < ? OR (date_created = ? AND id < ?))");
+        }
+        // Fetch one extra row to find out whether there is a next page
+        query.append(" ORDER BY date_created DESC, id DESC LIMIT ?");
+
+        List<Question> questions = new ArrayList<>();
+        QuestionPage.Cursor nextCursor = null;
+
+        try (Connection connection = ConnectionPool.borrow(databaseHelper);
+             PreparedStatement pstmt = connection.prepareStatement(query.toString())) {
+            int param = 1;
+            if (filterByTag) {
+                pstmt.setString(param++, tagFilter);
+            }
+            if (after != null) {
+                pstmt.setTimestamp(param++, after.getDateCreated());
+                pstmt.setTimestamp(param++, after.getDateCreated());
+                pstmt.setInt(param++, after.getId());
+            }
+            pstmt.setInt(param, pageSize + 1);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                Timestamp lastDate = null;
+                int lastId = 0;
+                while (rs.next()) {
+                    if (questions.size() == pageSize) {
+                        nextCursor = new QuestionPage.Cursor(lastDate, lastId);
+                        break;
+                    }
+                    User user = UserCache.of(databaseHelper).getUserById(rs.getInt("user_id"));
+
+                    Question question = new Question(rs.getInt("id"), rs.getString("content"), user, rs.getString("tags"));
+                    question.setResolved(rs.getBoolean("is_resolved"));
+                    questions.add(question);
+                    lastDate = rs.getTimestamp("date_created");
+                    lastId = question.getId();
+                }
+            }
+        }
+        return new QuestionPage(questions, nextCursor);
+    }
+
+    /**
+     * Loads the questions whose ids are set in a bitmap, such as the result of a
+     * TagIndex filter, newest first.
+     *
+     * @param questionIds bitmap of question ids
+     * @return the questions, ordered by date_created descending
+     */
+    public List<Question> getQuestionsByIds(BitSet questionIds) throws SQLException {
+        List<Question> questions = new ArrayList<>();
+        Map<Integer, Timestamp> created = new HashMap<>();
+        List<Integer> ids = new ArrayList<>();
+        questionIds.stream().forEach(ids::add);
+
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size()));
+                String query = "SELECT * FROM Questions WHERE id IN ("
+                        + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+
+                try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            User user = UserCache.of(databaseHelper).getUserById(rs.getInt("user_id"));
+                            Question question = new Question(rs.getInt("id"), rs.getString("content"), user, rs.getString("tags"));
+                            question.setResolved(rs.getBoolean("is_resolved"));
+                            questions.add(question);
+                            created.put(question.getId(), rs.getTimestamp("date_created"));
+                        }
+                    }
+                }
+            }
+        }
+
+        questions.sort((q1, q2) -> {
+            int byDate = created.get(q2.getId()).compareTo(created.get(q1.getId()));
+            return byDate != 0 ? byDate : Integer.compare(q2.getId(), q1.getId());
+        });
+        return questions;
+    }
+
+    /**
+     * Counts questions per tag from the tag bitmaps.
+     *
+     * @param onlyUnresolved only count unresolved questions
+     * @return tag name to number of questions
+     */
+    public Map<String, Integer> getTagCounts(boolean onlyUnresolved) throws SQLException {
+        return TagIndex.upToDate(databaseHelper).countByTag(onlyUnresolved ? Boolean.FALSE : null);
+    }
+}
@@ -5,6 +5,7 @@ import javafx.stage.Stage;
 import java.sql.SQLException;
 
 import databasePart1.DatabaseHelper;
+import databasePart1.SchemaMigrator;
 
 
 public class StartCSE360 extends Application {
@@ -20,6 +21,7 @@ public class StartCSE360 extends Application {
     public void start(Stage primaryStage) {
         try {
             databaseHelper.connectToDatabase(); // Connect to the database
+            SchemaMigrator.migrate(databaseHelper); // Create or update indexes and newer tables
             if (databaseHelper.isDatabaseEmpty()) {
             	
             	new FirstPage(databaseHelper).show(primaryStage);
@@ -2,14 +2,17 @@ package application;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.stream.Collectors;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import databasePart1.DatabaseHelper;
+import databasePart1.ReviewerReputation;
+import databasePart1.UserCache;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.Scene;
@@ -34,6 +37,9 @@ public class StudentHomePage {
 	private final SortQuestions sortQuestions;
 	private final SortAnswers sortAnswers;
 	private List<String> trustedReviewers;
+	private static final int QUESTIONS_PER_PAGE = 25;
+	private static final int SEARCH_RESULT_LIMIT = 100;
+	private static final int MAX_SUGGESTIONS = 20;
 
 public StudentHomePage(DatabaseHelper databaseHelper) {
     this.databaseHelper = databaseHelper;
@@ -57,6 +63,7 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
     public void show(Stage primaryStage, User user) {
     	VBox layout = new VBox();
     	this.user = user;
+    	SessionSnapshot.of(databaseHelper, user);  // Start loading the data behind the buttons below
 	    layout.setStyle("-fx-alignment: center; -fx-padding: 20;");
 	    
 	    // label to display the welcome message for the student
@@ -71,35 +78,18 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
         Button viewTrustedReviewers = new Button("View Trusted Reviewers List");
         Button viewUpdates = new Button("View Updates");
         viewUpdates.setOnAction(e -> new ViewReviewUpdatesPage(databaseHelper).show(primaryStage, user));
+        showUnreadCount(viewUpdates, user);
         viewTrustedReviewers.setOnAction(e -> new showTrustedReviewersPage(databaseHelper).show(primaryStage,user));
-        viewMyAnswersButton.setOnAction(e -> {
-			try {
-				showUserAnswersPage(primaryStage, user);
-			} catch (SQLException e1) {
-				e1.printStackTrace();
-			}
-		});
+        viewMyAnswersButton.setOnAction(e -> showUserAnswersPage(primaryStage, user));
         Button searchButton = new Button("Search");
 
 	//search button
         searchButton.setOnAction(e -> showSearchPage(primaryStage, user));
 	    
-        viewMyAnswersButton.setOnAction(e -> {
-			try {
-				showUserAnswersPage(primaryStage, user);
-			} catch (SQLException e1) {
-				e1.printStackTrace();
-			}
-		});
+        viewMyAnswersButton.setOnAction(e -> showUserAnswersPage(primaryStage, user));
         askQuestionButton.setOnAction(e -> showAskQuestionPage(primaryStage));
         listQuestionsButton.setOnAction(e -> showListQuestionsPage(primaryStage));
-        viewMyQuestionsButton.setOnAction(e -> {
-			try {
-				showUserQuestionsPage(primaryStage, user);
-			} catch (SQLException e1) {
-				e1.printStackTrace();
-			}
-		}); // NEW
+        viewMyQuestionsButton.setOnAction(e -> showUserQuestionsPage(primaryStage, user)); // NEW
 
 	    //reviewer list button
         /*viewReviewersButton.setOnAction(e -> {
@@ -110,13 +100,28 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
         // Logout Button
         Button logoutButton = new Button("Logout");
         logoutButton.setOnAction(e -> {
-            databaseHelper.closeConnection();  // Close database connection
+            SessionContext.invalidate(databaseHelper, user.getUserName());  // Forget this user's cached roles
+            SessionSnapshot.clear(databaseHelper, user.getId());
+            try {
+                ReviewUpdateBus.of(databaseHelper).flush();  // Write any pending "Mark Viewed" clicks
+            } catch (SQLException ex) {
+                System.err.println("Error marking review updates viewed: " + ex.getMessage());
+            }
+            // The connection and its pool stay open, so the next login does not reconnect
             new UserLoginPage(databaseHelper).show(primaryStage);  // Redirect to login
         });
 
+        // Roles are loaded once per session, so rebuilding this page does not query them again
+        SessionContext session = null;
+        try {
+            session = SessionContext.of(databaseHelper, user);
+        } catch (SQLException ex) {
+            System.err.println("Error loading roles: " + ex.getMessage());
+        }
+        SessionContext currentSession = session;
+
      // Switch Role Button
-        String username= user.getUserName();
-        ArrayList<String> roles= databaseHelper.getUserRoles(username);
+        List<String> roles = session != null ? session.getRoleNames() : new ArrayList<>();
         ComboBox<String> roleDropdown = new ComboBox<>();
         roleDropdown.getItems().addAll(roles);
         if (!roles.isEmpty()) {
@@ -157,13 +162,15 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
         requestReviewer.setOnAction(e->
         {
         	try{
-        		if(!databaseHelper.getUserRoles(user.getUserName()).contains("Reviewer") && !databaseHelper.requestedReviewer(user))
+        		SessionContext context = currentSession != null ? currentSession : SessionContext.of(databaseHelper, user);
+        		if(!context.hasRole(Role.REVIEWER) && !context.hasRequestedReviewer())
         		{
-        			databaseHelper.requestToBeReviewer(user);
+        			DiscussionService.of(databaseHelper).requestReviewerRole(user);
+        			context.setReviewerRequested();
         			reviewLabel.setText("Your request will be processed by an instructor shortly");
-        		}else if(databaseHelper.requestedReviewer(user)){
+        		}else if(context.hasRequestedReviewer()){
         			reviewLabel.setText("You have already requested to be reviewer! Please be patient while an instructor reviews your request!");
-        		}else if(databaseHelper.getUserRoles(user.getUserName()).contains("Reviewer")) {
+        		}else if(context.hasRole(Role.REVIEWER)) {
         			reviewLabel.setText("You already possess the role of Reviewer!");
         		}
         	}catch(Exception ex)
@@ -183,6 +190,34 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	    
 	    
 	    
+	    // Shows the number of unviewed review updates on the button and keeps it current
+	    private void showUnreadCount(Button viewUpdates, User user) {
+	        ReviewUpdateBus bus = ReviewUpdateBus.of(databaseHelper);
+	        Runnable refreshLabel = () -> {
+	            int unread = bus.getUnreadCount(user.getId());
+	            viewUpdates.setText(unread > 0 ? "View Updates (" + unread + ")" : "View Updates");
+	        };
+
+	        // Seed the counter once from the prefetched list; after that it is kept by the bus
+	        AsyncDatabase.of(databaseHelper).load("homeReviewUpdates:" + user.getId(), snapshot().getReviewUpdates(),
+	                updates -> {
+	                    bus.seedUnreadCount(user.getId(),
+	                            (int) updates.stream().filter(u -> !bus.isMarkedViewed(user.getId(), u.getId())).count());
+	                    refreshLabel.run();
+	                },
+	                Throwable::printStackTrace);
+
+	        bus.subscribe("homeUnread:" + user.getId(), user.getId(), event -> Platform.runLater(() -> {
+	            snapshot().invalidateReviewUpdates();
+	            refreshLabel.run();
+	        }));
+	    }
+
+	    // The prefetched data of the current user
+	    private SessionSnapshot snapshot() {
+	        return SessionSnapshot.of(databaseHelper, user);
+	    }
+
 	    private void showAskQuestionPage(Stage primaryStage) {
 	        VBox layout = new VBox(15);
 	        layout.setStyle("-fx-alignment: center; -fx-padding: 20;");
@@ -222,15 +257,14 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	            }
 
 	            try {
-	                User updatedUser = databaseHelper.getUserByUserName(user.getUserName());
+	                User updatedUser = UserCache.of(databaseHelper).getUserByUserName(user.getUserName());
 	                if (updatedUser == null) {
 	                    errorLabel.setText("Error: User not found.");
 	                    return;
 	                }
 
 	                String tag = selectedTag.getText(); // Get the selected tag
-	                Question question = new Question(0, content, updatedUser, tag);
-	                databaseHelper.addQuestion(question);
+	                DiscussionService.of(databaseHelper).addQuestion(updatedUser, content, tag);
 	                show(primaryStage,user);
 	            } catch (SQLException ex) {
 	                ex.printStackTrace();
@@ -254,9 +288,36 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	        Label titleLabel = new Label("All Questions");
 	        ScrollPane scrollPane = new ScrollPane();
 	        VBox questionContainer = new VBox(10);
+	        Button loadMoreButton = new Button("Load More");
+
+	        // Questions are loaded one page at a time; "Load More" fetches the page after the last one shown
+	        loadQuestionsPage(primaryStage, questionContainer, loadMoreButton, null);
+
+	        scrollPane.setContent(questionContainer);
+	        scrollPane.setFitToWidth(true);
+
+	        Button backButton = new Button("Back");
+	        backButton.setOnAction(e -> show(primaryStage,user));
+
+	        layout.getChildren().addAll(titleLabel, scrollPane, loadMoreButton, backButton);
+	        primaryStage.setScene(new Scene(layout, 800, 400));
+	    }
 
+	    /**
+	     * Appends the page of questions after the given cursor to the question list.
+	     *
+	     * @param primaryStage      the primary stage of the application
+	     * @param questionContainer the box the questions are added to
+	     * @param loadMoreButton    the button that loads the following page
+	     * @param after             the cursor of the previous page, or null for the first page
+	     */
+	    private void loadQuestionsPage(Stage primaryStage, VBox questionContainer, Button loadMoreButton, QuestionPage.Cursor after) {
 	        try {
-	            List<Question> questions = sortQuestions.getSortedQuestions("date", false, "");
+	            QuestionPage page = sortQuestions.getSortedQuestionsPage(false, "", after, QUESTIONS_PER_PAGE);
+	            List<Question> questions = page.getQuestions();
+	            // Fetch the answers for every listed question in one go
+	            Map<Integer, List<Answer>> answersByQuestion = sortAnswers.getSortedAnswersForQuestions(
+	                    questions.stream().map(Question::getId).collect(Collectors.toList()), "date", user.getId());
 
 	            for (Question q : questions) {
 	                VBox questionBox = new VBox(5);
@@ -264,9 +325,8 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	                Label questionLabel = new Label(questionText + " [" + q.getTags() + "]");
 	                Button answerButton = new Button("Answer");
 
-	                // Fetch answers for this question
 	                VBox answersBox = new VBox(5);
-	                List<Answer> answers = sortAnswers.getSortedAnswers(q.getId(), "date", user.getId());
+	                List<Answer> answers = answersByQuestion.get(q.getId());
 
 	                for (Answer a : answers) {
 	                    String answerText = a.isSolution() ? "✅ " + a.getContent() : a.getContent(); 
@@ -288,30 +348,42 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	                questionBox.setStyle("-fx-border-color: black; -fx-padding: 10; -fx-background-color: #f5f5f5;");
 	                questionContainer.getChildren().add(questionBox);
 	            }
+
+	            loadMoreButton.setVisible(page.hasNext());
+	            loadMoreButton.setOnAction(e -> loadQuestionsPage(primaryStage, questionContainer, loadMoreButton, page.getNextCursor()));
 	        } catch (SQLException ex) {
 	            ex.printStackTrace();
 	        }
-
-	        scrollPane.setContent(questionContainer);
-	        scrollPane.setFitToWidth(true);
-
-	        Button backButton = new Button("Back");
-	        backButton.setOnAction(e -> show(primaryStage,user));
-
-	        layout.getChildren().addAll(titleLabel, scrollPane, backButton);
-	        primaryStage.setScene(new Scene(layout, 800, 400));
 	    }
 
 	    
-	    private void showUserQuestionsPage(Stage primaryStage, User user) throws SQLException {
+	    private void showUserQuestionsPage(Stage primaryStage, User user) {
 	        VBox layout = new VBox(15);
 	        layout.setStyle("-fx-alignment: center; -fx-padding: 20;");
 	        VBox questionContainer = new VBox(10);
 	        ScrollPane scrollPane = new ScrollPane(questionContainer);
 	        scrollPane.setFitToWidth(true);
 
+	        questionContainer.getChildren().setAll(new Label("Loading your questions..."));
+
+	        Button backButton = new Button("Back");
+	        backButton.setOnAction(e -> show(primaryStage, user));
+
+	        layout.getChildren().addAll(scrollPane, backButton);
+	        primaryStage.setScene(new Scene(layout, 800, 400));
+
+	        // Usually already prefetched when the home page was shown
+	        AsyncDatabase.of(databaseHelper).load("myQuestions:" + user.getId(), SessionSnapshot.of(databaseHelper, user).getQuestions(),
+	                result -> showUserQuestions(questionContainer, result.getQuestions(), result.getAnswersByQuestion()),
+	                error -> {
+	                    error.printStackTrace();
+	                    questionContainer.getChildren().setAll(new Label("Error loading your questions."));
+	                });
+	    }
+
+	    // Fills the "My Questions" page once its data has loaded
+	    private void showUserQuestions(VBox questionContainer, List<Question> questions, Map<Integer, List<Answer>> answersByQuestion) {
 	        questionContainer.getChildren().clear();
-	        List<Question> questions = databaseHelper.getQuestionsByUser(user.getId());
 
 	        for (Question q : questions) {
 	            VBox questionBox = new VBox(5);
@@ -337,7 +409,7 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	                try {
 	                    String updatedContent = editField.getText().trim();
 	                    if (!updatedContent.isEmpty()) {
-	                        databaseHelper.updateQuestion(q.getId(), updatedContent);
+	                        DiscussionService.of(databaseHelper).updateQuestion(user, q.getId(), updatedContent);
 	                        questionLabel.setText(updatedContent);
 	                        editField.setVisible(false);
 	                        saveButton.setVisible(false);
@@ -351,7 +423,7 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	            Button resolveButton = new Button(q.isResolved() ? "Resolved ✅" : "Mark as Resolved");
 	            resolveButton.setOnAction(event -> {
 	                try {
-	                    databaseHelper.markQuestionResolved(q.getId());
+	                    DiscussionService.of(databaseHelper).markQuestionResolved(user, q.getId());
 	                    q.setResolved(true);
 	                    questionLabel.setText(q.toString());
 	                    resolveButton.setText("Resolved ✅");
@@ -366,7 +438,7 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	            deleteButton.setStyle("-fx-background-color: red; -fx-text-fill: white;");
 	            deleteButton.setOnAction(event -> {
 	                try {
-	                    databaseHelper.deleteQuestion(q.getId()); // Ensure only the question owner can delete
+	                    DiscussionService.of(databaseHelper).deleteQuestion(user, q.getId()); // Only the question owner can delete
 	                    questionContainer.getChildren().remove(questionBox);
 	                    System.out.println("✅ Question deleted successfully.");
 	                } catch (SQLException ex) {
@@ -376,8 +448,8 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 
 	            questionBox.getChildren().addAll(questionLabel, editButton, editField, saveButton, resolveButton, deleteButton);
 
-	            // Fetch and Display Answers
-	            List<Answer> answers = databaseHelper.getAnswersByQuestionId(q.getId());
+	            // Display Answers
+	            List<Answer> answers = answersByQuestion.get(q.getId());
 	            VBox answerContainer = new VBox(5);
 
 	            if (answers.isEmpty()) {
@@ -397,7 +469,7 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 
 	                    mainAnswerButton.setOnAction(event -> {
 	                        try {
-	                            databaseHelper.markAnswerAsSolution(ans.getId());
+	                            DiscussionService.of(databaseHelper).markAnswerAsSolution(user, ans.getId());
 	                            for (Answer otherAns : answers) {
 	                                if (otherAns.getId() != ans.getId()) {
 	                                    otherAns.setSolution(false);
@@ -418,12 +490,6 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	            questionBox.getChildren().add(answerContainer);
 	            questionContainer.getChildren().add(questionBox);
 	        }
-
-	        Button backButton = new Button("Back");
-	        backButton.setOnAction(e -> show(primaryStage, user));
-
-	        layout.getChildren().addAll(scrollPane, backButton);
-	        primaryStage.setScene(new Scene(layout, 800, 400));
 	    }
 
             /**
@@ -449,6 +515,18 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 
 	        tagButtonContainer.getChildren().addAll(assignmentsButton, examsButton, generalButton);
 
+	        // Show how many questions carry each tag; the tag itself is kept as the button's user data
+	        try {
+	            Map<String, Integer> tagCounts = sortQuestions.getTagCounts(false);
+	            for (Button tagButton : List.of(assignmentsButton, examsButton, generalButton)) {
+	                String tag = tagButton.getText();
+	                tagButton.setUserData(tag);
+	                tagButton.setText(tag + " (" + tagCounts.getOrDefault(tag, 0) + ")");
+	            }
+	        } catch (SQLException ex) {
+	            ex.printStackTrace();
+	        }
+
 	        // Question display area
 	        VBox questionContainer = new VBox(10);
 	        ScrollPane scrollPane = new ScrollPane(questionContainer);
@@ -457,11 +535,15 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	        // Function to search and display questions
 	        EventHandler<ActionEvent> searchHandler = event -> {
 	            Button clickedButton = (Button) event.getSource();
-	            String selectedTag = clickedButton.getText(); // Get tag from button text
+	            String selectedTag = clickedButton.getUserData() != null
+	                    ? (String) clickedButton.getUserData() : clickedButton.getText(); // Get tag from the button
 
 	            try {
 	                questionContainer.getChildren().clear(); // Clear previous results
-	                List<Question> questions = databaseHelper.getQuestionsByTag(selectedTag);
+	                BitSet taggedIds = TagIndex.upToDate(databaseHelper).filter(null, List.of(selectedTag), null, null);
+	                List<Question> questions = sortQuestions.getQuestionsByIds(taggedIds);
+	                Map<Integer, List<Answer>> answersByQuestion = sortAnswers.getSortedAnswersForQuestions(
+	                        questions.stream().map(Question::getId).collect(Collectors.toList()), "date", user.getId());
 
 	                for (Question q : questions) {
 	                    VBox questionBox = new VBox(5);
@@ -473,7 +555,7 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 			    //Button reviewButton = new Button("Review");
 	                
 	                    VBox answersBox = new VBox(5);
-	                    List<Answer> answers = databaseHelper.getAnswersByQuestionId(q.getId());
+	                    List<Answer> answers = answersByQuestion.get(q.getId());
 	                    for (Answer a : answers) {
 	                        String answerText = a.toString();
 	                        Label answerLabel = new Label("→ " + answerText + " (answered by " +a.getUser().getUserName()+")");
@@ -504,10 +586,34 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	        examsButton.setOnAction(searchHandler);
 	        generalButton.setOnAction(searchHandler);
 
+	        // Type-ahead for any other tag, most used tags first
+	        TextField tagSearchField = new TextField();
+	        tagSearchField.setPromptText("Type a tag...");
+	        HBox tagSuggestions = new HBox(10);
+	        tagSuggestions.setStyle("-fx-alignment: center;");
+	        Autocomplete autocomplete = Autocomplete.of(databaseHelper);
+	        tagSearchField.textProperty().addListener((obs, oldText, newText) -> {
+	            tagSuggestions.getChildren().clear();
+	            if (!autocomplete.isLoaded() || newText.trim().isEmpty()) {
+	                return;
+	            }
+	            for (String tag : autocomplete.getTags().complete(newText.trim(), 5)) {
+	                Button suggestion = new Button(tag);
+	                suggestion.setUserData(tag);
+	                suggestion.setOnAction(searchHandler);
+	                tagSuggestions.getChildren().add(suggestion);
+	            }
+	        });
+	        AsyncDatabase.of(databaseHelper).run(autocomplete::ensureLoaded)
+	                .exceptionally(error -> {
+	                    error.printStackTrace();
+	                    return null;
+	                });
+
 	        Button backButton = new Button("Back");
 	        backButton.setOnAction(e -> show(primaryStage, user));
 
-	        layout.getChildren().addAll(titleLabel, tagButtonContainer, scrollPane, backButton);
+	        layout.getChildren().addAll(titleLabel, tagButtonContainer, tagSearchField, tagSuggestions, scrollPane, backButton);
 	        primaryStage.setScene(new Scene(layout, 800, 400));
 	    }
 
@@ -538,22 +644,12 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	        scrollPane.setFitToWidth(true);
 
 	        try {
-	            List<Answer> answers = databaseHelper.getAnswersByQuestionId(question.getId());
-	            Map<User, Integer> trustedMap = databaseHelper.getTrustedReviewersForStudent(user.getId());
-	            Set<String> trustedReviewers = trustedMap.keySet().stream()
-	                                                     .map(User::getUserName)
-	                                                     .collect(Collectors.toSet());
+	            // Already sorted by the student's trusted-reviewer weights
+	            List<Answer> answers = AnswerRanking.of(databaseHelper).getRankedAnswers(user.getId(), question.getId());
 
 	            if (answers.isEmpty()) {
 	                contentContainer.getChildren().add(new Label("No answers available for this question."));
 	            } else {
-	                // Sort answers: those from trusted reviewers first
-	                answers.sort((a1, a2) -> {
-	                    boolean a1Trusted = trustedReviewers.contains(a1.getUser().getUserName());
-	                    boolean a2Trusted = trustedReviewers.contains(a2.getUser().getUserName());
-	                    return Boolean.compare(a2Trusted, a1Trusted); // Descending order (trusted first)
-	                });
-
 	                for (Answer answer : answers) {
 	                    VBox answerBox = new VBox(5);
 	                    answerBox.setStyle("-fx-padding: 10; -fx-border-color: #ccc; -fx-background-color: #f8f8f8;");
@@ -601,15 +697,33 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	    // ** Answer Question Page **
 	    // ****************************
 	  
-	    private void showUserAnswersPage(Stage primaryStage, User user) throws SQLException {
+	    private void showUserAnswersPage(Stage primaryStage, User user) {
 	        VBox layout = new VBox(15);
 	        layout.setStyle("-fx-alignment: center; -fx-padding: 20;");
 	        VBox answerContainer = new VBox(10);
 	        ScrollPane scrollPane = new ScrollPane(answerContainer);
 	        scrollPane.setFitToWidth(true);
 
+	        answerContainer.getChildren().setAll(new Label("Loading your answers..."));
+
+	        Button backButton = new Button("Back");
+	        backButton.setOnAction(e -> show(primaryStage, user));
+
+	        layout.getChildren().addAll(scrollPane, backButton);
+	        primaryStage.setScene(new Scene(layout, 800, 400));
+
+	        // Usually already prefetched when the home page was shown
+	        AsyncDatabase.of(databaseHelper).load("myAnswers:" + user.getId(), SessionSnapshot.of(databaseHelper, user).getAnswers(),
+	                answers -> showUserAnswers(answerContainer, answers, user),
+	                error -> {
+	                    error.printStackTrace();
+	                    answerContainer.getChildren().setAll(new Label("Error loading your answers."));
+	                });
+	    }
+
+	    // Fills the "My Answers" page once its data has loaded
+	    private void showUserAnswers(VBox answerContainer, List<Answer> answers, User user) {
 	        answerContainer.getChildren().clear(); // Clear previous content
-	        List<Answer> answers = databaseHelper.getAnswersByUser(user.getId());
 
 	        if (answers.isEmpty()) {
 	            answerContainer.getChildren().add(new Label("No answers found."));
@@ -637,7 +751,7 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	                try {
 	                    String updatedContent = editField.getText().trim();
 	                    if (!updatedContent.isEmpty()) {
-	                        databaseHelper.updateAnswer(a.getId(), updatedContent);
+	                        DiscussionService.of(databaseHelper).updateAnswer(user, a.getId(), updatedContent);
 	                        answerLabel.setText("A: " + updatedContent);
 	                        editField.setVisible(false);
 	                        saveButton.setVisible(false);
@@ -652,7 +766,7 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	            deleteButton.setStyle("-fx-background-color: red; -fx-text-fill: white;");
 	            deleteButton.setOnAction(event -> {
 	                try {
-	                    databaseHelper.deleteAnswer(a.getId(), user.getId()); // Ensure only the answer owner can delete
+	                    DiscussionService.of(databaseHelper).deleteAnswer(user, a.getId()); // Only the answer owner can delete
 	                    answerContainer.getChildren().remove(answerBox);
 	                    System.out.println("Answer deleted successfully.");
 	                } catch (SQLException ex) {
@@ -664,12 +778,6 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	            answerBox.setStyle("-fx-border-color: black; -fx-padding: 10; -fx-background-color: #e8e8e8;");
 	            answerContainer.getChildren().add(answerBox);
 	        }
-
-	        Button backButton = new Button("Back");
-	        backButton.setOnAction(e -> show(primaryStage, user));
-
-	        layout.getChildren().addAll(scrollPane, backButton);
-	        primaryStage.setScene(new Scene(layout, 800, 400));
 	    }
 
              /**
@@ -706,8 +814,7 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	            }
 
 	            try {
-	                Answer answer = new Answer(0, content, user, question);
-	                databaseHelper.addAnswer(answer);
+	                DiscussionService.of(databaseHelper).addAnswer(user, question.getId(), content);
 	                //showListQuestionsPage(primaryStage);
 	                Submitted.setText("Answer submitted!");
 	            } catch (SQLException ex) {
@@ -802,15 +909,22 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	           
 	            errorLabel.setText("");
 	            try {
-	                List<String> reviewers = databaseHelper.getReviewers();
+	                Autocomplete autocomplete = Autocomplete.of(databaseHelper);
+	                autocomplete.ensureLoaded();
+	                ReviewerReputation.of(databaseHelper).ensureLoaded();
+	                PrefixIndex reviewers = autocomplete.getReviewerNames();
+	                // Suggestions update as the user types; Enter does the same
 	                searchField.setOnAction(e -> {
 	                showReviewers(searchField, reviewers, resultBox, layout, errorLabel, primaryStage, user);});
+	                searchField.textProperty().addListener((obs, oldText, newText) ->
+	                        showReviewers(searchField, reviewers, resultBox, layout, errorLabel, primaryStage, user));
 	                
-	                if (reviewers.isEmpty()) {
+	                List<String> firstReviewers = reviewers.complete("", MAX_SUGGESTIONS);
+	                if (firstReviewers.isEmpty()) {
 	                    resultBox.getChildren().add(new Label("No answered questions found."));
 	                } else {
-	                    for (String s : reviewers) {
-	                    	Label label = new Label(s);
+	                    for (String s : firstReviewers) {
+	                    	Label label = new Label(reviewerWithReputation(s));
 	                    	resultBox.getChildren().add(label);
 	                    	
 	                    }
@@ -828,17 +942,17 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 		}
 
 	   /**
-	 * Filters and displays reviewers that match the entered search keyword.
+	 * Displays the reviewers whose names start with the entered search keyword.
 	 *
 	 * @param searchField   the input field for reviewer search
-	 * @param reviewers     the complete list of reviewers
+	 * @param reviewers     the prefix index of reviewer names
 	 * @param resultBox     the box where matching reviewers are displayed
 	 * @param layout        the main layout
 	 * @param errorLabel    the label to display errors
 	 * @param primaryStage  the primary stage of the application
 	 * @param user2         the logged-in user
 	 */
-		private void showReviewers(TextField searchField, List<String> reviewers, VBox resultBox, VBox layout, Label errorLabel, Stage primaryStage, User user2) {
+		private void showReviewers(TextField searchField, PrefixIndex reviewers, VBox resultBox, VBox layout, Label errorLabel, Stage primaryStage, User user2) {
 			layout.getChildren().remove(resultBox);
 			layout.getChildren().remove(errorLabel);
 			resultBox.getChildren().clear();
@@ -849,16 +963,26 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
                 errorLabel.setText("Please enter a search keyword.");
                
             }
-			for(String s : reviewers) {
-				if(s.contains(keyword)) {
-					Label sLabel = new Label(s);
-                    resultBox.getChildren().add(sLabel);
-					
-				}
+			for(String s : reviewers.complete(keyword.trim(), MAX_SUGGESTIONS)) {
+				Label sLabel = new Label(reviewerWithReputation(s));
+                resultBox.getChildren().add(sLabel);
 			}
 			layout.getChildren().addAll(resultBox, errorLabel);
 		}
 
+		// The reputation aggregates were loaded when the reviewer search opened
+		private String reviewerWithReputation(String userName) {
+			try {
+				User reviewer = UserCache.of(databaseHelper).getUserByUserName(userName);
+				return reviewer != null
+						? userName + showTrustedReviewersPage.reputationText(ReviewerReputation.of(databaseHelper), reviewer)
+						: userName;
+			} catch (SQLException e) {
+				e.printStackTrace();
+				return userName;
+			}
+		}
+
 		private void showUnansweredButton(VBox resultBox, TextField searchField, Label errorLabel, VBox layout,
 		Stage primaryStage, User user) {
 	    	
@@ -874,24 +998,16 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
                
             }
             errorLabel.setText("");
-            try {
-                List<Question> unansweredQuestions = databaseHelper.getQuestionsSortedByStatus();
-                searchField.setOnAction(e -> {
-                showUnansweredQuestions(searchField, unansweredQuestions, resultBox, layout, primaryStage, user);});
-                
-                if (unansweredQuestions.isEmpty()) {
-                    resultBox.getChildren().add(new Label("No answered questions found."));
-                } else {
-                    for (Question q : unansweredQuestions) {
-                    	if(!q.isResolved()) {
-                        Label qLabel = new Label(q.getContent() + " [" + q.getTags() + "]");
-                        resultBox.getChildren().add(qLabel);
-                    	}
-                    }
+            searchField.setOnAction(e -> {
+            showUnansweredQuestions(searchField, resultBox, layout, primaryStage, user);});
+            // Only the questions the search ranks are loaded, so there is nothing to list without a keyword
+            if (keyword.isEmpty()) {
+                resultBox.getChildren().add(new Label("Enter a keyword to search unanswered questions."));
+            } else {
+                for (Question q : searchQuestions(keyword, false)) {
+                    Label qLabel = new Label(q.getContent() + " [" + q.getTags() + "]");
+                    resultBox.getChildren().add(qLabel);
                 }
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                resultBox.getChildren().add(new Label("Error fetching answered questions."));
             }
             Button backButton = new Button("Back");
 	        
@@ -900,22 +1016,35 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
             
 		}
 
-		private void showUnansweredQuestions(TextField searchField, List<Question> unansweredQuestions,
+		private void showUnansweredQuestions(TextField searchField,
 				VBox resultBox, VBox layout, Stage primaryStage, User user2) {
 			
 			layout.getChildren().remove(resultBox);
 			resultBox.getChildren().clear();
-			List<Question> unansweredQuestion = new ArrayList<>();
-			for(Question q : unansweredQuestions) {
-				if(q.getContent().contains(searchField.getText())) {
-					Label qLabel = new Label(q.getContent() + " [" + q.getTags() + "]");
-                    resultBox.getChildren().add(qLabel);
-					
-				}
+			for(Question q : searchQuestions(searchField.getText(), false)) {
+				Label qLabel = new Label(q.getContent() + " [" + q.getTags() + "]");
+                resultBox.getChildren().add(qLabel);
 			}
 			layout.getChildren().add(resultBox);
 		}
 
+		/**
+		 * Looks up questions matching the keyword in the search index, best match first.
+		 * Only the ranked questions are loaded from the database.
+		 *
+		 * @param keyword    the words to search for; an empty keyword matches nothing
+		 * @param resolved   whether to return resolved or unresolved questions
+		 * @return the matching questions in ranked order
+		 */
+		private List<Question> searchQuestions(String keyword, boolean resolved) {
+			try {
+				return DiscussionService.of(databaseHelper).searchQuestions(keyword, SEARCH_RESULT_LIMIT, resolved);
+			} catch (SQLException ex) {
+				ex.printStackTrace();
+				return new ArrayList<>();
+			}
+		}
+
 		private void showAnsweredButton(VBox resultBox, TextField searchField, Label errorLabel, VBox layout, 
 	    		Stage primaryStage, User user) {
 	    	layout.getChildren().remove(resultBox);
@@ -933,24 +1062,16 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
                
             }
             errorLabel.setText(""); // Clear previous errors
-            try {
-                List<Question> answeredQuestions = databaseHelper.getQuestionsSortedByStatus();
-                searchField.setOnAction(e -> {
-                showAnsweredQuestions(searchField, answeredQuestions, resultBox, layout, primaryStage, user);});
-                
-                if (answeredQuestions.isEmpty()) {
-                    resultBox.getChildren().add(new Label("No answered questions found."));
-                } else {
-                    for (Question q : answeredQuestions) {
-                    	if(q.isResolved()) {
-                        Label qLabel = new Label("✅ " + q.getContent() + " [" + q.getTags() + "]");
-                        resultBox.getChildren().add(qLabel);
-                    	}
-                    }
+            searchField.setOnAction(e -> {
+            showAnsweredQuestions(searchField, resultBox, layout, primaryStage, user);});
+            // Only the questions the search ranks are loaded, so there is nothing to list without a keyword
+            if (keyword.isEmpty()) {
+                resultBox.getChildren().add(new Label("Enter a keyword to search answered questions."));
+            } else {
+                for (Question q : searchQuestions(keyword, true)) {
+                    Label qLabel = new Label("✅ " + q.getContent() + " [" + q.getTags() + "]");
+                    resultBox.getChildren().add(qLabel);
                 }
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                resultBox.getChildren().add(new Label("Error fetching answered questions."));
             }
             Button backButton = new Button("Back");
 	        
@@ -959,17 +1080,13 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 	       
             
 	    }
-		private void showAnsweredQuestions(TextField searchField, List<Question> answeredQuestions, VBox resultBox, 
+		private void showAnsweredQuestions(TextField searchField, VBox resultBox, 
 				VBox layout, Stage primaryStage, User user) {
 			layout.getChildren().remove(resultBox);
 			resultBox.getChildren().clear();
-			List<Question> answeredQuestion = new ArrayList<>();
-			for(Question q : answeredQuestions) {
-				if(q.getContent().contains(searchField.getText())) {
-					Label qLabel = new Label("✅ " + q.getContent() + " [" + q.getTags() + "]");
-                    resultBox.getChildren().add(qLabel);
-					//answeredQuestion.add(q);
-				}
+			for(Question q : searchQuestions(searchField.getText(), true)) {
+				Label qLabel = new Label("✅ " + q.getContent() + " [" + q.getTags() + "]");
+                resultBox.getChildren().add(qLabel);
 			}
 			
 			
@@ -1017,7 +1134,7 @@ public StudentHomePage(DatabaseHelper databaseHelper) {
 		        String feedbackText = feedbackArea.getText().trim();
 		        if (!feedbackText.isEmpty()) {
 		            try {
-		                databaseHelper.addFeedback(student.getId(), review.getReviewer().getId(), review.getAnswer().getId(), review.getId(), feedbackText);
+		                DiscussionService.of(databaseHelper).addFeedback(student, review.getId(), feedbackText);
 		                feedbackStage.close();
 		            } catch (SQLException ex) {
 		                ex.printStackTrace();
@@ -0,0 +1,286 @@
+package application;
+
+import databasePart1.ConnectionPool;
+import databasePart1.DatabaseHelper;
+import databasePart1.SchemaMigrator;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Normalized tags for questions, with one bitmap of question ids per tag.
+ * <p>
+ * Tags are stored in the Tags and QuestionTags tables, which SchemaMigrator creates. The
+ * free-form tags string on Questions is split into those tables by {@link #refresh()},
+ * which migrates existing rows on first use and then picks up newly asked questions.
+ * Questions can be inserted without a refresh (straight through DatabaseHelper, or by the
+ * workload generator), so readers get the index through {@link #upToDate(DatabaseHelper)},
+ * which links anything new before the tag tables or bitmaps are read. In memory each tag
+ * (and the resolved/unresolved state) is a bitmap indexed by question id, so tag filters
+ * and counts are bitmap operations rather than table scans.
+ * </p>
+ */
+public class TagIndex {
+
+    private static final Map<DatabaseHelper, TagIndex> indexes = new WeakHashMap<>();
+
+    private final DatabaseHelper databaseHelper;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, BitSet> questionsByTag = new HashMap<>();
+    private final BitSet allQuestions = new BitSet();
+    private final BitSet resolvedQuestions = new BitSet();
+    private int lastQuestionId = 0;     // highest question id already migrated and indexed
+
+    public TagIndex(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /**
+     * Returns the shared tag index for a DatabaseHelper, creating the tag tables and
+     * loading the index on first use.
+     */
+    public static TagIndex of(DatabaseHelper databaseHelper) throws SQLException {
+        TagIndex index;
+        boolean created = false;
+        synchronized (indexes) {
+            index = indexes.get(databaseHelper);
+            if (index == null) {
+                index = new TagIndex(databaseHelper);
+                indexes.put(databaseHelper, index);
+                created = true;
+            }
+        }
+        if (created) {
+            index.load();
+        }
+        return index;
+    }
+
+    /**
+     * Returns the shared tag index after linking the questions inserted since the last
+     * refresh; when there are none this is one primary-key range query.
+     */
+    public static TagIndex upToDate(DatabaseHelper databaseHelper) throws SQLException {
+        TagIndex index = of(databaseHelper);
+        index.refresh();
+        return index;
+    }
+
+    // Split a free-form tags string into tag names
+    public static Set<String> parseTags(String tags) {
+        Set<String> names = new LinkedHashSet<>();
+        if (tags == null) {
+            return names;
+        }
+        for (String part : tags.split(",")) {
+            String name = part.trim();
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private void load() throws SQLException {
+        SchemaMigrator.migrate(databaseHelper);    // creates the Tags and QuestionTags tables
+        refresh();
+    }
+
+    /**
+     * Migrates the tags of questions added since the last refresh into the tag tables
+     * and adds them to the bitmaps.
+     */
+    public synchronized void refresh() throws SQLException {
+        List<int[]> rows = new ArrayList<>();                 // {question id, resolved}
+        List<Set<String>> rowTags = new ArrayList<>();
+
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "SELECT id, tags, is_resolved FROM Questions WHERE id > ? ORDER BY id")) {
+                pstmt.setInt(1, lastQuestionId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new int[] { rs.getInt("id"), rs.getBoolean("is_resolved") ? 1 : 0 });
+                        rowTags.add(parseTags(rs.getString("tags")));
+                    }
+                }
+            }
+
+            Map<String, Integer> tagIds = new HashMap<>();
+            try (PreparedStatement addTag = connection.prepareStatement(
+                         "MERGE INTO Tags (name) KEY (name) VALUES (?)");
+                 PreparedStatement findTag = connection.prepareStatement(
+                         "SELECT id FROM Tags WHERE name = ?");
+                 PreparedStatement link = connection.prepareStatement(
+                         "MERGE INTO QuestionTags (question_id, tag_id) KEY (question_id, tag_id) VALUES (?, ?)")) {
+                for (int i = 0; i < rows.size(); i++) {
+                    for (String name : rowTags.get(i)) {
+                        Integer tagId = tagIds.get(name);
+                        if (tagId == null) {
+                            addTag.setString(1, name);
+                            addTag.executeUpdate();
+                            findTag.setString(1, name);
+                            try (ResultSet rs = findTag.executeQuery()) {
+                                rs.next();
+                                tagId = rs.getInt("id");
+                            }
+                            tagIds.put(name, tagId);
+                        }
+                        link.setInt(1, rows.get(i)[0]);
+                        link.setInt(2, tagId);
+                        link.addBatch();
+                    }
+                }
+                link.executeBatch();
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < rows.size(); i++) {
+                int questionId = rows.get(i)[0];
+                allQuestions.set(questionId);
+                resolvedQuestions.set(questionId, rows.get(i)[1] == 1);
+                for (String name : rowTags.get(i)) {
+                    questionsByTag.computeIfAbsent(name, n -> new BitSet()).set(questionId);
+                }
+                lastQuestionId = Math.max(lastQuestionId, questionId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Set<String> touched = new LinkedHashSet<>();
+        rowTags.forEach(touched::addAll);
+        updateAutocomplete(touched);
+    }
+
+    public void markResolved(int questionId) {
+        lock.writeLock().lock();
+        try {
+            resolvedQuestions.set(questionId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // QuestionTags rows go away with the question through ON DELETE CASCADE
+    public void removeQuestion(int questionId) {
+        Set<String> touched = new LinkedHashSet<>();
+        lock.writeLock().lock();
+        try {
+            allQuestions.clear(questionId);
+            resolvedQuestions.clear(questionId);
+            for (Map.Entry<String, BitSet> entry : questionsByTag.entrySet()) {
+                if (entry.getValue().get(questionId)) {
+                    entry.getValue().clear(questionId);
+                    touched.add(entry.getKey());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        updateAutocomplete(touched);
+    }
+
+    /**
+     * Finds the questions matching a tag filter.
+     *
+     * @param allOf    tags a question must all have (may be null or empty)
+     * @param anyOf    tags a question must have at least one of (may be null or empty)
+     * @param noneOf   tags a question must not have (may be null or empty)
+     * @param resolved true for resolved questions only, false for unresolved only, null for both
+     * @return a new bitmap of matching question ids
+     */
+    public BitSet filter(Collection<String> allOf, Collection<String> anyOf, Collection<String> noneOf, Boolean resolved) {
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) allQuestions.clone();
+            if (allOf != null) {
+                for (String tag : allOf) {
+                    result.and(bitmapFor(tag));
+                }
+            }
+            if (anyOf != null && !anyOf.isEmpty()) {
+                BitSet any = new BitSet();
+                for (String tag : anyOf) {
+                    any.or(bitmapFor(tag));
+                }
+                result.and(any);
+            }
+            if (noneOf != null) {
+                for (String tag : noneOf) {
+                    result.andNot(bitmapFor(tag));
+                }
+            }
+            if (resolved != null) {
+                if (resolved) {
+                    result.and(resolvedQuestions);
+                } else {
+                    result.andNot(resolvedQuestions);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts questions per tag.
+     *
+     * @param resolved true for resolved questions only, false for unresolved only, null for both
+     * @return tag name to number of questions, sorted by tag name
+     */
+    public Map<String, Integer> countByTag(Boolean resolved) {
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> counts = new TreeMap<>();
+            for (Map.Entry<String, BitSet> entry : questionsByTag.entrySet()) {
+                BitSet questions = entry.getValue();
+                if (resolved != null) {
+                    questions = (BitSet) questions.clone();
+                    if (resolved) {
+                        questions.and(resolvedQuestions);
+                    } else {
+                        questions.andNot(resolvedQuestions);
+                    }
+                }
+                counts.put(entry.getKey(), questions.cardinality());
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Passes the new question counts of changed tags on to the type-ahead index
+    private void updateAutocomplete(Set<String> tags) {
+        Autocomplete autocomplete = Autocomplete.of(databaseHelper);
+        lock.readLock().lock();
+        try {
+            for (String tag : tags) {
+                autocomplete.onTagCountChanged(tag, bitmapFor(tag).cardinality());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet bitmapFor(String tag) {
+        BitSet questions = questionsByTag.get(tag);
+        return questions != null ? questions : new BitSet();
+    }
+}
@@ -2,6 +2,7 @@ package application;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * The User class represents a user entity in the system.
@@ -63,6 +64,23 @@ public class User {
     public void addAnswer(Answer answer) {
         answers.add(answer);
     }
+
+    // Users are the same user when they have the same (unique) userName, so they can be used as map keys
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof User)) {
+            return false;
+        }
+        return Objects.equals(userName, ((User) other).userName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(userName);
+    }
     
 
 }
@@ -0,0 +1,61 @@
+package application;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.UserCache;
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UserCacheTest {
+
+    private DatabaseHelper databaseHelper;
+    private UserCache cache;
+
+    @BeforeAll
+    public void setupDatabase() throws SQLException {
+        databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+    }
+
+    @BeforeEach
+    public void newCache() {
+        cache = new UserCache(databaseHelper, 2);
+    }
+
+    @Test
+    public void testSameInstanceReturnedByIdAndUserName() throws SQLException {
+        User byName = cache.getUserByUserName("user1");
+        User byId = cache.getUserById(byName.getId());
+
+        assertSame(byName, byId);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testInvalidateReloadsUser() throws SQLException {
+        User first = cache.getUserByUserName("user1");
+        cache.invalidate("user1");
+        User second = cache.getUserByUserName("user1");
+
+        assertNotSame(first, second);
+        assertEquals(first.getId(), second.getId());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedUserIsEvicted() throws SQLException {
+        User user1 = cache.getUserByUserName("user1");
+        cache.getUserByUserName("user2");
+        cache.getUserByUserName("user1");       // user2 is now least recently used
+        cache.getUserByUserName("user3");
+
+        assertEquals(2, cache.size());
+        assertSame(user1, cache.getUserByUserName("user1"));
+        cache.getUserByUserName("user2");
+        assertEquals(4, cache.getMisses());
+    }
+}
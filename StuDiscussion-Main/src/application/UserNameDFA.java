@@ -0,0 +1,155 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+
+public final class UserNameDFA {
+	/**
+	 * <p> Title: Table-driven UserName Recognizer. </p>
+	 *
+	 * <p> Description: The same Finite State Machine as UserNameRecognizer, with the state
+	 * transitions held in a table instead of a switch. All state is local to the call, so
+	 * any number of threads may validate user names at once, and the result is a single int
+	 * packing an error code and the index of the error, so a check allocates nothing. The
+	 * error messages are the constants UserNameRecognizer returns.</p>
+	 *
+	 * <p> A result of {@link #VALID} (zero) means the user name is valid. Otherwise
+	 * {@link #errorOf(int)} and {@link #indexOf(int)} take it apart and
+	 * {@link #messageOf(int)} gives the message to show.</p>
+	 *
+	 */
+
+	/**********************************************************************************************
+	 *
+	 * Error codes, in the order of the MESSAGES table.
+	 *
+	 */
+
+	public static final int VALID = 0;
+	public static final int EMPTY = 1;					// No input at all
+	public static final int BAD_START = 2;				// The first character is not A-Z or a-z
+	public static final int TOO_SHORT = 3;				// Fewer than MIN_SIZE characters
+	public static final int TOO_LONG = 4;				// More than MAX_SIZE characters
+	public static final int BAD_CHARACTER = 5;			// A character outside A-Z, a-z, 0-9, ., -, _
+	public static final int BAD_AFTER_SPECIAL = 6;		// A special character not followed by A-Z, a-z, 0-9
+
+	public static final int MIN_SIZE = 4;
+	public static final int MAX_SIZE = 16;
+
+	private static final String[] MESSAGES = {
+		"",
+		"\n*** ERROR *** The input is empty",
+		"\n*** ERROR *** A UserName must start with A-Z or a-z.\n",
+		"\n*** ERROR *** A UserName must have at least 4 characters.\n",
+		"\n*** ERROR *** A UserName must have no more than 16 character.\n",
+		"\n*** ERROR *** A UserName character may only contain the characters A-Z, a-z, 0-9, ., -, and _\n",
+		"\n*** ERROR *** A UserName character after a special character must be A-Z, a-z, 0-9.\n"
+	};
+
+	// Character classes
+	private static final int LETTER = 0;
+	private static final int DIGIT = 1;
+	private static final int SPECIAL = 2;
+	private static final int OTHER = 3;
+
+	// The class of each ASCII character; everything else is OTHER
+	private static final byte[] CHARACTER_CLASS = new byte[128];
+
+	// NEXT_STATE[state][class] is the next state, or -1 when the FSM halts.  State 1 is the
+	// only final state; state 2 follows a special character.
+	private static final int[][] NEXT_STATE = {
+		//  LETTER  DIGIT  SPECIAL  OTHER
+		{   1,      -1,    -1,      -1 },		// State 0: the first character
+		{   1,       1,     2,      -1 },		// State 1: after a letter or digit
+		{   1,       1,    -1,      -1 }		// State 2: after a special character
+	};
+
+	static {
+		Arrays.fill(CHARACTER_CLASS, (byte) OTHER);
+		for (char c = 'A'; c <= 'Z'; c++) CHARACTER_CLASS[c] = LETTER;
+		for (char c = 'a'; c <= 'z'; c++) CHARACTER_CLASS[c] = LETTER;
+		for (char c = '0'; c <= '9'; c++) CHARACTER_CLASS[c] = DIGIT;
+		CHARACTER_CLASS['.'] = SPECIAL;
+		CHARACTER_CLASS['-'] = SPECIAL;
+		CHARACTER_CLASS['_'] = SPECIAL;
+	}
+
+	private UserNameDFA() {
+	}
+
+	/**********
+	 * Runs the FSM over a user name.
+	 *
+	 * @param input		The user name to check
+	 * @return			VALID, or an error code and the index of the error packed by result()
+	 */
+	public static int check(String input) {
+		int length = input.length();
+		if (length == 0)
+			return result(EMPTY, 0);
+
+		int state = 0;
+		int size = 0;
+		int ndx = 0;
+		while (ndx < length) {
+			char c = input.charAt(ndx);
+			int next = NEXT_STATE[state][c < 128 ? CHARACTER_CLASS[c] : OTHER];
+			if (next < 0)
+				break;								// No valid transition: halt on this character
+
+			// Like UserNameRecognizer, the character that makes the name too long is counted but
+			// not consumed, and the FSM stays in its current state
+			if (++size > MAX_SIZE)
+				break;
+			state = next;
+			ndx++;
+		}
+
+		// Decide from the state the FSM halted in, in the same order as UserNameRecognizer
+		switch (state) {
+		case 0:
+			return result(BAD_START, ndx);
+		case 1:
+			if (size < MIN_SIZE) return result(TOO_SHORT, ndx);
+			if (size > MAX_SIZE) return result(TOO_LONG, ndx);
+			if (ndx < length) return result(BAD_CHARACTER, ndx);
+			return VALID;
+		default:
+			return result(BAD_AFTER_SPECIAL, ndx);
+		}
+	}
+
+	/**********
+	 * Checks many user names in parallel.
+	 *
+	 * @param inputs	The user names to check
+	 * @return			The result of check() for each user name, in the same order
+	 */
+	public static int[] checkAll(List<String> inputs) {
+		int[] results = new int[inputs.size()];
+		IntStream.range(0, results.length).parallel().forEach(i -> results[i] = check(inputs.get(i)));
+		return results;
+	}
+
+	/** @return the error code of a result, VALID if there is none */
+	public static int errorOf(int result) {
+		return result & 0xFF;
+	}
+
+	/** @return the index of the character in error, -1 for a valid user name */
+	public static int indexOf(int result) {
+		return (result >>> 8) - 1;
+	}
+
+	/** @return the message UserNameRecognizer.checkForValidUserName returns for the same input */
+	public static String messageOf(int result) {
+		return MESSAGES[errorOf(result)];
+	}
+
+	// The index is stored plus one so that a valid result is exactly zero
+	private static int result(int error, int index) {
+		return ((index + 1) << 8) | error;
+	}
+}
@@ -0,0 +1,117 @@
+package application;
+
+import org.junit.jupiter.api.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UserNameDFATest {
+
+    // Letters, a digit, each special character and one invalid character
+    private static final String ALPHABET = "aZ0._-$";
+
+    private PrintStream console;
+
+    // UserNameRecognizer traces every step to the console
+    @BeforeAll
+    public void silenceTrace() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @AfterAll
+    public void restoreConsole() {
+        System.setOut(console);
+    }
+
+    @Test
+    public void testMatchesRecognizerOnAllShortInputs() {
+        List<String> inputs = new ArrayList<>();
+        inputs.add("");
+        for (int length = 1; length <= 5; length++) {
+            addAll(inputs, new StringBuilder(), length);
+        }
+        for (String input : inputs) {
+            assertSameAsRecognizer(input);
+        }
+    }
+
+    @Test
+    public void testMatchesRecognizerAroundLengthLimit() {
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder input = new StringBuilder();
+            int length = 12 + random.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                // Mostly valid characters, so many inputs reach the length limit
+                input.append(random.nextInt(10) < 8 ? "abcXYZ019".charAt(random.nextInt(9))
+                        : ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            assertSameAsRecognizer(input.toString());
+        }
+    }
+
+    @Test
+    public void testResultEncoding() {
+        int valid = UserNameDFA.check("user_name.1");
+        assertEquals(UserNameDFA.VALID, valid);
+        assertEquals(-1, UserNameDFA.indexOf(valid));
+
+        int badCharacter = UserNameDFA.check("user$name");
+        assertEquals(UserNameDFA.BAD_CHARACTER, UserNameDFA.errorOf(badCharacter));
+        assertEquals(4, UserNameDFA.indexOf(badCharacter));
+
+        assertEquals(UserNameDFA.TOO_LONG, UserNameDFA.errorOf(UserNameDFA.check("abcdefghijklmnopq")));
+        assertEquals(UserNameDFA.BAD_START, UserNameDFA.errorOf(UserNameDFA.check("9lives")));
+    }
+
+    @Test
+    public void testBatchMatchesSingleChecks() {
+        List<String> inputs = new ArrayList<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 10_000; i++) {
+            StringBuilder input = new StringBuilder();
+            int length = random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            inputs.add(input.toString());
+        }
+
+        int[] results = UserNameDFA.checkAll(inputs);
+        for (int i = 0; i < inputs.size(); i++) {
+            assertEquals(UserNameDFA.check(inputs.get(i)), results[i]);
+        }
+    }
+
+    private static void assertSameAsRecognizer(String input) {
+        String expected = UserNameRecognizer.checkForValidUserName(input);
+        int expectedIndex = UserNameRecognizer.userNameRecognizerIndexofError;
+        int result = UserNameDFA.check(input);
+
+        assertEquals(expected, UserNameDFA.messageOf(result), "message for '" + input + "'");
+        if (!expected.isEmpty()) {
+            assertEquals(expectedIndex, UserNameDFA.indexOf(result), "index for '" + input + "'");
+        } else {
+            assertEquals(-1, UserNameDFA.indexOf(result));
+        }
+    }
+
+    private static void addAll(List<String> inputs, StringBuilder prefix, int length) {
+        if (prefix.length() == length) {
+            inputs.add(prefix.toString());
+            return;
+        }
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            prefix.append(ALPHABET.charAt(i));
+            addAll(inputs, prefix, length);
+            prefix.setLength(prefix.length() - 1);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package application;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*******
+ * <p> Title: UserNameRecognizerBenchmark Class. </p>
+ *
+ * <p> Description: Compares the switch-based UserNameRecognizer with the table-driven
+ * UserNameDFA on the same mix of valid and invalid user names, one name at a time and as a
+ * parallel batch. The recognizer's trace output is discarded while it is timed, so the
+ * numbers show the FSM and not the console. </p>
+ *
+ * Usage: UserNameRecognizerBenchmark [names] [rounds]
+ */
+public class UserNameRecognizerBenchmark {
+    private static final String CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789._-$ ";
+
+    private static volatile int sink;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        List<String> names = generateNames(count, new Random(18));
+
+        PrintStream console = System.out;
+        for (int round = 1; round <= rounds; round++) {
+            // The first rounds double as warm-up; compare the later ones
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            long start = System.nanoTime();
+            int invalid = 0;
+            for (String name : names) {
+                if (!UserNameRecognizer.checkForValidUserName(name).isEmpty()) invalid++;
+            }
+            double recognizerNanos = (double) (System.nanoTime() - start) / count;
+            System.setOut(console);
+
+            start = System.nanoTime();
+            int dfaInvalid = 0;
+            for (String name : names) {
+                if (UserNameDFA.check(name) != UserNameDFA.VALID) dfaInvalid++;
+            }
+            double dfaNanos = (double) (System.nanoTime() - start) / count;
+
+            start = System.nanoTime();
+            int[] results = UserNameDFA.checkAll(names);
+            double batchNanos = (double) (System.nanoTime() - start) / count;
+            sink = results[0];
+
+            System.out.printf("Round %d: recognizer %.1f ns/name (%d invalid); DFA %.1f ns/name (%d invalid); "
+                    + "parallel batch %.1f ns/name%n",
+                    round, recognizerNanos, invalid, dfaNanos, dfaInvalid, batchNanos);
+        }
+    }
+
+    // Names that start with a letter; about a third have a bad character or a bad length
+    private static List<String> generateNames(int count, Random random) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder name = new StringBuilder();
+            name.append((char) ('a' + random.nextInt(26)));
+            int length = 2 + random.nextInt(18);
+            for (int j = 1; j < length; j++) {
+                name.append(random.nextInt(4) == 0
+                        ? CHARACTERS.charAt(random.nextInt(CHARACTERS.length()))
+                        : (char) ('a' + random.nextInt(26)));
+            }
+            names.add(name.toString());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,100 @@
+package application;
+
+import databasePart1.DatabaseHelper;
+import databasePart1.SchemaMigrator;
+import databasePart1.UserRoleIndex;
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UserRoleIndexTest {
+
+    private static final int STUDENT_ID = 1;
+
+    private Connection connection;
+
+    @BeforeAll
+    public void setupDatabase() throws SQLException {
+        connection = ScratchDatabase.open("userRoleIndexTest");
+
+        // Student 1 is also a reviewer; users 2..11 are reviewers, 12..14 students only
+        List<User> users = new ArrayList<>();
+        users.add(new User(STUDENT_ID, "alice", "Password!123", "alice@example.com", Arrays.asList("Student", "reviewer")));
+        for (int id = 2; id <= 11; id++) {
+            users.add(new User(id, "reviewer" + id, "Password!123", "r" + id + "@example.com", Arrays.asList("Reviewer")));
+        }
+        for (int id = 12; id <= 14; id++) {
+            users.add(new User(id, "student_" + id, "Password!123", "s" + id + "@example.com", Arrays.asList("Student")));
+        }
+        UserRoleIndex.index(connection, users);
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO trustedreviewers (student_id, reviewer_id, weight) VALUES (1, 3, 1), (1, 4, 2)");
+        }
+    }
+
+    @AfterAll
+    public void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void testPagesFollowTheCursor() throws SQLException {
+        List<Integer> first = UserRoleIndex.getUserIdsByRole(connection, "Reviewer", null, 0, 4);
+        List<Integer> second = UserRoleIndex.getUserIdsByRole(connection, "Reviewer", null, first.get(3), 4);
+
+        assertEquals(Arrays.asList(1, 2, 3, 4), first, "Role names are matched case-insensitively");
+        assertEquals(Arrays.asList(5, 6, 7, 8), second);
+    }
+
+    @Test
+    public void testExcludesTrustedReviewersAndTheStudent() throws SQLException {
+        List<Integer> candidates = UserRoleIndex.getUserIdsByRole(connection, "REVIEWER", STUDENT_ID, 0, 100);
+
+        assertEquals(Arrays.asList(2, 5, 6, 7, 8, 9, 10, 11), candidates);
+    }
+
+    @Test
+    public void testUserNamesByPrefix() throws SQLException {
+        assertEquals(Arrays.asList("reviewer10", "reviewer11"),
+                UserRoleIndex.getUserNames(connection, "reviewer1", null, 10));
+        assertEquals(Arrays.asList("student_13", "student_14"),
+                UserRoleIndex.getUserNames(connection, "student_", "student_12", 10));
+        assertTrue(UserRoleIndex.getUserNames(connection, "student%", null, 10).isEmpty(),
+                "Wildcards in the prefix are matched literally");
+    }
+
+    @Test
+    public void testAccountsRegisteredWithoutTheHookAreFound() throws SQLException {
+        DatabaseHelper databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+        SchemaMigrator.migrate(databaseHelper);
+        UserRoleIndex index = UserRoleIndex.of(databaseHelper);
+        index.getUserNames(null, null, 1);     // make sure the first backfill has run
+
+        // Registered straight through DatabaseHelper, as the signup page does
+        databaseHelper.increment_num_users();
+        int id = databaseHelper.get_num_users();
+        User user = new User(id, "lateSignup" + id, "Password!123", "late" + id + "@example.com", Arrays.asList("Reviewer"));
+        databaseHelper.register(user, user.getRoles());
+
+        assertEquals(Arrays.asList(user.getUserName()), index.getUserNames(user.getUserName(), null, 10));
+        assertEquals(id, index.getUsersByRole("Reviewer", null, id - 1, 10).get(0).getId());
+    }
+
+    @Test
+    public void testRoleLookupUsesIndex() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "EXPLAIN SELECT user_id FROM UserRoles WHERE role = 'Reviewer' AND user_id > 0 ORDER BY user_id")) {
+            rs.next();
+            assertTrue(rs.getString(1).toUpperCase().contains("PRIMARY_KEY"));
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package application;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import javafx.scene.Scene;
@@ -7,7 +10,9 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
+import databasePart1.ConnectionPool;
 import databasePart1.DatabaseHelper;
+import databasePart1.UserCache;
 
 public class ViewReviewUpdatesPage {
     private DatabaseHelper databaseHelper;
@@ -19,46 +24,95 @@ public class ViewReviewUpdatesPage {
     public void show(Stage primaryStage, User user) {
         VBox layout = new VBox(15);
         layout.setStyle("-fx-alignment: center; -fx-padding: 20;");
-        
+
         Label titleLabel = new Label("New Review Updates");
         titleLabel.setStyle("-fx-font-size: 20; -fx-font-weight: bold;");
 
         VBox updatesContainer = new VBox(10);
+        updatesContainer.getChildren().add(new Label("Loading updates..."));
 
-        try {
-            List<ReviewUpdate> updates = databaseHelper.getUnviewedReviewUpdates(user.getId());
+        ReviewUpdateBus bus = ReviewUpdateBus.of(databaseHelper);
+        String subscriptionKey = "reviewUpdatesPage:" + user.getId();
 
-            if (updates.isEmpty()) {
-                updatesContainer.getChildren().add(new Label("No new updates."));
-            } else {
-                for (ReviewUpdate update : updates) {
-                    HBox updateBox = new HBox(10);
-                    
-                    Label updateLabel = new Label(update.getReviewerName() + " updated a review: " + update.getReviewText());
-                    Button markViewedButton = new Button("Mark Viewed");
-
-                    markViewedButton.setOnAction(e -> {
-                        try {
-                            databaseHelper.markReviewUpdateAsViewed(update.getId());
-                            new ViewReviewUpdatesPage(databaseHelper).show(primaryStage, user);
-                        } catch (SQLException ex) {
-                            ex.printStackTrace();
-                        }
-                    });
-
-                    updateBox.getChildren().addAll(updateLabel, markViewedButton);
-                    updatesContainer.getChildren().add(updateBox);
-                }
+        Button backButton = new Button("Back");
+        backButton.setOnAction(e -> {
+            bus.unsubscribe(subscriptionKey);
+            AsyncDatabase.of(databaseHelper).cancel("reviewUpdates:" + user.getId());
+            new showTrustedReviewersPage(databaseHelper).show(primaryStage, user);
+        });
+
+        layout.getChildren().addAll(titleLabel, updatesContainer, backButton);
+        primaryStage.setScene(new Scene(layout, 800, 400));
+
+        // Usually already prefetched when the home page was shown
+        AsyncDatabase.of(databaseHelper).load("reviewUpdates:" + user.getId(), SessionSnapshot.of(databaseHelper, user).getReviewUpdates(),
+                updates -> {
+                    showUpdates(updatesContainer, updates, user);
+                    // New updates are pushed by the bus instead of re-querying
+                    bus.subscribe(subscriptionKey, user.getId(), event ->
+                            AsyncDatabase.onFxThread(AsyncDatabase.of(databaseHelper).submit(() -> loadUpdate(event)),
+                                    update -> {
+                                        if (update != null) {
+                                            addUpdate(updatesContainer, update, user);
+                                        }
+                                    },
+                                    Throwable::printStackTrace));
+                },
+                error -> {
+                    error.printStackTrace();
+                    updatesContainer.getChildren().setAll(new Label("Error loading updates."));
+                });
+    }
+
+    private void showUpdates(VBox updatesContainer, List<ReviewUpdate> updates, User user) {
+        ReviewUpdateBus bus = ReviewUpdateBus.of(databaseHelper);
+        updatesContainer.getChildren().clear();
+
+        for (ReviewUpdate update : updates) {
+            if (!bus.isMarkedViewed(user.getId(), update.getId())) {
+                addUpdate(updatesContainer, update, user);
             }
+        }
+        if (updatesContainer.getChildren().isEmpty()) {
+            updatesContainer.getChildren().add(new Label("No new updates."));
+        }
+    }
+
+    private void addUpdate(VBox updatesContainer, ReviewUpdate update, User user) {
+        if (updatesContainer.getChildren().size() == 1 && !(updatesContainer.getChildren().get(0) instanceof HBox)) {
+            updatesContainer.getChildren().clear();     // drop the "No new updates." label
+        }
+        HBox updateBox = new HBox(10);
 
-            Button backButton = new Button("Back");
-            backButton.setOnAction(e -> new showTrustedReviewersPage(databaseHelper).show(primaryStage, user));
+        Label updateLabel = new Label(update.getReviewerName() + " updated a review: " + update.getReviewText());
+        Button markViewedButton = new Button("Mark Viewed");
 
-            layout.getChildren().addAll(titleLabel, updatesContainer, backButton);
-            primaryStage.setScene(new Scene(layout, 800, 400));
+        markViewedButton.setOnAction(e -> {
+            // The write is batched by the bus; the row goes away right away
+            ReviewUpdateBus.of(databaseHelper).markViewed(user.getId(), update.getId());
+            updatesContainer.getChildren().remove(updateBox);
+            if (updatesContainer.getChildren().isEmpty()) {
+                updatesContainer.getChildren().add(new Label("No new updates."));
+            }
+        });
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+        updateBox.getChildren().addAll(updateLabel, markViewedButton);
+        updatesContainer.getChildren().add(updateBox);
+    }
+
+    // Builds the row for a pushed update from its review
+    private ReviewUpdate loadUpdate(ReviewUpdateBus.Event event) throws SQLException {
+        User reviewer = UserCache.of(databaseHelper).getUserById(event.getReviewerId());
+        try (Connection connection = ConnectionPool.borrow(databaseHelper);
+             PreparedStatement pstmt = connection.prepareStatement("SELECT content FROM Reviews WHERE id = ?")) {
+            pstmt.setInt(1, event.getReviewId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new ReviewUpdate(event.getId(), rs.getString("content"),
+                        reviewer != null ? reviewer.getUserName() : "A reviewer", event.getReviewId());
+            }
         }
     }
 }
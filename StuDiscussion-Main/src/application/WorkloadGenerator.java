@@ -0,0 +1,589 @@
+package application;
+
+import databasePart1.ConnectionPool;
+import databasePart1.DatabaseHelper;
+import databasePart1.ReviewFanout;
+import databasePart1.SchemaMigrator;
+import databasePart1.UserRoleIndex;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Seeded synthetic data at peak-week scale, for load tests and benchmarks.
+ * <p>
+ * Generates users with roles, Questions, Answers, Reviews, ReviewUpdates, ReviewFeedback
+ * and trust edges. Everything is drawn from one {@link Random} with a fixed seed, so the
+ * same seed and {@link Scale} produce the same rows, in the same order, on an empty
+ * database. The data is skewed the way course forums are:
+ * </p>
+ * <ul>
+ *   <li>question and answer authors, the questions that get answered and the reviewers who
+ *       review and are trusted all follow Zipf distributions, so a few students ask most
+ *       questions and a few reviewers have most of the followers;</li>
+ *   <li>{@link #PEAK_SHARE} of the activity falls in the last week of the term;</li>
+ *   <li>words follow a Zipf distribution too, so search sees common and rare terms.</li>
+ * </ul>
+ * <p>
+ * Review edits are delivered the way {@link ReviewFanout} would deliver them: one
+ * ReviewUpdates row per follower, or one ReviewerUpdateLog row for reviewers with more
+ * than {@link ReviewFanout#DEFAULT_READ_THRESHOLD} followers. Rows are appended after
+ * the existing ones in JDBC batches, and the identity columns are moved past them, so
+ * the application can keep inserting afterwards.
+ * </p>
+ */
+public class WorkloadGenerator {
+
+    /** The password of every generated account. */
+    public static final String PASSWORD = "Password!123";
+    public static final String[] TAGS = { "Assignments", "Exams", "General" };
+    public static final double PEAK_SHARE = 0.35;
+
+    private static final double[] TAG_WEIGHTS = { 0.5, 0.3, 0.2 };
+    private static final double RESOLVED_SHARE = 0.4;
+    private static final double VIEWED_SHARE = 0.6;
+    private static final double AUTHOR_SKEW = 1.1;
+    private static final double QUESTION_SKEW = 0.9;
+    private static final double REVIEWER_SKEW = 1.2;
+    private static final double WORD_SKEW = 1.0;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int COMMIT_SIZE = 20_000;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    // Course vocabulary, roughly most common first
+    static final String[] WORDS = {
+        "loop", "array", "null", "pointer", "exception", "test", "database", "query", "index", "join",
+        "class", "interface", "method", "constructor", "inheritance", "recursion", "stack", "queue", "tree", "graph",
+        "hash", "map", "list", "string", "parse", "compile", "error", "deadline", "grade", "rubric",
+        "submission", "partner", "lecture", "slide", "midterm", "final", "quiz", "homework", "lab", "project",
+        "javafx", "scene", "button", "label", "layout", "event", "thread", "lock", "race", "deadlock",
+        "sql", "table", "schema", "migration", "transaction", "commit", "rollback", "trigger", "batch", "cursor",
+        "sort", "search", "binary", "merge", "quick", "complexity", "memory", "cache", "latency", "throughput",
+        "git", "branch", "conflict", "review", "refactor", "junit", "assert", "mock", "coverage", "debug"
+    };
+    private static final String[] QUESTION_OPENERS = {
+        "How do I fix", "Why does my", "Can someone explain", "What is the difference between", "Is it allowed to use"
+    };
+    private static final String[] ANSWER_OPENERS = {
+        "Try checking", "You need to", "The problem is", "Look at the slides on", "I had the same issue with"
+    };
+
+    /** How much data to generate, with per-student ratios for everything else. */
+    public static class Scale {
+        private final int students;
+        private final int reviewers;
+        private final double questionsPerStudent;
+        private final double answersPerQuestion;
+        private final double reviewsPerAnswer;
+        private final double trustedPerStudent;
+        private final double editedReviewShare;
+        private final double feedbackShare;
+        private final int termDays;
+
+        public Scale(int students, int reviewers, double questionsPerStudent, double answersPerQuestion,
+                     double reviewsPerAnswer, double trustedPerStudent, double editedReviewShare,
+                     double feedbackShare, int termDays) {
+            if (students < 1 || reviewers < 1 || termDays < 7) {
+                throw new IllegalArgumentException("Invalid scale: " + students + " students, "
+                        + reviewers + " reviewers, " + termDays + " days");
+            }
+            this.students = students;
+            this.reviewers = reviewers;
+            this.questionsPerStudent = questionsPerStudent;
+            this.answersPerQuestion = answersPerQuestion;
+            this.reviewsPerAnswer = reviewsPerAnswer;
+            this.trustedPerStudent = trustedPerStudent;
+            this.editedReviewShare = editedReviewShare;
+            this.feedbackShare = feedbackShare;
+            this.termDays = termDays;
+        }
+
+        /** A term with one reviewer per 20 students and typical per-student activity. */
+        public static Scale forStudents(int students) {
+            return new Scale(students, Math.max(1, students / 20), 2.0, 3.0, 1.0, 3.0, 0.2, 0.15, 112);
+        }
+
+        public int getStudents() { return students; }
+        public int getReviewers() { return reviewers; }
+        public int getQuestions() { return (int) Math.round(students * questionsPerStudent); }
+        public int getAnswers() { return (int) Math.round(getQuestions() * answersPerQuestion); }
+        public int getReviews() { return (int) Math.round(getAnswers() * reviewsPerAnswer); }
+        public double getTrustedPerStudent() { return trustedPerStudent; }
+        public double getEditedReviewShare() { return editedReviewShare; }
+        public double getFeedbackShare() { return feedbackShare; }
+        public int getTermDays() { return termDays; }
+    }
+
+    /** What was generated. Questions, answers and reviews each have contiguous ids. */
+    public static class Dataset {
+        private final List<User> students;
+        private final List<User> reviewers;
+        private final int firstQuestionId;
+        private final int questionCount;
+        private final int firstAnswerId;
+        private final int answerCount;
+        private final int firstReviewId;
+        private final int reviewCount;
+        private final long trustEdges;
+        private final long reviewUpdates;
+        private final long feedback;
+
+        Dataset(List<User> students, List<User> reviewers, int firstQuestionId, int questionCount,
+                int firstAnswerId, int answerCount, int firstReviewId, int reviewCount,
+                long trustEdges, long reviewUpdates, long feedback) {
+            this.students = Collections.unmodifiableList(students);
+            this.reviewers = Collections.unmodifiableList(reviewers);
+            this.firstQuestionId = firstQuestionId;
+            this.questionCount = questionCount;
+            this.firstAnswerId = firstAnswerId;
+            this.answerCount = answerCount;
+            this.firstReviewId = firstReviewId;
+            this.reviewCount = reviewCount;
+            this.trustEdges = trustEdges;
+            this.reviewUpdates = reviewUpdates;
+            this.feedback = feedback;
+        }
+
+        /** @return the students, reviewers excluded */
+        public List<User> getStudents() { return students; }
+        /** @return the reviewers; they hold the Student role too */
+        public List<User> getReviewers() { return reviewers; }
+        public int getFirstQuestionId() { return firstQuestionId; }
+        public int getQuestionCount() { return questionCount; }
+        public int getFirstAnswerId() { return firstAnswerId; }
+        public int getAnswerCount() { return answerCount; }
+        public int getFirstReviewId() { return firstReviewId; }
+        public int getReviewCount() { return reviewCount; }
+        public long getTrustEdges() { return trustEdges; }
+        /** @return ReviewUpdates rows plus ReviewerUpdateLog rows */
+        public long getReviewUpdates() { return reviewUpdates; }
+        public long getFeedback() { return feedback; }
+
+        @Override
+        public String toString() {
+            return String.format("%d students, %d reviewers, %d questions, %d answers, %d reviews, "
+                            + "%d trust edges, %d review updates, %d feedback",
+                    students.size(), reviewers.size(), questionCount, answerCount, reviewCount,
+                    trustEdges, reviewUpdates, feedback);
+        }
+    }
+
+    /** Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^skew. */
+    static final class Zipf {
+        private final double[] cdf;
+
+        Zipf(int n, double skew) {
+            cdf = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1.0 / Math.pow(i + 1, skew);
+                cdf[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cdf[i] /= sum;
+            }
+        }
+
+        int sample(Random random) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+        }
+    }
+
+    private final long seed;
+    private final Scale scale;
+    private final long endMillis;
+
+    /**
+     * @param seed      the seed of every random choice
+     * @param scale     how much to generate
+     * @param endMillis the end of the generated term; pass a fixed value for identical timestamps
+     */
+    public WorkloadGenerator(long seed, Scale scale, long endMillis) {
+        this.seed = seed;
+        this.scale = scale;
+        this.endMillis = endMillis;
+    }
+
+    /**
+     * Registers the accounts through the DatabaseHelper, so they can log in with
+     * {@link #PASSWORD}, then generates their activity. The password is stored the way the
+     * pages store it, raw, since the login page compares it directly.
+     */
+    public Dataset generate(DatabaseHelper databaseHelper) throws SQLException {
+        List<User> users = new ArrayList<>();
+        for (User planned : planUsers(databaseHelper.get_num_users())) {
+            databaseHelper.increment_num_users();
+            User user = new User(databaseHelper.get_num_users(), planned.getUserName(), PASSWORD,
+                    planned.getEmail(), planned.getRoles());
+            databaseHelper.register(user, user.getRoles());
+            users.add(user);
+        }
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            SchemaMigrator.migrate(connection);
+            return generate(connection, users);
+        }
+    }
+
+    /**
+     * Generates into the discussion tables only. The users are recorded in the role index
+     * (UserDirectory and UserRoles) with ids after the highest one there, but no accounts
+     * are created.
+     */
+    public Dataset generate(Connection connection) throws SQLException {
+        SchemaMigrator.migrate(connection);
+        return generate(connection, planUsers(maxId(connection, "UserDirectory", "user_id")));
+    }
+
+    // Students first, then reviewers, each named after its id so seeding a database again
+    // does not repeat a user name
+    private List<User> planUsers(int lastId) {
+        List<User> users = new ArrayList<>(scale.getStudents() + scale.getReviewers());
+        for (int i = 1; i <= scale.getStudents(); i++) {
+            int id = lastId + i;
+            String name = String.format("student%07d", id);
+            users.add(new User(id, name, null, name + "@example.edu", List.of(Role.STUDENT.getDisplayName())));
+        }
+        for (int i = 1; i <= scale.getReviewers(); i++) {
+            int id = lastId + scale.getStudents() + i;
+            String name = String.format("reviewer%07d", id);
+            users.add(new User(id, name, null, name + "@example.edu",
+                    List.of(Role.STUDENT.getDisplayName(), Role.REVIEWER.getDisplayName())));
+        }
+        return users;
+    }
+
+    private Dataset generate(Connection connection, List<User> users) throws SQLException {
+        Random random = new Random(seed);
+        List<User> students = users.subList(0, scale.getStudents());
+        List<User> reviewers = users.subList(scale.getStudents(), users.size());
+        Zipf authorRank = new Zipf(users.size(), AUTHOR_SKEW);
+        Zipf reviewerRank = new Zipf(reviewers.size(), REVIEWER_SKEW);
+        Zipf wordRank = new Zipf(WORDS.length, WORD_SKEW);
+        // Popularity ranks are shuffled so the busiest users are not simply the first ids
+        int[] authorOrder = permutation(users.size(), random);
+        int[] reviewerOrder = permutation(reviewers.size(), random);
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            UserRoleIndex.index(connection, users);
+            connection.commit();
+
+            // Plan questions and answers first: a question is resolved if one of its answers is the solution
+            int questionCount = scale.getQuestions();
+            int[] questionAuthor = new int[questionCount];
+            long[] questionCreated = new long[questionCount];
+            for (int q = 0; q < questionCount; q++) {
+                questionAuthor[q] = users.get(authorOrder[authorRank.sample(random)]).getId();
+                questionCreated[q] = timestamp(random);
+            }
+            int answerCount = questionCount == 0 ? 0 : scale.getAnswers();
+            Zipf questionRank = new Zipf(Math.max(1, questionCount), QUESTION_SKEW);
+            int[] questionOrder = permutation(questionCount, random);
+            int[] answerQuestion = new int[answerCount];
+            int[] answerAuthor = new int[answerCount];
+            long[] answerCreated = new long[answerCount];
+            int[] solutionOf = new int[questionCount];
+            Arrays.fill(solutionOf, -1);
+            for (int a = 0; a < answerCount; a++) {
+                int q = questionOrder[questionRank.sample(random)];
+                answerQuestion[a] = q;
+                answerAuthor[a] = users.get(authorOrder[authorRank.sample(random)]).getId();
+                // Most answers come within hours of the question
+                long delay = (long) (-Math.log(1 - random.nextDouble()) * 6 * 60 * 60 * 1000);
+                answerCreated[a] = Math.min(endMillis, questionCreated[q] + delay);
+                if (solutionOf[q] == -1) {
+                    solutionOf[q] = random.nextDouble() < RESOLVED_SHARE ? a : -2;
+                }
+            }
+
+            int firstQuestionId = maxId(connection, "Questions", "id") + 1;
+            writeQuestions(connection, random, wordRank, firstQuestionId, questionAuthor, questionCreated, solutionOf);
+            int firstAnswerId = maxId(connection, "Answers", "id") + 1;
+            writeAnswers(connection, random, wordRank, firstQuestionId, firstAnswerId,
+                    answerQuestion, answerAuthor, answerCreated, solutionOf);
+
+            // Trust edges, kept per reviewer so review edits can be fanned out to the followers
+            List<List<Integer>> followers = new ArrayList<>();
+            for (int r = 0; r < reviewers.size(); r++) {
+                followers.add(new ArrayList<>());
+            }
+            long trustEdges = writeTrustEdges(connection, random, students, reviewers, reviewerRank, reviewerOrder, followers);
+
+            int reviewCount = answerCount == 0 ? 0 : scale.getReviews();
+            int firstReviewId = maxId(connection, "Reviews", "id") + 1;
+            long[] counts = writeReviews(connection, random, wordRank, reviewers, reviewerRank, reviewerOrder,
+                    followers, firstReviewId, reviewCount, firstAnswerId, answerQuestion, answerCreated, questionAuthor);
+
+            connection.commit();
+            for (String table : new String[] { "Questions", "Answers", "Reviews", "ReviewUpdates",
+                    "ReviewFeedback", "ReviewerUpdateLog" }) {
+                restartIdentity(connection, table);
+            }
+            connection.commit();
+            return new Dataset(new ArrayList<>(students), new ArrayList<>(reviewers), firstQuestionId, questionCount,
+                    firstAnswerId, answerCount, firstReviewId, reviewCount, trustEdges, counts[0], counts[1]);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void writeQuestions(Connection connection, Random random, Zipf wordRank, int firstId,
+                                int[] author, long[] created, int[] solutionOf) throws SQLException {
+        int[] tagIds = new int[TAGS.length];
+        try (PreparedStatement addTag = connection.prepareStatement("MERGE INTO Tags (name) KEY (name) VALUES (?)");
+             PreparedStatement findTag = connection.prepareStatement("SELECT id FROM Tags WHERE name = ?")) {
+            for (int t = 0; t < TAGS.length; t++) {
+                addTag.setString(1, TAGS[t]);
+                addTag.executeUpdate();
+                findTag.setString(1, TAGS[t]);
+                try (ResultSet rs = findTag.executeQuery()) {
+                    rs.next();
+                    tagIds[t] = rs.getInt(1);
+                }
+            }
+        }
+        try (PreparedStatement questions = connection.prepareStatement(
+                     "INSERT INTO Questions (id, content, user_id, tags, is_resolved, date_created) VALUES (?, ?, ?, ?, ?, ?)");
+             PreparedStatement questionTags = connection.prepareStatement(
+                     "INSERT INTO QuestionTags (question_id, tag_id) VALUES (?, ?)")) {
+            for (int q = 0; q < author.length; q++) {
+                int tag = pickTag(random);
+                questions.setInt(1, firstId + q);
+                questions.setString(2, sentence(random, wordRank, QUESTION_OPENERS) + "?");
+                questions.setInt(3, author[q]);
+                questions.setString(4, TAGS[tag]);
+                questions.setBoolean(5, solutionOf[q] >= 0);
+                questions.setTimestamp(6, new Timestamp(created[q]));
+                questions.addBatch();
+                questionTags.setInt(1, firstId + q);
+                questionTags.setInt(2, tagIds[tag]);
+                questionTags.addBatch();
+                if ((q + 1) % BATCH_SIZE == 0) {
+                    questions.executeBatch();
+                    questionTags.executeBatch();
+                }
+                commitEvery(connection, q);
+            }
+            questions.executeBatch();
+            questionTags.executeBatch();
+        }
+    }
+
+    private void writeAnswers(Connection connection, Random random, Zipf wordRank, int firstQuestionId, int firstId,
+                              int[] question, int[] author, long[] created, int[] solutionOf) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO Answers (id, content, user_id, question_id, is_solution, date_created) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int a = 0; a < question.length; a++) {
+                pstmt.setInt(1, firstId + a);
+                pstmt.setString(2, sentence(random, wordRank, ANSWER_OPENERS) + ".");
+                pstmt.setInt(3, author[a]);
+                pstmt.setInt(4, firstQuestionId + question[a]);
+                pstmt.setBoolean(5, solutionOf[question[a]] == a);
+                pstmt.setTimestamp(6, new Timestamp(created[a]));
+                pstmt.addBatch();
+                if ((a + 1) % BATCH_SIZE == 0) {
+                    pstmt.executeBatch();
+                }
+                commitEvery(connection, a);
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private long writeTrustEdges(Connection connection, Random random, List<User> students, List<User> reviewers,
+                                 Zipf reviewerRank, int[] reviewerOrder, List<List<Integer>> followers)
+            throws SQLException {
+        long edges = 0;
+        int maxPerStudent = Math.min(reviewers.size(), (int) Math.round(2 * scale.getTrustedPerStudent()));
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO trustedreviewers (student_id, reviewer_id, weight, created_at) VALUES (?, ?, ?, ?)")) {
+            // Trust dates from the start of the term, so every generated log entry is visible
+            Timestamp termStart = new Timestamp(endMillis - scale.getTermDays() * DAY_MILLIS);
+            for (User student : students) {
+                int count = maxPerStudent == 0 ? 0 : random.nextInt(maxPerStudent + 1);
+                Set<Integer> trusted = new HashSet<>();
+                // Popular reviewers are drawn again and again; give up after a few tries
+                for (int attempt = 0; trusted.size() < count && attempt < 4 * count; attempt++) {
+                    int r = reviewerOrder[reviewerRank.sample(random)];
+                    if (!trusted.add(r)) {
+                        continue;
+                    }
+                    pstmt.setInt(1, student.getId());
+                    pstmt.setInt(2, reviewers.get(r).getId());
+                    pstmt.setInt(3, 1 + random.nextInt(5));
+                    pstmt.setTimestamp(4, termStart);
+                    pstmt.addBatch();
+                    followers.get(r).add(student.getId());
+                    if (++edges % BATCH_SIZE == 0) {
+                        pstmt.executeBatch();
+                    }
+                }
+            }
+            pstmt.executeBatch();
+        }
+        return edges;
+    }
+
+    // Returns { review update rows, feedback rows }
+    private long[] writeReviews(Connection connection, Random random, Zipf wordRank, List<User> reviewers,
+                                Zipf reviewerRank, int[] reviewerOrder, List<List<Integer>> followers,
+                                int firstId, int count, int firstAnswerId, int[] answerQuestion,
+                                long[] answerCreated, int[] questionAuthor) throws SQLException {
+        long updates = 0;
+        long feedback = 0;
+        int pending = 0;
+        try (PreparedStatement reviews = connection.prepareStatement(
+                     "INSERT INTO Reviews (id, reviewer_id, answer_id, content) VALUES (?, ?, ?, ?)");
+             PreparedStatement reviewUpdates = connection.prepareStatement(
+                     "INSERT INTO ReviewUpdates (student_id, reviewer_id, review_id, viewed, timestamp) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement updateLog = connection.prepareStatement(
+                     "INSERT INTO ReviewerUpdateLog (reviewer_id, review_id, created_at) VALUES (?, ?, ?)");
+             PreparedStatement feedbackRows = connection.prepareStatement(
+                     "INSERT INTO ReviewFeedback (reviewer_id, student_id, answer_id, review_id, content, created_at) "
+                             + "VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                int r = reviewerOrder[reviewerRank.sample(random)];
+                int reviewerId = reviewers.get(r).getId();
+                int a = random.nextInt(answerQuestion.length);
+                int reviewId = firstId + i;
+                reviews.setInt(1, reviewId);
+                reviews.setInt(2, reviewerId);
+                reviews.setInt(3, firstAnswerId + a);
+                reviews.setString(4, sentence(random, wordRank, ANSWER_OPENERS) + ".");
+                reviews.addBatch();
+                pending++;
+
+                long editedAt = Math.min(endMillis, answerCreated[a] + (long) (random.nextDouble() * DAY_MILLIS));
+                if (random.nextDouble() < scale.getEditedReviewShare()) {
+                    List<Integer> following = followers.get(r);
+                    if (following.size() > ReviewFanout.DEFAULT_READ_THRESHOLD) {
+                        updateLog.setInt(1, reviewerId);
+                        updateLog.setInt(2, reviewId);
+                        updateLog.setTimestamp(3, new Timestamp(editedAt));
+                        updateLog.addBatch();
+                        updates++;
+                        pending++;
+                    } else {
+                        for (int studentId : following) {
+                            reviewUpdates.setInt(1, studentId);
+                            reviewUpdates.setInt(2, reviewerId);
+                            reviewUpdates.setInt(3, reviewId);
+                            reviewUpdates.setBoolean(4, random.nextDouble() < VIEWED_SHARE);
+                            reviewUpdates.setTimestamp(5, new Timestamp(editedAt));
+                            reviewUpdates.addBatch();
+                            updates++;
+                            pending++;
+                        }
+                    }
+                }
+                // Feedback on this review, usually from the student who asked the question
+                if (random.nextDouble() < scale.getFeedbackShare()) {
+                    feedbackRows.setInt(1, reviewerId);
+                    feedbackRows.setInt(2, questionAuthor[answerQuestion[a]]);
+                    feedbackRows.setInt(3, firstAnswerId + a);
+                    feedbackRows.setInt(4, reviewId);
+                    feedbackRows.setString(5, sentence(random, wordRank, ANSWER_OPENERS) + ", thanks.");
+                    feedbackRows.setTimestamp(6, new Timestamp(editedAt));
+                    feedbackRows.addBatch();
+                    feedback++;
+                    pending++;
+                }
+
+                if (pending >= BATCH_SIZE) {
+                    // Reviews first: the other rows refer to them
+                    reviews.executeBatch();
+                    reviewUpdates.executeBatch();
+                    updateLog.executeBatch();
+                    feedbackRows.executeBatch();
+                    pending = 0;
+                }
+                commitEvery(connection, i);
+            }
+            reviews.executeBatch();
+            reviewUpdates.executeBatch();
+            updateLog.executeBatch();
+            feedbackRows.executeBatch();
+        }
+        return new long[] { updates, feedback };
+    }
+
+    // A point in the term, with PEAK_SHARE of them in the last week
+    private long timestamp(Random random) {
+        long day = random.nextDouble() < PEAK_SHARE
+                ? scale.getTermDays() - 7 + random.nextInt(7)
+                : random.nextInt(scale.getTermDays());
+        long start = endMillis - scale.getTermDays() * DAY_MILLIS;
+        return start + day * DAY_MILLIS + (long) (random.nextDouble() * DAY_MILLIS);
+    }
+
+    private static String sentence(Random random, Zipf wordRank, String[] openers) {
+        StringBuilder sentence = new StringBuilder(openers[random.nextInt(openers.length)]);
+        int words = 3 + random.nextInt(10);
+        for (int i = 0; i < words; i++) {
+            sentence.append(' ').append(WORDS[wordRank.sample(random)]);
+        }
+        return sentence.toString();
+    }
+
+    private static int pickTag(Random random) {
+        double value = random.nextDouble();
+        for (int t = 0; t < TAG_WEIGHTS.length - 1; t++) {
+            value -= TAG_WEIGHTS[t];
+            if (value < 0) {
+                return t;
+            }
+        }
+        return TAG_WEIGHTS.length - 1;
+    }
+
+    private static int[] permutation(int n, Random random) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+
+    private static void commitEvery(Connection connection, int index) throws SQLException {
+        if ((index + 1) % COMMIT_SIZE == 0) {
+            connection.commit();
+        }
+    }
+
+    private static int maxId(Connection connection, String table, String column) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(" + column + "), 0) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    // Explicit ids do not advance an identity column, so move it past the generated rows
+    private static void restartIdentity(Connection connection, String table) throws SQLException {
+        int next = maxId(connection, table, "id") + 1;
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package application;
+
+import org.junit.jupiter.api.*;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkloadGeneratorTest {
+
+    private static final long END_MILLIS = 1_700_000_000_000L;
+    private static final String[] TABLES = { "Questions", "Answers", "Reviews", "ReviewUpdates",
+            "ReviewFeedback", "trustedreviewers", "ReviewerUpdateLog", "QuestionTags", "UserRoles" };
+
+    @Test
+    public void testSameSeedGivesSameRows() throws SQLException {
+        try (Connection first = ScratchDatabase.open("workloadFirst");
+             Connection second = ScratchDatabase.open("workloadSecond");
+             Connection other = ScratchDatabase.open("workloadOther")) {
+            WorkloadGenerator.Scale scale = WorkloadGenerator.Scale.forStudents(400);
+            new WorkloadGenerator(7, scale, END_MILLIS).generate(first);
+            new WorkloadGenerator(7, scale, END_MILLIS).generate(second);
+            new WorkloadGenerator(8, scale, END_MILLIS).generate(other);
+
+            assertEquals(fingerprint(first), fingerprint(second));
+            assertNotEquals(fingerprint(first), fingerprint(other));
+        }
+    }
+
+    @Test
+    public void testGeneratesTheRequestedScale() throws SQLException {
+        try (Connection connection = ScratchDatabase.open("workloadScale")) {
+            WorkloadGenerator.Scale scale = WorkloadGenerator.Scale.forStudents(1_000);
+            WorkloadGenerator.Dataset dataset = new WorkloadGenerator(1, scale, END_MILLIS).generate(connection);
+
+            assertEquals(1_000, dataset.getStudents().size());
+            assertEquals(50, dataset.getReviewers().size());
+            assertEquals(scale.getQuestions(), count(connection, "SELECT COUNT(*) FROM Questions"));
+            assertEquals(scale.getAnswers(), count(connection, "SELECT COUNT(*) FROM Answers"));
+            assertEquals(scale.getReviews(), count(connection, "SELECT COUNT(*) FROM Reviews"));
+            assertEquals(dataset.getTrustEdges(), count(connection, "SELECT COUNT(*) FROM trustedreviewers"));
+            assertEquals(dataset.getReviewUpdates(), count(connection, "SELECT COUNT(*) FROM ReviewUpdates")
+                    + count(connection, "SELECT COUNT(*) FROM ReviewerUpdateLog"));
+            assertEquals(50, count(connection, "SELECT COUNT(*) FROM UserRoles WHERE role = 'Reviewer'"));
+            assertEquals(dataset.getFeedback(), count(connection, "SELECT COUNT(*) FROM ReviewFeedback"));
+            assertEquals(0, count(connection, "SELECT COUNT(*) FROM ReviewFeedback f LEFT JOIN Reviews r ON r.id = f.review_id "
+                    + "WHERE r.id IS NULL OR r.answer_id <> f.answer_id OR r.reviewer_id <> f.reviewer_id"),
+                    "Feedback is on a generated review, by that review's reviewer and answer");
+            assertEquals(0, count(connection, "SELECT COUNT(*) FROM Answers a JOIN Questions q ON q.id = a.question_id "
+                    + "WHERE a.date_created < q.date_created"), "Answers come after their question");
+            assertEquals(count(connection, "SELECT COUNT(*) FROM Questions WHERE is_resolved"),
+                    count(connection, "SELECT COUNT(*) FROM Answers WHERE is_solution"),
+                    "Every resolved question has exactly one solution");
+        }
+    }
+
+    @Test
+    public void testActivityIsSkewed() throws SQLException {
+        try (Connection connection = ScratchDatabase.open("workloadSkew")) {
+            WorkloadGenerator.Scale scale = WorkloadGenerator.Scale.forStudents(2_000);
+            new WorkloadGenerator(3, scale, END_MILLIS).generate(connection);
+
+            long topFollowers = count(connection, "SELECT MAX(c) FROM (SELECT COUNT(*) c FROM trustedreviewers GROUP BY reviewer_id)");
+            double meanFollowers = (double) count(connection, "SELECT COUNT(*) FROM trustedreviewers") / scale.getReviewers();
+            assertTrue(topFollowers > 5 * meanFollowers, "Top reviewer " + topFollowers + ", mean " + meanFollowers);
+
+            long topAnswers = count(connection, "SELECT MAX(c) FROM (SELECT COUNT(*) c FROM Answers GROUP BY question_id)");
+            assertTrue(topAnswers > 10, "Most answered question has " + topAnswers);
+
+            long lastWeek = count(connection, "SELECT COUNT(*) FROM Questions WHERE date_created >= TIMESTAMP '"
+                    + new Timestamp(END_MILLIS - 7L * 24 * 60 * 60 * 1000) + "'");
+            assertTrue(lastWeek > scale.getQuestions() * WorkloadGenerator.PEAK_SHARE * 0.9,
+                    "Peak week holds " + lastWeek + " of " + scale.getQuestions());
+        }
+    }
+
+    @Test
+    public void testApplicationCanInsertAfterSeeding() throws SQLException {
+        try (Connection connection = ScratchDatabase.open("workloadAppend")) {
+            WorkloadGenerator.Dataset first = new WorkloadGenerator(5, WorkloadGenerator.Scale.forStudents(100), END_MILLIS)
+                    .generate(connection);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("INSERT INTO Questions (content, user_id, tags) VALUES ('After seeding', 1, 'General')");
+            }
+            WorkloadGenerator.Dataset second = new WorkloadGenerator(5, WorkloadGenerator.Scale.forStudents(100), END_MILLIS)
+                    .generate(connection);
+
+            assertEquals(first.getFirstQuestionId() + first.getQuestionCount() + 1, second.getFirstQuestionId());
+            assertTrue(second.getStudents().get(0).getId() > first.getReviewers().get(first.getReviewers().size() - 1).getId());
+            assertNotEquals(first.getStudents().get(0).getUserName(), second.getStudents().get(0).getUserName(),
+                    "Names follow the ids, so seeding again does not repeat them");
+        }
+    }
+
+    // Every row of every generated table, in a stable order
+    private static List<String> fingerprint(Connection connection) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        for (String table : TABLES) {
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT * FROM " + table + " ORDER BY 1, 2")) {
+                int columns = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    StringBuilder row = new StringBuilder(table);
+                    for (int i = 1; i <= columns; i++) {
+                        row.append('|').append(rs.getString(i));
+                    }
+                    rows.add(row.toString());
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static long count(Connection connection, String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
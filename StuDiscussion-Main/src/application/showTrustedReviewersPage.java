@@ -1,7 +1,6 @@
 package application;
 
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -11,6 +10,8 @@ import javafx.scene.layout.VBox;
 import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
 import databasePart1.DatabaseHelper;
+import databasePart1.ReviewerReputation;
+import databasePart1.UserRoleIndex;
 
 public class showTrustedReviewersPage {
     private DatabaseHelper databaseHelper;
@@ -30,109 +31,148 @@ public class showTrustedReviewersPage {
         VBox potentialReviewersContainer = new VBox(10);
         potentialReviewersContainer.setVisible(false); // Initially hidden
 
-        try {
-            // Fetch trusted reviewers
-        	Map<User, Integer> currentTrustedReviewers = databaseHelper.getTrustedReviewersForStudent(user.getId());
-            List<User> allUsers = databaseHelper.getAllUserObjects();
-            List<User> potentialReviewers = new ArrayList<>();
-
-            if (currentTrustedReviewers.isEmpty()) {
-                trustedReviewersContainer.getChildren().add(new Label("No trusted reviewers found."));
-            } else {
-            	for (Map.Entry<User, Integer> entry : currentTrustedReviewers.entrySet()) {
-            	    User reviewer = entry.getKey();
-            	    int weight = entry.getValue();
-
-            	    HBox reviewerBox = new HBox(10);
-            	    Label reviewerName = new Label(reviewer.getUserName() + " (Weight: " + weight + ")");
-            	    
-            	    // Optional: Let user change weight
-            	    TextField weightField = new TextField(String.valueOf(weight));
-            	    weightField.setPrefWidth(50);
-            	    
-            	    Button updateWeightButton = new Button("Update");
-            	    updateWeightButton.setOnAction(e -> {
-            	        try {
-            	            int newWeight = Integer.parseInt(weightField.getText());
-            	            databaseHelper.updateReviewerWeight(user.getId(), reviewer.getId(), newWeight);
-            	            new showTrustedReviewersPage(databaseHelper).show(primaryStage, user);
-            	        } catch (SQLException | NumberFormatException ex) {
-            	            ex.printStackTrace();
-            	        }
-            	    });
-
-            	    Button removeButton = new Button("Remove");
-            	    removeButton.setOnAction(e -> {
-            	        try {
-            	            databaseHelper.removeTrustedReviewer(user.getId(), reviewer.getId());
-            	            new showTrustedReviewersPage(databaseHelper).show(primaryStage, user);
-            	        } catch (SQLException ex) {
-            	            ex.printStackTrace();
-            	        }
-            	    });
-
-            	    reviewerBox.getChildren().addAll(reviewerName, weightField, updateWeightButton, removeButton);
-            	    trustedReviewersContainer.getChildren().add(reviewerBox);
-            	}
-            }
-
-            // Add "Add More" button to reveal potential reviewers
-            Button addMoreButton = new Button("Add More");
-            addMoreButton.setOnAction(e -> potentialReviewersContainer.setVisible(true));
-
-            // Identify potential reviewers (those not already trusted)
-            for (User u : allUsers) {
-                if (u.getRoles().contains("Reviewer") && u.getId() != user.getId()) {
-                    boolean isTrusted = false;
-                    for (User trusted : currentTrustedReviewers.keySet()) {
-                        if (trusted.getId() == u.getId()) {
-                            isTrusted = true;
-                            break;
-                        }
-                    }
-                    if (!isTrusted) {
-                        potentialReviewers.add(u);
-                    }
-                }
-            }
-
-            if (!potentialReviewers.isEmpty()) {
-                Label selectLabel = new Label("Select a reviewer to add:");
-                potentialReviewersContainer.getChildren().add(selectLabel);
-
-                for (User reviewer : potentialReviewers) {
-                    HBox reviewerBox = new HBox(10);
-                    Label reviewerName = new Label(reviewer.getUserName());
-                    TextField weightField = new TextField("1");
-                    weightField.setPrefWidth(50);
-
-                    Button addButton = new Button("Add");
-                    addButton.setOnAction(e -> {
-                        try {
-                            int weight = Integer.parseInt(weightField.getText());
-                            databaseHelper.addTrustedReviewer(user.getId(), reviewer.getId(), weight);
-                            new showTrustedReviewersPage(databaseHelper).show(primaryStage, user);
-                        } catch (SQLException | NumberFormatException ex) {
-                            ex.printStackTrace();
-                        }
-                    });
+        Label loadingLabel = new Label("Loading reviewers...");
+        Button backButton = new Button("Back");
+        backButton.setOnAction(e -> new StudentHomePage(databaseHelper).show(primaryStage, user));
+        layout.getChildren().addAll(titleLabel, loadingLabel, backButton);
+        primaryStage.setScene(new Scene(layout, 800, 400));
+
+        // Both lists are usually already prefetched when the home page was shown
+        SessionSnapshot snapshot = SessionSnapshot.of(databaseHelper, user);
+        AsyncDatabase.of(databaseHelper).load("trustedReviewers:" + user.getId(), snapshot.getTrustedReviewers().thenCombine(snapshot.getReviewerCandidates(), Map::entry)
+                        .thenCombine(AsyncDatabase.of(databaseHelper).run(ReviewerReputation.of(databaseHelper)::ensureLoaded),
+                                (result, loaded) -> result),
+                result -> showReviewers(primaryStage, user, layout, titleLabel, trustedReviewersContainer,
+                        potentialReviewersContainer, result.getKey(), result.getValue()),
+                error -> {
+                    error.printStackTrace();
+                    loadingLabel.setText("Error loading reviewers.");
+                });
+    }
+
+    private void showReviewers(Stage primaryStage, User user, VBox layout, Label titleLabel, VBox trustedReviewersContainer,
+                               VBox potentialReviewersContainer, Map<User, Integer> currentTrustedReviewers, List<User> potentialReviewers) {
+        AsyncDatabase async = AsyncDatabase.of(databaseHelper);
+        DiscussionService service = DiscussionService.of(databaseHelper);
+        ReviewerReputation reputation = ReviewerReputation.of(databaseHelper);
+
+        if (currentTrustedReviewers.isEmpty()) {
+            trustedReviewersContainer.getChildren().add(new Label("No trusted reviewers found."));
+        } else {
+        	for (Map.Entry<User, Integer> entry : currentTrustedReviewers.entrySet()) {
+        	    User reviewer = entry.getKey();
+        	    int weight = entry.getValue();
+
+        	    HBox reviewerBox = new HBox(10);
+        	    Label reviewerName = new Label(reviewer.getUserName() + " (Weight: " + weight + ")"
+        	            + reputationText(reputation, reviewer));
+        	    
+        	    // Optional: Let user change weight
+        	    TextField weightField = new TextField(String.valueOf(weight));
+        	    weightField.setPrefWidth(50);
+        	    
+        	    Button updateWeightButton = new Button("Update");
+        	    updateWeightButton.setOnAction(e -> {
+        	        try {
+        	            int newWeight = Integer.parseInt(weightField.getText());
+        	            AsyncDatabase.onFxThread(async.run(() -> service.setTrustedReviewer(user, reviewer.getId(), newWeight)),
+        	                    done -> new showTrustedReviewersPage(databaseHelper).show(primaryStage, user),
+        	                    Throwable::printStackTrace);
+        	        } catch (NumberFormatException ex) {
+        	            ex.printStackTrace();
+        	        }
+        	    });
+
+        	    Button removeButton = new Button("Remove");
+        	    removeButton.setOnAction(e -> {
+        	        AsyncDatabase.onFxThread(async.run(() -> service.removeTrustedReviewer(user, reviewer.getId())),
+        	                done -> new showTrustedReviewersPage(databaseHelper).show(primaryStage, user),
+        	                Throwable::printStackTrace);
+        	    });
+
+        	    reviewerBox.getChildren().addAll(reviewerName, weightField, updateWeightButton, removeButton);
+        	    trustedReviewersContainer.getChildren().add(reviewerBox);
+        	}
+        }
+
+        // Add "Add More" button to reveal potential reviewers
+        Button addMoreButton = new Button("Add More");
+        addMoreButton.setOnAction(e -> potentialReviewersContainer.setVisible(true));
+
+        // The candidates are already limited to reviewers the user does not trust, one page at a time
+        if (!potentialReviewers.isEmpty()) {
+            Label selectLabel = new Label("Select a reviewer to add:");
+            VBox candidateRows = new VBox(10);
+            Button moreButton = new Button("More reviewers");
+            potentialReviewersContainer.getChildren().addAll(selectLabel, candidateRows, moreButton);
+            showCandidates(primaryStage, user, candidateRows, moreButton, potentialReviewers);
+        } else {
+            potentialReviewersContainer.getChildren().add(new Label("No available reviewers to add."));
+        }
 
-                    reviewerBox.getChildren().addAll(reviewerName, weightField, addButton);
-                    potentialReviewersContainer.getChildren().add(reviewerBox);
+        // Back button
+        Button backButton = new Button("Back");
+        backButton.setOnAction(e -> new StudentHomePage(databaseHelper).show(primaryStage, user));
+
+        layout.getChildren().setAll(titleLabel, trustedReviewersContainer, addMoreButton, potentialReviewersContainer, backButton);
+    }
+
+    // Adds one page of candidate rows; the button loads the page after the last one shown
+    private void showCandidates(Stage primaryStage, User user, VBox candidateRows, Button moreButton, List<User> page) {
+        AsyncDatabase async = AsyncDatabase.of(databaseHelper);
+        DiscussionService service = DiscussionService.of(databaseHelper);
+        ReviewerReputation reputation = ReviewerReputation.of(databaseHelper);
+
+        for (User reviewer : page) {
+            HBox reviewerBox = new HBox(10);
+            Label reviewerName = new Label(reviewer.getUserName() + reputationText(reputation, reviewer));
+            TextField weightField = new TextField("1");
+            weightField.setPrefWidth(50);
+
+            Button addButton = new Button("Add");
+            addButton.setOnAction(e -> {
+                try {
+                    int weight = Integer.parseInt(weightField.getText());
+                    AsyncDatabase.onFxThread(async.run(() -> service.setTrustedReviewer(user, reviewer.getId(), weight)),
+                            done -> new showTrustedReviewersPage(databaseHelper).show(primaryStage, user),
+                            Throwable::printStackTrace);
+                } catch (NumberFormatException ex) {
+                    ex.printStackTrace();
                 }
-            } else {
-                potentialReviewersContainer.getChildren().add(new Label("No available reviewers to add."));
-            }
+            });
 
-            // Back button
-            Button backButton = new Button("Back");
-            backButton.setOnAction(e -> new StudentHomePage(databaseHelper).show(primaryStage, user));
+            reviewerBox.getChildren().addAll(reviewerName, weightField, addButton);
+            candidateRows.getChildren().add(reviewerBox);
+        }
 
-            layout.getChildren().addAll(titleLabel, trustedReviewersContainer, addMoreButton, potentialReviewersContainer, backButton);
-            primaryStage.setScene(new Scene(layout, 800, 400));
+        // A short page is the last one
+        moreButton.setVisible(page.size() == UserRoleIndex.DEFAULT_PAGE_SIZE);
+        if (page.isEmpty()) {
+            return;
+        }
+        int lastId = page.get(page.size() - 1).getId();
+        moreButton.setOnAction(e -> {
+            moreButton.setDisable(true);
+            async.load("trustedReviewers:candidates", () -> UserRoleIndex.of(databaseHelper).getUsersByRole(
+                            Role.REVIEWER.getDisplayName(), user.getId(), lastId, UserRoleIndex.DEFAULT_PAGE_SIZE),
+                    next -> {
+                        moreButton.setDisable(false);
+                        showCandidates(primaryStage, user, candidateRows, moreButton, next);
+                    },
+                    error -> {
+                        moreButton.setDisable(false);
+                        error.printStackTrace();
+                    });
+        });
+    }
 
+    // Reads the in-memory aggregates only, so callers load them off the FX thread first
+    static String reputationText(ReviewerReputation reputation, User reviewer) {
+        try {
+            return " - " + reputation.getReputation(reviewer.getId());
         } catch (SQLException e) {
             e.printStackTrace();
+            return "";
         }
     }
 }
@@ -0,0 +1,359 @@
+package databasePart1;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small JDBC connection pool for DatabaseHelper.
+ * <p>
+ * Connections handed out by {@link #getConnection()} are wrappers: calling close() on them
+ * returns the physical connection to the pool instead of closing it, so callers can keep
+ * using try-with-resources. Idle connections are validated before they are handed out,
+ * and connections held longer than the leak threshold are reported with the stack trace
+ * of the code that borrowed them.
+ * </p>
+ * <p>
+ * {@link #borrow(DatabaseHelper)} is how the rest of the application reaches a
+ * DatabaseHelper's database: each DatabaseHelper gets a pool on the URL and user of its own
+ * connection, so concurrent queries and transactions run on connections of their own
+ * instead of on the helper's single shared one. DatabaseHelper's own methods still use its
+ * connection. The password is read from the {@value #PASSWORD_PROPERTY} system property,
+ * empty by default, and the sizes from {@value #MIN_SIZE_PROPERTY} and
+ * {@value #MAX_SIZE_PROPERTY}. If the pool cannot connect, borrow() falls back to
+ * {@link SharedConnection#borrow(DatabaseHelper)}.
+ * </p>
+ */
+public class ConnectionPool {
+
+    public static final String PASSWORD_PROPERTY = "cse360.db.password";
+    public static final String MIN_SIZE_PROPERTY = "cse360.db.pool.min";
+    public static final String MAX_SIZE_PROPERTY = "cse360.db.pool.max";
+    public static final int DEFAULT_MIN_SIZE = 1;
+    public static final int DEFAULT_MAX_SIZE = 8;
+
+    // One pool per DatabaseHelper instance; null when it could not be opened
+    private static final Map<DatabaseHelper, ConnectionPool> pools = new WeakHashMap<>();
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long leakThresholdMillis;
+
+    private final Deque<Connection> idle = new ArrayDeque<>();
+    private final Map<Connection, Lease> leased = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService leakDetector;
+    private int totalConnections = 0;   // idle + leased, guarded by this
+    private boolean closed = false;
+
+    // Bookkeeping for a connection that is currently borrowed
+    private static class Lease {
+        final long borrowedAt = System.currentTimeMillis();
+        final Throwable borrowedBy = new Throwable("Connection borrowed here");
+        boolean reported = false;
+    }
+
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize) throws SQLException {
+        this(url, user, password, minSize, maxSize, 5_000, 30_000);
+    }
+
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long borrowTimeoutMillis, long leakThresholdMillis) throws SQLException {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+
+        // Open the minimum number of connections up front
+        for (int i = 0; i < minSize; i++) {
+            idle.push(openPhysical());
+            totalConnections++;
+        }
+
+        leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-leak-detector");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, leakThresholdMillis / 2);
+        leakDetector.scheduleAtFixedRate(this::reportLeaks, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection to a DatabaseHelper's database from the helper's pool, opening
+     * the pool on first use. Falls back to a lease on the helper's shared connection if the
+     * pool cannot be opened.
+     *
+     * @return a connection; close it to give it back
+     */
+    public static Connection borrow(DatabaseHelper databaseHelper) throws SQLException {
+        ConnectionPool pool = of(databaseHelper);
+        return pool != null ? pool.getConnection() : SharedConnection.borrow(databaseHelper);
+    }
+
+    /**
+     * Returns the pool for a DatabaseHelper, opening it on the URL and user of the helper's
+     * connection on first use. Call after connectToDatabase().
+     *
+     * @return the pool, or null if it could not be opened
+     */
+    public static ConnectionPool of(DatabaseHelper databaseHelper) {
+        synchronized (pools) {
+            if (pools.containsKey(databaseHelper)) {
+                return pools.get(databaseHelper);
+            }
+            ConnectionPool pool = null;
+            try {
+                DatabaseMetaData metaData = databaseHelper.getConnection().getMetaData();
+                pool = new ConnectionPool(metaData.getURL(), metaData.getUserName(),
+                        System.getProperty(PASSWORD_PROPERTY, ""),
+                        Integer.getInteger(MIN_SIZE_PROPERTY, DEFAULT_MIN_SIZE),
+                        Integer.getInteger(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE));
+            } catch (SQLException e) {
+                System.err.println("Connection pool unavailable, sharing one connection: " + e.getMessage());
+            }
+            pools.put(databaseHelper, pool);
+            return pool;
+        }
+    }
+
+    /** Closes a DatabaseHelper's pool, if it has one; the next borrow opens a new one. */
+    public static void close(DatabaseHelper databaseHelper) {
+        ConnectionPool pool;
+        synchronized (pools) {
+            pool = pools.remove(databaseHelper);
+        }
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if the pool is below its maximum
+     * size, or waiting up to the borrow timeout for one to be returned.
+     *
+     * @return a pooled connection; close it to give it back
+     * @throws SQLException if the pool is closed, exhausted, or the database cannot be reached
+     */
+    public Connection getConnection() throws SQLException {
+        long deadline = System.currentTimeMillis() + borrowTimeoutMillis;
+        while (true) {
+            Connection physical = null;
+            boolean openNew = false;
+
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("Connection pool is closed");
+                }
+                if (!idle.isEmpty()) {
+                    physical = idle.pop();
+                } else if (totalConnections < maxSize) {
+                    totalConnections++;    // reserve the slot before opening outside the lock
+                    openNew = true;
+                } else {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new SQLException("Timed out waiting for a database connection (max " + maxSize + ")");
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    }
+                    continue;
+                }
+            }
+
+            if (openNew) {
+                try {
+                    physical = openPhysical();
+                } catch (SQLException e) {
+                    releaseSlot();
+                    throw e;
+                }
+            } else if (!isUsable(physical)) {
+                // Stale idle connection: drop it and try again
+                closeQuietly(physical);
+                releaseSlot();
+                continue;
+            }
+
+            leased.put(physical, new Lease());
+            return wrap(physical);
+        }
+    }
+
+    /** @return the number of connections currently borrowed */
+    public int getActiveCount() {
+        return leased.size();
+    }
+
+    /** @return the number of connections waiting in the pool */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Closes every idle connection and stops handing out new ones. Borrowed connections are
+     * closed when they are returned.
+     */
+    public void close() {
+        leakDetector.shutdownNow();
+        synchronized (this) {
+            closed = true;
+            while (!idle.isEmpty()) {
+                closeQuietly(idle.pop());
+                totalConnections--;
+            }
+            notifyAll();
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    private boolean isUsable(Connection connection) {
+        try {
+            return !connection.isClosed() && connection.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Called when a borrowed connection is closed by the caller
+    private void giveBack(Connection physical) {
+        if (leased.remove(physical) == null) {
+            return; // already returned
+        }
+        boolean keep = isUsable(physical);
+        if (keep) {
+            try {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                keep = false;
+            }
+        }
+        synchronized (this) {
+            // The slot stays counted in totalConnections, so the pool never exceeds maxSize
+            if (keep && !closed) {
+                idle.push(physical);
+            } else {
+                closeQuietly(physical);
+                totalConnections--;
+            }
+            notifyAll();
+        }
+        topUp();
+    }
+
+    private synchronized void releaseSlot() {
+        totalConnections--;
+        notifyAll();
+    }
+
+    // Keep at least minSize connections open after stale ones were dropped
+    private void topUp() {
+        while (true) {
+            synchronized (this) {
+                if (closed || totalConnections >= minSize) {
+                    return;
+                }
+                totalConnections++;
+            }
+            try {
+                Connection physical = openPhysical();
+                synchronized (this) {
+                    idle.push(physical);
+                    notifyAll();
+                }
+            } catch (SQLException e) {
+                releaseSlot();
+                return;
+            }
+        }
+    }
+
+    private void reportLeaks() {
+        long now = System.currentTimeMillis();
+        for (Lease lease : leased.values()) {
+            if (!lease.reported && now - lease.borrowedAt > leakThresholdMillis) {
+                lease.reported = true;
+                System.err.println("Possible connection leak: connection held for "
+                        + (now - lease.borrowedAt) + " ms");
+                lease.borrowedBy.printStackTrace();
+            }
+        }
+    }
+
+    private Connection wrap(Connection physical) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean returned = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!returned) {
+                            returned = true;
+                            giveBack(physical);
+                        }
+                        return null;
+                    case "isClosed":
+                        return returned || physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Pooled" + physical;
+                    default:
+                        if (returned) {
+                            throw new SQLException("Connection has already been returned to the pool");
+                        }
+                        try {
+                            return method.invoke(physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Nothing useful to do with a connection we are discarding
+        }
+    }
+}
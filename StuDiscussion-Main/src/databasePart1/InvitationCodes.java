@@ -0,0 +1,262 @@
+package databasePart1;
+
+import application.Role;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Invitation codes issued a roster at a time, with validation that keeps guesses away from
+ * the database.
+ * <p>
+ * {@link #issue(int, Role, Duration)} generates the codes, skipping any the filter has seen,
+ * and writes them in one JDBC batch and one transaction, each with its role and expiry.
+ * Every issued code is added to an in-memory {@link BloomFilter}, loaded from the
+ * Invitations table on first use. {@link #redeem(String)} answers a malformed code or one
+ * the filter has never seen without a query, and remembers the last {@link #HOT_SET_SIZE}
+ * codes the database turned down (used, expired, or a filter false positive) so repeated
+ * attempts with them are answered from memory too. Only a plausible code costs a query,
+ * and that single UPDATE marks it used, so a code can be redeemed once.
+ * </p>
+ * <p>
+ * These codes are a separate set from the single codes DatabaseHelper.generateInvitationCode()
+ * makes: neither validateInvitationCode() nor redeem() accepts the other's codes. Registration
+ * should check codes with {@link #validate(String)}, which accepts both.
+ * </p>
+ */
+public class InvitationCodes {
+
+    public static final int CODE_LENGTH = 10;
+    public static final int HOT_SET_SIZE = 1024;
+
+    // 32 characters without the look-alikes 0/O and 1/I, so 50 random bits per code
+    private static final String ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+    private static final int MIN_FILTER_CAPACITY = 10_000;
+
+    private static final Map<DatabaseHelper, InvitationCodes> instances = new WeakHashMap<>();
+
+    private final DatabaseHelper databaseHelper;
+    private final SecureRandom random = new SecureRandom();
+    private volatile BloomFilter filter;      // null until loaded
+    private final Map<String, Boolean> rejected = Collections.synchronizedMap(
+            new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > HOT_SET_SIZE;
+                }
+            });
+    private final AtomicLong filterRejections = new AtomicLong();
+    private final AtomicLong hotSetRejections = new AtomicLong();
+    private final AtomicLong databaseLookups = new AtomicLong();
+
+    /**
+     * @param databaseHelper the database holding the codes; may be null when only the
+     *                       methods taking a Connection are used
+     */
+    public InvitationCodes(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /** Returns the shared codes for a DatabaseHelper. */
+    public static InvitationCodes of(DatabaseHelper databaseHelper) {
+        synchronized (instances) {
+            return instances.computeIfAbsent(databaseHelper, InvitationCodes::new);
+        }
+    }
+
+    /**
+     * Issues new invitation codes.
+     *
+     * @param count    how many codes to issue
+     * @param role     the role a user registering with a code gets
+     * @param validFor how long the codes can be redeemed
+     * @return the codes, all distinct from each other and from every earlier code
+     */
+    public List<String> issue(int count, Role role, Duration validFor) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            return issue(connection, count, role, validFor);
+        }
+    }
+
+    public synchronized List<String> issue(Connection connection, int count, Role role, Duration validFor)
+            throws SQLException {
+        if (count < 0 || role == null || validFor.isNegative()) {
+            throw new IllegalArgumentException("Invalid invitation request: " + count + " " + role + " " + validFor);
+        }
+        BloomFilter codes = loadFilter(connection, count);
+
+        // A code the filter has never seen is certainly new; on a (rare) maybe, draw again
+        Set<String> issued = new LinkedHashSet<>();
+        while (issued.size() < count) {
+            String code = randomCode();
+            if (!codes.mightContain(code)) {
+                issued.add(code);
+            }
+        }
+
+        Timestamp expiresAt = new Timestamp(System.currentTimeMillis() + validFor.toMillis());
+        boolean autoCommit = connection.getAutoCommit();
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO Invitations (code, role, expires_at) VALUES (?, ?, ?)")) {
+            connection.setAutoCommit(false);
+            for (String code : issued) {
+                pstmt.setString(1, code);
+                pstmt.setString(2, role.getDisplayName());
+                pstmt.setTimestamp(3, expiresAt);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        for (String code : issued) {
+            codes.add(code);
+        }
+        return new ArrayList<>(issued);
+    }
+
+    /**
+     * Redeems an invitation code: marks it used if it exists, is unused and has not expired.
+     *
+     * @return the role the code grants, or null if the code cannot be redeemed
+     */
+    public Role redeem(String code) throws SQLException {
+        // Once the filter is loaded, guesses are answered without borrowing a connection
+        BloomFilter codes = filter;
+        if (codes != null && rejectInMemory(codes, normalize(code))) {
+            return null;
+        }
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            return redeem(connection, code);
+        }
+    }
+
+    /**
+     * Checks an invitation code from either set and marks it used: a code issued here is
+     * redeemed, and any other code is left to DatabaseHelper.validateInvitationCode(). Use
+     * {@link #redeem(String)} directly to learn the role an issued code grants.
+     *
+     * @return true if the code was valid
+     */
+    public boolean validate(String code) throws SQLException {
+        // Codes the older generator made miss the filter, so they cost the legacy query
+        return redeem(code) != null || databaseHelper.validateInvitationCode(code);
+    }
+
+    public Role redeem(Connection connection, String code) throws SQLException {
+        code = normalize(code);
+        BloomFilter codes = filter != null ? filter : loadFilter(connection, 0);
+        if (rejectInMemory(codes, code)) {
+            return null;
+        }
+
+        databaseLookups.incrementAndGet();
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "UPDATE Invitations SET used_at = CURRENT_TIMESTAMP "
+                        + "WHERE code = ? AND used_at IS NULL AND expires_at > CURRENT_TIMESTAMP")) {
+            pstmt.setString(1, code);
+            if (pstmt.executeUpdate() == 0) {
+                rejected.put(code, Boolean.TRUE);
+                return null;
+            }
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT role FROM Invitations WHERE code = ?")) {
+            pstmt.setString(1, code);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? Role.fromName(rs.getString(1)) : null;
+            }
+        }
+    }
+
+    private boolean rejectInMemory(BloomFilter codes, String code) {
+        if (!isWellFormed(code) || !codes.mightContain(code)) {
+            filterRejections.incrementAndGet();
+            return true;
+        }
+        if (rejected.containsKey(code)) {
+            hotSetRejections.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    // Codes are typed by hand, so accept surrounding blanks and lower case
+    private static String normalize(String code) {
+        return code == null ? null : code.trim().toUpperCase();
+    }
+
+    public static boolean isWellFormed(String code) {
+        if (code == null || code.length() != CODE_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < code.length(); i++) {
+            if (ALPHABET.indexOf(code.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return redemptions answered by the format check or the Bloom filter */
+    public long getFilterRejections() { return filterRejections.get(); }
+    /** @return redemptions answered from the recently rejected codes */
+    public long getHotSetRejections() { return hotSetRejections.get(); }
+    /** @return redemptions that queried the database */
+    public long getDatabaseLookups() { return databaseLookups.get(); }
+
+    /** Forgets the filter and the rejected codes; the next call reloads from the database. */
+    public synchronized void clear() {
+        filter = null;
+        rejected.clear();
+    }
+
+    // Loads the filter, or rebuilds it larger when adding more codes would overfill it
+    private synchronized BloomFilter loadFilter(Connection connection, int adding) throws SQLException {
+        BloomFilter current = filter;
+        if (current != null && current.getInsertions() + adding <= current.getExpectedInsertions()) {
+            return current;
+        }
+        List<String> existing = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT code FROM Invitations")) {
+            while (rs.next()) {
+                existing.add(rs.getString(1));
+            }
+        }
+        long capacity = Math.max(MIN_FILTER_CAPACITY, 2L * (existing.size() + adding));
+        BloomFilter loaded = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        for (String code : existing) {
+            loaded.add(code);
+        }
+        filter = loaded;
+        return loaded;
+    }
+
+    private String randomCode() {
+        char[] code = new char[CODE_LENGTH];
+        for (int i = 0; i < code.length; i++) {
+            code[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        return new String(code);
+    }
+}
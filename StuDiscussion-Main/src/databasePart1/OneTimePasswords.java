@@ -0,0 +1,444 @@
+package databasePart1;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Outstanding one-time passwords, one per user, held in memory and expired by a hashed
+ * timing wheel.
+ * <p>
+ * Each password sits in the wheel slot of the tick it expires on, with the number of full
+ * turns still to wait, so issuing, verifying and consuming are constant time and each tick
+ * only looks at one slot. A password is invalidated after {@link #MAX_ATTEMPTS} wrong
+ * guesses. At most {@code capacity} passwords are outstanding; beyond that issuing fails
+ * instead of growing without bound. Only a SHA-256 hash of each password is kept.
+ * </p>
+ * <p>
+ * The OneTimePasswords table (SchemaMigrator) lets outstanding passwords survive a restart.
+ * Issues and expiries are written lazily: they are collected per user and written once per
+ * tick as one MERGE batch and one DELETE batch by primary key, so a burst of password
+ * resets costs a few batched statements, never a table scan, and finished passwords do not
+ * linger as rows. A password that is used up, or burned by wrong guesses, is deleted before
+ * consume() or verify() returns, since a crash before the next tick would otherwise bring
+ * it back usable on restart. A crash can still lose a password issued in the last tick,
+ * which only means the user asks for another. A batch that fails to write is kept and
+ * retried on the next tick. The ticker only runs while passwords are outstanding or
+ * writes are pending.
+ * </p>
+ */
+public class OneTimePasswords {
+
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(15);
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int MAX_ATTEMPTS = 5;
+    public static final int CODE_DIGITS = 8;
+
+    private static final long TICK_MILLIS = 1_000;
+    private static final int WHEEL_SIZE = 512;
+
+    private static final Map<DatabaseHelper, OneTimePasswords> instances = new WeakHashMap<>();
+
+    // An outstanding password, linked into its wheel slot
+    private static final class Entry {
+        final String userName;
+        final byte[] codeHash;
+        final long expiresAt;
+        long rounds;
+        int slot;
+        int failedAttempts;
+        Entry previous;
+        Entry next;
+
+        Entry(String userName, byte[] codeHash, long expiresAt) {
+            this.userName = userName;
+            this.codeHash = codeHash;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final Duration timeToLive;
+    private final int capacity;
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+
+    // Guarded by this
+    private final Entry[] wheel = new Entry[WHEEL_SIZE];
+    private final Map<String, Entry> byUser = new HashMap<>();
+    private Map<String, Entry> pendingWrites = new LinkedHashMap<>();  // null value: delete the row
+    private long currentTick;
+    private volatile boolean loaded = false;   // written under both locks
+
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService ticker;
+
+    /**
+     * @param databaseHelper the database to persist to; null keeps everything in memory
+     * @param timeToLive     how long a password can be used
+     * @param capacity       the most passwords outstanding at once
+     * @param clock          the time in milliseconds, normally System::currentTimeMillis
+     */
+    public OneTimePasswords(DatabaseHelper databaseHelper, Duration timeToLive, int capacity, LongSupplier clock) {
+        if (capacity < 1 || timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("Invalid one-time password store: " + timeToLive + ", " + capacity);
+        }
+        this.databaseHelper = databaseHelper;
+        this.timeToLive = timeToLive;
+        this.capacity = capacity;
+        this.clock = clock;
+        this.currentTick = clock.getAsLong() / TICK_MILLIS;
+    }
+
+    /** Returns the shared store for a DatabaseHelper; its ticker starts with the first password. */
+    public static OneTimePasswords of(DatabaseHelper databaseHelper) {
+        synchronized (instances) {
+            return instances.computeIfAbsent(databaseHelper, db -> new OneTimePasswords(db, DEFAULT_TIME_TO_LIVE,
+                    DEFAULT_CAPACITY, System::currentTimeMillis));
+        }
+    }
+
+    /**
+     * Starts a daemon thread that expires passwords and writes pending changes every tick.
+     * It stops by itself once no password is outstanding and every change is written.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "one-time-password-ticker");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        try {
+            expire();
+            flush();
+        } catch (SQLException e) {
+            System.err.println("Could not save one-time passwords, retrying: " + e.getMessage());
+        }
+        synchronized (this) {
+            if (byUser.isEmpty() && pendingWrites.isEmpty()) {
+                stop();
+            }
+        }
+    }
+
+    /**
+     * Issues a new password for a user, replacing any outstanding one.
+     *
+     * @return the password to give the user
+     * @throws IllegalStateException if {@code capacity} passwords are already outstanding
+     */
+    public String issue(String userName) throws SQLException {
+        ensureLoaded();
+        StringBuilder code = new StringBuilder(CODE_DIGITS);
+        for (int i = 0; i < CODE_DIGITS; i++) {
+            code.append((char) ('0' + random.nextInt(10)));
+        }
+        synchronized (this) {
+            advance();
+            Entry previous = byUser.get(userName);
+            if (previous == null && byUser.size() >= capacity) {
+                throw new IllegalStateException("Too many outstanding one-time passwords");
+            }
+            if (previous != null) {
+                unlink(previous);
+            }
+            Entry entry = new Entry(userName, hash(userName, code.toString()), clock.getAsLong() + timeToLive.toMillis());
+            byUser.put(userName, entry);
+            schedule(entry);
+            pendingWrites.put(userName, entry);
+        }
+        if (databaseHelper != null) {
+            start();
+        }
+        return code.toString();
+    }
+
+    /** True if the user has an unexpired password outstanding. */
+    public boolean isIssued(String userName) throws SQLException {
+        ensureLoaded();
+        synchronized (this) {
+            Entry entry = byUser.get(userName);
+            return entry != null && entry.expiresAt > clock.getAsLong();
+        }
+    }
+
+    /**
+     * Checks a password without using it up. A wrong guess counts towards MAX_ATTEMPTS.
+     *
+     * @return true if the password is the user's outstanding, unexpired one
+     */
+    public boolean verify(String userName, String code) throws SQLException {
+        return check(userName, code, false);
+    }
+
+    /**
+     * Checks a password and, if it matches, uses it up so it cannot be used again.
+     *
+     * @return true if the password was the user's outstanding, unexpired one
+     */
+    public boolean consume(String userName, String code) throws SQLException {
+        return check(userName, code, true);
+    }
+
+    public synchronized int size() {
+        return byUser.size();
+    }
+
+    /** Drops every password whose tick has passed; the ticker calls this once per tick. */
+    public synchronized void expire() {
+        advance();
+    }
+
+    /** Writes the changes collected since the last flush. */
+    public void flush() throws SQLException {
+        synchronized (this) {
+            if (databaseHelper == null) {
+                pendingWrites.clear();
+            }
+            if (pendingWrites.isEmpty()) {
+                return;
+            }
+        }
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            flush(connection);
+        }
+    }
+
+    /** Writes the pending changes; if that fails they stay pending for the next flush. */
+    public void flush(Connection connection) throws SQLException {
+        // Flushes run one at a time, so an older batch can never overwrite a newer one
+        synchronized (flushLock) {
+            Map<String, Entry> writes;
+            synchronized (this) {
+                if (pendingWrites.isEmpty()) {
+                    return;
+                }
+                writes = pendingWrites;
+                pendingWrites = new LinkedHashMap<>();
+            }
+            try (PreparedStatement merge = connection.prepareStatement(
+                         "MERGE INTO OneTimePasswords (user_name, code_hash, expires_at) KEY (user_name) VALUES (?, ?, ?)");
+                 PreparedStatement delete = connection.prepareStatement(
+                         "DELETE FROM OneTimePasswords WHERE user_name = ?")) {
+                for (Map.Entry<String, Entry> write : writes.entrySet()) {
+                    Entry entry = write.getValue();
+                    if (entry == null) {
+                        delete.setString(1, write.getKey());
+                        delete.addBatch();
+                    } else {
+                        merge.setString(1, entry.userName);
+                        merge.setString(2, toHex(entry.codeHash));
+                        merge.setTimestamp(3, new Timestamp(entry.expiresAt));
+                        merge.addBatch();
+                    }
+                }
+                merge.executeBatch();
+                delete.executeBatch();
+            } catch (SQLException e) {
+                synchronized (this) {
+                    // Changes made since the swap are newer and win over the failed batch
+                    writes.putAll(pendingWrites);
+                    pendingWrites = writes;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Reads the outstanding passwords saved before a restart and deletes the expired ones.
+     * Rows beyond the capacity, soonest to expire first, are dropped.
+     */
+    public void load(Connection connection) throws SQLException {
+        long now = clock.getAsLong();
+        try (PreparedStatement delete = connection.prepareStatement(
+                "DELETE FROM OneTimePasswords WHERE expires_at <= ?")) {
+            delete.setTimestamp(1, new Timestamp(now));
+            delete.executeUpdate();
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT user_name, code_hash, expires_at FROM OneTimePasswords ORDER BY expires_at DESC LIMIT ?")) {
+            pstmt.setInt(1, capacity);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                synchronized (this) {
+                    advance();
+                    while (rs.next()) {
+                        String userName = rs.getString(1);
+                        if (byUser.containsKey(userName)) {
+                            continue;       // issued since startup; the newer one wins
+                        }
+                        Entry entry = new Entry(userName, fromHex(rs.getString(2)), rs.getTimestamp(3).getTime());
+                        if (byUser.size() < capacity) {
+                            byUser.put(userName, entry);
+                            schedule(entry);
+                        }
+                    }
+                    loaded = true;
+                }
+            }
+        }
+        if (databaseHelper != null && size() > 0) {
+            start();
+        }
+    }
+
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdown();
+            ticker = null;
+        }
+    }
+
+    private boolean check(String userName, String code, boolean consume) throws SQLException {
+        ensureLoaded();
+        if (code == null) {
+            return false;
+        }
+        byte[] candidate = hash(userName, code.trim());
+        boolean matched;
+        synchronized (this) {
+            Entry entry = byUser.get(userName);
+            if (entry == null || entry.expiresAt <= clock.getAsLong()) {
+                return false;
+            }
+            matched = MessageDigest.isEqual(entry.codeHash, candidate);
+            if (matched && !consume) {
+                return true;
+            }
+            if (!matched && ++entry.failedAttempts < MAX_ATTEMPTS) {
+                return false;
+            }
+            remove(entry);
+        }
+        // The password is finished; delete its row now rather than on the next tick
+        if (databaseHelper != null) {
+            try {
+                flush();
+            } catch (SQLException e) {
+                System.err.println("Could not delete a used one-time password, retrying: " + e.getMessage());
+            }
+        }
+        return matched;
+    }
+
+    private void ensureLoaded() throws SQLException {
+        synchronized (this) {
+            if (loaded || databaseHelper == null) {
+                return;
+            }
+        }
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            synchronized (flushLock) {
+                if (!loaded) {
+                    load(connection);
+                }
+            }
+        }
+    }
+
+    // Wheel operations; the caller holds the lock
+
+    private void schedule(Entry entry) {
+        long expiryTick = (entry.expiresAt + TICK_MILLIS - 1) / TICK_MILLIS;
+        long ticks = Math.max(1, expiryTick - currentTick);
+        entry.rounds = (ticks - 1) / WHEEL_SIZE;
+        entry.slot = (int) ((currentTick + ticks) % WHEEL_SIZE);
+        entry.previous = null;
+        entry.next = wheel[entry.slot];
+        if (entry.next != null) {
+            entry.next.previous = entry;
+        }
+        wheel[entry.slot] = entry;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.previous != null) {
+            entry.previous.next = entry.next;
+        } else if (wheel[entry.slot] == entry) {
+            wheel[entry.slot] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+    }
+
+    private void remove(Entry entry) {
+        unlink(entry);
+        byUser.remove(entry.userName);
+        pendingWrites.put(entry.userName, null);
+    }
+
+    // Visits every slot whose tick has passed; entries with turns left wait another turn
+    private void advance() {
+        long nowTick = clock.getAsLong() / TICK_MILLIS;
+        if (byUser.isEmpty()) {
+            // Every slot is empty, so after an idle spell there is nothing to visit
+            currentTick = Math.max(currentTick, nowTick);
+            return;
+        }
+        while (currentTick < nowTick) {
+            currentTick++;
+            Entry entry = wheel[(int) (currentTick % WHEEL_SIZE)];
+            while (entry != null) {
+                Entry next = entry.next;
+                if (entry.rounds > 0) {
+                    entry.rounds--;
+                } else {
+                    remove(entry);
+                }
+                entry = next;
+            }
+        }
+    }
+
+    private static byte[] hash(String userName, String code) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(userName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return digest.digest(code.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
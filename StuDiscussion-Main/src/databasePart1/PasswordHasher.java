@@ -0,0 +1,403 @@
+package databasePart1;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Salted, memory-hard password hashing (scrypt, RFC 7914) for the password column.
+ * <p>
+ * {@link #configure(long)} calibrates the cost so that one hash takes about the given login
+ * budget on this host: N (memory) is doubled first, up to {@link #MAX_LOG_N}, then p (CPU
+ * only) is raised with whatever time is left. Hashes are stored as
+ * {@code $scrypt$ln=<log2 N>,r=<r>,p=<p>$<salt>$<hash>} so each one carries its own cost;
+ * {@link #needsRehash(String)} tells callers to rehash a password made at a lower cost,
+ * or still stored raw, the next time it is presented.
+ * </p>
+ * <p>
+ * All hashing runs on a small fixed pool (half the processors) with a bounded queue, so a
+ * burst of logins at the start of an exam queues here instead of taking every core and all
+ * the memory; once the queue is full further requests fail fast with
+ * RejectedExecutionException.
+ * </p>
+ * <p>
+ * Nothing in the application hashes yet: the login page compares the stored password
+ * directly, so passwords stay raw until login verifies through this class. Until then
+ * nothing calls {@link #configure(long)} at startup, so the calibration costs nothing.
+ * </p>
+ */
+public class PasswordHasher {
+
+    public static final long DEFAULT_BUDGET_MILLIS = 250;
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    public static final int MIN_LOG_N = 10;     // 1 MB per hash with r = 8
+    public static final int MAX_LOG_N = 16;     // 64 MB per hash with r = 8
+    public static final int MAX_P = 16;
+
+    private static final String PREFIX = "$scrypt$";
+    private static final int R = 8;
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BYTES = 32;
+
+    private static final SecureRandom random = new SecureRandom();
+    private static volatile PasswordHasher shared;
+
+    /** The scrypt cost parameters. */
+    public static final class Cost {
+        private final int logN;
+        private final int r;
+        private final int p;
+
+        public Cost(int logN, int r, int p) {
+            if (logN < 1 || logN > 24 || r < 1 || p < 1) {
+                throw new IllegalArgumentException("Invalid scrypt cost: ln=" + logN + ", r=" + r + ", p=" + p);
+            }
+            this.logN = logN;
+            this.r = r;
+            this.p = p;
+        }
+
+        public int getLogN() { return logN; }
+        public int getR() { return r; }
+        public int getP() { return p; }
+
+        /** Bytes of memory one hash needs. */
+        public long getMemoryBytes() { return 128L * r << logN; }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Cost)) {
+                return false;
+            }
+            Cost cost = (Cost) other;
+            return logN == cost.logN && r == cost.r && p == cost.p;
+        }
+
+        @Override
+        public int hashCode() {
+            return (logN * 31 + r) * 31 + p;
+        }
+
+        @Override
+        public String toString() {
+            return "ln=" + logN + ",r=" + r + ",p=" + p;
+        }
+    }
+
+    private final Cost cost;
+    private final ThreadPoolExecutor executor;
+
+    public PasswordHasher(Cost cost, int threads, int queueCapacity) {
+        this.cost = cost;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "password-hasher-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /** Returns the hasher set up by {@link #configure(long)}, calibrating to the default budget on first use. */
+    public static PasswordHasher shared() {
+        PasswordHasher hasher = shared;
+        if (hasher == null) {
+            synchronized (PasswordHasher.class) {
+                if (shared == null) {
+                    configure(DEFAULT_BUDGET_MILLIS);
+                }
+                hasher = shared;
+            }
+        }
+        return hasher;
+    }
+
+    /**
+     * Calibrates to a per-login budget and makes the result the shared hasher. Call once at
+     * startup; it takes several times the budget.
+     *
+     * @param budgetMillis how long one login may spend hashing
+     * @return the new shared hasher
+     */
+    public static synchronized PasswordHasher configure(long budgetMillis) {
+        PasswordHasher previous = shared;
+        shared = new PasswordHasher(calibrate(budgetMillis), defaultThreads(), DEFAULT_QUEUE_CAPACITY);
+        if (previous != null) {
+            previous.shutdown();
+        }
+        return shared;
+    }
+
+    /**
+     * Finds the highest cost whose hash fits in a budget on this host. The result is never
+     * below ln=MIN_LOG_N, p=1, however small the budget.
+     */
+    public static Cost calibrate(long budgetMillis) {
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        int logN = MIN_LOG_N;
+        long nanos = timeHash(new Cost(logN, R, 1));
+
+        // Each doubling of N doubles both memory and time
+        while (logN < MAX_LOG_N && nanos * 2 <= budgetNanos) {
+            logN++;
+            nanos = timeHash(new Cost(logN, R, 1));
+        }
+
+        // Time grows linearly with p while memory stays the same
+        int p = (int) Math.max(1, Math.min(MAX_P, budgetNanos / Math.max(1, nanos)));
+        return new Cost(logN, R, p);
+    }
+
+    public Cost getCost() { return cost; }
+
+    /** Hashes a password with a fresh salt on the hashing pool. */
+    public CompletableFuture<String> hashAsync(String password) {
+        return CompletableFuture.supplyAsync(() -> encode(password, cost), executor);
+    }
+
+    /** Checks a password against a stored hash (or a legacy raw password) on the hashing pool. */
+    public CompletableFuture<Boolean> verifyAsync(String password, String stored) {
+        if (!isHashed(stored)) {
+            return CompletableFuture.completedFuture(matchesRaw(password, stored));
+        }
+        return CompletableFuture.supplyAsync(() -> matchesHash(password, stored), executor);
+    }
+
+    /** Like {@link #hashAsync(String)}, waiting for the result. */
+    public String hash(String password) {
+        return await(hashAsync(password));
+    }
+
+    /** Like {@link #verifyAsync(String, String)}, waiting for the result. */
+    public boolean verify(String password, String stored) {
+        return await(verifyAsync(password, stored));
+    }
+
+    /**
+     * True when a stored password is raw or was hashed at a lower cost than the current one.
+     * A stronger stored cost is kept, so calibration noise between restarts does not make
+     * every login rehash.
+     */
+    public boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 5) {
+            return true;
+        }
+        try {
+            Cost old = parseCost(parts[2]);
+            return old.r != cost.r || old.logN < cost.logN || (old.logN == cost.logN && old.p < cost.p);
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    /** Stops the hashing threads; pending work is still completed. */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static String encode(String password, Cost cost) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] key = scrypt(password.getBytes(StandardCharsets.UTF_8), salt, 1 << cost.logN, cost.r, cost.p, KEY_BYTES);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + cost + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(key);
+    }
+
+    private static boolean matchesHash(String password, String stored) {
+        String[] parts = stored.split("\\$");
+        if (parts.length != 5) {
+            return false;
+        }
+        try {
+            Cost cost = parseCost(parts[2]);
+            byte[] salt = Base64.getDecoder().decode(parts[3]);
+            byte[] expected = Base64.getDecoder().decode(parts[4]);
+            byte[] actual = scrypt(password.getBytes(StandardCharsets.UTF_8), salt,
+                    1 << cost.logN, cost.r, cost.p, expected.length);
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Accounts created before hashing hold the password itself
+    private static boolean matchesRaw(String password, String stored) {
+        return stored != null && MessageDigest.isEqual(
+                password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cost parseCost(String text) {
+        int logN = -1, r = -1, p = -1;
+        for (String field : text.split(",")) {
+            String[] pair = field.split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Malformed scrypt cost: " + text);
+            }
+            int value = Integer.parseInt(pair[1]);
+            switch (pair[0]) {
+                case "ln": logN = value; break;
+                case "r": r = value; break;
+                case "p": p = value; break;
+                default: throw new IllegalArgumentException("Unknown scrypt parameter: " + pair[0]);
+            }
+        }
+        return new Cost(logN, r, p);
+    }
+
+    // Best of three, so a garbage collection or JIT compilation does not inflate the estimate
+    private static long timeHash(Cost cost) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            scrypt(new byte[] { 'c', 'o', 's', 't' }, new byte[SALT_BYTES], 1 << cost.logN, cost.r, cost.p, KEY_BYTES);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static int defaultThreads() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // scrypt, RFC 7914
+
+    /**
+     * Derives a key with scrypt.
+     *
+     * @param password the password bytes
+     * @param salt     the salt
+     * @param n        the CPU/memory cost, a power of two
+     * @param r        the block size
+     * @param p        the parallelization
+     * @param length   the key length in bytes
+     */
+    public static byte[] scrypt(byte[] password, byte[] salt, int n, int r, int p, int length) {
+        if (n < 2 || (n & (n - 1)) != 0) {
+            throw new IllegalArgumentException("N must be a power of two greater than one: " + n);
+        }
+        int blockBytes = 128 * r;
+        byte[] b = pbkdf2(password, salt, p * blockBytes);
+        int[] x = new int[32 * r];
+        int[] v = new int[32 * r * n];
+        for (int i = 0; i < p; i++) {
+            roMix(b, i * blockBytes, r, n, x, v);
+        }
+        return pbkdf2(password, b, length);
+    }
+
+    // PBKDF2-HMAC-SHA256 with the single iteration scrypt uses
+    private static byte[] pbkdf2(byte[] password, byte[] salt, int length) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            // HMAC pads short keys with zeros, so one zero byte stands in for an empty password,
+            // which SecretKeySpec refuses
+            mac.init(new SecretKeySpec(password.length == 0 ? new byte[1] : password, "HmacSHA256"));
+            byte[] out = new byte[length];
+            for (int block = 1, offset = 0; offset < length; block++, offset += 32) {
+                mac.update(salt);
+                mac.update(new byte[] { (byte) (block >>> 24), (byte) (block >>> 16), (byte) (block >>> 8), (byte) block });
+                byte[] t = mac.doFinal();
+                System.arraycopy(t, 0, out, offset, Math.min(32, length - offset));
+            }
+            return out;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static void roMix(byte[] b, int offset, int r, int n, int[] x, int[] v) {
+        int words = 32 * r;
+        for (int i = 0; i < words; i++) {
+            int at = offset + i * 4;
+            x[i] = (b[at] & 0xff) | (b[at + 1] & 0xff) << 8 | (b[at + 2] & 0xff) << 16 | (b[at + 3] & 0xff) << 24;
+        }
+        int[] y = new int[words];
+        int[] t = new int[16];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(x, 0, v, i * words, words);
+            blockMix(x, y, t, r);
+        }
+        for (int i = 0; i < n; i++) {
+            int j = x[(2 * r - 1) * 16] & (n - 1);          // integerify
+            for (int k = 0; k < words; k++) {
+                x[k] ^= v[j * words + k];
+            }
+            blockMix(x, y, t, r);
+        }
+        for (int i = 0; i < words; i++) {
+            int at = offset + i * 4;
+            b[at] = (byte) x[i];
+            b[at + 1] = (byte) (x[i] >>> 8);
+            b[at + 2] = (byte) (x[i] >>> 16);
+            b[at + 3] = (byte) (x[i] >>> 24);
+        }
+    }
+
+    // BlockMix with Salsa20/8: even output blocks go to the first half, odd ones to the second
+    private static void blockMix(int[] b, int[] y, int[] t, int r) {
+        System.arraycopy(b, (2 * r - 1) * 16, t, 0, 16);
+        for (int i = 0; i < 2 * r; i++) {
+            for (int k = 0; k < 16; k++) {
+                t[k] ^= b[i * 16 + k];
+            }
+            salsa208(t);
+            System.arraycopy(t, 0, y, ((i & 1) * r + (i >> 1)) * 16, 16);
+        }
+        System.arraycopy(y, 0, b, 0, 32 * r);
+    }
+
+    private static void salsa208(int[] b) {
+        int x0 = b[0], x1 = b[1], x2 = b[2], x3 = b[3], x4 = b[4], x5 = b[5], x6 = b[6], x7 = b[7];
+        int x8 = b[8], x9 = b[9], x10 = b[10], x11 = b[11], x12 = b[12], x13 = b[13], x14 = b[14], x15 = b[15];
+        for (int i = 0; i < 8; i += 2) {
+            x4 ^= Integer.rotateLeft(x0 + x12, 7);   x8 ^= Integer.rotateLeft(x4 + x0, 9);
+            x12 ^= Integer.rotateLeft(x8 + x4, 13);  x0 ^= Integer.rotateLeft(x12 + x8, 18);
+            x9 ^= Integer.rotateLeft(x5 + x1, 7);    x13 ^= Integer.rotateLeft(x9 + x5, 9);
+            x1 ^= Integer.rotateLeft(x13 + x9, 13);  x5 ^= Integer.rotateLeft(x1 + x13, 18);
+            x14 ^= Integer.rotateLeft(x10 + x6, 7);  x2 ^= Integer.rotateLeft(x14 + x10, 9);
+            x6 ^= Integer.rotateLeft(x2 + x14, 13);  x10 ^= Integer.rotateLeft(x6 + x2, 18);
+            x3 ^= Integer.rotateLeft(x15 + x11, 7);  x7 ^= Integer.rotateLeft(x3 + x15, 9);
+            x11 ^= Integer.rotateLeft(x7 + x3, 13);  x15 ^= Integer.rotateLeft(x11 + x7, 18);
+            x1 ^= Integer.rotateLeft(x0 + x3, 7);    x2 ^= Integer.rotateLeft(x1 + x0, 9);
+            x3 ^= Integer.rotateLeft(x2 + x1, 13);   x0 ^= Integer.rotateLeft(x3 + x2, 18);
+            x6 ^= Integer.rotateLeft(x5 + x4, 7);    x7 ^= Integer.rotateLeft(x6 + x5, 9);
+            x4 ^= Integer.rotateLeft(x7 + x6, 13);   x5 ^= Integer.rotateLeft(x4 + x7, 18);
+            x11 ^= Integer.rotateLeft(x10 + x9, 7);  x8 ^= Integer.rotateLeft(x11 + x10, 9);
+            x9 ^= Integer.rotateLeft(x8 + x11, 13);  x10 ^= Integer.rotateLeft(x9 + x8, 18);
+            x12 ^= Integer.rotateLeft(x15 + x14, 7); x13 ^= Integer.rotateLeft(x12 + x15, 9);
+            x14 ^= Integer.rotateLeft(x13 + x12, 13); x15 ^= Integer.rotateLeft(x14 + x13, 18);
+        }
+        b[0] += x0; b[1] += x1; b[2] += x2; b[3] += x3; b[4] += x4; b[5] += x5; b[6] += x6; b[7] += x7;
+        b[8] += x8; b[9] += x9; b[10] += x10; b[11] += x11; b[12] += x12; b[13] += x13; b[14] += x14; b[15] += x15;
+    }
+}
@@ -0,0 +1,296 @@
+package databasePart1;
+
+import application.ReviewUpdate;
+import application.ReviewUpdateBus;
+import application.User;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Delivers "reviewer edited a review" notifications to the students who trust the reviewer.
+ * <p>
+ * For a reviewer with at most {@link #getReadThreshold()} followers the update is fanned
+ * out on write: one ReviewUpdates row per follower, written as a single JDBC batch. Above
+ * the threshold it is fanned out on read instead: one row is appended to the reviewer's
+ * ReviewerUpdateLog and {@link #getUnviewedReviewUpdates(int)} merges that log with the
+ * student's trust list when the updates are shown. Students who are online still get a
+ * push through the {@link ReviewUpdateBus}.
+ * </p>
+ * <p>
+ * Log entries are returned as ReviewUpdates with negative ids (the negated log id), so
+ * both kinds can be listed and marked viewed together. A student sees the log entries a
+ * trusted reviewer wrote since the trust was created; edges made before trust was
+ * timestamped have no created_at and see the reviewer's whole log.
+ * </p>
+ */
+public class ReviewFanout {
+
+    public static final int DEFAULT_READ_THRESHOLD = 200;
+
+    /** How an update was delivered. */
+    public enum Mode { WRITE, READ }
+
+    private static final Map<DatabaseHelper, ReviewFanout> instances = new WeakHashMap<>();
+
+    private final DatabaseHelper databaseHelper;
+    private final int readThreshold;
+
+    /**
+     * @param databaseHelper the database to write to; may be null when only the methods
+     *                       taking a Connection are used
+     * @param readThreshold  followers above which updates are fanned out on read
+     */
+    public ReviewFanout(DatabaseHelper databaseHelper, int readThreshold) {
+        if (readThreshold < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative: " + readThreshold);
+        }
+        this.databaseHelper = databaseHelper;
+        this.readThreshold = readThreshold;
+    }
+
+    /** Returns the shared fan-out for a DatabaseHelper, using the default threshold. */
+    public static ReviewFanout of(DatabaseHelper databaseHelper) {
+        synchronized (instances) {
+            return instances.computeIfAbsent(databaseHelper, db -> new ReviewFanout(db, DEFAULT_READ_THRESHOLD));
+        }
+    }
+
+    public int getReadThreshold() { return readThreshold; }
+
+    /**
+     * Notifies the students who trust a reviewer that one of the reviewer's reviews changed.
+     *
+     * @return which fan-out mode was used
+     */
+    public Mode publishReviewUpdate(int reviewerId, int reviewId) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            return publishReviewUpdate(connection, reviewerId, reviewId);
+        }
+    }
+
+    public Mode publishReviewUpdate(Connection connection, int reviewerId, int reviewId) throws SQLException {
+        // Reading one row past the threshold is enough to pick the mode
+        List<Integer> followers = getFollowers(connection, reviewerId, readThreshold + 1);
+        if (followers.size() <= readThreshold) {
+            fanOutOnWrite(connection, reviewerId, reviewId, followers);
+            return Mode.WRITE;
+        }
+        int logId = appendToLog(connection, reviewerId, reviewId);
+        if (databaseHelper != null) {
+            pushToOnlineFollowers(connection, reviewerId, reviewId, logId);
+        }
+        return Mode.READ;
+    }
+
+    /**
+     * Inserts one unviewed ReviewUpdates row per follower in a single batch and transaction.
+     *
+     * @return the number of rows written
+     */
+    public int fanOutOnWrite(Connection connection, int reviewerId, int reviewId, List<Integer> followers) throws SQLException {
+        if (followers.isEmpty()) {
+            return 0;
+        }
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO ReviewUpdates (student_id, reviewer_id, review_id, viewed, timestamp) "
+                        + "VALUES (?, ?, ?, FALSE, CURRENT_TIMESTAMP)")) {
+            for (int studentId : followers) {
+                pstmt.setInt(1, studentId);
+                pstmt.setInt(2, reviewerId);
+                pstmt.setInt(3, reviewId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            connection.commit();
+            return followers.size();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /** @return the id of the new log entry */
+    public int appendToLog(Connection connection, int reviewerId, int reviewId) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO ReviewerUpdateLog (reviewer_id, review_id) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, reviewerId);
+            pstmt.setInt(2, reviewId);
+            pstmt.executeUpdate();
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Returns a student's unviewed updates: their own ReviewUpdates rows followed by the
+     * unviewed log entries the reviewers they trust wrote since the student trusted them.
+     */
+    public List<ReviewUpdate> getUnviewedReviewUpdates(int studentId) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            return getUnviewedReviewUpdates(connection, studentId);
+        }
+    }
+
+    public List<ReviewUpdate> getUnviewedReviewUpdates(Connection connection, int studentId) throws SQLException {
+        List<ReviewUpdate> updates = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT u.id, u.reviewer_id, u.review_id, r.content FROM ReviewUpdates u "
+                        + "JOIN Reviews r ON r.id = u.review_id "
+                        + "WHERE u.student_id = ? AND u.viewed = FALSE ORDER BY u.id")) {
+            pstmt.setInt(1, studentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    updates.add(new ReviewUpdate(rs.getInt("id"), rs.getString("content"),
+                            reviewerName(rs.getInt("reviewer_id")), rs.getInt("review_id")));
+                }
+            }
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT l.id, l.reviewer_id, l.review_id, r.content FROM ReviewerUpdateLog l "
+                        + "JOIN trustedreviewers t ON t.reviewer_id = l.reviewer_id "
+                        + "JOIN Reviews r ON r.id = l.review_id "
+                        + "WHERE t.student_id = ? AND (t.created_at IS NULL OR l.created_at >= t.created_at) "
+                        + "AND NOT EXISTS (SELECT 1 FROM ReviewerUpdateLogViews v "
+                        + "WHERE v.student_id = ? AND v.log_id = l.id) ORDER BY l.id")) {
+            pstmt.setInt(1, studentId);
+            pstmt.setInt(2, studentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    updates.add(new ReviewUpdate(-rs.getInt("id"), rs.getString("content"),
+                            reviewerName(rs.getInt("reviewer_id")), rs.getInt("review_id")));
+                }
+            }
+        }
+        return updates;
+    }
+
+    /**
+     * Returns true if an update is one of a student's: a ReviewUpdates row addressed to them,
+     * or a log entry a reviewer they trust wrote since they trusted them.
+     *
+     * @param updateId an id as returned by {@link #getUnviewedReviewUpdates(int)}
+     */
+    public boolean isUpdateFor(int studentId, int updateId) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            return isUpdateFor(connection, studentId, updateId);
+        }
+    }
+
+    public boolean isUpdateFor(Connection connection, int studentId, int updateId) throws SQLException {
+        String sql = isLogEntry(updateId)
+                ? "SELECT 1 FROM ReviewerUpdateLog l JOIN trustedreviewers t ON t.reviewer_id = l.reviewer_id "
+                        + "WHERE l.id = ? AND t.student_id = ? AND (t.created_at IS NULL OR l.created_at >= t.created_at)"
+                : "SELECT 1 FROM ReviewUpdates WHERE id = ? AND student_id = ?";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, Math.abs(updateId));
+            pstmt.setInt(2, studentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Marks a student's updates as viewed in one batch per kind. ReviewUpdates rows
+     * addressed to other students are left as they are.
+     *
+     * @param updateIds ids as returned by {@link #getUnviewedReviewUpdates(int)}
+     */
+    public static void markViewed(Connection connection, int studentId, Collection<Integer> updateIds) throws SQLException {
+        List<Integer> rowIds = new ArrayList<>();
+        List<Integer> logIds = new ArrayList<>();
+        for (int id : updateIds) {
+            if (isLogEntry(id)) {
+                logIds.add(-id);
+            } else {
+                rowIds.add(id);
+            }
+        }
+        if (!rowIds.isEmpty()) {
+            String placeholders = String.join(", ", Collections.nCopies(rowIds.size(), "?"));
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "UPDATE ReviewUpdates SET viewed = TRUE WHERE student_id = ? AND id IN (" + placeholders + ")")) {
+                pstmt.setInt(1, studentId);
+                for (int i = 0; i < rowIds.size(); i++) {
+                    pstmt.setInt(i + 2, rowIds.get(i));
+                }
+                pstmt.executeUpdate();
+            }
+        }
+        if (!logIds.isEmpty()) {
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "MERGE INTO ReviewerUpdateLogViews (student_id, log_id) KEY (student_id, log_id) VALUES (?, ?)")) {
+                for (int logId : logIds) {
+                    pstmt.setInt(1, studentId);
+                    pstmt.setInt(2, logId);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+        }
+    }
+
+    /** @return true if an update id refers to a ReviewerUpdateLog entry */
+    public static boolean isLogEntry(int updateId) {
+        return updateId < 0;
+    }
+
+    private static List<Integer> getFollowers(Connection connection, int reviewerId, int limit) throws SQLException {
+        List<Integer> followers = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT student_id FROM trustedreviewers WHERE reviewer_id = ? LIMIT ?")) {
+            pstmt.setInt(1, reviewerId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    followers.add(rs.getInt(1));
+                }
+            }
+        }
+        return followers;
+    }
+
+    // Fan-out on read skips the ReviewUpdates trigger, so push to the followers who are online
+    private void pushToOnlineFollowers(Connection connection, int reviewerId, int reviewId, int logId) throws SQLException {
+        ReviewUpdateBus bus = ReviewUpdateBus.of(databaseHelper);
+        Set<Integer> online = bus.getSubscribedStudentIds();
+        if (online.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(online.size(), "?"));
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT student_id FROM trustedreviewers WHERE reviewer_id = ? AND student_id IN (" + placeholders + ")")) {
+            pstmt.setInt(1, reviewerId);
+            int index = 2;
+            for (int studentId : online) {
+                pstmt.setInt(index++, studentId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    bus.publish(new ReviewUpdateBus.Event(-logId, rs.getInt(1), reviewerId, reviewId));
+                }
+            }
+        }
+    }
+
+    private String reviewerName(int reviewerId) throws SQLException {
+        User reviewer = databaseHelper != null ? UserCache.of(databaseHelper).getUserById(reviewerId) : null;
+        return reviewer != null ? reviewer.getUserName() : "Reviewer " + reviewerId;
+    }
+}
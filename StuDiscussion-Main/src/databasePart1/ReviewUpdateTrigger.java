@@ -0,0 +1,65 @@
+package databasePart1;
+
+import application.ReviewUpdateBus;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.h2.api.Trigger;
+
+/**
+ * H2 trigger that publishes every row inserted into ReviewUpdates to the
+ * {@link ReviewUpdateBus}, whatever code path did the insert. Installed by SchemaMigrator.
+ * <p>
+ * The trigger fires inside the inserting transaction, before it commits, so the bus holds
+ * each event until it finds the row committed.
+ * </p>
+ */
+public class ReviewUpdateTrigger implements Trigger {
+
+    private String database;
+    private int idColumn = -1;
+    private int studentColumn = -1;
+    private int reviewerColumn = -1;
+    private int reviewColumn = -1;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                     boolean before, int type) throws SQLException {
+        database = conn.getCatalog();
+        // Look the columns up by name rather than relying on their order in the table
+        try (ResultSet rs = conn.getMetaData().getColumns(null, schemaName, tableName, null)) {
+            while (rs.next()) {
+                int index = rs.getInt("ORDINAL_POSITION") - 1;
+                switch (rs.getString("COLUMN_NAME").toLowerCase()) {
+                    case "id": idColumn = index; break;
+                    case "student_id": studentColumn = index; break;
+                    case "reviewer_id": reviewerColumn = index; break;
+                    case "review_id": reviewColumn = index; break;
+                    default: break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (newRow == null || idColumn < 0 || studentColumn < 0) {
+            return;
+        }
+        ReviewUpdateBus.publish(database, new ReviewUpdateBus.Event(
+                intValue(newRow, idColumn), intValue(newRow, studentColumn),
+                intValue(newRow, reviewerColumn), intValue(newRow, reviewColumn)));
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void remove() {
+    }
+
+    private static int intValue(Object[] row, int index) {
+        return index >= 0 && row[index] instanceof Number ? ((Number) row[index]).intValue() : 0;
+    }
+}
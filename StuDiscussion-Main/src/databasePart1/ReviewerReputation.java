@@ -0,0 +1,235 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Running per-reviewer aggregates of ReviewFeedback and trustedreviewers, so pages can show a
+ * reviewer's reputation without scanning either table.
+ * <p>
+ * The aggregates are loaded once with grouped queries and then kept up to date by the write
+ * sites: {@link #onFeedbackAdded(int)} after addFeedback and
+ * {@link #onTrustWeightChanged(int, int, int)} after addTrustedReviewer, updateReviewerWeight
+ * and removeTrustedReviewer. Feedback per day is kept in a ring of {@link #WINDOW_DAYS}
+ * buckets, so the recent-window counts need no timestamps in memory. Feedback whose time is
+ * unknown (created_at null, given before the column existed) counts toward the total only.
+ * </p>
+ */
+public class ReviewerReputation {
+
+    public static final int RECENT_DAYS = 7;
+    public static final int WINDOW_DAYS = 30;
+
+    /** An immutable view of one reviewer's aggregates. */
+    public static final class Reputation {
+        private final long feedbackCount;
+        private final int recentFeedbackCount;
+        private final int windowFeedbackCount;
+        private final int trustedByCount;
+        private final double averageWeight;
+
+        Reputation(long feedbackCount, int recentFeedbackCount, int windowFeedbackCount,
+                   int trustedByCount, double averageWeight) {
+            this.feedbackCount = feedbackCount;
+            this.recentFeedbackCount = recentFeedbackCount;
+            this.windowFeedbackCount = windowFeedbackCount;
+            this.trustedByCount = trustedByCount;
+            this.averageWeight = averageWeight;
+        }
+
+        public long getFeedbackCount() { return feedbackCount; }
+
+        /** @return feedback received in the last {@link #RECENT_DAYS} days */
+        public int getRecentFeedbackCount() { return recentFeedbackCount; }
+
+        /** @return feedback received in the last {@link #WINDOW_DAYS} days */
+        public int getWindowFeedbackCount() { return windowFeedbackCount; }
+
+        public int getTrustedByCount() { return trustedByCount; }
+
+        /** @return the average weight students trust the reviewer with, 0 if nobody does */
+        public double getAverageWeight() { return averageWeight; }
+
+        @Override
+        public String toString() {
+            return String.format("trusted by %d (avg weight %.1f), %d feedback, %d this week",
+                    trustedByCount, averageWeight, feedbackCount, recentFeedbackCount);
+        }
+    }
+
+    // Running totals for one reviewer
+    private static class Aggregate {
+        long feedbackCount;
+        final int[] feedbackByDay = new int[WINDOW_DAYS];   // indexed by epoch day modulo WINDOW_DAYS
+        long latestDay = Long.MIN_VALUE;
+        int trustedByCount;
+        long weightSum;
+
+        void addFeedback(long day, int count) {
+            advance(day);
+            if (day > latestDay - WINDOW_DAYS) {
+                feedbackByDay[bucket(day)] += count;
+            }
+        }
+
+        // Clears the buckets that fall out of the window when the newest day moves forward
+        void advance(long today) {
+            if (latestDay == Long.MIN_VALUE || today - latestDay >= WINDOW_DAYS) {
+                Arrays.fill(feedbackByDay, 0);
+            } else {
+                for (long day = latestDay + 1; day <= today; day++) {
+                    feedbackByDay[bucket(day)] = 0;
+                }
+            }
+            latestDay = Math.max(latestDay, today);
+        }
+
+        int feedbackInLast(int days, long today) {
+            advance(today);
+            int count = 0;
+            for (int i = 0; i < days; i++) {
+                count += feedbackByDay[bucket(today - i)];
+            }
+            return count;
+        }
+
+        private static int bucket(long day) {
+            return (int) Math.floorMod(day, (long) WINDOW_DAYS);
+        }
+    }
+
+    private static final Map<DatabaseHelper, ReviewerReputation> instances = new WeakHashMap<>();
+
+    private final DatabaseHelper databaseHelper;
+    private final Map<Integer, Aggregate> aggregates = new HashMap<>();
+    private boolean loaded = false;
+
+    /**
+     * @param databaseHelper the database to load from; may be null when {@link #load(Connection)}
+     *                       is called directly
+     */
+    public ReviewerReputation(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /** Returns the shared aggregates for a DatabaseHelper. */
+    public static ReviewerReputation of(DatabaseHelper databaseHelper) {
+        synchronized (instances) {
+            return instances.computeIfAbsent(databaseHelper, ReviewerReputation::new);
+        }
+    }
+
+    /** Returns a reviewer's reputation, loading the aggregates on first use. */
+    public synchronized Reputation getReputation(int reviewerId) throws SQLException {
+        ensureLoaded();
+        Aggregate aggregate = aggregates.get(reviewerId);
+        if (aggregate == null) {
+            return new Reputation(0, 0, 0, 0, 0);
+        }
+        long today = today();
+        return new Reputation(aggregate.feedbackCount,
+                aggregate.feedbackInLast(RECENT_DAYS, today),
+                aggregate.feedbackInLast(WINDOW_DAYS, today),
+                aggregate.trustedByCount,
+                aggregate.trustedByCount > 0 ? (double) aggregate.weightSum / aggregate.trustedByCount : 0);
+    }
+
+    /** Counts one new piece of feedback for a reviewer. */
+    public synchronized void onFeedbackAdded(int reviewerId) {
+        if (!loaded) {
+            return;     // the first load will count it
+        }
+        Aggregate aggregate = aggregate(reviewerId);
+        aggregate.feedbackCount++;
+        aggregate.addFeedback(today(), 1);
+    }
+
+    /**
+     * Applies a change to one student's trust in a reviewer.
+     *
+     * @param oldWeight the previous weight, 0 if the student did not trust the reviewer
+     * @param newWeight the new weight, 0 if the student no longer trusts the reviewer
+     */
+    public synchronized void onTrustWeightChanged(int reviewerId, int oldWeight, int newWeight) {
+        if (!loaded) {
+            return;
+        }
+        Aggregate aggregate = aggregate(reviewerId);
+        if (oldWeight == 0 && newWeight != 0) {
+            aggregate.trustedByCount++;
+        } else if (oldWeight != 0 && newWeight == 0) {
+            aggregate.trustedByCount--;
+        }
+        aggregate.weightSum += newWeight - oldWeight;
+    }
+
+    /** Drops the aggregates so the next read reloads them, e.g. after bulk changes. */
+    public synchronized void clear() {
+        aggregates.clear();
+        loaded = false;
+    }
+
+    /**
+     * Loads the aggregates with three grouped queries.
+     * Runs under the lock so no write can slip in between the queries and the install.
+     */
+    public synchronized void load(Connection connection) throws SQLException {
+        aggregates.clear();
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT reviewer_id, COUNT(*) FROM ReviewFeedback GROUP BY reviewer_id")) {
+                while (rs.next()) {
+                    aggregate(rs.getInt(1)).feedbackCount = rs.getLong(2);
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT reviewer_id, COUNT(*), SUM(weight) FROM trustedreviewers GROUP BY reviewer_id")) {
+                while (rs.next()) {
+                    Aggregate aggregate = aggregate(rs.getInt(1));
+                    aggregate.trustedByCount = rs.getInt(2);
+                    aggregate.weightSum = rs.getLong(3);
+                }
+            }
+        }
+        long today = today();
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT reviewer_id, CAST(created_at AS DATE) AS day, COUNT(*) FROM ReviewFeedback "
+                        + "WHERE created_at IS NOT NULL AND created_at >= ? GROUP BY reviewer_id, CAST(created_at AS DATE)")) {
+            pstmt.setDate(1, Date.valueOf(LocalDate.ofEpochDay(today - WINDOW_DAYS + 1)));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Aggregate aggregate = aggregate(rs.getInt(1));
+                    aggregate.advance(today);
+                    aggregate.addFeedback(rs.getDate(2).toLocalDate().toEpochDay(), rs.getInt(3));
+                }
+            }
+        }
+        loaded = true;
+    }
+
+    /** Loads the aggregates unless they already are, so pages can do it off the FX thread. */
+    public synchronized void ensureLoaded() throws SQLException {
+        if (!loaded) {
+            try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+                load(connection);
+            }
+        }
+    }
+
+    private Aggregate aggregate(int reviewerId) {
+        return aggregates.computeIfAbsent(reviewerId, id -> new Aggregate());
+    }
+
+    private static long today() {
+        return LocalDate.now().toEpochDay();
+    }
+}
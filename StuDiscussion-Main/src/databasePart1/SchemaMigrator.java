@@ -0,0 +1,207 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Versioned schema migrations for the discussion tables.
+ * <p>
+ * Each migration has a version number and a list of SQL statements. Applied versions are
+ * recorded in the SchemaVersion table, so {@link #migrate(Connection)} only runs the ones a
+ * database has not seen yet. Migrations run in version order, each in its own transaction.
+ * New schema changes are added to the end of {@link #MIGRATIONS}; existing entries must
+ * never be edited once released. H2 commits DDL implicitly, so statements should be
+ * written to be safe to re-run (IF NOT EXISTS) in case a migration fails part way.
+ * </p>
+ */
+public class SchemaMigrator {
+
+    /** A single schema version. */
+    public static class Migration {
+        private final int version;
+        private final String description;
+        private final List<String> statements;
+
+        public Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = List.of(statements);
+        }
+
+        public int getVersion() { return version; }
+        public String getDescription() { return description; }
+        public List<String> getStatements() { return statements; }
+    }
+
+    public static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "Indexes for the hot discussion queries",
+            // Answers for a question, solution first then newest first
+            "CREATE INDEX IF NOT EXISTS idx_answers_question ON Answers(question_id, is_solution, date_created)",
+            // Question list filtered by status and paged by (date_created, id)
+            "CREATE INDEX IF NOT EXISTS idx_questions_resolved_date ON Questions(is_resolved, date_created, id)",
+            "CREATE INDEX IF NOT EXISTS idx_questions_date ON Questions(date_created, id)",
+            "CREATE INDEX IF NOT EXISTS idx_reviews_answer ON Reviews(answer_id)",
+            "CREATE INDEX IF NOT EXISTS idx_reviewupdates_student ON ReviewUpdates(student_id, viewed)",
+            "CREATE INDEX IF NOT EXISTS idx_reviewfeedback_reviewer ON ReviewFeedback(reviewer_id)"),
+        new Migration(2, "Normalized question tags",
+            "CREATE TABLE IF NOT EXISTS Tags ("
+                + "id INT AUTO_INCREMENT PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL UNIQUE)",
+            "CREATE TABLE IF NOT EXISTS QuestionTags ("
+                + "question_id INT NOT NULL, "
+                + "tag_id INT NOT NULL, "
+                + "PRIMARY KEY (question_id, tag_id), "
+                + "FOREIGN KEY (question_id) REFERENCES Questions(id) ON DELETE CASCADE, "
+                + "FOREIGN KEY (tag_id) REFERENCES Tags(id))",
+            "CREATE INDEX IF NOT EXISTS idx_questiontags_tag ON QuestionTags(tag_id, question_id)"),
+        new Migration(3, "Publish review update inserts to the event bus",
+            "CREATE TRIGGER IF NOT EXISTS trg_reviewupdates_insert AFTER INSERT ON ReviewUpdates "
+                + "FOR EACH ROW CALL \"databasePart1.ReviewUpdateTrigger\""),
+        new Migration(4, "Per-reviewer update log for fan-out on read",
+            "CREATE TABLE IF NOT EXISTS ReviewerUpdateLog ("
+                + "id INT AUTO_INCREMENT PRIMARY KEY, "
+                + "reviewer_id INT NOT NULL, "
+                + "review_id INT NOT NULL, "
+                + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+            "CREATE INDEX IF NOT EXISTS idx_reviewerupdatelog_reviewer ON ReviewerUpdateLog(reviewer_id, id)",
+            "CREATE TABLE IF NOT EXISTS ReviewerUpdateLogViews ("
+                + "student_id INT NOT NULL, "
+                + "log_id INT NOT NULL, "
+                + "PRIMARY KEY (student_id, log_id), "
+                + "FOREIGN KEY (log_id) REFERENCES ReviewerUpdateLog(id) ON DELETE CASCADE)",
+            // Followers of a reviewer, for choosing the fan-out mode
+            "CREATE INDEX IF NOT EXISTS idx_trustedreviewers_reviewer ON trustedreviewers(reviewer_id, student_id)"),
+        new Migration(5, "Feedback timestamps for reviewer reputation windows",
+            // Existing feedback stays null, since when it was given is unknown, and the reputation
+            // windows leave it out; new feedback gets the insert time
+            "ALTER TABLE ReviewFeedback ADD COLUMN IF NOT EXISTS created_at TIMESTAMP",
+            "ALTER TABLE ReviewFeedback ALTER COLUMN created_at SET DEFAULT CURRENT_TIMESTAMP"),
+        new Migration(6, "Role index for paginated user lookups",
+            "CREATE TABLE IF NOT EXISTS UserDirectory ("
+                + "user_id INT PRIMARY KEY, "
+                + "user_name VARCHAR(255) NOT NULL UNIQUE)",
+            // The primary key is the role index: users of one role in id order
+            "CREATE TABLE IF NOT EXISTS UserRoles ("
+                + "role VARCHAR(20) NOT NULL, "
+                + "user_id INT NOT NULL, "
+                + "PRIMARY KEY (role, user_id), "
+                + "FOREIGN KEY (user_id) REFERENCES UserDirectory(user_id) ON DELETE CASCADE)",
+            "CREATE INDEX IF NOT EXISTS idx_userroles_user ON UserRoles(user_id)"),
+        new Migration(7, "Invitation codes issued in bulk",
+            // used_at is null until the code is redeemed
+            "CREATE TABLE IF NOT EXISTS Invitations ("
+                + "code VARCHAR(16) PRIMARY KEY, "
+                + "role VARCHAR(20) NOT NULL, "
+                + "expires_at TIMESTAMP NOT NULL, "
+                + "used_at TIMESTAMP)"),
+        new Migration(8, "Outstanding one-time passwords",
+            "CREATE TABLE IF NOT EXISTS OneTimePasswords ("
+                + "user_name VARCHAR(255) PRIMARY KEY, "
+                + "code_hash VARCHAR(64) NOT NULL, "
+                + "expires_at TIMESTAMP NOT NULL)",
+            // Expired rows left by a shutdown are deleted by range at the next start
+            "CREATE INDEX IF NOT EXISTS idx_onetimepasswords_expires ON OneTimePasswords(expires_at)"),
+        new Migration(9, "Trust timestamps so fan-out on read starts when the trust does",
+            // Existing edges stay null, since when they were made is unknown; new ones get the
+            // insert time. Invisible, so SELECT * and INSERTs without a column list are unchanged
+            "ALTER TABLE trustedreviewers ADD COLUMN IF NOT EXISTS created_at TIMESTAMP INVISIBLE",
+            "ALTER TABLE trustedreviewers ALTER COLUMN created_at SET DEFAULT CURRENT_TIMESTAMP")
+    );
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * Brings a DatabaseHelper's schema up to date. Call after connectToDatabase(); the
+     * helper's connection is left open for the rest of the application.
+     *
+     * @return the number of migrations applied
+     */
+    public static int migrate(DatabaseHelper databaseHelper) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            return migrate(connection);
+        }
+    }
+
+    /**
+     * Applies every migration newer than the database's current version.
+     *
+     * @param connection an open connection to the database
+     * @return the number of migrations applied
+     */
+    public static synchronized int migrate(Connection connection) throws SQLException {
+        return migrate(connection, MIGRATIONS);
+    }
+
+    static int migrate(Connection connection, List<Migration> migrations) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS SchemaVersion ("
+                    + "version INT PRIMARY KEY, "
+                    + "description VARCHAR(255), "
+                    + "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+
+        List<Migration> pending = new ArrayList<>();
+        int current = getCurrentVersion(connection);
+        for (Migration migration : migrations) {
+            if (migration.getVersion() > current) {
+                pending.add(migration);
+            }
+        }
+        pending.sort((m1, m2) -> Integer.compare(m1.getVersion(), m2.getVersion()));
+
+        boolean autoCommit = connection.getAutoCommit();
+        try {
+            connection.setAutoCommit(false);
+            for (Migration migration : pending) {
+                try (Statement stmt = connection.createStatement();
+                     PreparedStatement record = connection.prepareStatement(
+                             "INSERT INTO SchemaVersion (version, description) VALUES (?, ?)")) {
+                    for (String sql : migration.getStatements()) {
+                        stmt.execute(sql);
+                    }
+                    record.setInt(1, migration.getVersion());
+                    record.setString(2, migration.getDescription());
+                    record.executeUpdate();
+                    connection.commit();
+                    System.out.println("Applied schema migration " + migration.getVersion()
+                            + ": " + migration.getDescription());
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw new SQLException("Schema migration " + migration.getVersion() + " failed: "
+                            + e.getMessage(), e);
+                }
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return pending.size();
+    }
+
+    /** @return the highest applied migration version, or 0 for a fresh database */
+    public static int getCurrentVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM SchemaVersion")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /** @return the applied migration versions in order */
+    public static List<Integer> getAppliedVersions(Connection connection) throws SQLException {
+        List<Integer> versions = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version FROM SchemaVersion ORDER BY version")) {
+            while (rs.next()) {
+                versions.add(rs.getInt(1));
+            }
+        }
+        return Collections.unmodifiableList(versions);
+    }
+}
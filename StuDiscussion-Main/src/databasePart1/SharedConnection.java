@@ -0,0 +1,113 @@
+package databasePart1;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Borrowed use of DatabaseHelper's single shared connection.
+ * <p>
+ * Most code reaches the database through {@link ConnectionPool#borrow(DatabaseHelper)}
+ * and gets a connection of its own. This class is for the rest: code that must run on the
+ * connection DatabaseHelper's own methods use, e.g. to roll back their writes, and the
+ * pool's fallback when it cannot connect. DatabaseHelper.getConnection() returns that one
+ * connection, so closing it breaks the rest of the application. {@link #borrow(DatabaseHelper)} returns a lease on
+ * that connection whose close() gives it back open instead, so callers can keep using
+ * try-with-resources. A lease is exclusive: other threads wait in borrow() until it is
+ * closed, so a transaction on the lease never picks up another thread's statements.
+ * Closing a lease rolls back work left uncommitted and restores the auto-commit mode it
+ * was borrowed with. Calls made straight on DatabaseHelper do not take the lease.
+ * </p>
+ */
+public final class SharedConnection {
+
+    // One lock per DatabaseHelper instance
+    private static final Map<DatabaseHelper, ReentrantLock> locks = new WeakHashMap<>();
+
+    private SharedConnection() {
+    }
+
+    /**
+     * Leases the helper's shared connection, waiting while another thread holds it.
+     *
+     * @return the lease; close it to give the connection back
+     */
+    public static Connection borrow(DatabaseHelper databaseHelper) throws SQLException {
+        ReentrantLock lock;
+        synchronized (locks) {
+            lock = locks.computeIfAbsent(databaseHelper, db -> new ReentrantLock());
+        }
+        return lease(databaseHelper.getConnection(), lock);
+    }
+
+    /**
+     * Leases a connection shared under a lock. Leases may nest on one thread.
+     *
+     * @param shared the connection to lend; it is never closed
+     * @param lock   the lock every lease of the connection takes
+     */
+    public static Connection lease(Connection shared, ReentrantLock lock) throws SQLException {
+        lock.lock();
+        boolean autoCommit;
+        try {
+            autoCommit = shared.getAutoCommit();
+        } catch (SQLException | RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean returned = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!returned) {
+                            returned = true;
+                            giveBack(shared, autoCommit, lock);
+                        }
+                        return null;
+                    case "isClosed":
+                        return returned || shared.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Shared" + shared;
+                    default:
+                        if (returned) {
+                            throw new SQLException("Connection lease has already been closed");
+                        }
+                        try {
+                            return method.invoke(shared, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+    }
+
+    private static void giveBack(Connection shared, boolean autoCommit, ReentrantLock lock) throws SQLException {
+        try {
+            if (!shared.isClosed() && shared.getAutoCommit() != autoCommit) {
+                if (!shared.getAutoCommit()) {
+                    shared.rollback();
+                }
+                shared.setAutoCommit(autoCommit);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package databasePart1;
+
+import application.User;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Identity map of User objects in front of DatabaseHelper.getUserById and getUserByUserName.
+ * <p>
+ * Each user is loaded once and the same instance is returned to every caller until it is
+ * evicted (least recently used first once the cache is full) or invalidated. Writes that
+ * change a user must go through the methods on this class, or call {@link #invalidate(String)},
+ * so the cached copy never goes stale.
+ * </p>
+ */
+public class UserCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    // One cache per DatabaseHelper instance
+    private static final Map<DatabaseHelper, UserCache> caches = new WeakHashMap<>();
+
+    private final DatabaseHelper databaseHelper;
+    private final int maxSize;
+    private final LinkedHashMap<Integer, User> byId;            // access-ordered for LRU eviction
+    private final Map<String, Integer> idByUserName = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long version = 0;   // bumped on every invalidation, guarded by this
+
+    public UserCache(DatabaseHelper databaseHelper, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.databaseHelper = databaseHelper;
+        this.maxSize = maxSize;
+        this.byId = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the shared cache for a DatabaseHelper, creating it on first use.
+     *
+     * @param databaseHelper the database the users come from
+     * @return the cache for that database
+     */
+    public static UserCache of(DatabaseHelper databaseHelper) {
+        synchronized (caches) {
+            return caches.computeIfAbsent(databaseHelper, db -> new UserCache(db, DEFAULT_MAX_SIZE));
+        }
+    }
+
+    public User getUserById(int id) throws SQLException {
+        long loadVersion;
+        synchronized (this) {
+            User user = byId.get(id);
+            if (user != null) {
+                hits.incrementAndGet();
+                return user;
+            }
+            loadVersion = version;
+        }
+        misses.incrementAndGet();
+        // Query outside the lock so other lookups are not blocked on the database
+        return remember(databaseHelper.getUserById(id), loadVersion);
+    }
+
+    public User getUserByUserName(String userName) throws SQLException {
+        long loadVersion;
+        synchronized (this) {
+            Integer id = idByUserName.get(userName);
+            if (id != null) {
+                User user = byId.get(id);
+                if (user != null) {
+                    hits.incrementAndGet();
+                    return user;
+                }
+            }
+            loadVersion = version;
+        }
+        misses.incrementAndGet();
+        return remember(databaseHelper.getUserByUserName(userName), loadVersion);
+    }
+
+    // Write-through operations that keep the cache consistent with the database
+
+    public void updateUserPassword(String userName, String newPassword) throws SQLException {
+        try {
+            databaseHelper.updateUserPassword(userName, newPassword);
+        } finally {
+            invalidate(userName);
+        }
+    }
+
+    public void addUserRole(String userName, String role) throws SQLException {
+        try {
+            databaseHelper.addUserRole(userName, role);
+        } finally {
+            invalidate(userName);
+        }
+        User user = getUserByUserName(userName);
+        if (user != null) {
+            UserRoleIndex.of(databaseHelper).onRoleAdded(user, role);
+        }
+    }
+
+    public void removeUserRole(String userName, String role) throws SQLException {
+        try {
+            databaseHelper.removeUserRole(userName, role);
+        } finally {
+            invalidate(userName);
+        }
+        User user = getUserByUserName(userName);
+        if (user != null) {
+            UserRoleIndex.of(databaseHelper).onRoleRemoved(user, role);
+        }
+    }
+
+    public void deleteUser(String userName) throws SQLException {
+        try {
+            databaseHelper.deleteUser(userName);
+        } finally {
+            invalidate(userName);
+        }
+        UserRoleIndex.of(databaseHelper).onUserDeleted(userName);
+    }
+
+    /** Drops the cached copy of a user so the next lookup reloads it. */
+    public synchronized void invalidate(String userName) {
+        version++;
+        Integer id = idByUserName.remove(userName);
+        if (id != null) {
+            byId.remove(id);
+        }
+    }
+
+    /** Drops the cached copy of a user so the next lookup reloads it. */
+    public synchronized void invalidate(int id) {
+        version++;
+        User user = byId.remove(id);
+        if (user != null) {
+            idByUserName.remove(user.getUserName());
+        }
+    }
+
+    public synchronized void clear() {
+        version++;
+        byId.clear();
+        idByUserName.clear();
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public synchronized int size() { return byId.size(); }
+
+    // Cache a freshly loaded user unless an invalidation happened while it was loading
+    private synchronized User remember(User loaded, long loadVersion) {
+        if (loaded == null) {
+            return null;
+        }
+        User existing = byId.get(loaded.getId());
+        if (existing != null) {
+            return existing;    // another thread loaded it first; keep one instance per id
+        }
+        if (loadVersion != version) {
+            return loaded;
+        }
+        byId.put(loaded.getId(), loaded);
+        idByUserName.put(loaded.getUserName(), loaded.getId());
+
+        if (byId.size() > maxSize) {
+            Map.Entry<Integer, User> eldest = byId.entrySet().iterator().next();
+            byId.remove(eldest.getKey());
+            idByUserName.remove(eldest.getValue().getUserName());
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,304 @@
+package databasePart1;
+
+import application.Autocomplete;
+import application.Role;
+import application.User;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Role-indexed, paginated user lookups, so pages never load every account.
+ * <p>
+ * User names and roles are mirrored into the UserDirectory and UserRoles tables, which
+ * SchemaMigrator creates. The primary key of UserRoles, (role, user_id), is the role index:
+ * a page of users with one role is a range scan continuing after the last id seen. The
+ * tables are filled from the existing accounts on first use and kept up to date through
+ * {@link UserCache}, which every role change and deletion goes through, and by
+ * {@link #onUserRegistered(User)}. Accounts registered without that hook are picked up on
+ * the next lookup: account ids come from DatabaseHelper's user counter, so every id above
+ * the highest one indexed is loaded and added.
+ * </p>
+ */
+public class UserRoleIndex {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private static final Map<DatabaseHelper, UserRoleIndex> instances = new WeakHashMap<>();
+
+    private final DatabaseHelper databaseHelper;
+    private boolean backfilled = false;
+    private int indexedThrough = 0;     // every account id up to this one has been indexed
+
+    /**
+     * @param databaseHelper the database to index; may be null when only the methods
+     *                       taking a Connection are used
+     */
+    public UserRoleIndex(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /** Returns the shared index for a DatabaseHelper. */
+    public static UserRoleIndex of(DatabaseHelper databaseHelper) {
+        synchronized (instances) {
+            return instances.computeIfAbsent(databaseHelper, UserRoleIndex::new);
+        }
+    }
+
+    /**
+     * Returns one page of the users holding a role, in id order.
+     *
+     * @param role             the role name, e.g. "Reviewer"
+     * @param excludeTrustedBy a student whose trusted reviewers, and the student themselves,
+     *                         are left out; null to leave nobody out
+     * @param afterUserId      the cursor: the last id of the previous page, 0 for the first page
+     * @param limit            the page size
+     */
+    public List<User> getUsersByRole(String role, Integer excludeTrustedBy, int afterUserId, int limit) throws SQLException {
+        List<Integer> ids;
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            ensureBackfilled(connection);
+            ids = getUserIdsByRole(connection, role, excludeTrustedBy, afterUserId, limit);
+        }
+        UserCache users = UserCache.of(databaseHelper);
+        List<User> page = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            User user = users.getUserById(id);
+            if (user != null) {
+                page.add(user);
+            }
+        }
+        return page;
+    }
+
+    public static List<Integer> getUserIdsByRole(Connection connection, String role, Integer excludeTrustedBy,
+                                                 int afterUserId, int limit) throws SQLException {
+        String sql = "SELECT r.user_id FROM UserRoles r WHERE r.role = ? AND r.user_id > ?";
+        if (excludeTrustedBy != null) {
+            sql += " AND r.user_id <> ? AND NOT EXISTS (SELECT 1 FROM trustedreviewers t "
+                    + "WHERE t.student_id = ? AND t.reviewer_id = r.user_id)";
+        }
+        sql += " ORDER BY r.user_id LIMIT ?";
+
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            int index = 1;
+            pstmt.setString(index++, roleKey(role));
+            pstmt.setInt(index++, afterUserId);
+            if (excludeTrustedBy != null) {
+                pstmt.setInt(index++, excludeTrustedBy);
+                pstmt.setInt(index++, excludeTrustedBy);
+            }
+            pstmt.setInt(index, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Returns one page of user names in alphabetical order.
+     *
+     * @param prefix        only names starting with this; null or empty for all
+     * @param afterUserName the cursor: the last name of the previous page, null for the first page
+     * @param limit         the page size
+     */
+    public List<String> getUserNames(String prefix, String afterUserName, int limit) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            ensureBackfilled(connection);
+            return getUserNames(connection, prefix, afterUserName, limit);
+        }
+    }
+
+    public static List<String> getUserNames(Connection connection, String prefix, String afterUserName, int limit)
+            throws SQLException {
+        String sql = "SELECT user_name FROM UserDirectory WHERE user_name > ?";
+        boolean filtered = prefix != null && !prefix.isEmpty();
+        if (filtered) {
+            sql += " AND user_name LIKE ? ESCAPE '\\'";
+        }
+        sql += " ORDER BY user_name LIMIT ?";
+
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            int index = 1;
+            pstmt.setString(index++, afterUserName != null ? afterUserName : "");
+            if (filtered) {
+                pstmt.setString(index++, prefix.replaceAll("([\\\\%_])", "\\\\$1") + "%");
+            }
+            pstmt.setInt(index, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns every user name, or those holding a role, in one streamed query.
+     * Used to fill in-memory indexes once; pages should use the paginated lookups.
+     *
+     * @param role the role name, or null for all users
+     */
+    public List<String> getAllUserNames(String role) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            ensureBackfilled(connection);
+            String sql = role == null ? "SELECT user_name FROM UserDirectory"
+                    : "SELECT d.user_name FROM UserRoles r JOIN UserDirectory d ON d.user_id = r.user_id WHERE r.role = ?";
+            List<String> names = new ArrayList<>();
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                if (role != null) {
+                    pstmt.setString(1, roleKey(role));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        names.add(rs.getString(1));
+                    }
+                }
+            }
+            return names;
+        }
+    }
+
+    /** Adds a new account and its roles to the index. */
+    public void onUserRegistered(User user) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            if (ensureBackfilled(connection)) {
+                index(connection, List.of(user));
+            }
+        }
+        Autocomplete.of(databaseHelper).onUserRegistered(user);
+    }
+
+    public void onRoleAdded(User user, String role) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            if (!ensureBackfilled(connection)) {
+                return;
+            }
+            // Only the directory row: the User's role list may predate other changes
+            try (PreparedStatement directory = connection.prepareStatement(
+                         "MERGE INTO UserDirectory (user_id, user_name) KEY (user_id) VALUES (?, ?)");
+                 PreparedStatement roles = connection.prepareStatement(
+                         "MERGE INTO UserRoles (role, user_id) KEY (role, user_id) VALUES (?, ?)")) {
+                directory.setInt(1, user.getId());
+                directory.setString(2, user.getUserName());
+                directory.executeUpdate();
+                roles.setString(1, roleKey(role));
+                roles.setInt(2, user.getId());
+                roles.executeUpdate();
+            }
+        } finally {
+            Autocomplete.of(databaseHelper).onRoleChanged(user.getUserName(), roleKey(role), true);
+        }
+    }
+
+    public void onRoleRemoved(User user, String role) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            if (!ensureBackfilled(connection)) {
+                return;
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "DELETE FROM UserRoles WHERE role = ? AND user_id = ?")) {
+                pstmt.setString(1, roleKey(role));
+                pstmt.setInt(2, user.getId());
+                pstmt.executeUpdate();
+            }
+        } finally {
+            Autocomplete.of(databaseHelper).onRoleChanged(user.getUserName(), roleKey(role), false);
+        }
+    }
+
+    // The user's UserRoles rows go away through ON DELETE CASCADE
+    public void onUserDeleted(String userName) throws SQLException {
+        try (Connection connection = ConnectionPool.borrow(databaseHelper)) {
+            if (!ensureBackfilled(connection)) {
+                return;
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM UserDirectory WHERE user_name = ?")) {
+                pstmt.setString(1, userName);
+                pstmt.executeUpdate();
+            }
+        } finally {
+            Autocomplete.of(databaseHelper).onUserDeleted(userName);
+        }
+    }
+
+    /**
+     * Writes users and their roles into the index tables in one batch per table.
+     * Existing rows are kept, so this is safe to repeat.
+     */
+    public static void index(Connection connection, Collection<User> users) throws SQLException {
+        try (PreparedStatement directory = connection.prepareStatement(
+                     "MERGE INTO UserDirectory (user_id, user_name) KEY (user_id) VALUES (?, ?)");
+             PreparedStatement roles = connection.prepareStatement(
+                     "MERGE INTO UserRoles (role, user_id) KEY (role, user_id) VALUES (?, ?)")) {
+            for (User user : users) {
+                directory.setInt(1, user.getId());
+                directory.setString(2, user.getUserName());
+                directory.addBatch();
+                for (String role : user.getRoles()) {
+                    roles.setString(1, roleKey(role));
+                    roles.setInt(2, user.getId());
+                    roles.addBatch();
+                }
+            }
+            directory.executeBatch();
+            roles.executeBatch();
+        }
+    }
+
+    /*
+     * Fills the index from the existing accounts the first time it is used on an empty
+     * directory, and on every use adds the accounts registered since the highest indexed
+     * id. Returns false if the full backfill just saw the latest state, so a write hook
+     * has nothing left to do.
+     */
+    private synchronized boolean ensureBackfilled(Connection connection) throws SQLException {
+        if (!backfilled) {
+            SchemaMigrator.migrate(connection);
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT MAX(user_id) FROM UserDirectory")) {
+                indexedThrough = rs.next() ? rs.getInt(1) : 0;
+            }
+            backfilled = true;
+            if (indexedThrough == 0) {
+                index(connection, databaseHelper.getAllUserObjects());
+                indexedThrough = databaseHelper.get_num_users();
+                return false;
+            }
+        }
+
+        int registered = databaseHelper.get_num_users();
+        if (registered > indexedThrough) {
+            List<User> missing = new ArrayList<>();
+            UserCache users = UserCache.of(databaseHelper);
+            for (int id = indexedThrough + 1; id <= registered; id++) {
+                User user = users.getUserById(id);
+                if (user != null) {     // deleted accounts leave gaps
+                    missing.add(user);
+                }
+            }
+            index(connection, missing);
+            indexedThrough = registered;
+        }
+        return true;
+    }
+
+    // Role names are stored in any case, the index holds the canonical display name
+    private static String roleKey(String role) {
+        Role known = Role.fromName(role);
+        return known != null ? known.getDisplayName() : role;
+    }
+}